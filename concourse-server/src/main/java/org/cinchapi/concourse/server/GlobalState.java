@@ -90,6 +90,75 @@ public final class GlobalState extends Constants {
      */
     public static int BUFFER_PAGE_SIZE = 8192;
 
+    /**
+     * Whether the Buffer should use group commit when writes must be synced.
+     * With group commit, concurrent writers append to the Buffer without
+     * forcing it to disk and a dedicated thread performs a single flush on
+     * behalf of all of them. Each writer still waits until its data is
+     * durable, so this improves throughput when there are many concurrent
+     * writers without sacrificing durability.
+     */
+    public static boolean ENABLE_BUFFER_GROUP_COMMIT = false;
+
+    /**
+     * The maximum number of milliseconds that the Buffer waits for more writers
+     * to join a group commit before flushing. A value of 0 means that a flush
+     * happens as soon as a writer is waiting, which still batches all of the
+     * writers that arrive while a previous flush is in progress.
+     */
+    public static int BUFFER_GROUP_COMMIT_MAX_DELAY = 0;
+
+    /**
+     * The maximum size of a Database block that is produced by background
+     * compaction. Adjacent blocks are merged as long as the result fits within
+     * this limit, which reduces the number of filters, indexes and files that
+     * must be consulted on every read. Each merge happens in memory, so be sure
+     * to balance the desire for fewer blocks with the amount of heap that is
+     * available. A value of 0 disables compaction.
+     */
+    public static int COMPACTION_MAX_BLOCK_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Whether the revisions in each Database block file should be grouped into
+     * chunks that are compressed. Compression significantly reduces the size of
+     * the database on disk and the amount of data that is read for each seek
+     * at the cost of some CPU to decompress the relevant chunks.
+     */
+    public static boolean ENABLE_BLOCK_COMPRESSION = false;
+
+    /**
+     * Whether each mutable Database block should append revisions to an array
+     * and sort them when the block is synced, instead of keeping them sorted
+     * in a tree as they are inserted. Deferring the sort reduces the CPU and
+     * garbage that is generated while data is transported from the Buffer.
+     */
+    public static boolean ENABLE_SORT_ON_SYNC = true;
+
+    /**
+     * Whether the Database should build its search index on a dedicated thread
+     * that catches up with the writes that are transported from the Buffer,
+     * instead of indexing each write before the transport is complete. Search
+     * results still include the writes that are waiting to be indexed.
+     */
+    public static boolean ENABLE_ASYNC_SEARCH_INDEXING = false;
+
+    /**
+     * The target false positive probability for the bloom filter of each
+     * Database block. When a block is synced, its filter is rebuilt so that it
+     * is just large enough to achieve this probability for the data in the
+     * block. A lower value reduces the number of unnecessary seeks at the cost
+     * of more memory for each filter.
+     */
+    public static double BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY = 0.03;
+
+    /**
+     * The maximum amount of memory that each Engine uses to cache the records
+     * that match recent search queries. The cached results for a key are
+     * discarded whenever a string value for that key is added or removed. A
+     * value of 0 disables the cache.
+     */
+    public static long SEARCH_CACHE_SIZE = 16 * 1024 * 1024;
+
     /**
      * The listener port (1-65535) for client connections. Choose a port between
      * 49152 and 65535 to minimize the possibility of conflicts with other
@@ -198,6 +267,33 @@ public final class GlobalState extends Constants {
             BUFFER_PAGE_SIZE = (int) config.getSize("buffer_page_size",
                     BUFFER_PAGE_SIZE);
 
+            COMPACTION_MAX_BLOCK_SIZE = (int) config.getSize(
+                    "compaction_max_block_size", COMPACTION_MAX_BLOCK_SIZE);
+
+            ENABLE_BLOCK_COMPRESSION = config.getBoolean(
+                    "enable_block_compression", ENABLE_BLOCK_COMPRESSION);
+
+            ENABLE_SORT_ON_SYNC = config.getBoolean("enable_sort_on_sync",
+                    ENABLE_SORT_ON_SYNC);
+
+            ENABLE_ASYNC_SEARCH_INDEXING = config.getBoolean(
+                    "enable_async_search_indexing",
+                    ENABLE_ASYNC_SEARCH_INDEXING);
+
+            BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY = config.getDouble(
+                    "bloom_filter_false_positive_probability",
+                    BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY);
+
+            SEARCH_CACHE_SIZE = config.getSize("search_cache_size",
+                    SEARCH_CACHE_SIZE);
+
+            ENABLE_BUFFER_GROUP_COMMIT = config.getBoolean(
+                    "enable_buffer_group_commit", ENABLE_BUFFER_GROUP_COMMIT);
+
+            BUFFER_GROUP_COMMIT_MAX_DELAY = config.getInt(
+                    "buffer_group_commit_max_delay",
+                    BUFFER_GROUP_COMMIT_MAX_DELAY);
+
             CLIENT_PORT = config.getInt("client_port", CLIENT_PORT);
 
             SHUTDOWN_PORT = config.getInt("shutdown_port",
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link ByteableCodec} reads instances of a single {@link Byteable} type
+ * from their binary representation by calling the type's factory directly.
+ * The codecs for the types that are read most often are registered in
+ * {@link ByteableCodecs}.
+ * 
+ * @author Jeff Nelson
+ * @param <T> - the type that is read
+ */
+public interface ByteableCodec<T> {
+
+    /**
+     * Return the instance that is encoded in {@code bytes}. It is assumed that
+     * all the remaining content of {@code bytes} belongs to the instance.
+     * 
+     * @param bytes
+     * @return the instance
+     */
+    public T decode(ByteBuffer bytes);
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.io;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.cinchapi.concourse.server.model.Position;
+import org.cinchapi.concourse.server.model.PrimaryKey;
+import org.cinchapi.concourse.server.model.Text;
+import org.cinchapi.concourse.server.model.Value;
+import org.cinchapi.concourse.server.storage.db.PrimaryRevision;
+import org.cinchapi.concourse.server.storage.db.SearchRevision;
+import org.cinchapi.concourse.server.storage.db.SecondaryRevision;
+import org.cinchapi.concourse.server.storage.temp.Write;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * A fixed registry of the {@link ByteableCodec codecs} for the
+ * {@link Byteable} types that are read from disk most often. The
+ * {@link Byteables} read methods use the registered codec for a type, if there
+ * is one, instead of reflection. The registry is built once and never
+ * modified, so it is safe for concurrent use.
+ * 
+ * @author Jeff Nelson
+ */
+@ThreadSafe
+public final class ByteableCodecs {
+
+    /**
+     * Return the codec that is registered for {@code clazz}, if it exists.
+     * 
+     * @param clazz
+     * @return the codec or {@code null}
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static <T> ByteableCodec<T> get(Class<T> clazz) {
+        return (ByteableCodec<T>) CODECS.get(clazz);
+    }
+
+    public static final ByteableCodec<Position> POSITION = new ByteableCodec<Position>() {
+
+        @Override
+        public Position decode(ByteBuffer bytes) {
+            return Position.fromByteBuffer(bytes);
+        }
+
+    };
+
+    public static final ByteableCodec<PrimaryKey> PRIMARY_KEY = new ByteableCodec<PrimaryKey>() {
+
+        @Override
+        public PrimaryKey decode(ByteBuffer bytes) {
+            return PrimaryKey.fromByteBuffer(bytes);
+        }
+
+    };
+
+    public static final ByteableCodec<PrimaryRevision> PRIMARY_REVISION = new ByteableCodec<PrimaryRevision>() {
+
+        @Override
+        public PrimaryRevision decode(ByteBuffer bytes) {
+            return PrimaryRevision.fromByteBuffer(bytes);
+        }
+
+    };
+
+    public static final ByteableCodec<SearchRevision> SEARCH_REVISION = new ByteableCodec<SearchRevision>() {
+
+        @Override
+        public SearchRevision decode(ByteBuffer bytes) {
+            return SearchRevision.fromByteBuffer(bytes);
+        }
+
+    };
+
+    public static final ByteableCodec<SecondaryRevision> SECONDARY_REVISION = new ByteableCodec<SecondaryRevision>() {
+
+        @Override
+        public SecondaryRevision decode(ByteBuffer bytes) {
+            return SecondaryRevision.fromByteBuffer(bytes);
+        }
+
+    };
+
+    public static final ByteableCodec<Text> TEXT = new ByteableCodec<Text>() {
+
+        @Override
+        public Text decode(ByteBuffer bytes) {
+            return Text.fromByteBuffer(bytes);
+        }
+
+    };
+
+    public static final ByteableCodec<Value> VALUE = new ByteableCodec<Value>() {
+
+        @Override
+        public Value decode(ByteBuffer bytes) {
+            return Value.fromByteBuffer(bytes);
+        }
+
+    };
+
+    public static final ByteableCodec<Write> WRITE = new ByteableCodec<Write>() {
+
+        @Override
+        public Write decode(ByteBuffer bytes) {
+            return Write.fromByteBuffer(bytes);
+        }
+
+    };
+
+    /**
+     * The registered codecs, keyed by the class that each one reads.
+     */
+    private static final Map<Class<?>, ByteableCodec<?>> CODECS = ImmutableMap
+            .<Class<?>, ByteableCodec<?>> builder()
+            .put(Position.class, POSITION).put(PrimaryKey.class, PRIMARY_KEY)
+            .put(PrimaryRevision.class, PRIMARY_REVISION)
+            .put(SearchRevision.class, SEARCH_REVISION)
+            .put(SecondaryRevision.class, SECONDARY_REVISION)
+            .put(Text.class, TEXT).put(Value.class, VALUE)
+            .put(Write.class, WRITE).build();
+
+    private ByteableCodecs() {/* noop */}
+
+}
@@ -20,6 +20,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.cinchapi.concourse.util.ByteBuffers;
 
@@ -46,6 +47,51 @@ public class ByteableCollections {
         return new ByteableCollectionIterator(bytes);
     }
 
+    /**
+     * Return an iterator that will traverse {@code bytes}, which contain a
+     * series of chunks that were produced by {@link #toCompressedChunk}, and
+     * return a series of byte buffers, each of which can be used to
+     * reconstruct a {@link Byteable} object that is a member of a collection.
+     * Each chunk is only decompressed once the iterator reaches it.
+     * 
+     * @param bytes
+     * @return the iterator
+     */
+    public static Iterator<ByteBuffer> compressedIterator(ByteBuffer bytes) {
+        return compressedIterator(bytes, false);
+    }
+
+    /**
+     * Return an iterator that will traverse {@code bytes}, which contain a
+     * series of chunks that were produced by {@link #toCompressedChunk}, and
+     * return a series of byte buffers, each of which can be used to
+     * reconstruct a {@link Byteable} object that is a member of a collection.
+     * If {@code encoded} is {@code true}, the content of each chunk must have
+     * been written by a {@link PrefixEncoder} that was reset at the start of
+     * the chunk.
+     * 
+     * @param bytes
+     * @param encoded
+     * @return the iterator
+     */
+    public static Iterator<ByteBuffer> compressedIterator(ByteBuffer bytes,
+            boolean encoded) {
+        return new CompressedChunkIterator(bytes, encoded);
+    }
+
+    /**
+     * Return an iterator that will traverse {@code bytes}, which contain a
+     * series of elements that were written by a {@link PrefixEncoder}, and
+     * return a series of byte buffers, each of which contains the original
+     * form of an element.
+     * 
+     * @param bytes
+     * @return the iterator
+     */
+    public static Iterator<ByteBuffer> encodedIterator(ByteBuffer bytes) {
+        return new PrefixDecodingIterator(bytes);
+    }
+
     /**
      * Return an iterator that will traverse {@code bytes} and return a series
      * of fixed size byte buffers, each of which can be used to reconstruct a
@@ -172,6 +218,25 @@ public class ByteableCollections {
         return buffer;
     }
 
+    /**
+     * Compress {@code bytes}, which contain an encoded collection, into a chunk
+     * that can be traversed by {@link #compressedIterator(ByteBuffer)}. The
+     * chunk is the length of the original bytes and the length of the
+     * compressed bytes (4 bytes each) followed by the compressed bytes.
+     * 
+     * @param bytes
+     * @return the chunk
+     */
+    public static ByteBuffer toCompressedChunk(ByteBuffer bytes) {
+        ByteBuffer compressed = Compression.compress(bytes);
+        ByteBuffer chunk = ByteBuffer.allocate(compressed.remaining() + 8);
+        chunk.putInt(bytes.remaining());
+        chunk.putInt(compressed.remaining());
+        chunk.put(compressed);
+        chunk.rewind();
+        return chunk;
+    }
+
     /**
      * Encode the collection as a sequence of bytes where every element is
      * {@code sizePerElement} bytes.
@@ -259,6 +324,232 @@ public class ByteableCollections {
         }
     }
 
+    /**
+     * An {@link Iterator} that traverses a byte buffer of compressed chunks and
+     * returns the sub sequences in each chunk after it is decompressed.
+     * 
+     * @author Jeff Nelson
+     */
+    private static class CompressedChunkIterator implements
+            Iterator<ByteBuffer> {
+
+        private final ByteBuffer bytes;
+        private Iterator<ByteBuffer> chunk = null;
+        private final boolean encoded;
+
+        /**
+         * Construct a new instance.
+         * 
+         * @param bytes
+         * @param encoded
+         */
+        protected CompressedChunkIterator(ByteBuffer bytes, boolean encoded) {
+            this.bytes = bytes;
+            this.encoded = encoded;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while ((chunk == null || !chunk.hasNext())
+                    && bytes.remaining() >= 8) {
+                int length = bytes.getInt();
+                int compressed = bytes.getInt();
+                ByteBuffer source = ByteBuffers.slice(bytes,
+                        bytes.position(), compressed);
+                bytes.position(bytes.position() + compressed);
+                ByteBuffer decompressed = Compression.decompress(source,
+                        length);
+                chunk = encoded ? new PrefixDecodingIterator(decompressed)
+                        : new ByteableCollectionIterator(decompressed);
+            }
+            return chunk != null && chunk.hasNext();
+        }
+
+        @Override
+        public ByteBuffer next() {
+            if(hasNext()) {
+                return chunk.next();
+            }
+            else {
+                throw new NoSuchElementException();
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "This method is not supported.");
+        }
+
+    }
+
+    /**
+     * An encoder for a sorted collection of elements that each begin with a 1
+     * byte tag and an 8 byte version (e.g. a
+     * {@link org.cinchapi.concourse.server.storage.db.Revision Revision}). In
+     * a sorted collection, consecutive elements usually have a long common
+     * prefix after the version (i.e. the same locator and key), so each
+     * element is written as:
+     * <ol>
+     * <li>the tag</li>
+     * <li>the difference between its version and the previous one, as a
+     * zigzag varint</li>
+     * <li>the number of bytes after the version that are shared with the
+     * previous element, as a varint</li>
+     * <li>the number of bytes that are not shared, as a varint</li>
+     * <li>the bytes that are not shared</li>
+     * </ol>
+     * Decoding an element requires all of the elements before it, so the
+     * encoder should be {@link #reset()} at each point where a reader might
+     * start (e.g. each compressed chunk).
+     * 
+     * @author Jeff Nelson
+     */
+    public static final class PrefixEncoder {
+
+        /**
+         * Return the largest number of bytes that an element of {@code size}
+         * bytes can occupy once it is encoded.
+         * 
+         * @param size
+         * @return the max encoded size
+         */
+        public static int getMaxEncodedSize(int size) {
+            return size - 9 + 1 + 10 + 5 + 5;
+        }
+
+        private byte[] previous = new byte[0];
+        private long version = 0;
+
+        /**
+         * Write the encoded form of the remaining bytes in {@code element} to
+         * {@code buffer}. The position of {@code element} is not modified.
+         * 
+         * @param element
+         * @param buffer
+         */
+        public void encode(ByteBuffer element, ByteBuffer buffer) {
+            element = element.duplicate();
+            byte tag = element.get();
+            long version = element.getLong();
+            byte[] body = new byte[element.remaining()];
+            element.get(body);
+            int max = Math.min(body.length, previous.length);
+            int shared = 0;
+            while (shared < max && body[shared] == previous[shared]) {
+                ++shared;
+            }
+            long delta = version - this.version;
+            buffer.put(tag);
+            putVarLong((delta << 1) ^ (delta >> 63), buffer);
+            putVarLong(shared, buffer);
+            putVarLong(body.length - shared, buffer);
+            buffer.put(body, shared, body.length - shared);
+            this.previous = body;
+            this.version = version;
+        }
+
+        /**
+         * Forget the previous element so that the next one is encoded in full.
+         */
+        public void reset() {
+            previous = new byte[0];
+            version = 0;
+        }
+    }
+
+    /**
+     * Read a varint, that was written by {@link #putVarLong(long, ByteBuffer)},
+     * from {@code bytes}.
+     * 
+     * @param bytes
+     * @return the value
+     */
+    public static long getVarLong(ByteBuffer bytes) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        while (b < 0);
+        return value;
+    }
+
+    /**
+     * Write {@code value} to {@code bytes} as a varint.
+     * 
+     * @param value
+     * @param bytes
+     */
+    public static void putVarLong(long value, ByteBuffer bytes) {
+        while ((value & ~0x7FL) != 0) {
+            bytes.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        bytes.put((byte) value);
+    }
+
+    /**
+     * An {@link Iterator} that traverses a byte buffer of elements that were
+     * written by a {@link PrefixEncoder} and returns the original form of each
+     * one.
+     * 
+     * @author Jeff Nelson
+     */
+    private static class PrefixDecodingIterator implements
+            Iterator<ByteBuffer> {
+
+        private final ByteBuffer bytes;
+        private byte[] previous = new byte[0];
+        private long version = 0;
+
+        /**
+         * Construct a new instance.
+         * 
+         * @param bytes
+         */
+        protected PrefixDecodingIterator(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return bytes.hasRemaining();
+        }
+
+        @Override
+        public ByteBuffer next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            byte tag = bytes.get();
+            long delta = getVarLong(bytes);
+            version += (delta >>> 1) ^ -(delta & 1);
+            int shared = (int) getVarLong(bytes);
+            int suffix = (int) getVarLong(bytes);
+            byte[] body = new byte[shared + suffix];
+            System.arraycopy(previous, 0, body, 0, shared);
+            bytes.get(body, shared, suffix);
+            previous = body;
+            ByteBuffer element = ByteBuffer.allocate(9 + body.length);
+            element.put(tag);
+            element.putLong(version);
+            element.put(body);
+            element.flip();
+            return element;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException(
+                    "This method is not supported.");
+        }
+
+    }
+
     /**
      * An {@link Iterator} that traverses a byte array and returns sequences.
      * The iterator assumes that the first 4 bytes of the sequence specifies the
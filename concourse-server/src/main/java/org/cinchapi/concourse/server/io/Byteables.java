@@ -37,9 +37,10 @@ import com.google.common.collect.Maps;
 public abstract class Byteables {
 
     /**
-     * Return an instance of {@code classObj} by reading {@code bytes}. This
-     * method uses reflection to invoke the single argument ByteBuffer
-     * constructor in {@code classObj}.
+     * Return an instance of {@code classObj} by reading {@code bytes}. If
+     * there is a codec for {@code classObj} in {@link ByteableCodecs}, it is
+     * used. Otherwise, this method uses reflection to invoke the single
+     * argument ByteBuffer constructor in {@code classObj}.
      * <p>
      * <tt>Byteables.read(bytes, Foo.class)</tt>
      * </p>
@@ -64,6 +65,10 @@ public abstract class Byteables {
      */
     @SuppressWarnings("unchecked")
     public static <T> T read(ByteBuffer bytes, Class<T> classObj) {
+        ByteableCodec<T> codec = ByteableCodecs.get(classObj);
+        if(codec != null) {
+            return codec.decode(bytes);
+        }
         try {
             Constructor<T> constructor = (Constructor<T>) constructorCache
                     .get(classObj);
@@ -117,9 +122,11 @@ public abstract class Byteables {
     }
 
     /**
-     * Return an instance of {@code classObj} by reading {@code bytes}. This
-     * method uses reflection to invoke the single argument static method named
-     * <strong>fromByteBuffer</strong> in {@code classObj}.
+     * Return an instance of {@code classObj} by reading {@code bytes}. If
+     * there is a codec for {@code classObj} in {@link ByteableCodecs}, it is
+     * used. Otherwise, this method uses reflection to invoke the single
+     * argument static method named <strong>fromByteBuffer</strong> in
+     * {@code classObj}.
      * <p>
      * <tt>Byteables.read(bytes, Foo.class)</tt>
      * </p>
@@ -144,6 +151,10 @@ public abstract class Byteables {
      */
     @SuppressWarnings("unchecked")
     public static <T> T readStatic(ByteBuffer bytes, Class<T> classObj) {
+        ByteableCodec<T> codec = ByteableCodecs.get(classObj);
+        if(codec != null) {
+            return codec.decode(bytes);
+        }
         try {
             Method method = staticFactoryCache.get(classObj);
             if(method == null) {
@@ -218,12 +229,12 @@ public abstract class Byteables {
      * Cache of constructors that are captured using reflection.
      */
     private static final Map<Class<?>, Constructor<?>> constructorCache = Maps
-            .newIdentityHashMap();
+            .newConcurrentMap();
 
     /**
      * Cache of static factory methods that are captured using reflection.
      */
     private static final Map<Class<?>, Method> staticFactoryCache = Maps
-            .newIdentityHashMap();
+            .newConcurrentMap();
 
 }
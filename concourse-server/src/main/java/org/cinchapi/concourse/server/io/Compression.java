@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.io;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A pure Java implementation of a fast LZ77 style codec that uses the LZ4
+ * block format (without the frame format or checksums). The codec favors speed
+ * over ratio, which is appropriate for data that is decompressed on the read
+ * path.
+ * <p>
+ * The compressed form of some bytes is a sequence of tokens. Each token is a
+ * run of literal bytes that are copied verbatim followed by a match that copies
+ * bytes that appeared at most 64KB earlier in the output. The last token only
+ * contains literals. As the block format requires, the last
+ * {@link #LAST_LITERALS} bytes are always literals and no match starts within
+ * the last {@link #MF_LIMIT} bytes, so the output can be read by any LZ4
+ * decoder. Since the format does not store the uncompressed length, callers
+ * must keep track of it in order to {@link #decompress(ByteBuffer, int)
+ * decompress}.
+ * </p>
+ * 
+ * @author Jeff Nelson
+ */
+public final class Compression {
+
+    /**
+     * Return the compressed form of the remaining bytes in {@code bytes}. The
+     * position of {@code bytes} is not modified.
+     * 
+     * @param bytes
+     * @return the compressed bytes
+     */
+    public static ByteBuffer compress(ByteBuffer bytes) {
+        byte[] src = toArray(bytes);
+        int length = src.length;
+        byte[] dst = new byte[length + length / 255 + 16];
+        int[] table = new int[HASH_TABLE_SIZE];
+        Arrays.fill(table, -1);
+        int ip = 0;
+        int anchor = 0;
+        int op = 0;
+        int matchLimit = length - LAST_LITERALS;
+        while (ip + MF_LIMIT < length) {
+            int sequence = readInt(src, ip);
+            int hash = (sequence * HASH_MULTIPLIER) >>> (32 - HASH_LOG);
+            int ref = table[hash];
+            table[hash] = ip;
+            if(ref >= 0 && ip - ref <= MAX_OFFSET
+                    && readInt(src, ref) == sequence) {
+                int matchLength = MIN_MATCH;
+                while (ip + matchLength < matchLimit
+                        && src[ref + matchLength] == src[ip + matchLength]) {
+                    ++matchLength;
+                }
+                op = writeLiterals(src, anchor, ip - anchor, matchLength
+                        - MIN_MATCH, dst, op);
+                dst[op++] = (byte) (ip - ref);
+                dst[op++] = (byte) ((ip - ref) >>> 8);
+                if(matchLength - MIN_MATCH >= RUN_MASK) {
+                    op = writeLength(matchLength - MIN_MATCH - RUN_MASK, dst,
+                            op);
+                }
+                ip += matchLength;
+                anchor = ip;
+            }
+            else {
+                ++ip;
+            }
+        }
+        op = writeLiterals(src, anchor, length - anchor, 0, dst, op);
+        return ByteBuffer.wrap(dst, 0, op).slice();
+    }
+
+    /**
+     * Return the original form of the remaining bytes in {@code bytes}, which
+     * were produced by {@link #compress(ByteBuffer)}. The position of
+     * {@code bytes} is not modified.
+     * 
+     * @param bytes
+     * @param length - the number of bytes that were compressed
+     * @return the decompressed bytes
+     */
+    public static ByteBuffer decompress(ByteBuffer bytes, int length) {
+        byte[] src = toArray(bytes);
+        byte[] dst = new byte[length];
+        int ip = 0;
+        int op = 0;
+        while (ip < src.length) {
+            int token = src[ip++] & 0xFF;
+            int literals = token >>> 4;
+            if(literals == RUN_MASK) {
+                int b;
+                do {
+                    b = src[ip++] & 0xFF;
+                    literals += b;
+                }
+                while (b == 255);
+            }
+            System.arraycopy(src, ip, dst, op, literals);
+            ip += literals;
+            op += literals;
+            if(ip >= src.length) {
+                break;
+            }
+            int offset = (src[ip++] & 0xFF) | ((src[ip++] & 0xFF) << 8);
+            int matchLength = token & RUN_MASK;
+            if(matchLength == RUN_MASK) {
+                int b;
+                do {
+                    b = src[ip++] & 0xFF;
+                    matchLength += b;
+                }
+                while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            int ref = op - offset;
+            Preconditions.checkState(offset > 0 && ref >= 0,
+                    "Corrupt compressed data");
+            for (int i = 0; i < matchLength; ++i) {
+                dst[op++] = dst[ref++];
+            }
+        }
+        Preconditions.checkState(op == length, "Expected %s decompressed "
+                + "bytes but found %s", length, op);
+        return ByteBuffer.wrap(dst);
+    }
+
+    /**
+     * Return a byte array that contains the remaining bytes in {@code bytes}
+     * without modifying its position.
+     * 
+     * @param bytes
+     * @return the byte array
+     */
+    private static byte[] toArray(ByteBuffer bytes) {
+        byte[] array = new byte[bytes.remaining()];
+        bytes.duplicate().get(array);
+        return array;
+    }
+
+    /**
+     * Return the 4 bytes in {@code src} at {@code index} as an int.
+     * 
+     * @param src
+     * @param index
+     * @return the int
+     */
+    private static int readInt(byte[] src, int index) {
+        return (src[index] & 0xFF) | ((src[index + 1] & 0xFF) << 8)
+                | ((src[index + 2] & 0xFF) << 16)
+                | ((src[index + 3] & 0xFF) << 24);
+    }
+
+    /**
+     * Write the extended portion of a literal or match {@code length} to
+     * {@code dst} at {@code op}.
+     * 
+     * @param length
+     * @param dst
+     * @param op
+     * @return the new output position
+     */
+    private static int writeLength(int length, byte[] dst, int op) {
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    /**
+     * Write a token, followed by the {@code count} literal bytes from
+     * {@code src} at {@code anchor}, to {@code dst} at {@code op}.
+     * 
+     * @param src
+     * @param anchor
+     * @param count
+     * @param matchLength - the length of the match that follows the literals,
+     *            less {@link #MIN_MATCH}
+     * @param dst
+     * @param op
+     * @return the new output position
+     */
+    private static int writeLiterals(byte[] src, int anchor, int count,
+            int matchLength, byte[] dst, int op) {
+        dst[op++] = (byte) ((Math.min(count, RUN_MASK) << 4) | Math.min(
+                matchLength, RUN_MASK));
+        if(count >= RUN_MASK) {
+            op = writeLength(count - RUN_MASK, dst, op);
+        }
+        System.arraycopy(src, anchor, dst, op, count);
+        return op + count;
+    }
+
+    /**
+     * The number of bits in a hash table index.
+     */
+    private static final int HASH_LOG = 12;
+
+    /**
+     * The multiplier that is used to hash 4 byte sequences.
+     */
+    private static final int HASH_MULTIPLIER = -1640531535;
+
+    /**
+     * The number of entries in the table that maps each hashed sequence to the
+     * last position where it was seen.
+     */
+    private static final int HASH_TABLE_SIZE = 1 << HASH_LOG;
+
+    /**
+     * The number of bytes at the end of the input that must be encoded as
+     * literals.
+     */
+    private static final int LAST_LITERALS = 5;
+
+    /**
+     * The furthest back that a match can refer.
+     */
+    private static final int MAX_OFFSET = 65535;
+
+    /**
+     * The minimum distance from the start of a match to the end of the input.
+     * Inputs that are shorter than this are entirely literals.
+     */
+    private static final int MF_LIMIT = 12;
+
+    /**
+     * The shortest sequence that is encoded as a match.
+     */
+    private static final int MIN_MATCH = 4;
+
+    /**
+     * The largest length that fits in a token nibble. Longer lengths are
+     * extended with additional bytes.
+     */
+    private static final int RUN_MASK = 15;
+
+    private Compression() {/* noop */}
+
+}
@@ -15,7 +15,9 @@
  */
 package org.cinchapi.concourse.server.model;
 
+import java.math.BigDecimal;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Comparator;
 
 import javax.annotation.Nullable;
@@ -28,11 +30,23 @@ import org.cinchapi.concourse.util.ByteBuffers;
 import org.cinchapi.concourse.util.Convert;
 import org.cinchapi.concourse.util.Numbers;
 
+import com.google.common.primitives.UnsignedBytes;
+import com.google.common.primitives.UnsignedLongs;
+
 /**
  * A Value is an abstraction for a {@link TObject} that records type information
  * and serves as the most basic element of data in Concourse. Values are
  * logically sortable using weak typing and cannot exceed 2^32 bytes.
  * <p>
+ * Values sort in the same order as their binary {@link #getSortKey() sort
+ * keys} when the keys are compared with unsigned byte comparison. All numbers
+ * sort before all other Values and are compared by their mathematical value,
+ * regardless of type. All other Values are compared as strings, ignoring case.
+ * The hot paths that sort Values (e.g. Blocks and SecondaryRecords) compare
+ * the raw bytes of the Values directly, so they never need to convert them to
+ * Java objects or build the keys.
+ * </p>
+ * <p>
  * <h2>Storage Requirements</h2>
  * Each Value requires at least {@value #CONSTANT_SIZE} bytes of space in
  * addition to the following type specific requirements:
@@ -132,11 +146,55 @@ public final class Value implements Byteable, Comparable<Value> {
     public static Value POSITIVE_INFINITY = Value.wrap(Convert
             .javaToThrift(Long.MAX_VALUE));
 
+    /**
+     * The UTF-8 bytes of the strings that BOOLEAN Values are compared as.
+     * These are only read with absolute gets, so they can be shared.
+     */
+    private static final ByteBuffer TRUE_STRING = ByteBuffer.wrap("true"
+            .getBytes(StandardCharsets.UTF_8));
+    private static final ByteBuffer FALSE_STRING = ByteBuffer.wrap("false"
+            .getBytes(StandardCharsets.UTF_8));
+    private static final ByteBuffer EMPTY_STRING = ByteBuffer.allocate(0);
+
     /**
      * The minimum number of bytes needed to encode every Value.
      */
     private static final int CONSTANT_SIZE = 1; // type(1)
 
+    /**
+     * The first byte of the {@link #getSortKey() sort key} for each class of
+     * Value. The classes are ordered from smallest to largest.
+     */
+    private static final byte SORT_NEGATIVE_INFINITY = 0x00;
+    private static final byte SORT_NUMBER = 0x01;
+    private static final byte SORT_STRING = 0x02;
+    private static final byte SORT_POSITIVE_INFINITY = (byte) 0xFF;
+
+    /**
+     * The second byte of the {@link #getSortKey() sort key} for a number,
+     * which orders the kinds of numbers from smallest to largest.
+     */
+    private static final byte SORT_NUMBER_NEGATIVE_INFINITY = 0x00;
+    private static final byte SORT_NUMBER_NEGATIVE = 0x01;
+    private static final byte SORT_NUMBER_ZERO = 0x02;
+    private static final byte SORT_NUMBER_POSITIVE = 0x03;
+    private static final byte SORT_NUMBER_POSITIVE_INFINITY = 0x04;
+    private static final byte SORT_NUMBER_NAN = 0x05;
+
+    /**
+     * The magnitudes below which every integral double and float is exactly
+     * represented by its {@link Double#toString(double) string
+     * representation}, so its sort key can be built from the integer instead.
+     */
+    private static final double MAX_EXACT_DOUBLE_INTEGER = 1L << 53;
+    private static final float MAX_EXACT_FLOAT_INTEGER = 1 << 24;
+
+    /**
+     * A result of {@link #compareStrings(ByteBuffer, ByteBuffer)} that
+     * indicates one of the strings isn't well formed UTF-8.
+     */
+    private static final int MALFORMED = Integer.MIN_VALUE;
+
     /**
      * A cached copy of the binary representation that is returned from
      * {@link #getBytes()}.
@@ -223,6 +281,63 @@ public final class Value implements Byteable, Comparable<Value> {
         return object;
     }
 
+    /**
+     * Return a key that sorts the same way as this Value when it is compared
+     * to the sort key of another Value using unsigned lexicographical byte
+     * comparison. Values that are equal (e.g. strings that only differ in
+     * case or numbers of different types) have the same key, so the key can
+     * be used to look up every form of a Value at once. The key is built from
+     * the raw bytes of the Value (strings are decoded straight into the key
+     * and integers are written digit by digit, without converting the Value
+     * to a Java object). It is not cached, so the caller should hold on to it
+     * if it is needed more than once.
+     * <p>
+     * The key is one byte for the class of the Value, followed by:
+     * <ul>
+     * <li><strong>number</strong> - a byte for the kind of number (e.g.
+     * negative, zero, positive, NaN). Nonzero finite numbers are then written
+     * as their exact decimal value: the decimal exponent (as a 4 byte integer
+     * with the sign bit flipped) followed by the digits, all of which are
+     * inverted and terminated for negative numbers so that they sort in
+     * reverse. Negative zero sorts immediately before every other zero, which
+     * is consistent with {@link Double#compare(double, double)}.</li>
+     * <li><strong>string</strong> (STRING, TAG, BOOLEAN) - each character
+     * after it is folded to the same case in the same way as
+     * {@link String#compareToIgnoreCase(String)}, as 2 bytes.</li>
+     * </ul>
+     * </p>
+     * 
+     * @return the sort key
+     */
+    public byte[] getSortKey() {
+        if(this == NEGATIVE_INFINITY || this == POSITIVE_INFINITY) {
+            return new byte[] { this == NEGATIVE_INFINITY
+                    ? SORT_NEGATIVE_INFINITY : SORT_POSITIVE_INFINITY };
+        }
+        ByteBuffer buffer = data.data;
+        int position = buffer.position();
+        switch (getType()) {
+        case INTEGER:
+            return getNumberSortKey(buffer.getInt(position), false);
+        case LONG:
+            return getNumberSortKey(buffer.getLong(position), false);
+        case LINK:
+            return getNumberSortKey(buffer.getLong(position), true);
+        case FLOAT:
+            return getNumberSortKey(buffer.getFloat(position));
+        case DOUBLE:
+            return getNumberSortKey(buffer.getDouble(position));
+        default:
+            byte[] key = getStringSortKey(getString(this));
+            if(key == null) {
+                // The bytes aren't well formed UTF-8, so let the decoder
+                // decide how to replace the malformed ones
+                key = getStringSortKey(getObject().toString());
+            }
+            return key;
+        }
+    }
+
     /**
      * Return the TObject that is represented by this Value.
      * 
@@ -290,23 +405,509 @@ public final class Value implements Byteable, Comparable<Value> {
                 return 1;
             }
             else {
-                Object o1 = v1.getObject();
-                Object o2 = v2.getObject();
-                if(o1 instanceof Number && o2 instanceof Number) {
-                    return Numbers.compare((Number) o1, (Number) o2);
+                // Numbers of the same type are compared directly, the same
+                // way as Numbers#compare, and strings are compared a char at
+                // a time from their bytes, so the sort keys are only built to
+                // order numbers of different types
+                Type t1 = v1.getType();
+                Type t2 = v2.getType();
+                ByteBuffer b1 = v1.data.data;
+                ByteBuffer b2 = v2.data.data;
+                if((t1 == Type.INTEGER || t1 == Type.LONG)
+                        && (t2 == Type.INTEGER || t2 == Type.LONG)) {
+                    return Long.compare(getIntegral(t1, b1),
+                            getIntegral(t2, b2));
+                }
+                else if(t1 == Type.DOUBLE && t2 == Type.DOUBLE) {
+                    return Double.compare(b1.getDouble(b1.position()),
+                            b2.getDouble(b2.position()));
+                }
+                else if(t1 == Type.FLOAT && t2 == Type.FLOAT) {
+                    return Float.compare(b1.getFloat(b1.position()),
+                            b2.getFloat(b2.position()));
+                }
+                else if(t1 == Type.LINK && t2 == Type.LINK) {
+                    return UnsignedLongs.compare(b1.getLong(b1.position()),
+                            b2.getLong(b2.position()));
+                }
+                else if(t1 == Type.LINK
+                        && (t2 == Type.INTEGER || t2 == Type.LONG)) {
+                    return -compareToLink(getIntegral(t2, b2),
+                            b1.getLong(b1.position()));
+                }
+                else if(t2 == Type.LINK
+                        && (t1 == Type.INTEGER || t1 == Type.LONG)) {
+                    return compareToLink(getIntegral(t1, b1),
+                            b2.getLong(b2.position()));
+                }
+                else if(isNumber(t1) && isNumber(t2)) {
+                    // Numbers of different types are rarely compared, so it
+                    // is fine to build their keys
+                    return KEY_COMPARATOR.compare(v1.getSortKey(),
+                            v2.getSortKey());
+                }
+                else if(isNumber(t1) || isNumber(t2)) {
+                    return isNumber(t1) ? -1 : 1;
+                }
+                else {
+                    int comparison = compareStrings(getString(v1),
+                            getString(v2));
+                    return comparison != MALFORMED ? comparison
+                            : KEY_COMPARATOR.compare(v1.getSortKey(),
+                                    v2.getSortKey());
                 }
-                else if(o1 instanceof Number) {
-                    return -1;
+            }
+
+        }
+    }
+
+    /**
+     * Compare the strings that are encoded as UTF-8 in the remaining bytes of
+     * {@code b1} and {@code b2}, ignoring case, in the same order as their
+     * {@link #getSortKey() sort keys}. The bytes are decoded one character at
+     * a time without creating a String or a key. If either string isn't well
+     * formed UTF-8, return {@link #MALFORMED}.
+     * 
+     * @param b1
+     * @param b2
+     * @return the comparison or {@link #MALFORMED}
+     */
+    private static int compareStrings(ByteBuffer b1, ByteBuffer b2) {
+        int i1 = b1.position();
+        int i2 = b2.position();
+        int limit1 = b1.limit();
+        int limit2 = b2.limit();
+        int low1 = -1; // the pending low surrogate of a supplementary char
+        int low2 = -1;
+        while (true) {
+            int c1;
+            if(low1 >= 0) {
+                c1 = low1;
+                low1 = -1;
+            }
+            else if(i1 < limit1) {
+                int codePoint = decode(b1, i1, limit1);
+                if(codePoint < 0) {
+                    return MALFORMED;
                 }
-                else if(o2 instanceof Number) {
-                    return 1;
+                i1 += getEncodedLength(codePoint);
+                if(codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                    c1 = Character.highSurrogate(codePoint);
+                    low1 = Character.lowSurrogate(codePoint);
                 }
                 else {
-                    return o1.toString().compareToIgnoreCase(o2.toString());
+                    c1 = codePoint;
+                }
+            }
+            else {
+                c1 = -1;
+            }
+            int c2;
+            if(low2 >= 0) {
+                c2 = low2;
+                low2 = -1;
+            }
+            else if(i2 < limit2) {
+                int codePoint = decode(b2, i2, limit2);
+                if(codePoint < 0) {
+                    return MALFORMED;
+                }
+                i2 += getEncodedLength(codePoint);
+                if(codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                    c2 = Character.highSurrogate(codePoint);
+                    low2 = Character.lowSurrogate(codePoint);
+                }
+                else {
+                    c2 = codePoint;
+                }
+            }
+            else {
+                c2 = -1;
+            }
+            if(c1 < 0 || c2 < 0) {
+                return c1 < 0 ? (c2 < 0 ? 0 : -1) : 1;
+            }
+            c1 = fold((char) c1);
+            c2 = fold((char) c2);
+            if(c1 != c2) {
+                return c1 - c2;
+            }
+        }
+    }
+
+    /**
+     * Return the result of comparing the INTEGER or LONG {@code number} to the
+     * LINK {@code link}, which is an unsigned 64 bit integer.
+     * 
+     * @param number
+     * @param link
+     * @return the comparison
+     */
+    private static int compareToLink(long number, long link) {
+        return number < 0 ? -1 : UnsignedLongs.compare(number, link);
+    }
+
+    /**
+     * Return the code point that is encoded as UTF-8 in {@code buffer} at
+     * {@code position} or -1 if the bytes before {@code limit} aren't a well
+     * formed encoding.
+     * 
+     * @param buffer
+     * @param position
+     * @param limit
+     * @return the code point or -1
+     */
+    private static int decode(ByteBuffer buffer, int position, int limit) {
+        int b = buffer.get(position++) & 0xFF;
+        int extra;
+        int codePoint;
+        int min;
+        if(b < 0x80) {
+            return b;
+        }
+        else if(b >= 0xC2 && b < 0xE0) {
+            extra = 1;
+            codePoint = b & 0x1F;
+            min = 0x80;
+        }
+        else if(b >= 0xE0 && b < 0xF0) {
+            extra = 2;
+            codePoint = b & 0x0F;
+            min = 0x800;
+        }
+        else if(b >= 0xF0 && b < 0xF5) {
+            extra = 3;
+            codePoint = b & 0x07;
+            min = 0x10000;
+        }
+        else {
+            return -1;
+        }
+        if(position + extra > limit) {
+            return -1;
+        }
+        for (int i = 0; i < extra; ++i) {
+            int c = buffer.get(position++) & 0xFF;
+            if((c & 0xC0) != 0x80) {
+                return -1;
+            }
+            codePoint = (codePoint << 6) | (c & 0x3F);
+        }
+        if(codePoint < min
+                || codePoint > Character.MAX_CODE_POINT
+                || (codePoint >= Character.MIN_SURROGATE
+                        && codePoint <= Character.MAX_SURROGATE)) {
+            return -1;
+        }
+        return codePoint;
+    }
+
+    /**
+     * Return {@code c} after it is folded to the same case in the same way as
+     * {@link String#compareToIgnoreCase(String)}.
+     * 
+     * @param c
+     * @return the folded char
+     */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Return the number of bytes in the UTF-8 encoding of the valid
+     * {@code codePoint}.
+     * 
+     * @param codePoint
+     * @return the encoded length
+     */
+    private static int getEncodedLength(int codePoint) {
+        return codePoint < 0x80 ? 1 : (codePoint < 0x800 ? 2
+                : (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT ? 3 : 4));
+    }
+
+    /**
+     * Return the UTF-8 bytes of the string that the non numeric {@code value}
+     * is compared as. A NULL is compared as an empty string.
+     * 
+     * @param value
+     * @return the string bytes
+     */
+    private static ByteBuffer getString(Value value) {
+        switch (value.getType()) {
+        case BOOLEAN:
+            ByteBuffer buffer = value.data.data;
+            return buffer.get(buffer.position()) > 0 ? TRUE_STRING
+                    : FALSE_STRING;
+        case NULL:
+            return EMPTY_STRING;
+        default:
+            return value.data.data;
+        }
+    }
+
+    /**
+     * Return {@code true} if Values of {@code type} are compared as numbers.
+     * 
+     * @param type
+     * @return {@code true} if the type is numeric
+     */
+    private static boolean isNumber(Type type) {
+        return type == Type.INTEGER || type == Type.LONG || type == Type.LINK
+                || type == Type.FLOAT || type == Type.DOUBLE;
+    }
+
+    /**
+     * Return the INTEGER or LONG of {@code type} that is encoded in
+     * {@code buffer} as a long.
+     * 
+     * @param type
+     * @param buffer
+     * @return the number
+     */
+    private static long getIntegral(Type type, ByteBuffer buffer) {
+        return type == Type.INTEGER ? buffer.getInt(buffer.position())
+                : buffer.getLong(buffer.position());
+    }
+
+    /**
+     * Return the sort key for the floating point {@code number}, which is
+     * compared by the exact decimal value of its string representation (e.g.
+     * the same way as {@link Numbers#compare(Number, Number)} compares numbers
+     * of different types).
+     * 
+     * @param number
+     * @return the sort key
+     */
+    private static byte[] getNumberSortKey(double number) {
+        if(Double.isNaN(number) || Double.isInfinite(number)) {
+            return new byte[] {
+                    SORT_NUMBER,
+                    Double.isNaN(number) ? SORT_NUMBER_NAN
+                            : (number > 0 ? SORT_NUMBER_POSITIVE_INFINITY
+                                    : SORT_NUMBER_NEGATIVE_INFINITY) };
+        }
+        else if(number == 0 && 1 / number < 0) {
+            return new byte[] { SORT_NUMBER, SORT_NUMBER_ZERO, 0 };
+        }
+        else if(Math.abs(number) < MAX_EXACT_DOUBLE_INTEGER
+                && number == Math.rint(number)) {
+            // The string representation of a double that holds a small
+            // integer is exactly that integer
+            return getNumberSortKey((long) number, false);
+        }
+        else {
+            return getNumberSortKey(Double.toString(number));
+        }
+    }
+
+    /**
+     * Return the sort key for the floating point {@code number}.
+     * 
+     * @param number
+     * @return the sort key
+     */
+    private static byte[] getNumberSortKey(float number) {
+        if(Float.isNaN(number) || Float.isInfinite(number)
+                || (number == 0 && 1 / number < 0)) {
+            return getNumberSortKey((double) number);
+        }
+        else if(Math.abs(number) < MAX_EXACT_FLOAT_INTEGER
+                && number == Math.rint(number)) {
+            return getNumberSortKey((long) number, false);
+        }
+        else {
+            return getNumberSortKey(Float.toString(number));
+        }
+    }
+
+    /**
+     * Return the sort key for the integer {@code number}, which is treated as
+     * an unsigned 64 bit integer if {@code unsigned} is {@code true}.
+     * 
+     * @param number
+     * @param unsigned
+     * @return the sort key
+     */
+    private static byte[] getNumberSortKey(long number, boolean unsigned) {
+        if(number == 0) {
+            return new byte[] { SORT_NUMBER, SORT_NUMBER_ZERO, 1 };
+        }
+        boolean negative = !unsigned && number < 0;
+        byte[] digits = new byte[20];
+        int start = digits.length;
+        while (number != 0) {
+            // Compute each digit from the (possibly negative) remainder so
+            // that Long.MIN_VALUE doesn't have to be negated
+            long digit;
+            if(unsigned) {
+                digit = UnsignedLongs.remainder(number, 10);
+                number = UnsignedLongs.divide(number, 10);
+            }
+            else {
+                digit = Math.abs(number % 10);
+                number /= 10;
+            }
+            digits[--start] = (byte) ('0' + digit);
+        }
+        return getNumberSortKey(negative, digits.length - start, digits,
+                start, digits.length);
+    }
+
+    /**
+     * Return the sort key for the string representation of a finite and
+     * nonzero floating point number (e.g. 12.5 or -1.25E-7), which is parsed
+     * without converting it to a {@link BigDecimal}.
+     * 
+     * @param number
+     * @return the sort key
+     */
+    private static byte[] getNumberSortKey(String number) {
+        boolean negative = number.charAt(0) == '-';
+        byte[] digits = new byte[number.length()];
+        int count = 0;
+        int exponent = 0;
+        int i = negative ? 1 : 0;
+        for (; i < number.length(); ++i) {
+            char c = number.charAt(i);
+            if(c == '.') {
+                exponent = count;
+            }
+            else if(c == 'E') {
+                boolean negate = number.charAt(i + 1) == '-';
+                int power = 0;
+                for (int j = negate ? i + 2 : i + 1; j < number.length(); ++j) {
+                    power = 10 * power + (number.charAt(j) - '0');
                 }
+                exponent += negate ? -power : power;
+                break;
+            }
+            else {
+                digits[count++] = (byte) c;
             }
+        }
+        int start = 0;
+        while (digits[start] == '0') {
+            ++start;
+            --exponent;
+        }
+        return getNumberSortKey(negative, exponent, digits, start, count);
+    }
+
+    /**
+     * Return the sort key for the nonzero number that is equal to
+     * 0.{@code digits} x 10<sup>{@code exponent}</sup>, where the
+     * {@code digits} are the ASCII digits between {@code from} (inclusive) and
+     * {@code to} (exclusive) and the first one isn't zero.
+     * 
+     * @param negative
+     * @param exponent
+     * @param digits
+     * @param from
+     * @param to
+     * @return the sort key
+     */
+    private static byte[] getNumberSortKey(boolean negative, int exponent,
+            byte[] digits, int from, int to) {
+        while (digits[to - 1] == '0') {
+            --to;
+        }
+        exponent ^= Integer.MIN_VALUE;
+        ByteBuffer key = ByteBuffer.allocate(2 + 4 + (to - from)
+                + (negative ? 1 : 0));
+        key.put(SORT_NUMBER);
+        key.put(negative ? SORT_NUMBER_NEGATIVE : SORT_NUMBER_POSITIVE);
+        key.putInt(negative ? ~exponent : exponent);
+        for (int i = from; i < to; ++i) {
+            key.put(negative ? (byte) ~digits[i] : digits[i]);
+        }
+        if(negative) {
+            // Terminate the digits so that a shorter number sorts after a
+            // longer one with the same prefix
+            key.put((byte) 0xFF);
+        }
+        return key.array();
+    }
+
+    /**
+     * Return the sort key for {@code string}.
+     * 
+     * @param string
+     * @return the sort key
+     */
+    private static byte[] getStringSortKey(String string) {
+        byte[] key = new byte[1 + 2 * string.length()];
+        key[0] = SORT_STRING;
+        for (int i = 0; i < string.length(); ++i) {
+            putFoldedChar(key, 1 + 2 * i, string.charAt(i));
+        }
+        return key;
+    }
 
+    /**
+     * Return the sort key for the string that is encoded as UTF-8 in the
+     * remaining bytes of {@code buffer}, which is decoded directly into the
+     * key without creating a String. If the bytes aren't well formed UTF-8,
+     * return {@code null}.
+     * 
+     * @param buffer
+     * @return the sort key or {@code null}
+     */
+    @Nullable
+    private static byte[] getStringSortKey(ByteBuffer buffer) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        int length = 0;
+        for (int i = position; i < limit; ++i) {
+            int b = buffer.get(i) & 0xFF;
+            if((b & 0xC0) != 0x80) {
+                // Each code point is one char, except for those in the
+                // supplementary planes, which are a surrogate pair
+                length += b >= 0xF0 ? 2 : 1;
+            }
+        }
+        byte[] key = new byte[1 + 2 * length];
+        key[0] = SORT_STRING;
+        int offset = 1;
+        int i = position;
+        while (i < limit) {
+            int codePoint = decode(buffer, i, limit);
+            if(codePoint < 0) {
+                return null;
+            }
+            i += getEncodedLength(codePoint);
+            if(codePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                putFoldedChar(key, offset, Character.highSurrogate(codePoint));
+                putFoldedChar(key, offset + 2,
+                        Character.lowSurrogate(codePoint));
+                offset += 4;
+            }
+            else {
+                putFoldedChar(key, offset, (char) codePoint);
+                offset += 2;
+            }
         }
+        return key;
     }
 
+    /**
+     * Put {@code c} into the {@code key} at {@code offset} as 2 bytes, after
+     * it is folded to the same case in the same way as
+     * {@link String#compareToIgnoreCase(String)}.
+     * 
+     * @param key
+     * @param offset
+     * @param c
+     */
+    private static void putFoldedChar(byte[] key, int offset, char c) {
+        c = fold(c);
+        key[offset] = (byte) (c >>> 8);
+        key[offset + 1] = (byte) c;
+    }
+
+    /**
+     * The comparator for {@link #getSortKey() sort keys}.
+     */
+    private static final Comparator<byte[]> KEY_COMPARATOR = UnsignedBytes
+            .lexicographicalComparator();
+
 }
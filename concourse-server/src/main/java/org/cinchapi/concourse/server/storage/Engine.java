@@ -50,16 +50,19 @@ import org.cinchapi.concourse.server.io.FileSystem;
 import org.cinchapi.concourse.server.jmx.ManagedOperation;
 import org.cinchapi.concourse.server.model.Text;
 import org.cinchapi.concourse.server.model.Value;
+import org.cinchapi.concourse.server.storage.cache.SearchResultCache;
 import org.cinchapi.concourse.server.storage.db.Database;
 import org.cinchapi.concourse.server.storage.temp.Buffer;
 import org.cinchapi.concourse.server.storage.temp.Write;
 import org.cinchapi.concourse.thrift.Operator;
 import org.cinchapi.concourse.thrift.TObject;
+import org.cinchapi.concourse.thrift.Type;
 import org.cinchapi.concourse.time.Time;
 import org.cinchapi.concourse.util.Logger;
 import org.cinchapi.concourse.util.Strings;
 
 import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
@@ -242,6 +245,15 @@ public final class Engine extends BufferedStore implements
      */
     private final Timer scheduler = new Timer(true);
 
+    /**
+     * A cache of the records that match recent search queries. The results for
+     * a key are invalidated whenever a write that may change them is accepted,
+     * so repeated searches don't have to scan the Buffer and all of the search
+     * blocks in the Database.
+     */
+    private final SearchResultCache searchCache = new SearchResultCache(
+            GlobalState.SEARCH_CACHE_SIZE);
+
     /**
      * A lock that prevents the Engine from causing the Buffer to transport
      * Writes to the Database while a buffered read is occurring. Even though
@@ -583,6 +595,17 @@ public final class Engine extends BufferedStore implements
         return sb.toString();
     }
 
+    /**
+     * Return the approximate number of bytes that are occupied by the results
+     * in the {@link SearchResultCache}.
+     * 
+     * @return the size of the search cache
+     */
+    @ManagedOperation
+    public long getSearchCacheSize() {
+        return searchCache.getSize();
+    }
+
     @Override
     @Restricted
     public void notifyVersionChange(Token token) {
@@ -650,18 +673,25 @@ public final class Engine extends BufferedStore implements
     }
 
     @Override
-    public Set<Long> search(String key, String query) {
+    public Set<Long> search(final String key, final String query) {
         // NOTE: Range locking for a search query requires too much overhead, so
         // we must be willing to live with the fact that a search query may
         // provide inconsistent results if a match is added while the read is
         // processing.
-        transportLock.readLock().lock();
-        try {
-            return super.search(key, query);
-        }
-        finally {
-            transportLock.readLock().unlock();
-        }
+        return searchCache.get(key, query, new Supplier<Set<Long>>() {
+
+            @Override
+            public Set<Long> get() {
+                transportLock.readLock().lock();
+                try {
+                    return Engine.super.search(key, query);
+                }
+                finally {
+                    transportLock.readLock().unlock();
+                }
+            }
+
+        });
     }
 
     @Override
@@ -739,6 +769,9 @@ public final class Engine extends BufferedStore implements
         range.lock();
         try {
             super.set(key, value, record);
+            // NOTE: The values that are removed may be strings even if the
+            // value that is added is not
+            searchCache.invalidate(key);
             notifyVersionChange(writeToken);
             notifyVersionChange(sharedToken);
             notifyVersionChange(rangeToken);
@@ -922,6 +955,9 @@ public final class Engine extends BufferedStore implements
     private boolean addUnsafe(String key, TObject value, long record,
             boolean sync, Token shared, Token write, RangeToken range) {
         if(super.add(key, value, record, sync, sync, false)) {
+            if(value.getType() == Type.STRING) {
+                searchCache.invalidate(key);
+            }
             notifyVersionChange(write);
             notifyVersionChange(shared);
             notifyVersionChange(range);
@@ -991,6 +1027,9 @@ public final class Engine extends BufferedStore implements
     private boolean removeUnsafe(String key, TObject value, long record,
             boolean sync, Token shared, Token write, RangeToken range) {
         if(super.remove(key, value, record, sync, sync, false)) {
+            if(value.getType() == Type.STRING) {
+                searchCache.invalidate(key);
+            }
             notifyVersionChange(write);
             notifyVersionChange(shared);
             notifyVersionChange(range);
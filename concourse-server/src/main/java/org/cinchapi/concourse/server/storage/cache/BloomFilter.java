@@ -15,14 +15,12 @@
  */
 package org.cinchapi.concourse.server.storage.cache;
 
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.nio.channels.FileChannel.MapMode;
 
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -31,16 +29,30 @@ import jsr166e.StampedLock;
 import org.cinchapi.concourse.server.io.Byteable;
 import org.cinchapi.concourse.server.io.Composite;
 import org.cinchapi.concourse.server.io.FileSystem;
-import org.cinchapi.concourse.server.io.Serializables;
 import org.cinchapi.concourse.server.io.Syncable;
+import org.cinchapi.concourse.util.ByteBuffers;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 
 /**
- * A wrapper around a {@link com.google.common.hash.BloomFilter} with methods to
- * make it easier to add one or more {@link Byteable} objects to the filter at a
- * time while abstracting away the notion of funnels, etc.
+ * A bloom filter that makes it easy to add one or more {@link Byteable}
+ * objects to the filter at a time.
+ * <p>
+ * The bits are split into blocks that are each the size of a single cache line
+ * (512 bits). Each element is hashed to exactly one block and all of its bits
+ * are set within that block, so a lookup touches one cache line (or one page
+ * of a mapped file) instead of {@code k} random locations. This comes at the
+ * cost of a slightly higher false positive probability than a classic bloom
+ * filter with the same number of bits.
+ * </p>
+ * <p>
+ * A filter is stored on disk as a small header followed by the raw bits, so a
+ * filter that is {@link #open(String) opened} from disk is memory mapped and
+ * queried in place instead of being deserialized onto the heap. If an opened
+ * filter is modified, the bits are copied to the heap first.
  * </p>
  * 
  * @author Jeff Nelson
@@ -54,15 +66,14 @@ public class BloomFilter implements Syncable {
      * <p>
      * Note that overflowing a BloomFilter with significantly more elements than
      * specified, will result in its saturation, and a sharp deterioration of
-     * its false positive probability (source:
-     * {@link BloomFilter#create(com.google.common.hash.Funnel, int)})
+     * its false positive probability.
      * <p>
      * 
      * @param expectedInsertions
      * @return the BloomFilter
      */
     public static BloomFilter create(int expectedInsertions) {
-        return new BloomFilter(null, expectedInsertions);
+        return new BloomFilter(null, expectedInsertions, DEFAULT_FPP);
     }
 
     /**
@@ -71,8 +82,7 @@ public class BloomFilter implements Syncable {
      * <p>
      * Note that overflowing a BloomFilter with significantly more elements than
      * specified, will result in its saturation, and a sharp deterioration of
-     * its false positive probability (source:
-     * {@link BloomFilter#create(com.google.common.hash.Funnel, int)})
+     * its false positive probability.
      * <p>
      * 
      * @param file
@@ -80,55 +90,117 @@ public class BloomFilter implements Syncable {
      * @return the BloomFilter
      */
     public static BloomFilter create(String file, int expectedInsertions) {
-        return new BloomFilter(file, expectedInsertions);
+        return new BloomFilter(file, expectedInsertions, DEFAULT_FPP);
     }
 
     /**
-     * Return the BloomFilter that is stored on disk in {@code file}.
+     * Create a new BloomFilter with enough capacity for
+     * {@code expectedInsertions} with a false positive probability of
+     * {@code fpp}.
      * 
      * @param file
+     * @param expectedInsertions
+     * @param fpp
      * @return the BloomFilter
      */
-    @SuppressWarnings({ "unchecked" })
-    public static BloomFilter open(String file) {
-        try {
-            final AtomicBoolean upgrade = new AtomicBoolean(false);
-            ObjectInput input = new ObjectInputStream(new BufferedInputStream(
-                    new FileInputStream(FileSystem.openFile(file)))) {
-
-                // In v0.3.0 the ByteableFunnel class was moved to a different
-                // package, so we must translate any old data that exists.
-                // TODO: remove this check if a post 0.3 version
-                @Override
-                protected ObjectStreamClass readClassDescriptor()
-                        throws IOException, ClassNotFoundException {
-                    ObjectStreamClass read = super.readClassDescriptor();
-                    if(read.getName()
-                            .equals("org.cinchapi.concourse.server.storage.ByteableFunnel")) {
-                        upgrade.set(true);
-                        return ObjectStreamClass.lookup(ByteableFunnel.class);
-                    }
-                    return read;
-                }
+    public static BloomFilter create(String file, int expectedInsertions,
+            double fpp) {
+        Preconditions.checkArgument(fpp > 0 && fpp < 1,
+                "The false positive probability must be between 0 and 1");
+        return new BloomFilter(file, expectedInsertions, fpp);
+    }
 
-            };
-            BloomFilter filter = new BloomFilter(file,
-                    (com.google.common.hash.BloomFilter<Composite>) input
-                            .readObject());
-            input.close();
-            if(upgrade.get()) {
-                filter.sync();
-            }
-            return filter;
+    /**
+     * Return {@code true} if {@code file} contains a BloomFilter that was
+     * written using Java serialization by an older version of the server. The
+     * elements of a legacy filter cannot be recovered, so it must be rebuilt
+     * from the data that was added to it.
+     * 
+     * @param file
+     * @return {@code true} if the filter in {@code file} uses the legacy format
+     */
+    public static boolean isLegacyFormat(String file) {
+        long size = FileSystem.getFileSize(file);
+        if(size < HEADER_SIZE) {
+            return size > 0;
         }
-        catch (IOException e) {
-            throw Throwables.propagate(e);
+        else {
+            ByteBuffer bytes = FileSystem.map(file, MapMode.READ_ONLY, 0, 4);
+            return bytes.getInt() != MAGIC;
         }
-        catch (ClassNotFoundException e) {
-            throw Throwables.propagate(e);
+    }
+
+    /**
+     * Return the BloomFilter that is stored on disk in {@code file}. The bits
+     * are memory mapped instead of being read onto the heap.
+     * <p>
+     * If the file does not contain a valid filter (i.e. it was written in the
+     * legacy format or is truncated), a {@link RuntimeException} is thrown
+     * with a {@link StreamCorruptedException} as its cause.
+     * </p>
+     * 
+     * @param file
+     * @return the BloomFilter
+     */
+    public static BloomFilter open(String file) {
+        long size = FileSystem.getFileSize(file);
+        ByteBuffer bytes = size >= HEADER_SIZE ? FileSystem.map(file,
+                MapMode.READ_ONLY, 0, size) : null;
+        if(bytes == null || bytes.getInt() != MAGIC) {
+            throw Throwables.propagate(new StreamCorruptedException(
+                    "The BloomFilter in " + file + " uses an unknown format"));
+        }
+        int numBlocks = bytes.getInt();
+        int numHashFunctions = bytes.getInt();
+        if(numBlocks <= 0 || size != HEADER_SIZE + (long) numBlocks
+                * BYTES_PER_BLOCK) {
+            throw Throwables.propagate(new StreamCorruptedException(
+                    "The BloomFilter in " + file + " is truncated"));
         }
+        return new BloomFilter(file, numBlocks, numHashFunctions,
+                bytes.slice(), true);
     }
 
+    /**
+     * The number of bytes in each block. This is the size of a cache line on
+     * most hardware.
+     */
+    private static final int BYTES_PER_BLOCK = 64;
+
+    /**
+     * The number of bits in each block.
+     */
+    private static final int BITS_PER_BLOCK = BYTES_PER_BLOCK * 8;
+
+    /**
+     * The default false positive probability.
+     */
+    private static final double DEFAULT_FPP = 0.03;
+
+    /**
+     * The hash function that is used to pick the block and bits for each
+     * element.
+     */
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * The size of the header: magic(4), numBlocks(4), numHashFunctions(4).
+     */
+    private static final int HEADER_SIZE = 12;
+
+    /**
+     * A marker at the beginning of each filter file that distinguishes the
+     * blocked format from the legacy Java serialized format.
+     */
+    private static final int MAGIC = 0xB100F117;
+
+    /**
+     * The bits, grouped into {@link #numBlocks} blocks of
+     * {@link #BYTES_PER_BLOCK} bytes. This is either a heap buffer or a read
+     * only mapping of the {@link #file}.
+     */
+    private ByteBuffer bits;
+
     /**
      * The file where the content is stored.
      */
@@ -141,9 +213,20 @@ public class BloomFilter implements Syncable {
     private final StampedLock lock = new StampedLock();
 
     /**
-     * The wrapped bloom filter. This is where the data is actually stored.
+     * A flag that indicates whether the {@link #bits} are a read only mapping
+     * of the {@link #file}.
+     */
+    private boolean mapped;
+
+    /**
+     * The number of blocks.
+     */
+    private final int numBlocks;
+
+    /**
+     * The number of bits that are set in a block for each element.
      */
-    private final com.google.common.hash.BloomFilter<Composite> source;
+    private final int numHashFunctions;
 
     /**
      * A flag that indicates if this BloomFilter instance does locking and is
@@ -157,25 +240,38 @@ public class BloomFilter implements Syncable {
      * Construct a new instance.
      * 
      * @param file
-     * @param source
+     * @param expectedInsertions
+     * @param fpp
      */
-    private BloomFilter(String file,
-            com.google.common.hash.BloomFilter<Composite> source) {
-        this.source = source;
+    private BloomFilter(String file, int expectedInsertions, double fpp) {
+        expectedInsertions = Math.max(expectedInsertions, 1);
+        long numBits = (long) Math.ceil(-expectedInsertions * Math.log(fpp)
+                / (Math.log(2) * Math.log(2)));
         this.file = file;
+        this.numBlocks = (int) Math.max(1,
+                (numBits + BITS_PER_BLOCK - 1) / BITS_PER_BLOCK);
+        this.numHashFunctions = (int) Math.max(1, Math.round((double) numBits
+                / expectedInsertions * Math.log(2)));
+        this.bits = ByteBuffer.allocate(numBlocks * BYTES_PER_BLOCK);
+        this.mapped = false;
     }
 
     /**
      * Construct a new instance.
      * 
-     * @param expectedInsertions
+     * @param file
+     * @param numBlocks
+     * @param numHashFunctions
+     * @param bits
+     * @param mapped
      */
-    private BloomFilter(String file, int expectedInsertions) {
-        this.source = com.google.common.hash.BloomFilter.create(
-                ByteableFunnel.INSTANCE, expectedInsertions); // uses 3% false
-                                                              // positive
-                                                              // probability
+    private BloomFilter(String file, int numBlocks, int numHashFunctions,
+            ByteBuffer bits, boolean mapped) {
         this.file = file;
+        this.numBlocks = numBlocks;
+        this.numHashFunctions = numHashFunctions;
+        this.bits = bits;
+        this.mapped = mapped;
     }
 
     /**
@@ -194,6 +290,53 @@ public class BloomFilter implements Syncable {
         threadSafe = true;
     }
 
+    /**
+     * Return the probability that {@link #mightContain(Byteable...)} returns
+     * {@code true} for an element that was never added, estimated from the
+     * fraction of bits that are set in each block.
+     * 
+     * @return the estimated false positive probability
+     */
+    public double getExpectedFalsePositiveProbability() {
+        long stamp = lock.readLock();
+        try {
+            double sum = 0;
+            for (int block = 0; block < numBlocks; ++block) {
+                int set = 0;
+                int offset = block * BYTES_PER_BLOCK;
+                for (int i = 0; i < BYTES_PER_BLOCK; i += 8) {
+                    set += Long.bitCount(bits.getLong(offset + i));
+                }
+                sum += Math.pow((double) set / BITS_PER_BLOCK,
+                        numHashFunctions);
+            }
+            return sum / numBlocks;
+        }
+        finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Return the number of bytes that are used to store the bits of this
+     * filter.
+     * 
+     * @return the size in bytes
+     */
+    public long getSizeInBytes() {
+        return (long) numBlocks * BYTES_PER_BLOCK;
+    }
+
+    /**
+     * Return {@code true} if the bits of this filter are memory mapped from
+     * disk instead of stored on the heap.
+     * 
+     * @return {@code true} if the filter is memory mapped
+     */
+    public boolean isMapped() {
+        return mapped;
+    }
+
     /**
      * Return true if an element made up of {@code byteables} might have been
      * put in this filter or false if this is definitely not the case.
@@ -226,9 +369,6 @@ public class BloomFilter implements Syncable {
     }
 
     /**
-     * <p>
-     * <strong>Copied from {@link BloomFilter#put(Object)}.</strong>
-     * </p>
      * Puts {@link byteables} into this BloomFilter as a single element.
      * Ensures that subsequent invocations of {@link #mightContain(Byteable...)}
      * with the same elements will always return true.
@@ -247,9 +387,6 @@ public class BloomFilter implements Syncable {
     }
 
     /**
-     * <p>
-     * <strong>Copied from {@link BloomFilter#put(Object)}.</strong>
-     * </p>
      * Puts {@link byteables} into this BloomFilter as a single element with
      * support for caching Ensures that subsequent invocations of
      * {@link #mightContainCached(Byteable...)} with the same elements will
@@ -272,44 +409,93 @@ public class BloomFilter implements Syncable {
     // NOTE: It seems counter intuitive, but we take a read lock in this
     // method instead of a write lock so that readers can concurrently use
     // the bloom filter in memory while the content is being written to
-    // disk.
+    // disk. Afterwards, the heap copy of the bits is swapped for a mapping of
+    // the file.
     public void sync() {
         Preconditions.checkState(file != null, "Cannot sync a "
                 + "BloomFilter that does not have an associated file");
-        FileChannel channel = FileSystem.getFileChannel(file);
-        long stamp = lock.tryOptimisticRead();
-        Serializables.write(source, channel); // CON-164
-        if(!lock.validate(stamp)) {
-            stamp = lock.readLock();
-            try {
-                channel.position(0);
-                Serializables.write(source, channel); // CON-164
-            }
-            catch (IOException e) {
-                throw Throwables.propagate(e);
+        long stamp = lock.readLock();
+        try {
+            if(!mapped) {
+                ByteBuffer bytes = ByteBuffer.allocate(HEADER_SIZE
+                        + bits.capacity());
+                bytes.putInt(MAGIC);
+                bytes.putInt(numBlocks);
+                bytes.putInt(numHashFunctions);
+                bytes.put(bits.duplicate()).flip();
+                FileChannel channel = FileSystem.getFileChannel(file);
+                try {
+                    channel.truncate(0);
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                    channel.force(true);
+                }
+                finally {
+                    FileSystem.closeFileChannel(channel);
+                }
             }
-            finally {
-                lock.unlockRead(stamp);
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        finally {
+            lock.unlockRead(stamp);
+        }
+        stamp = lock.writeLock();
+        try {
+            if(!mapped) {
+                ByteBuffer map = FileSystem.map(file, MapMode.READ_ONLY,
+                        HEADER_SIZE, bits.capacity());
+                bits = map;
+                mapped = true;
             }
         }
-        FileSystem.closeFileChannel(channel);
+        finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Return the offset of the block for the element whose hash is
+     * {@code hash}.
+     * 
+     * @param hash
+     * @return the block offset
+     */
+    private int getBlockOffset(ByteBuffer hash) {
+        long h1 = hash.getLong(0);
+        return (int) ((h1 >>> 1) % numBlocks) * BYTES_PER_BLOCK;
+    }
+
+    /**
+     * Return the 128 bit hash of {@code composite} in little endian order.
+     * 
+     * @param composite
+     * @return the hash
+     */
+    private static ByteBuffer hash(Composite composite) {
+        return ByteBuffer.wrap(
+                HASH_FUNCTION.hashBytes(
+                        ByteBuffers.toByteArray(composite.getBytes()))
+                        .asBytes()).order(ByteOrder.LITTLE_ENDIAN);
     }
 
     /**
-     * Check the backing bloom filter to see if the composite might have been
-     * added.
+     * Check the bits to see if the composite might have been added.
      * 
      * @param composite
      * @return {@code true} if the composite might exist
      */
     private boolean mightContain(Composite composite) {
+        ByteBuffer hash = hash(composite);
         if(threadSafe) {
             long stamp = lock.tryOptimisticRead();
-            boolean mightContain = source.mightContain(composite);
+            boolean mightContain = mightContain(bits, hash);
             if(!lock.validate(stamp)) {
                 stamp = lock.readLock();
                 try {
-                    mightContain = source.mightContain(composite);
+                    mightContain = mightContain(bits, hash);
                 }
                 finally {
                     lock.unlockRead(stamp);
@@ -318,30 +504,84 @@ public class BloomFilter implements Syncable {
             return mightContain;
         }
         else {
-            return source.mightContain(composite);
+            return mightContain(bits, hash);
         }
     }
 
     /**
-     * Place the {@code composite} in the backing bloom filter.
+     * Return {@code true} if all of the bits for {@code hash} are set in
+     * {@code bits}.
+     * 
+     * @param bits
+     * @param hash
+     * @return {@code true} if the element might exist
+     */
+    private boolean mightContain(ByteBuffer bits, ByteBuffer hash) {
+        int offset = getBlockOffset(hash);
+        int a = hash.getInt(8);
+        int b = hash.getInt(12) | 1;
+        for (int i = 0; i < numHashFunctions; ++i) {
+            int bit = (a + i * b) & (BITS_PER_BLOCK - 1);
+            long word = bits.getLong(offset + ((bit >>> 6) << 3));
+            if((word & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set the bits for the {@code composite}.
      * 
      * @param composite
      * @return {@code true} if the bits have changed as a result of the addition
      *         of the {@code composite}
      */
     private boolean put(Composite composite) {
+        ByteBuffer hash = hash(composite);
         if(threadSafe) {
             long stamp = lock.writeLock();
             try {
-                return source.put(composite);
+                return put(hash);
             }
             finally {
                 lock.unlockWrite(stamp);
             }
         }
         else {
-            return source.put(composite);
+            return put(hash);
+        }
+    }
+
+    /**
+     * Set the bits for the element whose hash is {@code hash}. If the bits are
+     * currently mapped from disk, they are copied to the heap first.
+     * 
+     * @param hash
+     * @return {@code true} if any of the bits changed
+     */
+    private boolean put(ByteBuffer hash) {
+        if(mapped) {
+            ByteBuffer copy = ByteBuffer.allocate(bits.capacity());
+            copy.put(bits.duplicate()).clear();
+            bits = copy;
+            mapped = false;
+        }
+        int offset = getBlockOffset(hash);
+        int a = hash.getInt(8);
+        int b = hash.getInt(12) | 1;
+        boolean changed = false;
+        for (int i = 0; i < numHashFunctions; ++i) {
+            int bit = (a + i * b) & (BITS_PER_BLOCK - 1);
+            int index = offset + ((bit >>> 6) << 3);
+            long word = bits.getLong(index);
+            long mask = 1L << bit;
+            if((word & mask) == 0) {
+                bits.putLong(index, word | mask);
+                changed = true;
+            }
         }
+        return changed;
     }
 
 }
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.cache;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cinchapi.concourse.util.TStrings;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+
+/**
+ * A bounded cache of the records that match search queries. Only the ids of
+ * the matching records are cached (never the underlying search records, which
+ * can be huge) and the cache is bounded by the estimated number of bytes that
+ * the cached results occupy instead of the number of entries, so a few queries
+ * that match a lot of records cannot exhaust the heap.
+ * <p>
+ * Each key has a generation that must be {@link #invalidate(String)
+ * incremented} whenever a write that may change the results for the key is
+ * accepted. A cached result is only used if it was computed during the current
+ * generation of its key, so a search that runs concurrently with such a write
+ * never leaves behind a stale result.
+ * </p>
+ *
+ * @author Jeff Nelson
+ */
+public class SearchResultCache {
+
+    /**
+     * The approximate number of bytes that are occupied by each record id in a
+     * cached result.
+     */
+    private static final int BYTES_PER_RECORD = 32;
+
+    /**
+     * The approximate number of bytes that are occupied by each entry in the
+     * cache, excluding the record ids and the query.
+     */
+    private static final int BYTES_PER_ENTRY = 128;
+
+    /**
+     * Return a normalized form of {@code query} so that queries that are
+     * guaranteed to produce the same results share an entry in the cache.
+     * Search is case insensitive and splits the query on groups of
+     * whitespace, so the normalized form is lowercase with each group of
+     * whitespace replaced by a single space. Stop words are not removed
+     * because they still count towards the distance between the terms of the
+     * query.
+     *
+     * @param query
+     * @return the normalized query
+     */
+    private static String normalize(String query) {
+        return query.toLowerCase().replaceAll(
+                TStrings.REGEX_GROUP_OF_ONE_OR_MORE_WHITESPACE_CHARS, " ");
+    }
+
+    /**
+     * The cached results, or {@code null} if caching is disabled.
+     */
+    private final Cache<Query, Result> cache;
+
+    /**
+     * The current generation of each key that has been searched.
+     */
+    private final ConcurrentMap<String, AtomicLong> generations = Maps
+            .newConcurrentMap();
+
+    /**
+     * Construct a new instance that holds about {@code maxSize} bytes of
+     * results. A {@code maxSize} of 0 disables caching.
+     *
+     * @param maxSize
+     */
+    public SearchResultCache(long maxSize) {
+        this.cache = maxSize > 0 ? CacheBuilder.newBuilder()
+                .maximumWeight(maxSize).weigher(ResultWeigher.INSTANCE)
+                .<Query, Result> build() : null;
+    }
+
+    /**
+     * Return the records that match {@code query} for {@code key} from the
+     * cache if possible. Otherwise, the records are retrieved from
+     * {@code search} and cached for subsequent calls.
+     *
+     * @param key
+     * @param query
+     * @param search
+     * @return the matching records
+     */
+    public Set<Long> get(String key, String query, Supplier<Set<Long>> search) {
+        if(cache == null) {
+            return search.get();
+        }
+        AtomicLong generation = generations.get(key);
+        if(generation == null) {
+            AtomicLong created = new AtomicLong();
+            generation = generations.putIfAbsent(key, created);
+            generation = Objects.firstNonNull(generation, created);
+        }
+        Query cacheKey = new Query(key, normalize(query));
+        long current = generation.get();
+        Result result = cache.getIfPresent(cacheKey);
+        if(result != null && result.generation == current) {
+            return result.records;
+        }
+        Set<Long> records = ImmutableSet.copyOf(search.get());
+        if(generation.get() == current) {
+            cache.put(cacheKey, new Result(cacheKey, current, records));
+        }
+        return records;
+    }
+
+    /**
+     * Return the approximate number of bytes that are occupied by the cached
+     * results.
+     *
+     * @return the size of the cache
+     */
+    public long getSize() {
+        long size = 0;
+        if(cache != null) {
+            for (Result result : cache.asMap().values()) {
+                size += result.weight;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Invalidate all the cached results for {@code key}. This method must be
+     * called <strong>after</strong> a write that may change the results for the
+     * key is accepted, so that any search that didn't see the write is also
+     * invalidated.
+     *
+     * @param key
+     */
+    public void invalidate(String key) {
+        AtomicLong generation = generations.get(key);
+        if(generation != null) {
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * The key and normalized query that identify an entry in the cache.
+     *
+     * @author Jeff Nelson
+     */
+    private static final class Query {
+
+        private final String key;
+        private final String query;
+
+        /**
+         * Construct a new instance.
+         *
+         * @param key
+         * @param query
+         */
+        Query(String key, String query) {
+            this.key = key;
+            this.query = query;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(obj instanceof Query) {
+                return key.equals(((Query) obj).key)
+                        && query.equals(((Query) obj).query);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key, query);
+        }
+
+    }
+
+    /**
+     * The records that matched a query and the generation of the key when they
+     * were retrieved.
+     *
+     * @author Jeff Nelson
+     */
+    private static final class Result {
+
+        private final long generation;
+        private final Set<Long> records;
+        private final int weight;
+
+        /**
+         * Construct a new instance.
+         *
+         * @param query
+         * @param generation
+         * @param records
+         */
+        Result(Query query, long generation, Set<Long> records) {
+            this.generation = generation;
+            this.records = records;
+            this.weight = Ints.saturatedCast(BYTES_PER_ENTRY + 2L
+                    * (query.key.length() + query.query.length())
+                    + (long) BYTES_PER_RECORD * records.size());
+        }
+
+    }
+
+    /**
+     * A {@link Weigher} that estimates the number of bytes that are occupied
+     * by each entry in the cache.
+     *
+     * @author Jeff Nelson
+     */
+    private enum ResultWeigher implements Weigher<Query, Result> {
+        INSTANCE;
+
+        @Override
+        public int weigh(Query key, Result value) {
+            return value.weight;
+        }
+    }
+
+}
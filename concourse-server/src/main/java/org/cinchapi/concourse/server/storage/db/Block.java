@@ -21,11 +21,13 @@ import java.io.IOException;
 import java.io.StreamCorruptedException;
 import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
-import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
@@ -40,7 +42,9 @@ import org.cinchapi.concourse.server.GlobalState;
 import org.cinchapi.concourse.server.concurrent.Locks;
 import org.cinchapi.concourse.server.io.Byteable;
 import org.cinchapi.concourse.server.io.ByteableCollections;
+import org.cinchapi.concourse.server.io.ByteableCollections.PrefixEncoder;
 import org.cinchapi.concourse.server.io.Byteables;
+import org.cinchapi.concourse.server.io.Compression;
 import org.cinchapi.concourse.server.io.FileSystem;
 import org.cinchapi.concourse.server.io.Syncable;
 import org.cinchapi.concourse.server.storage.Action;
@@ -50,15 +54,19 @@ import org.cinchapi.concourse.util.Logger;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ComparisonChain;
-import com.google.common.collect.SortedMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.common.collect.TreeMultiset;
 
 /**
  * <p>
  * A Block is a sorted collection of Revisions that is used by the Database to
  * store indexed data. When a Block is initially created, it resides solely in
- * memory and is able to insert new revisions, which are sorted on the fly by a
- * {@link Sorter}. Once the Block is synced to disk it becomes immutable and all
+ * memory and is able to insert new revisions, which are sorted by a
+ * {@link Sorter}. By default, the revisions are appended to a
+ * {@link RevisionBuffer} and only sorted when they are read, which is normally
+ * when the Block is synced. Once the Block is synced to disk it becomes
+ * immutable and all
  * lookups are disk based. This means that writing to a block never incurs any
  * random disk I/O. A Block is not durable until the {@link #sync()} method is
  * called, so Block serialization and Buffer.Page deletion happen sequentially.
@@ -73,6 +81,16 @@ import com.google.common.collect.TreeMultiset;
  * disk I/O.
  * </p>
  * <p>
+ * By default, the revisions in a block file are grouped into chunks that are
+ * compressed independently and the BlockIndex points at the chunks instead of
+ * the individual revisions. A seek only decompresses the chunks that cover the
+ * requested locator and key. Each compressed block file also has a
+ * {@link BlockDictionary} of the locators, keys and values that are repeated
+ * across its revisions, so each revision refers to them by id. Block files that
+ * were written before compression (or while it is disabled) are still read in
+ * the uncompressed format.
+ * </p>
+ * <p>
  * Prior to 0.2, Concourse stored each logical Record in its own file, which had
  * the advantage of simplified deserialization (we only needed to locate one
  * file and read all of its content). The down side to that approach was that a
@@ -141,22 +159,86 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
 
     /**
      * The expected number of Block insertions. This number is used to size the
-     * Block's internal data structures. This value should be large enough to
-     * reflect the fact that, for each revision, we make 3 inserts into the
-     * bloom filter, but no larger than necessary since we must keep all bloom
-     * filters in memory.
+     * Block's internal data structures while it is mutable. When the Block is
+     * synced, the bloom filter is rebuilt to fit the data that was actually
+     * inserted.
      */
     private static final int EXPECTED_INSERTIONS = GlobalState.BUFFER_PAGE_SIZE;
 
+    /**
+     * The number of uncompressed bytes after which a chunk of a compressed
+     * block file is closed. A revision is never split across chunks, so a chunk
+     * may be larger if it contains a single large revision.
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * The size of the direct buffer that a {@link BlockFileWriter} uses to
+     * stream a block file to disk.
+     */
+    private static final int WRITE_BUFFER_SIZE = 65536;
+
+    /**
+     * The direct buffer that each thread reuses to {@link #sync() sync} blocks,
+     * so the memory that is needed to write a block file does not depend on
+     * the size of the Block. Blocks are synced by a small, fixed set of
+     * threads.
+     */
+    private static final ThreadLocal<ByteBuffer> WRITE_BUFFER = new ThreadLocal<ByteBuffer>() {
+
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        }
+
+    };
+
+    /**
+     * A marker at the beginning of a compressed block file whose chunks contain
+     * length prefixed revisions. An uncompressed block file begins with the
+     * (positive) size of its first revision, so this value can never appear
+     * there.
+     */
+    private static final int COMPRESSED_FORMAT_MAGIC = 0xC0B10C02;
+
+    /**
+     * A marker at the beginning of a compressed block file whose chunks contain
+     * revisions that are prefix and delta encoded by a
+     * {@link PrefixEncoder}.
+     */
+    private static final int ENCODED_FORMAT_MAGIC = 0xC0B10C03;
+
+    /**
+     * A marker at the beginning of a compressed block file that has a
+     * {@link BlockDictionary} and whose chunks contain revisions that are
+     * encoded by the dictionary and then prefix and delta encoded. The
+     * dictionary is stored as a compressed chunk immediately after the header.
+     */
+    private static final int DICTIONARY_FORMAT_MAGIC = 0xC0B10C04;
+
+    /**
+     * The size of the header in a compressed block file: magic(4),
+     * uncompressed size(4).
+     */
+    private static final int COMPRESSED_HEADER_SIZE = 8;
+
     /**
      * The extension for the {@link BloomFilter} file.
      */
-    private static final String FILTER_NAME_EXTENSION = ".fltr";
+    @PackagePrivate
+    static final String FILTER_NAME_EXTENSION = ".fltr";
 
     /**
      * The extension for the {@link BlockIndex} file.
      */
-    private static final String INDEX_NAME_EXTENSION = ".indx";
+    @PackagePrivate
+    static final String INDEX_NAME_EXTENSION = ".indx";
+
+    /**
+     * The extension for the {@link BlockStats} file.
+     */
+    @PackagePrivate
+    static final String STATS_NAME_EXTENSION = ".stat";
 
     /**
      * The extension for the block file.
@@ -169,11 +251,38 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
      */
     private final String file;
 
+    /**
+     * A flag that indicates whether the block file groups revisions into
+     * compressed chunks. If so, the {@link #index} points at chunks instead of
+     * individual revisions.
+     */
+    private volatile boolean compressed = false;
+
+    /**
+     * A flag that indicates whether the revisions in each chunk of a
+     * {@link #compressed} block file are prefix and delta encoded.
+     */
+    private volatile boolean encoded = false;
+
+    /**
+     * The dictionary that the revisions in the block file reference, if the
+     * block file was written in the dictionary format. Otherwise, this is
+     * {@code null} and the revisions are stored in their own binary format.
+     */
+    @Nullable
+    private volatile BlockDictionary<L, K, V> dictionary = null;
+
+    /**
+     * The position in the block file where the revisions begin.
+     */
+    private volatile long offset = 0;
+
     /**
      * A fixed size filter that is used to test whether elements are contained
-     * in the Block without actually looking through the Block.
+     * in the Block without actually looking through the Block. This is replaced
+     * with a right sized filter when the Block is synced.
      */
-    private BloomFilter filter;
+    private volatile BloomFilter filter;
 
     /**
      * The unique id for the block. Each component of the block is named after
@@ -202,15 +311,32 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
      */
     private final ReentrantReadWriteLock master = new ReentrantReadWriteLock();
 
+    /**
+     * A flag that indicates whether the {@link #index} records each
+     * locator/key under the {@link #getIndexKey(Byteable) index key}. Blocks
+     * that were synced before the index keys (and the {@link #stats}) existed
+     * record each locator/key under the exact bytes of the key instead.
+     */
+    private final boolean indexKeyed;
+
+    /**
+     * The fences that describe the boundaries of the data in the Block. The
+     * stats are only consulted once the Block is immutable and are populated
+     * during the call to {@link #sync()}. Only a {@link SecondaryBlock} records
+     * the min/max key for each locator, because its range seeks are the only
+     * reads that use them.
+     */
+    private final BlockStats<L, K> stats;
+
     /**
      * A collection that contains all the Revisions that have been inserted into
-     * the Block. This collection is sorted on the fly as elements are inserted.
-     * This collection is only maintained for a mutable Block. A Block that is
-     * synced and subsequently read from disk does not rely on this collection
-     * at all.
+     * the Block. This collection is iterated in sorted order, but it may defer
+     * the sorting until it is read. This collection is only maintained for a
+     * mutable Block. A Block that is synced and subsequently read from disk
+     * does not rely on this collection at all.
      */
     @Nullable
-    private SortedMultiset<Revision<L, K, V>> revisions;
+    private Collection<Revision<L, K, V>> revisions;
 
     /**
      * The running size of the Block. This number only refers to the size of the
@@ -231,7 +357,7 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
      * this reference in response to memory pressure at which point disk seeks
      * will be performed in the {@link #seek(Record, Byteable...)} method.
      */
-    private final SoftReference<SortedMultiset<Revision<L, K, V>>> softRevisions;
+    private final SoftReference<Collection<Revision<L, K, V>>> softRevisions;
 
     /**
      * A hint that this Block uses the
@@ -246,7 +372,15 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
      * The flag that indicates whether the Block is mutable or not. A Block is
      * mutable until a call to {@link #sync()} stores it to disk.
      */
-    protected transient boolean mutable;
+    protected transient volatile boolean mutable;
+
+    /**
+     * The flag that indicates whether the Block is being written to disk by
+     * {@link #sync()}. While this is {@code true}, the Block does not accept
+     * inserts, but it is still {@link #mutable} so reads are served from
+     * memory.
+     */
+    private transient volatile boolean syncing = false;
 
     /**
      * A shared lock that permits many readers and no writer. Use this lock to
@@ -276,7 +410,31 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
         this.file = directory + File.separator + id + BLOCK_NAME_EXTENSION;
         if(diskLoad) {
             this.mutable = false;
-            this.size = (int) FileSystem.getFileSize(this.file);
+            long fileSize = FileSystem.getFileSize(this.file);
+            if(fileSize >= COMPRESSED_HEADER_SIZE) {
+                ByteBuffer header = FileSystem.map(file, MapMode.READ_ONLY, 0,
+                        COMPRESSED_HEADER_SIZE);
+                int magic = header.getInt();
+                this.encoded = magic == ENCODED_FORMAT_MAGIC
+                        || magic == DICTIONARY_FORMAT_MAGIC;
+                this.compressed = encoded || magic == COMPRESSED_FORMAT_MAGIC;
+                this.size = compressed ? header.getInt() : (int) fileSize;
+                this.offset = compressed ? COMPRESSED_HEADER_SIZE : 0;
+                if(magic == DICTIONARY_FORMAT_MAGIC) {
+                    ByteBuffer lengths = FileSystem.map(file,
+                            MapMode.READ_ONLY, offset, 8);
+                    int length = lengths.getInt();
+                    int chunk = lengths.getInt();
+                    this.dictionary = BlockDictionary.load(Compression
+                            .decompress(FileSystem.map(file,
+                                    MapMode.READ_ONLY, offset + 8, chunk),
+                                    length));
+                    this.offset += 8 + chunk;
+                }
+            }
+            else {
+                this.size = (int) fileSize;
+            }
             try {
                 this.filter = BloomFilter.open(directory + File.separator + id
                         + FILTER_NAME_EXTENSION);
@@ -287,6 +445,10 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
             }
             this.index = BlockIndex.open(directory + File.separator + id
                     + INDEX_NAME_EXTENSION);
+            this.indexKeyed = FileSystem.hasFile(directory + File.separator
+                    + id + STATS_NAME_EXTENSION);
+            this.stats = BlockStats.open(directory + File.separator + id
+                    + STATS_NAME_EXTENSION, this instanceof SecondaryBlock);
             this.revisions = null;
         }
         else {
@@ -298,8 +460,10 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
                     EXPECTED_INSERTIONS);
             this.index = BlockIndex.create(directory + File.separator + id
                     + INDEX_NAME_EXTENSION, EXPECTED_INSERTIONS);
+            this.indexKeyed = true;
+            this.stats = BlockStats.create(this instanceof SecondaryBlock);
         }
-        this.softRevisions = new SoftReference<SortedMultiset<Revision<L, K, V>>>(
+        this.softRevisions = new SoftReference<Collection<Revision<L, K, V>>>(
                 revisions);
         this.ignoreEmptySync = this instanceof SearchBlock;
     }
@@ -308,61 +472,49 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
     public void copyTo(ByteBuffer buffer) {
         Locks.lockIfCondition(read, mutable);
         try {
-            L locator = null;
-            K key = null;
-            int position = 0;
-            boolean populated = false;
-            for (Revision<L, K, V> revision : revisions) {
-                populated = true;
-                buffer.putInt(revision.size());
-                revision.copyTo(buffer);
-                position = buffer.position() - revision.size() - 4;
-                /*
-                 * States that trigger this condition to be true:
-                 * 1. This is the first locator we've seen
-                 * 2. This locator is different than the last one we've seen
-                 */
-                if(locator == null || !locator.equals(revision.getLocator())) {
-                    index.putStart(position, revision.getLocator());
-                    if(locator != null) {
-                        // There was a locator before us (we are not the first!)
-                        // and we need to record the end index.
-                        index.putEnd(position - 1, locator);
-                    }
+            writeRevisions(new BlockFileWriter(buffer));
+        }
+        catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+        finally {
+            Locks.unlockIfCondition(read, mutable);
+        }
+    }
+
+    /**
+     * Insert all the revisions that are stored in the immutable {@code block}
+     * into this one. This is used to merge adjacent blocks during compaction,
+     * so the revisions are copied verbatim, without being re-optimized or
+     * re-indexed.
+     * 
+     * @param block
+     * @throws IllegalStateException if this Block is not mutable
+     */
+    @PackagePrivate
+    void absorb(Block<L, K, V> block) throws IllegalStateException {
+        Preconditions.checkArgument(!block.mutable,
+                "Cannot absorb a block that is mutable");
+        write.lock();
+        try {
+            Preconditions.checkState(mutable && !syncing,
+                    "Cannot modify a block that is not mutable");
+            for (Revision<L, K, V> revision : block) {
+                revisions.add(revision);
+                filter.put(revision.getLocator());
+                filter.put(revision.getLocator(), revision.getKey());
+                filter.put(revision.getLocator(), revision.getKey(),
+                        revision.getValue());
+                if(concurrent) {
+                    atomicSize.addAndGet(revision.size() + 4);
                 }
-                /*
-                 * NOTE: IF key == null, then it must be the case that locator
-                 * == null since they are set at the same time. Therefore we do
-                 * not need to explicitly check for that condition below
-                 * 
-                 * States that trigger this condition to be true:
-                 * 1. This is the first key we've seen
-                 * 2. This key is different than the last one we've seen
-                 * (regardless of whether the locator is different or the same!)
-                 * 3. This key is the same as the last one we've seen, but the
-                 * locator is different.
-                 */
-                if(key == null || !key.equals(revision.getKey())
-                        || !locator.equals(revision.getLocator())) {
-                    index.putStart(position, revision.getLocator(),
-                            revision.getKey());
-                    if(key != null) {
-                        // There was a locator, key before us (we are not the
-                        // first!) and we need to record the end index.
-                        index.putEnd(position - 1, locator, key);
-                    }
+                else {
+                    size += revision.size() + 4;
                 }
-                locator = revision.getLocator();
-                key = revision.getKey();
-            }
-            if(populated) {
-                position = buffer.position() - 1;
-                index.putEnd(position, locator);
-                index.putEnd(position, locator, key);
             }
         }
         finally {
-            Locks.unlockIfCondition(read, mutable);
+            write.unlock();
         }
     }
 
@@ -378,6 +530,39 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
         }
     }
 
+    /**
+     * Return an estimate of the number of bytes that must be read to
+     * {@link #seek(Byteable, Byteable, Record) seek} {@code key} in
+     * {@code locator}, without reading any revisions. The estimate is based on
+     * the span of the {@link BlockIndex} entry, so it includes neighboring
+     * revisions if the block file is compressed. This method returns 0 if the
+     * Block definitely does not contain any relevant revisions and 1 if the
+     * Block is mutable and might contain some.
+     *
+     * @param locator
+     * @param key
+     * @return the estimated seek size
+     */
+    public long estimateSeekSize(L locator, K key) {
+        Locks.lockIfCondition(read, mutable);
+        try {
+            if(!filter.mightContain(locator, key)) {
+                return 0;
+            }
+            else if(mutable) {
+                return 1;
+            }
+            else {
+                int[] range = index.getRange(locator, key);
+                return range != null ? Math.max(0, range[1] - (range[0] - 1))
+                        : 0;
+            }
+        }
+        finally {
+            Locks.unlockIfCondition(read, mutable);
+        }
+    }
+
     @Override
     public ByteBuffer getBytes() {
         read.lock();
@@ -392,6 +577,36 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
         }
     }
 
+    /**
+     * Return the estimated false positive probability of the bloom filter for
+     * this Block.
+     * 
+     * @return the false positive probability
+     */
+    public double getFilterFalsePositiveProbability() {
+        return filter.getExpectedFalsePositiveProbability();
+    }
+
+    /**
+     * Return the number of bytes that are used by the bloom filter for this
+     * Block.
+     * 
+     * @return the filter size
+     */
+    public long getFilterSize() {
+        return filter.getSizeInBytes();
+    }
+
+    /**
+     * Return {@code true} if the bloom filter for this Block is memory mapped
+     * from disk instead of stored on the heap.
+     * 
+     * @return {@code true} if the filter is mapped
+     */
+    public boolean isFilterMapped() {
+        return filter.isMapped();
+    }
+
     /**
      * Return the block id.
      * 
@@ -421,7 +636,7 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
             Action type) throws IllegalStateException {
         Locks.lockIfCondition(write, mutable);
         try {
-            Preconditions.checkState(mutable,
+            Preconditions.checkState(mutable && !syncing,
                     "Cannot modify a block that is not mutable");
             Revision<L, K, V> revision = makeRevision(locator, key, value,
                     version, type);
@@ -455,8 +670,10 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
         Preconditions.checkState(!mutable, "Cannot iterate a mutable block");
         return new Iterator<Revision<L, K, V>>() {
 
-            private final Iterator<ByteBuffer> it = ByteableCollections
-                    .streamingIterator(file, GlobalState.BUFFER_PAGE_SIZE);
+            private final Iterator<ByteBuffer> it = compressed ? revisionBytes(
+                    offset, FileSystem.getFileSize(file) - offset)
+                    : ByteableCollections.streamingIterator(file,
+                            GlobalState.BUFFER_PAGE_SIZE);
 
             @Override
             public boolean hasNext() {
@@ -467,7 +684,7 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
             public Revision<L, K, V> next() {
                 ByteBuffer next = it.next();
                 if(next != null) {
-                    return Byteables.read(next, xRevisionClass());
+                    return readRevision(next);
                 }
                 else {
                     return null;
@@ -505,6 +722,26 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
         }
     }
 
+    /**
+     * Return {@code true} if this Block might contain revisions that have a
+     * version that is less than or equal to {@code timestamp}. This method
+     * <em>may</em> return a false positive, but never a false negative, so a
+     * historical read at {@code timestamp} can safely skip this Block if this
+     * method returns {@code false}.
+     * 
+     * @param timestamp
+     * @return {@code true} if it is possible that relevant revisions exist
+     */
+    public boolean mightContainVersionAtOrBefore(long timestamp) {
+        Locks.lockIfCondition(read, mutable);
+        try {
+            return mutable || stats.mightContainVersionAtOrBefore(timestamp);
+        }
+        finally {
+            Locks.unlockIfCondition(read, mutable);
+        }
+    }
+
     /**
      * Seek revisions that contain {@code key} in {@code locator} and append
      * them to {@code record} if it is <em>likely</em> that those revisions
@@ -519,6 +756,107 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
         seek(record, locator, key);
     }
 
+    /**
+     * Seek revisions that contain a key between {@code min} and {@code max}
+     * (inclusive) in {@code locator} and append them to {@code record} if it
+     * is <em>likely</em> that those revisions exist in this Block.
+     * <p>
+     * Since the revisions for each locator are sorted by key, the seek stops
+     * as soon as it passes {@code max}. If this Block is immutable, the seek
+     * is skipped entirely if the {@link BlockStats} indicate that none of the
+     * keys for {@code locator} are in the range. Otherwise, only the slice of
+     * the block file for the keys that are equal to {@code min} is read if
+     * {@code min} and {@code max} are equal and the read starts at the last
+     * {@link BlockStats#getFloor(Byteable, Byteable) checkpoint} before
+     * {@code min} if they aren't.
+     * </p>
+     * 
+     * @param locator
+     * @param min
+     * @param max
+     * @param record
+     */
+    public void seek(L locator, K min, K max, Record<L, K, V> record) {
+        Locks.lockIfCondition(read, mutable);
+        try {
+            if(filter.mightContain(locator)
+                    && (mutable || stats.mightContain(locator, min, max))) {
+                Collection<Revision<L, K, V>> revisions = softRevisions.get();
+                final RevisionCursor<L, K, V> cursor = new RevisionCursor<L, K, V>(
+                        dictionary, xRevisionClass());
+                Iterator<RevisionCursor<L, K, V>> it = null;
+                if(revisions != null) {
+                    final Iterator<Revision<L, K, V>> source = revisions
+                            .iterator();
+                    it = new Iterator<RevisionCursor<L, K, V>>() {
+
+                        @Override
+                        public boolean hasNext() {
+                            return source.hasNext();
+                        }
+
+                        @Override
+                        public RevisionCursor<L, K, V> next() {
+                            return cursor.reset(source.next());
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+
+                    };
+                }
+                else {
+                    int[] range = getRange(locator, min, max);
+                    int start = range != null ? range[0] : BlockIndex.NO_ENTRY;
+                    int length = range != null ? range[1] - (start - 1) : 0;
+                    if(start != BlockIndex.NO_ENTRY && length > 0) {
+                        final Iterator<ByteBuffer> bytes = revisionBytes(start,
+                                length);
+                        it = new Iterator<RevisionCursor<L, K, V>>() {
+
+                            @Override
+                            public boolean hasNext() {
+                                return bytes.hasNext();
+                            }
+
+                            @Override
+                            public RevisionCursor<L, K, V> next() {
+                                return cursor.reset(bytes.next());
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException();
+                            }
+
+                        };
+                    }
+                }
+                boolean processing = false;
+                while (it != null && it.hasNext()) {
+                    it.next();
+                    if(cursor.getLocator().equals(locator)) {
+                        processing = true;
+                        if(cursor.getKey().compareTo(max) > 0) {
+                            break;
+                        }
+                        else if(cursor.getKey().compareTo(min) >= 0) {
+                            record.append(cursor);
+                        }
+                    }
+                    else if(processing) {
+                        break;
+                    }
+                }
+            }
+        }
+        finally {
+            Locks.unlockIfCondition(read, mutable);
+        }
+    }
+
     /**
      * Seek revisions that contain any key in {@code locator} and append them to
      * {@code record} if it is <em>likely</em> that those revisions exist in
@@ -546,35 +884,82 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
     /**
      * Flush the content to disk in a block file, sync the filter and index and
      * finally make the Block immutable.
+     * <p>
+     * The write lock is only held to stop accepting inserts and, at the end,
+     * to make the Block immutable. In between, the revisions are no longer
+     * modified, so seeks continue to be served from memory while the files
+     * are written.
+     * </p>
      */
     @Override
     public void sync() {
         write.lock();
         try {
-            if(mutable && sizeImpl() > 0) {
-                mutable = false;
-                FileChannel channel = FileSystem.getFileChannel(file);
-                channel.write(getBytes());
-                channel.force(true);
-                filter.sync();
-                index.sync();
-                FileSystem.closeFileChannel(channel);
-                revisions = null; // Set to NULL so that the Set is eligible for
-                                  // GC while the Block stays in memory.
-                filter.disableThreadSafety();
+            if(mutable && !syncing && sizeImpl() > 0) {
+                syncing = true;
             }
             else if(!mutable) {
                 Logger.warn("Cannot sync a block that is not mutable: {}", id);
+                return;
             }
-            else if(!ignoreEmptySync) {
-                Logger.warn("Cannot sync a block that is empty: {}. "
-                        + "Was there an unexpected server shutdown recently?",
-                        id);
+            else if(syncing) {
+                Logger.warn("Cannot sync a block that is already being "
+                        + "synced: {}", id);
+                return;
+            }
+            else {
+                if(!ignoreEmptySync) {
+                    Logger.warn("Cannot sync a block that is empty: {}. "
+                            + "Was there an unexpected server shutdown "
+                            + "recently?", id);
+                }
+                return;
             }
         }
+        finally {
+            write.unlock();
+        }
+        BloomFilter synced;
+        try {
+            compressed = GlobalState.ENABLE_BLOCK_COMPRESSION;
+            encoded = compressed;
+            dictionary = compressed ? BlockDictionary.create(revisions) : null;
+            FileChannel channel = FileSystem.getFileChannel(file);
+            BlockFileWriter writer = new BlockFileWriter(channel);
+            if(compressed) {
+                writeCompressed(writer);
+            }
+            else {
+                writeRevisions(writer);
+            }
+            writer.flush();
+            channel.force(true);
+            // Seeks keep using the current filter until the Block becomes
+            // immutable because the synced one is swapped in under the write
+            // lock
+            synced = createFilter(
+                    file.replace(BLOCK_NAME_EXTENSION, FILTER_NAME_EXTENSION),
+                    revisions);
+            synced.sync();
+            index.sync();
+            for (Revision<L, K, V> revision : revisions) {
+                stats.record(revision);
+            }
+            stats.sync(file.replace(BLOCK_NAME_EXTENSION, STATS_NAME_EXTENSION));
+            FileSystem.closeFileChannel(channel);
+        }
         catch (IOException e) {
             throw Throwables.propagate(e);
         }
+        write.lock();
+        try {
+            filter = synced;
+            mutable = false;
+            syncing = false;
+            revisions = null; // Set to NULL so that the Set is eligible for
+                              // GC while the Block stays in memory.
+            filter.disableThreadSafety();
+        }
         finally {
             write.unlock();
         }
@@ -585,6 +970,256 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
         return getClass().getSimpleName() + " " + id;
     }
 
+    /**
+     * Write the content of the block file in the compressed format to
+     * {@code writer}, record the position of each locator and locator/key in
+     * the {@link #index} and set the {@link #offset} where the revisions begin.
+     * Each chunk is written as soon as it is full, so only one chunk is held
+     * in memory at a time.
+     * <p>
+     * The revisions are grouped into chunks of about {@link #CHUNK_SIZE}
+     * uncompressed bytes that are each compressed independently. The index
+     * points at the first and last chunk that contain each locator and
+     * locator/key, so a seek only needs to decompress the chunks that contain
+     * the relevant revisions.
+     * </p>
+     * <p>
+     * Each revision is first encoded by the {@link #dictionary}, so the
+     * components that are repeated throughout the Block are replaced with
+     * small ids. Within each chunk, the encoded revisions are then prefix and
+     * delta encoded, so the references to the locator and key that are shared
+     * by consecutive revisions are only written once and each version is
+     * stored as a small difference from the previous one.
+     * </p>
+     * 
+     * @param writer
+     * @throws IOException
+     */
+    private void writeCompressed(BlockFileWriter writer) throws IOException {
+        List<Byteable[]> ends = Lists.newArrayList();
+        PrefixEncoder encoder = new PrefixEncoder();
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE);
+        ByteBuffer bytes = ByteBuffer.allocate(CHUNK_SIZE);
+        writer.putInt(DICTIONARY_FORMAT_MAGIC);
+        writer.putInt(sizeImpl());
+        writer.put(ByteableCollections.toCompressedChunk(dictionary
+                .getBytes()));
+        offset = writer.getPosition();
+        L locator = null;
+        K key = null;
+        Byteable indexKey = null;
+        for (Revision<L, K, V> revision : revisions) {
+            int max = dictionary.getMaxEncodedSize(revision);
+            if(bytes.capacity() < max) {
+                bytes = ByteBuffer.allocate(max);
+            }
+            bytes.clear();
+            dictionary.encode(revision, bytes);
+            bytes.flip();
+            int size = PrefixEncoder.getMaxEncodedSize(bytes.remaining());
+            if(buffer.position() > 0 && buffer.remaining() < size) {
+                flushChunk(buffer, writer, ends);
+            }
+            if(buffer.remaining() < size) {
+                buffer = ByteBuffer.allocate(size);
+            }
+            boolean fresh = buffer.position() == 0;
+            if(fresh) {
+                encoder.reset();
+            }
+            boolean newLocator = locator == null
+                    || !locator.equals(revision.getLocator());
+            boolean newKey = newLocator
+                    || key.compareTo(revision.getKey()) != 0;
+            locator = revision.getLocator();
+            key = revision.getKey();
+            if(newLocator) {
+                index.putStart(writer.getPosition(), locator);
+            }
+            if(newKey) {
+                indexKey = getIndexKey(key);
+                index.putStart(writer.getPosition(), locator, indexKey);
+            }
+            if(newLocator || fresh) {
+                ends.add(new Byteable[] { locator });
+            }
+            if(newKey || fresh) {
+                ends.add(new Byteable[] { locator, indexKey });
+            }
+            encoder.encode(bytes, buffer);
+        }
+        if(buffer.position() > 0) {
+            flushChunk(buffer, writer, ends);
+        }
+    }
+
+    /**
+     * Compress the content of {@code buffer} into a chunk, write it to
+     * {@code writer} and record the position of the last byte of the chunk as
+     * the end for each of the {@code ends} in the {@link #index}. Afterwards,
+     * {@code buffer} and {@code ends} are cleared.
+     * 
+     * @param buffer
+     * @param writer
+     * @param ends
+     * @throws IOException
+     */
+    private void flushChunk(ByteBuffer buffer, BlockFileWriter writer,
+            List<Byteable[]> ends) throws IOException {
+        buffer.flip();
+        ByteBuffer chunk = ByteableCollections.toCompressedChunk(buffer);
+        int end = writer.getPosition() + chunk.remaining() - 1;
+        for (Byteable[] byteables : ends) {
+            index.putEnd(end, byteables);
+        }
+        writer.put(chunk);
+        ends.clear();
+        buffer.clear();
+    }
+
+    /**
+     * Write each of the {@link #revisions} to {@code writer} in the
+     * uncompressed format (e.g. each revision is preceded by its size) and
+     * record the position of each locator and locator/key in the
+     * {@link #index}.
+     * 
+     * @param writer
+     * @throws IOException
+     */
+    private void writeRevisions(BlockFileWriter writer) throws IOException {
+        L locator = null;
+        K key = null;
+        Byteable indexKey = null;
+        int position = 0;
+        boolean populated = false;
+        for (Revision<L, K, V> revision : revisions) {
+            populated = true;
+            position = writer.getPosition();
+            writer.putInt(revision.size());
+            writer.put(revision);
+            /*
+             * States that trigger this condition to be true:
+             * 1. This is the first locator we've seen
+             * 2. This locator is different than the last one we've seen
+             */
+            if(locator == null || !locator.equals(revision.getLocator())) {
+                index.putStart(position, revision.getLocator());
+                if(locator != null) {
+                    // There was a locator before us (we are not the first!)
+                    // and we need to record the end index.
+                    index.putEnd(position - 1, locator);
+                }
+            }
+            /*
+             * NOTE: IF key == null, then it must be the case that locator
+             * == null since they are set at the same time. Therefore we do
+             * not need to explicitly check for that condition below
+             * 
+             * States that trigger this condition to be true:
+             * 1. This is the first key we've seen
+             * 2. This key is different than the last one we've seen
+             * (regardless of whether the locator is different or the same!)
+             * 3. This key is the same as the last one we've seen, but the
+             * locator is different.
+             */
+            if(key == null || key.compareTo(revision.getKey()) != 0
+                    || !locator.equals(revision.getLocator())) {
+                if(key != null) {
+                    // There was a locator, key before us (we are not the
+                    // first!) and we need to record the end index.
+                    index.putEnd(position - 1, locator, indexKey);
+                }
+                indexKey = getIndexKey(revision.getKey());
+                index.putStart(position, revision.getLocator(), indexKey);
+            }
+            locator = revision.getLocator();
+            key = revision.getKey();
+        }
+        if(populated) {
+            position = writer.getPosition() - 1;
+            index.putEnd(position, locator);
+            index.putEnd(position, locator, indexKey);
+        }
+    }
+
+    /**
+     * Return an iterator over the bytes of each revision that is stored in the
+     * {@code length} bytes of the block file that start at {@code position}.
+     * If the block file is {@link #compressed}, the region must contain whole
+     * chunks and each one is decompressed when the iterator reaches it.
+     * 
+     * @param position
+     * @param length
+     * @return the iterator
+     */
+    private Iterator<ByteBuffer> revisionBytes(long position, long length) {
+        ByteBuffer bytes = FileSystem.map(file, MapMode.READ_ONLY, position,
+                length);
+        return compressed ? ByteableCollections.compressedIterator(bytes,
+                encoded) : ByteableCollections.iterator(bytes);
+    }
+
+    /**
+     * Return a new filter that is backed by {@code target} and contains all of
+     * the {@code revisions}. The filter is sized for the number of distinct
+     * locators, locator/key pairs and locator/key/value triples (e.g. the
+     * elements that are actually put into the filter) at the
+     * {@link GlobalState#BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY configured}
+     * false positive probability, instead of {@link #EXPECTED_INSERTIONS}.
+     * <p>
+     * The {@code revisions} must be sorted and are traversed twice.
+     * </p>
+     * 
+     * @param target
+     * @param revisions
+     * @return the filter
+     */
+    private BloomFilter createFilter(String target,
+            Iterable<Revision<L, K, V>> revisions) {
+        int count = 0;
+        L locator = null;
+        K key = null;
+        Set<V> values = Sets.newHashSet();
+        for (Revision<L, K, V> revision : revisions) {
+            boolean newLocator = locator == null
+                    || !locator.equals(revision.getLocator());
+            if(newLocator || !key.equals(revision.getKey())) {
+                count += values.size() + 1;
+                values.clear();
+                key = revision.getKey();
+            }
+            if(newLocator) {
+                ++count;
+                locator = revision.getLocator();
+            }
+            values.add(revision.getValue());
+        }
+        count += values.size();
+        BloomFilter filter = BloomFilter.create(target, count,
+                GlobalState.BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY);
+        filter.disableThreadSafety();
+        for (Revision<L, K, V> revision : revisions) {
+            filter.put(revision.getLocator());
+            filter.put(revision.getLocator(), revision.getKey());
+            filter.put(revision.getLocator(), revision.getKey(),
+                    revision.getValue());
+        }
+        return filter;
+    }
+
+    /**
+     * Return the {@link Revision} whose bytes are read from the block file. If
+     * the block file has a {@link #dictionary}, the bytes are in the form that
+     * is written by {@link BlockDictionary#encode(Revision, ByteBuffer)}.
+     * 
+     * @param bytes
+     * @return the Revision
+     */
+    private Revision<L, K, V> readRevision(ByteBuffer bytes) {
+        return dictionary != null ? dictionary.read(bytes, this) : Byteables
+                .read(bytes, xRevisionClass());
+    }
+
     /**
      * Attempt to repair the Block from the symptoms of the specified exception.
      * Generally speaking, a repair is only possible if the exception pertains
@@ -604,23 +1239,11 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
             String backup = target + ".bak";
             FileSystem.copyBytes(target, backup);
             FileSystem.deleteFile(target);
-            filter = BloomFilter.create(target, EXPECTED_INSERTIONS);
-            MappedByteBuffer bytes = FileSystem.map(file, MapMode.READ_ONLY, 0,
-                    FileSystem.getFileSize(file));
-            Iterator<ByteBuffer> it = ByteableCollections.iterator(bytes);
-            while (it.hasNext()) {
-                Revision<L, K, V> revision = Byteables.read(it.next(),
-                        xRevisionClass());
-                filter.put(revision.getLocator());
-                filter.put(revision.getLocator(), revision.getKey());
-                filter.put(revision.getLocator(), revision.getKey(),
-                        revision.getValue());
-            }
+            filter = createFilter(target, this);
             filter.sync();
             FileSystem.deleteFile(backup);
             Logger.warn("Found and repaired a corrupted bloom "
                     + "filter for {} {}", this.getClass().getSimpleName(), id);
-            FileSystem.unmap(bytes);
         }
         else {
             throw e;
@@ -635,12 +1258,12 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
      * @param record
      * @param byteables
      */
+    @SuppressWarnings("unchecked")
     private void seek(Record<L, K, V> record, Byteable... byteables) {
         Locks.lockIfCondition(read, mutable);
         try {
             if(filter.mightContain(byteables)) {
-                SortedMultiset<Revision<L, K, V>> revisions = softRevisions
-                        .get();
+                Collection<Revision<L, K, V>> revisions = softRevisions.get();
                 if(revisions != null) {
                     Iterator<Revision<L, K, V>> it = revisions.iterator();
                     boolean processing = false; // Since the revisions are
@@ -665,19 +1288,39 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
                     }
                 }
                 else {
-                    int start = index.getStart(byteables);
-                    int length = index.getEnd(byteables) - (start - 1);
+                    int[] range = byteables.length > 1 ? index
+                            .getRange(byteables[0],
+                                    getIndexKey((K) byteables[1])) : index
+                            .getRange(byteables);
+                    int start = range != null ? range[0] : BlockIndex.NO_ENTRY;
+                    int length = range != null ? range[1] - (start - 1) : 0;
                     if(start != BlockIndex.NO_ENTRY && length > 0) {
-                        ByteBuffer bytes = FileSystem.map(file,
-                                MapMode.READ_ONLY, start, length);
-                        Iterator<ByteBuffer> it = ByteableCollections
-                                .iterator(bytes);
+                        Iterator<ByteBuffer> it = revisionBytes(start, length);
+                        BlockDictionary<L, K, V>.Probe probe = dictionary != null
+                                ? dictionary.probe(byteables) : null;
+                        RevisionCursor<L, K, V> cursor = new RevisionCursor<L, K, V>(
+                                dictionary, xRevisionClass());
+                        boolean processing = false;
+                        boolean checkSecond = byteables.length > 1;
                         while (it.hasNext()) {
-                            Revision<L, K, V> revision = Byteables.read(
-                                    it.next(), xRevisionClass());
-                            Logger.debug("Attempting to append {} from {} to "
-                                    + "{}", revision, this, record);
-                            record.append(revision);
+                            ByteBuffer next = it.next();
+                            // A compressed block file is indexed by chunk, so
+                            // the neighbors of the requested revisions may be
+                            // in the mapped range. If there is a dictionary,
+                            // they are skipped without being deserialized.
+                            if((probe == null || probe.matches(next))
+                                    && cursor.reset(next).getLocator()
+                                            .equals(byteables[0])
+                                    && (!checkSecond || cursor.getKey()
+                                            .equals(byteables[1]))) {
+                                processing = true;
+                                Logger.debug("Attempting to append {} from {} "
+                                        + "to {}", cursor, this, record);
+                                record.append(cursor);
+                            }
+                            else if(processing) {
+                                break;
+                            }
                         }
                     }
                 }
@@ -688,6 +1331,38 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
         }
     }
 
+    /**
+     * Return the start and end position of the smallest region of the block
+     * file that contains all the revisions for {@code locator} that have a
+     * key between {@code min} and {@code max} (inclusive), or {@code null} if
+     * there aren't any. The region may contain other revisions, too.
+     * 
+     * @param locator
+     * @param min
+     * @param max
+     * @return the start and end position
+     */
+    @Nullable
+    private int[] getRange(L locator, K min, K max) {
+        if(!indexKeyed) {
+            return index.getRange(locator);
+        }
+        else if(min.compareTo(max) == 0) {
+            return index.getRange(locator, getIndexKey(min));
+        }
+        else {
+            int[] range = index.getRange(locator);
+            K floor = stats.getFloor(locator, min);
+            if(range != null && floor != null) {
+                int[] from = index.getRange(locator, getIndexKey(floor));
+                if(from != null) {
+                    range[0] = from[0];
+                }
+            }
+            return range;
+        }
+    }
+
     /**
      * Internal implementation to return size of this Block without grabbing any
      * locks.
@@ -698,12 +1373,29 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
         return concurrent ? atomicSize.get() : size;
     }
 
+    /**
+     * Return the {@link Byteable} that identifies {@code key} in the
+     * {@link #index}. All the keys that are equal to {@code key} (e.g. they
+     * compare as 0, even if they aren't the same form) must have the same
+     * index key because their revisions are grouped together in the block
+     * file.
+     * 
+     * @param key
+     * @return the index key
+     */
+    protected Byteable getIndexKey(K key) {
+        return key;
+    }
+
     /**
      * Return the backing store to hold revisions that are placed in this Block.
      * This is only relevant to use when the Block is {@link #mutable} and not
-     * yet persisted to disk.
+     * yet persisted to disk. The backing store must iterate its revisions in
+     * the order of the {@code comparator}.
      * <p>
-     * If this Block is to be {@link #concurrent} then override this method and
+     * If {@link GlobalState#ENABLE_SORT_ON_SYNC} is {@code true}, the backing
+     * store is a {@link RevisionBuffer}, which is thread safe. Otherwise, if
+     * this Block is to be {@link #concurrent} then override this method and
      * return a Concurrent Multiset.
      * </p>
      * 
@@ -711,9 +1403,14 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
      * @return the backing store
      */
     @SuppressWarnings("rawtypes")
-    protected SortedMultiset<Revision<L, K, V>> createBackingStore(
+    protected Collection<Revision<L, K, V>> createBackingStore(
             Comparator<Revision> comparator) {
-        return TreeMultiset.create(comparator);
+        if(GlobalState.ENABLE_SORT_ON_SYNC) {
+            return RevisionBuffer.create(comparator);
+        }
+        else {
+            return TreeMultiset.create(comparator);
+        }
     }
 
     /**
@@ -741,12 +1438,10 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
                 }
             }
             else {
-                ByteBuffer bytes = FileSystem.map(file, MapMode.READ_ONLY, 0,
-                        FileSystem.getFileSize(file));
-                Iterator<ByteBuffer> it = ByteableCollections.iterator(bytes);
+                Iterator<ByteBuffer> it = revisionBytes(offset,
+                        FileSystem.getFileSize(file) - offset);
                 while (it.hasNext()) {
-                    Revision<L, K, V> revision = Byteables.read(it.next(),
-                            xRevisionClass());
+                    Revision<L, K, V> revision = readRevision(it.next());
                     sb.append(revision);
                     sb.append("\n");
                 }
@@ -761,7 +1456,7 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
 
     protected Revision<L, K, V> insertUnsafe(L locator, K key, V value,
             long version, Action type) throws IllegalStateException {
-        Preconditions.checkState(mutable,
+        Preconditions.checkState(mutable && !syncing,
                 "Cannot modify a block that is not mutable");
         Revision<L, K, V> revision = makeRevision(locator, key, value, version,
                 type);
@@ -801,6 +1496,134 @@ abstract class Block<L extends Byteable & Comparable<L>, K extends Byteable & Co
      */
     protected abstract Class<? extends Revision<L, K, V>> xRevisionClass();
 
+    /**
+     * Writes the content of a block file to a {@link FileChannel} through a
+     * small, reusable direct buffer, which is drained whenever it fills up. A
+     * writer can also fill a heap buffer that is large enough to hold the
+     * entire content (e.g. for {@link #copyTo(ByteBuffer)}).
+     * 
+     * @author Jeff Nelson
+     */
+    private static final class BlockFileWriter {
+
+        /**
+         * The buffer that holds the bytes that have not been written to the
+         * {@link #channel} yet.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * The channel where the bytes are written or {@code null} if the
+         * {@link #buffer} is the destination.
+         */
+        @Nullable
+        private final FileChannel channel;
+
+        /**
+         * The position in the block file where the next byte will be written.
+         */
+        private int position = 0;
+
+        /**
+         * Construct a new instance that writes into {@code buffer}.
+         * 
+         * @param buffer
+         */
+        BlockFileWriter(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.channel = null;
+        }
+
+        /**
+         * Construct a new instance that writes to {@code channel}.
+         * 
+         * @param channel
+         */
+        BlockFileWriter(FileChannel channel) {
+            this.buffer = WRITE_BUFFER.get();
+            this.buffer.clear();
+            this.channel = channel;
+        }
+
+        /**
+         * Write any bytes that remain in the buffer to the channel.
+         * 
+         * @throws IOException
+         */
+        public void flush() throws IOException {
+            if(channel != null) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+
+        /**
+         * Return the position in the block file where the next byte will be
+         * written.
+         * 
+         * @return the position
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * Write {@code byteable}.
+         * 
+         * @param byteable
+         * @throws IOException
+         */
+        public void put(Byteable byteable) throws IOException {
+            int size = byteable.size();
+            if(buffer.remaining() < size) {
+                flush();
+            }
+            if(buffer.remaining() >= size) {
+                byteable.copyTo(buffer);
+                position += size;
+            }
+            else {
+                put(byteable.getBytes());
+            }
+        }
+
+        /**
+         * Write the remaining bytes in {@code bytes}.
+         * 
+         * @param bytes
+         * @throws IOException
+         */
+        public void put(ByteBuffer bytes) throws IOException {
+            position += bytes.remaining();
+            while (channel != null && bytes.remaining() > buffer.remaining()) {
+                ByteBuffer slice = bytes.duplicate();
+                slice.limit(slice.position() + buffer.remaining());
+                bytes.position(slice.limit());
+                buffer.put(slice);
+                flush();
+            }
+            buffer.put(bytes);
+        }
+
+        /**
+         * Write {@code value}.
+         * 
+         * @param value
+         * @throws IOException
+         */
+        public void putInt(int value) throws IOException {
+            if(buffer.remaining() < 4) {
+                flush();
+            }
+            buffer.putInt(value);
+            position += 4;
+        }
+
+    }
+
     /**
      * A Comparator that sorts Revisions in a block. The sort order is
      * {@code locator} followed by {@code key} followed by {@code version}.
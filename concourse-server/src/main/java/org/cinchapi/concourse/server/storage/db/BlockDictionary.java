@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.cinchapi.concourse.annotate.PackagePrivate;
+import org.cinchapi.concourse.server.io.Byteable;
+import org.cinchapi.concourse.server.io.ByteableCollections;
+import org.cinchapi.concourse.server.io.Byteables;
+import org.cinchapi.concourse.server.storage.Action;
+import org.cinchapi.concourse.util.ByteBuffers;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Multisets;
+
+/**
+ * A per-{@link Block} dictionary of the locators, keys and values that are
+ * repeated across its revisions. The dictionary is built when the Block is
+ * synced and is stored in the block file, ahead of the revisions.
+ * <p>
+ * Each revision is written as its type, its version and a reference to each
+ * component. A reference is either the id of the component in the dictionary
+ * or, if the component isn't frequent enough to be in the dictionary, its
+ * literal bytes. This makes the block file smaller and allows a seek to
+ * {@link Probe#matches(ByteBuffer) match} the locator and key of each revision
+ * by comparing small integers, without deserializing the components.
+ * </p>
+ *
+ * @author Jeff Nelson
+ */
+@Immutable
+@PackagePrivate
+final class BlockDictionary<L extends Byteable & Comparable<L>, K extends Byteable & Comparable<K>, V extends Byteable & Comparable<V>> {
+
+    /**
+     * Return a new BlockDictionary for the components that appear in more than
+     * one of the {@code revisions}.
+     *
+     * @param revisions
+     * @return the BlockDictionary
+     */
+    public static <L extends Byteable & Comparable<L>, K extends Byteable & Comparable<K>, V extends Byteable & Comparable<V>> BlockDictionary<L, K, V> create(
+            Iterable<Revision<L, K, V>> revisions) {
+        Multiset<L> locators = HashMultiset.create();
+        Multiset<K> keys = HashMultiset.create();
+        Multiset<V> values = HashMultiset.create();
+        for (Revision<L, K, V> revision : revisions) {
+            locators.add(revision.getLocator());
+            keys.add(revision.getKey());
+            values.add(revision.getValue());
+        }
+        return new BlockDictionary<L, K, V>(Component.create(locators),
+                Component.create(keys), Component.create(values));
+    }
+
+    /**
+     * Return the BlockDictionary that is encoded in {@code bytes}, which were
+     * produced by {@link #getBytes()}.
+     *
+     * @param bytes
+     * @return the BlockDictionary
+     */
+    public static <L extends Byteable & Comparable<L>, K extends Byteable & Comparable<K>, V extends Byteable & Comparable<V>> BlockDictionary<L, K, V> load(
+            ByteBuffer bytes) {
+        Component<L> locators = Component.load(bytes);
+        Component<K> keys = Component.load(bytes);
+        Component<V> values = Component.load(bytes);
+        return new BlockDictionary<L, K, V>(locators, keys, values);
+    }
+
+    /**
+     * The max number of entries for each component. This ensures that the
+     * dictionary stays small enough to keep in memory and that every id fits
+     * in a 2 byte reference.
+     */
+    @PackagePrivate
+    static final int MAX_ENTRIES = 8192;
+
+    /**
+     * The max number of bytes that a reference adds to a component.
+     */
+    private static final int MAX_REFERENCE_OVERHEAD = 5;
+
+    /**
+     * Returned from {@link Component#getId(Object)} if a component is not in
+     * the dictionary.
+     */
+    private static final int NO_ID = -1;
+
+    private final Component<L> locators;
+    private final Component<K> keys;
+    private final Component<V> values;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param locators
+     * @param keys
+     * @param values
+     */
+    private BlockDictionary(Component<L> locators, Component<K> keys,
+            Component<V> values) {
+        this.locators = locators;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Write the encoded form of {@code revision} to {@code buffer}.
+     *
+     * @param revision
+     * @param buffer
+     */
+    public void encode(Revision<L, K, V> revision, ByteBuffer buffer) {
+        buffer.put((byte) revision.getType().ordinal());
+        buffer.putLong(revision.getVersion());
+        locators.write(revision.getLocator(), buffer);
+        keys.write(revision.getKey(), buffer);
+        values.write(revision.getValue(), buffer);
+    }
+
+    /**
+     * Return the binary representation of the dictionary.
+     *
+     * @return the bytes
+     */
+    public ByteBuffer getBytes() {
+        ByteBuffer bytes = ByteBuffer.allocate(locators.size() + keys.size()
+                + values.size());
+        locators.copyTo(bytes);
+        keys.copyTo(bytes);
+        values.copyTo(bytes);
+        bytes.flip();
+        return bytes;
+    }
+
+    /**
+     * Return the largest number of bytes that the encoded form of
+     * {@code revision} can occupy.
+     *
+     * @param revision
+     * @return the max encoded size
+     */
+    public int getMaxEncodedSize(Revision<L, K, V> revision) {
+        return revision.size() + (3 * MAX_REFERENCE_OVERHEAD);
+    }
+
+    /**
+     * Return a {@link Probe} that can check whether an encoded revision
+     * belongs to the locator and (optionally) the key in {@code byteables}.
+     *
+     * @param byteables
+     * @return the Probe
+     */
+    public Probe probe(Byteable... byteables) {
+        return new Probe(byteables);
+    }
+
+    /**
+     * Return the {@link Revision} that is encoded in {@code bytes}, using
+     * {@code block} to construct it.
+     *
+     * @param bytes
+     * @param block
+     * @return the Revision
+     */
+    public Revision<L, K, V> read(ByteBuffer bytes, Block<L, K, V> block) {
+        Action type = Action.values()[bytes.get()];
+        long version = bytes.getLong();
+        L locator = readLocator(bytes);
+        K key = readKey(bytes);
+        V value = readValue(bytes);
+        return block.makeRevision(locator, key, value, version, type);
+    }
+
+    /**
+     * Read the key that is referenced at the current position of
+     * {@code bytes}.
+     *
+     * @param bytes
+     * @return the key
+     */
+    public K readKey(ByteBuffer bytes) {
+        return keys.read(bytes);
+    }
+
+    /**
+     * Read the locator that is referenced at the current position of
+     * {@code bytes}.
+     *
+     * @param bytes
+     * @return the locator
+     */
+    public L readLocator(ByteBuffer bytes) {
+        return locators.read(bytes);
+    }
+
+    /**
+     * Read the value that is referenced at the current position of
+     * {@code bytes}.
+     *
+     * @param bytes
+     * @return the value
+     */
+    public V readValue(ByteBuffer bytes) {
+        return values.read(bytes);
+    }
+
+    /**
+     * A checker for whether encoded revisions have a specific locator and
+     * (optionally) key.
+     *
+     * @author Jeff Nelson
+     */
+    public final class Probe {
+
+        private final int[] ids;
+        private final ByteBuffer[] literals;
+
+        /**
+         * Construct a new instance.
+         *
+         * @param byteables
+         */
+        private Probe(Byteable... byteables) {
+            ids = new int[byteables.length];
+            literals = new ByteBuffer[byteables.length];
+            for (int i = 0; i < byteables.length; ++i) {
+                ids[i] = (i == 0 ? locators : keys).getId(byteables[i]);
+                literals[i] = ids[i] == NO_ID ? byteables[i].getBytes() : null;
+            }
+        }
+
+        /**
+         * Return {@code true} if the revision that is encoded in {@code bytes}
+         * has the probed locator and key. The position of {@code bytes} is not
+         * modified.
+         *
+         * @param bytes
+         * @return {@code true} if the revision matches
+         */
+        public boolean matches(ByteBuffer bytes) {
+            bytes = bytes.duplicate();
+            bytes.position(bytes.position() + 9);
+            for (int i = 0; i < ids.length; ++i) {
+                int reference = (int) ByteableCollections.getVarLong(bytes);
+                if((reference & 1) == 1) {
+                    if(reference >>> 1 != ids[i]) {
+                        return false;
+                    }
+                }
+                else {
+                    // A component in the dictionary is always written by id,
+                    // so a literal can only match a component that isn't.
+                    int length = reference >>> 1;
+                    if(literals[i] == null
+                            || literals[i].remaining() != length
+                            || !literals[i].equals(ByteBuffers.slice(bytes,
+                                    bytes.position(), length))) {
+                        return false;
+                    }
+                    bytes.position(bytes.position() + length);
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The dictionary entries for one of the components of a revision.
+     *
+     * @author Jeff Nelson
+     */
+    private static final class Component<T extends Byteable> {
+
+        /**
+         * Return a Component for the elements in {@code counts} that appear
+         * more than once, with the most frequent elements getting the smallest
+         * ids.
+         *
+         * @param counts
+         * @return the Component
+         */
+        static <T extends Byteable> Component<T> create(Multiset<T> counts) {
+            List<T> entries = Lists.newArrayList();
+            for (T element : Multisets.copyHighestCountFirst(counts)
+                    .elementSet()) {
+                if(counts.count(element) < 2 || entries.size() == MAX_ENTRIES) {
+                    break;
+                }
+                entries.add(element);
+            }
+            @SuppressWarnings("unchecked")
+            Class<T> type = (Class<T>) counts.iterator().next().getClass();
+            return new Component<T>(type, entries);
+        }
+
+        /**
+         * Return the Component that is encoded in {@code bytes}.
+         *
+         * @param bytes
+         * @return the Component
+         */
+        static <T extends Byteable> Component<T> load(ByteBuffer bytes) {
+            try {
+                @SuppressWarnings("unchecked")
+                Class<T> type = (Class<T>) Class.forName(ByteBuffers
+                        .getString(ByteBuffers.get(bytes, bytes.getInt())));
+                int count = bytes.getInt();
+                List<T> entries = Lists.newArrayListWithCapacity(count);
+                for (int i = 0; i < count; ++i) {
+                    entries.add(Byteables.readStatic(
+                            ByteBuffers.get(bytes, bytes.getInt()), type));
+                }
+                return new Component<T>(type, entries);
+            }
+            catch (ClassNotFoundException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+
+        private final List<T> entries;
+        private final Map<T, Integer> ids = Maps.newHashMap();
+        private final Class<T> type;
+
+        /**
+         * Construct a new instance.
+         *
+         * @param type
+         * @param entries
+         */
+        private Component(Class<T> type, List<T> entries) {
+            this.type = type;
+            this.entries = entries;
+            for (int i = 0; i < entries.size(); ++i) {
+                ids.put(entries.get(i), i);
+            }
+        }
+
+        /**
+         * Write the binary representation of the Component to {@code buffer}.
+         *
+         * @param buffer
+         */
+        void copyTo(ByteBuffer buffer) {
+            ByteBuffer name = ByteBuffers.fromString(type.getName());
+            buffer.putInt(name.remaining());
+            buffer.put(name);
+            buffer.putInt(entries.size());
+            for (T entry : entries) {
+                buffer.putInt(entry.size());
+                entry.copyTo(buffer);
+            }
+        }
+
+        /**
+         * Return the id of {@code element} or {@link #NO_ID} if it is not in
+         * the dictionary.
+         *
+         * @param element
+         * @return the id
+         */
+        int getId(Object element) {
+            Integer id = ids.get(element);
+            return id != null ? id : NO_ID;
+        }
+
+        /**
+         * Read the element that is referenced at the current position of
+         * {@code bytes}.
+         *
+         * @param bytes
+         * @return the element
+         */
+        T read(ByteBuffer bytes) {
+            int reference = (int) ByteableCollections.getVarLong(bytes);
+            if((reference & 1) == 1) {
+                return entries.get(reference >>> 1);
+            }
+            else {
+                return Byteables.readStatic(
+                        ByteBuffers.get(bytes, reference >>> 1), type);
+            }
+        }
+
+        /**
+         * Return the number of bytes that are needed to store the Component.
+         *
+         * @return the size
+         */
+        int size() {
+            int size = 4 + ByteBuffers.fromString(type.getName()).remaining()
+                    + 4;
+            for (T entry : entries) {
+                size += 4 + entry.size();
+            }
+            return size;
+        }
+
+        /**
+         * Write a reference to {@code element} to {@code buffer}.
+         *
+         * @param element
+         * @param buffer
+         */
+        void write(T element, ByteBuffer buffer) {
+            Integer id = ids.get(element);
+            if(id != null) {
+                ByteableCollections.putVarLong((id << 1) | 1, buffer);
+            }
+            else {
+                ByteableCollections.putVarLong(element.size() << 1, buffer);
+                element.copyTo(buffer);
+            }
+        }
+    }
+
+}
@@ -16,24 +16,32 @@
 package org.cinchapi.concourse.server.storage.db;
 
 import java.io.IOException;
-import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import javax.annotation.Nullable;
+
 import org.cinchapi.concourse.server.io.Byteable;
 import org.cinchapi.concourse.server.io.ByteableCollections;
 import org.cinchapi.concourse.server.io.Composite;
 import org.cinchapi.concourse.server.io.FileSystem;
 import org.cinchapi.concourse.server.io.Syncable;
 import org.cinchapi.concourse.util.ByteBuffers;
+import org.cinchapi.concourse.util.Logger;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
 
 /**
  * A reference that stores the start and end position for sequences of bytes
@@ -41,6 +49,15 @@ import com.google.common.collect.Maps;
  * objects. A BlockIndex is associated with each {@link Block} to determine
  * where to look on disk for a particular {@code locator} or {@code locator}/
  * {@code key} pair.
+ * <p>
+ * On disk, the index is a header followed by an array of fixed width entries
+ * that are sorted by the 64-bit hash of their key and then the raw bytes of
+ * all the keys. Once synced, the file is memory mapped and lookups binary
+ * search the mapped entries directly, so no objects are materialized on the
+ * heap and the index never needs to be reloaded under memory pressure. The
+ * key bytes are compared after the hash matches, so hash collisions are
+ * resolved correctly.
+ * </p>
  * 
  * @author Jeff Nelson
  */
@@ -57,6 +74,24 @@ public class BlockIndex implements Byteable, Syncable {
         return new BlockIndex(file, expectedInsertions);
     }
 
+    /**
+     * Return {@code true} if {@code file} contains an index that was written
+     * in the legacy (pre sorted array) format.
+     * 
+     * @param file
+     * @return {@code true} if the index must be upgraded
+     */
+    public static boolean isLegacyFormat(String file) {
+        long size = FileSystem.getFileSize(file);
+        if(size < 4) {
+            return size > 0;
+        }
+        else {
+            ByteBuffer bytes = FileSystem.map(file, MapMode.READ_ONLY, 0, 4);
+            return bytes.getInt() != MAGIC;
+        }
+    }
+
     /**
      * Return the BlockIndex that is stored in {@code file}.
      * 
@@ -67,13 +102,69 @@ public class BlockIndex implements Byteable, Syncable {
         return new BlockIndex(file);
     }
 
+    /**
+     * Rewrite the legacy index in {@code file} using the current format. This
+     * method is a no-op if the index is already in the current format.
+     * 
+     * @param file
+     */
+    public static void upgrade(String file) {
+        if(isLegacyFormat(file)) {
+            BlockIndex index = new BlockIndex(file, 0);
+            ByteBuffer bytes = FileSystem.map(file, MapMode.READ_ONLY, 0,
+                    FileSystem.getFileSize(file));
+            Iterator<ByteBuffer> it = ByteableCollections.iterator(bytes);
+            while (it.hasNext()) {
+                ByteBuffer next = it.next();
+                int start = next.getInt();
+                int end = next.getInt();
+                Composite key = Composite.fromByteBuffer(ByteBuffers.get(next,
+                        next.remaining()));
+                Entry entry = new Entry(key);
+                entry.start = start;
+                entry.end = end;
+                index.entries.put(key, entry);
+                index.keysSize += key.size();
+            }
+            String upgraded = file + ".upgrade";
+            if(FileSystem.hasFile(upgraded)) {
+                FileSystem.deleteFile(upgraded);
+            }
+            FileSystem.writeBytes(index.getBytes(), upgraded);
+            FileSystem.replaceFile(file, upgraded);
+        }
+    }
+
     /**
      * Represents an entry that has not been recorded.
      */
     public static final int NO_ENTRY = -1;
 
     /**
-     * The entries contained in the index.
+     * The function that is used to hash the keys of the entries.
+     */
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * A number that is written at the beginning of the file to distinguish the
+     * current format from the legacy one (where the first four bytes are the
+     * size of the first entry, which is always positive).
+     */
+    private static final int MAGIC = 0xB10C1DE8;
+
+    /**
+     * The size of the header: magic(4), count(4).
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * The size of each entry: hash(8), key position(4), key length(4),
+     * start(4), end(4).
+     */
+    private static final int ENTRY_SIZE = 24;
+
+    /**
+     * The entries that are added to the index before it is synced.
      */
     private Map<Composite, Entry> entries;
 
@@ -95,15 +186,15 @@ public class BlockIndex implements Byteable, Syncable {
     private boolean mutable;
 
     /**
-     * The running size of the index in bytes.
+     * The running size of the keys in bytes.
      */
-    private transient int size = 0;
+    private transient int keysSize = 0;
 
     /**
-     * A {@link SoftReference} to the entries contained in the index that is
-     * used to reduce memory overhead.
+     * The memory mapped content of the {@link #file}, which is lazily mapped
+     * the first time the index is read after it is no longer mutable.
      */
-    private SoftReference<Map<Composite, Entry>> softEntries;
+    private volatile ByteBuffer mapped;
 
     /**
      * Lazily construct an existing instance from the data in {@code file}.
@@ -114,7 +205,7 @@ public class BlockIndex implements Byteable, Syncable {
         this.file = file;
         this.mutable = false;
         this.entries = null;
-        this.softEntries = null;
+        this.mapped = null;
     }
 
     /**
@@ -125,7 +216,7 @@ public class BlockIndex implements Byteable, Syncable {
     private BlockIndex(String file, int expectedInsertions) {
         this.file = file;
         this.entries = Maps.newHashMapWithExpectedSize(expectedInsertions);
-        this.softEntries = null;
+        this.mapped = null;
         this.mutable = true;
     }
 
@@ -152,15 +243,32 @@ public class BlockIndex implements Byteable, Syncable {
      * @return the end position
      */
     public int getEnd(Byteable... byteables) {
+        int[] range = getRange(byteables);
+        return range != null ? range[1] : NO_ENTRY;
+    }
+
+    /**
+     * Return the start and end positions for {@code byteables} in a single
+     * lookup, or {@code null} if there is no entry.
+     * 
+     * @param byteables
+     * @return an array with the start and end position
+     */
+    @Nullable
+    public int[] getRange(Byteable... byteables) {
         masterLock.readLock().lock();
         try {
-            Composite composite = Composite.create(byteables);
-            Entry entry = entries().get(composite);
-            if(entry != null) {
-                return entry.getEnd();
+            if(mutable) {
+                Entry entry = entries.get(Composite.create(byteables));
+                return entry != null ? new int[] { entry.start, entry.end }
+                        : null;
             }
             else {
-                return NO_ENTRY;
+                ByteBuffer bytes = mapped();
+                int position = find(bytes, toKey(byteables));
+                return position != NO_ENTRY ? new int[] {
+                        bytes.getInt(position + 16),
+                        bytes.getInt(position + 20) } : null;
             }
         }
         finally {
@@ -176,20 +284,8 @@ public class BlockIndex implements Byteable, Syncable {
      * @return the start position
      */
     public int getStart(Byteable... byteables) {
-        masterLock.readLock().lock();
-        try {
-            Composite composite = Composite.create(byteables);
-            Entry entry = entries().get(composite);
-            if(entry != null) {
-                return entry.getStart();
-            }
-            else {
-                return NO_ENTRY;
-            }
-        }
-        finally {
-            masterLock.readLock().unlock();
-        }
+        int[] range = getRange(byteables);
+        return range != null ? range[0] : NO_ENTRY;
     }
 
     /**
@@ -205,11 +301,11 @@ public class BlockIndex implements Byteable, Syncable {
         masterLock.writeLock().lock();
         try {
             Composite composite = Composite.create(byteables);
-            Entry entry = entries().get(composite);
+            Entry entry = entries.get(composite);
             Preconditions.checkState(entry != null,
                     "Cannot set the end position before setting "
                             + "the start position. Tried to put %s", end);
-            entry.setEnd(end);
+            entry.end = end;
         }
         finally {
             masterLock.writeLock().unlock();
@@ -229,13 +325,13 @@ public class BlockIndex implements Byteable, Syncable {
         masterLock.writeLock().lock();
         try {
             Composite composite = Composite.create(byteables);
-            Entry entry = entries().get(composite);
+            Entry entry = entries.get(composite);
             if(entry == null) {
                 entry = new Entry(composite);
                 entries.put(composite, entry);
-                size += entry.size() + 4;
+                keysSize += composite.size();
             }
-            entry.setStart(start);
+            entry.start = start;
         }
         finally {
             masterLock.writeLock().unlock();
@@ -246,7 +342,8 @@ public class BlockIndex implements Byteable, Syncable {
     public int size() {
         masterLock.readLock().lock();
         try {
-            return size;
+            return mutable ? HEADER_SIZE + entries.size() * ENTRY_SIZE
+                    + keysSize : (int) FileSystem.getFileSize(file);
         }
         finally {
             masterLock.readLock().unlock();
@@ -256,12 +353,11 @@ public class BlockIndex implements Byteable, Syncable {
     @Override
     public void sync() {
         Preconditions.checkState(mutable);
-        masterLock.readLock().lock();
+        masterLock.writeLock().lock();
         FileChannel channel = FileSystem.getFileChannel(file);
         try {
             channel.write(getBytes());
             channel.force(true);
-            softEntries = new SoftReference<Map<Composite, Entry>>(entries);
             mutable = false;
             entries = null;
         }
@@ -270,7 +366,7 @@ public class BlockIndex implements Byteable, Syncable {
         }
         finally {
             FileSystem.closeFileChannel(channel); // CON-162
-            masterLock.readLock().unlock();
+            masterLock.writeLock().unlock();
         }
     }
 
@@ -279,10 +375,34 @@ public class BlockIndex implements Byteable, Syncable {
         Preconditions.checkState(mutable);
         masterLock.readLock().lock();
         try {
-            for (Entry entry : entries.values()) {
-                buffer.putInt(entry.size());
-                entry.copyTo(buffer);
+            List<Entry> sorted = Lists.newArrayList(entries.values());
+            for (Entry entry : sorted) {
+                entry.hash = hash(entry.key.getBytes());
+            }
+            Collections.sort(sorted, new Comparator<Entry>() {
+
+                @Override
+                public int compare(Entry o1, Entry o2) {
+                    return Long.compare(o1.hash, o2.hash);
+                }
+
+            });
+            int base = buffer.position();
+            int keyPosition = HEADER_SIZE + sorted.size() * ENTRY_SIZE;
+            buffer.putInt(MAGIC);
+            buffer.putInt(sorted.size());
+            for (Entry entry : sorted) {
+                buffer.putLong(entry.hash);
+                buffer.putInt(keyPosition);
+                buffer.putInt(entry.key.size());
+                buffer.putInt(entry.start);
+                buffer.putInt(entry.end);
+                keyPosition += entry.key.size();
             }
+            for (Entry entry : sorted) {
+                entry.key.copyTo(buffer);
+            }
+            Preconditions.checkState(buffer.position() - base == keyPosition);
         }
         finally {
             masterLock.readLock().unlock();
@@ -291,15 +411,14 @@ public class BlockIndex implements Byteable, Syncable {
 
     /**
      * Return {@code true} if this index is considered <em>loaded</em> meaning
-     * all of its entries are available in memory.
+     * all of its entries are available in memory or memory mapped.
      * 
      * @return {@code true} if the entries are loaded
      */
     protected boolean isLoaded() { // visible for testing
         masterLock.readLock().lock();
         try {
-            return mutable
-                    || (softEntries != null && softEntries.get() != null);
+            return mutable || mapped != null;
         }
         finally {
             masterLock.readLock().unlock();
@@ -307,70 +426,153 @@ public class BlockIndex implements Byteable, Syncable {
     }
 
     /**
-     * Return the entries in this index. This method will lazily load the
-     * entries on demand if they do not currently exist in memory.
+     * Return the position of the entry for {@code key} in {@code bytes} or
+     * {@link #NO_ENTRY} if it does not exist.
      * 
-     * @return the entries
+     * @param bytes
+     * @param key
+     * @return the position of the entry
      */
-    private synchronized Map<Composite, Entry> entries() {
-        if(mutable && entries != null) {
-            return entries;
+    private static int find(ByteBuffer bytes, ByteBuffer key) {
+        long hash = hash(key);
+        int low = 0;
+        int high = bytes.getInt(4) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midHash = bytes.getLong(HEADER_SIZE + mid * ENTRY_SIZE);
+            if(midHash < hash) {
+                low = mid + 1;
+            }
+            else if(midHash > hash) {
+                high = mid - 1;
+            }
+            else {
+                // Rewind to the first entry with the same hash and then check
+                // the key bytes of each one until there is a match.
+                int count = bytes.getInt(4);
+                while (mid > 0
+                        && bytes.getLong(HEADER_SIZE + (mid - 1)
+                                * ENTRY_SIZE) == hash) {
+                    --mid;
+                }
+                for (int i = mid; i < count; ++i) {
+                    int position = HEADER_SIZE + i * ENTRY_SIZE;
+                    if(bytes.getLong(position) != hash) {
+                        break;
+                    }
+                    else if(matches(bytes, bytes.getInt(position + 8),
+                            bytes.getInt(position + 12), key)) {
+                        return position;
+                    }
+                }
+                return NO_ENTRY;
+            }
         }
-        else if(!mutable && (softEntries == null || softEntries.get() == null)) { // do
-                                                                                  // lazy
-                                                                                  // load
-            ByteBuffer bytes = FileSystem.map(file, MapMode.READ_ONLY, 0,
-                    FileSystem.getFileSize(file));
-            Iterator<ByteBuffer> it = ByteableCollections.iterator(bytes);
-            Map<Composite, Entry> entries = Maps
-                    .newHashMapWithExpectedSize(bytes.capacity()
-                            / Entry.CONSTANT_SIZE);
-            while (it.hasNext()) {
-                Entry entry = new Entry(it.next());
-                entries.put(entry.getKey(), entry);
+        return NO_ENTRY;
+    }
+
+    /**
+     * Return the 64-bit hash of the remaining bytes in {@code key}. The
+     * backing array is hashed in place if it is accessible.
+     * 
+     * @param key
+     * @return the hash
+     */
+    private static long hash(ByteBuffer key) {
+        return key.hasArray() ? HASH_FUNCTION.hashBytes(key.array(),
+                key.arrayOffset() + key.position(), key.remaining()).asLong()
+                : HASH_FUNCTION.hashBytes(ByteBuffers.toByteArray(key))
+                        .asLong();
+    }
+
+    /**
+     * Return {@code true} if the {@code length} bytes in {@code bytes} starting
+     * at {@code position} are the same as those in {@code key}.
+     * 
+     * @param bytes
+     * @param position
+     * @param length
+     * @param key
+     * @return {@code true} if the bytes match
+     */
+    private static boolean matches(ByteBuffer bytes, int position, int length,
+            ByteBuffer key) {
+        if(length != key.remaining()) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if(bytes.get(position + i) != key.get(key.position() + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the memory mapped content of the index. This method will lazily
+     * map the file on demand. If the file was written in the legacy format
+     * (e.g. the upgrade task did not run), it is rewritten first.
+     * 
+     * @return the mapped bytes
+     */
+    private ByteBuffer mapped() {
+        if(mapped == null) {
+            synchronized (this) {
+                if(mapped == null) {
+                    if(isLegacyFormat(file)) {
+                        Logger.warn("Upgrading the legacy block index in {}",
+                                file);
+                        upgrade(file);
+                    }
+                    long size = FileSystem.getFileSize(file);
+                    if(size == 0) {
+                        // An empty index has no entries, so mock the header.
+                        ByteBuffer empty = ByteBuffer.allocate(HEADER_SIZE);
+                        empty.putInt(MAGIC).putInt(0).rewind();
+                        mapped = empty;
+                    }
+                    else {
+                        mapped = FileSystem.map(file, MapMode.READ_ONLY, 0,
+                                size);
+                    }
+                }
             }
-            softEntries = new SoftReference<Map<Composite, Entry>>(entries);
-            return softEntries.get();
         }
-        else if(!mutable && softEntries.get() != null) {
-            return softEntries.get();
+        return mapped;
+    }
+
+    /**
+     * Return a heap buffer with the same bytes as the {@link Composite} of
+     * {@code byteables}, which can be hashed without another copy.
+     * 
+     * @param byteables
+     * @return the key bytes
+     */
+    private static ByteBuffer toKey(Byteable... byteables) {
+        int size = 0;
+        for (Byteable byteable : byteables) {
+            size += byteable.size();
         }
-        else {
-            // "If i'm really an engineer thats worth a damn, we won't ever get
-            // to this point" -jnelson
-            throw new IllegalStateException();
+        ByteBuffer key = ByteBuffer.allocate(size);
+        for (Byteable byteable : byteables) {
+            byteable.copyTo(key);
         }
+        key.flip();
+        return key;
     }
 
     /**
-     * Represents a single entry in the Index.
+     * Represents a single entry in the Index before it is synced.
      * 
      * @author Jeff Nelson
      */
-    private final class Entry implements Byteable {
-
-        private static final int CONSTANT_SIZE = 8; // start(4), end(4)
+    private static final class Entry {
 
         private int end = NO_ENTRY;
+        private long hash;
         private final Composite key;
         private int start = NO_ENTRY;
 
-        /**
-         * Construct an instance that represents an existing Entry from a
-         * ByteBuffer. This constructor is public so as to comply with the
-         * {@link Byteable} interface. Calling this constructor directly is not
-         * recommend. Use {@link #fromByteBuffer(ByteBuffer)} instead to take
-         * advantage of reference caching.
-         * 
-         * @param bytes
-         */
-        public Entry(ByteBuffer bytes) {
-            this.start = bytes.getInt();
-            this.end = bytes.getInt();
-            this.key = Composite.fromByteBuffer(ByteBuffers.get(bytes,
-                    bytes.remaining()));
-        }
-
         /**
          * Construct a new instance.
          * 
@@ -380,71 +582,6 @@ public class BlockIndex implements Byteable, Syncable {
             this.key = key;
         }
 
-        @Override
-        public ByteBuffer getBytes() {
-            ByteBuffer bytes = ByteBuffer.allocate(size());
-            copyTo(bytes);
-            bytes.rewind();
-            return bytes;
-        }
-
-        /**
-         * Return the end position.
-         * 
-         * @return the end
-         */
-        public int getEnd() {
-            return end;
-        }
-
-        /**
-         * Return the entry key
-         * 
-         * @return the key
-         */
-        public Composite getKey() {
-            return key;
-        }
-
-        /**
-         * Return the start position.
-         * 
-         * @return the start
-         */
-        public int getStart() {
-            return start;
-        }
-
-        /**
-         * Set the end position.
-         * 
-         * @param end the end to set
-         */
-        public void setEnd(int end) {
-            this.end = end;
-        }
-
-        /**
-         * Set the start position.
-         * 
-         * @param start the start to set
-         */
-        public void setStart(int start) {
-            this.start = start;
-        }
-
-        @Override
-        public int size() {
-            return CONSTANT_SIZE + key.size();
-        }
-
-        @Override
-        public void copyTo(ByteBuffer buffer) {
-            buffer.putInt(start);
-            buffer.putInt(end);
-            key.copyTo(buffer);
-        }
-
     }
 
 }
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.cinchapi.concourse.annotate.PackagePrivate;
+import org.cinchapi.concourse.server.io.Byteable;
+import org.cinchapi.concourse.server.io.Byteables;
+import org.cinchapi.concourse.server.io.FileSystem;
+import org.cinchapi.concourse.util.ByteBuffers;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * A collection of fences that describe the boundaries of the data in an
+ * immutable {@link Block}: the min/max version of all the revisions and, if
+ * the stats are {@link #isFenced() fenced}, the min/max locator and the
+ * min/max key for each locator.
+ * <p>
+ * Unlike the bloom filter, the fences can rule out a Block for range
+ * and historical queries, so the Database can skip a Block entirely (without
+ * touching the filter or index) if the fences cannot intersect the requested
+ * locator, key range or timestamp.
+ * </p>
+ * <p>
+ * The stats for a Block are accumulated while it is synced and are stored
+ * alongside the filter and index. Blocks that were synced before the stats
+ * existed do not have any, in which case every check conservatively returns
+ * {@code true}.
+ * </p>
+ * <p>
+ * The per locator fences hold one entry for every locator in the Block, so
+ * they are only recorded and loaded for Blocks whose range seeks can actually
+ * use them. For all other Blocks, only the versions are kept. Each fence also
+ * has a sparse list of checkpoints (every {@link #CHECKPOINT_INTERVAL}th
+ * distinct key), so a range seek can start reading near the beginning of the
+ * range instead of at the first key for the locator.
+ * </p>
+ *
+ * @author Jeff Nelson
+ */
+@NotThreadSafe
+@PackagePrivate
+final class BlockStats<L extends Byteable & Comparable<L>, K extends Byteable & Comparable<K>> {
+
+    /**
+     * Return a new and empty BlockStats that can {@link #record(Revision)
+     * record} revisions. The per locator fences are only recorded if
+     * {@code fenced} is {@code true}.
+     *
+     * @param fenced
+     * @return the BlockStats
+     */
+    public static <L extends Byteable & Comparable<L>, K extends Byteable & Comparable<K>> BlockStats<L, K> create(
+            boolean fenced) {
+        return new BlockStats<L, K>(true, fenced);
+    }
+
+    /**
+     * Return the BlockStats that are stored in {@code file}, if it exists.
+     * Otherwise, return BlockStats that don't rule anything out. The per
+     * locator fences are only loaded if {@code fenced} is {@code true}.
+     *
+     * @param file
+     * @param fenced
+     * @return the BlockStats
+     */
+    public static <L extends Byteable & Comparable<L>, K extends Byteable & Comparable<K>> BlockStats<L, K> open(
+            String file, boolean fenced) {
+        BlockStats<L, K> stats = new BlockStats<L, K>(false, fenced);
+        if(FileSystem.hasFile(file)) {
+            stats.load(FileSystem.readBytes(file));
+        }
+        return stats;
+    }
+
+    /**
+     * The number of distinct keys for a locator between consecutive
+     * checkpoints.
+     */
+    @PackagePrivate
+    static final int CHECKPOINT_INTERVAL = 32;
+
+    /**
+     * The min/max key for each locator.
+     */
+    private final Map<L, Fence<K>> fences = Maps.newHashMap();
+
+    /**
+     * A flag that indicates whether the per locator {@link #fences} are
+     * recorded.
+     */
+    private final boolean fenced;
+
+    /**
+     * A flag that indicates whether the stats describe the Block. This is
+     * {@code false} for Blocks that were synced before stats were recorded.
+     */
+    private boolean known;
+
+    /**
+     * The smallest and largest locators.
+     */
+    @Nullable
+    private L minLocator = null;
+    @Nullable
+    private L maxLocator = null;
+
+    /**
+     * The smallest and largest revision versions.
+     */
+    private long minVersion = Long.MAX_VALUE;
+    private long maxVersion = Long.MIN_VALUE;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param known
+     * @param fenced
+     */
+    private BlockStats(boolean known, boolean fenced) {
+        this.known = known;
+        this.fenced = fenced;
+    }
+
+    /**
+     * Return the largest version of any revision in the Block or
+     * {@link Long#MAX_VALUE} if it is not known.
+     *
+     * @return the max version
+     */
+    public long getMaxVersion() {
+        return known && maxVersion >= minVersion ? maxVersion : Long.MAX_VALUE;
+    }
+
+    /**
+     * Return the largest checkpoint key for {@code locator} that is less than
+     * or equal to {@code key}, or {@code null} if there isn't one. A seek for
+     * the keys that are greater than or equal to {@code key} can start at the
+     * first revision for the returned key.
+     *
+     * @param locator
+     * @param key
+     * @return the checkpoint key or {@code null}
+     */
+    @Nullable
+    public K getFloor(L locator, K key) {
+        Fence<K> fence = known && fenced ? fences.get(locator) : null;
+        if(fence == null || fence.checkpoints == null) {
+            return null;
+        }
+        else {
+            int low = 0;
+            int high = fence.checkpoints.size() - 1;
+            K floor = null;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                K checkpoint = fence.checkpoints.get(mid);
+                if(checkpoint.compareTo(key) <= 0) {
+                    floor = checkpoint;
+                    low = mid + 1;
+                }
+                else {
+                    high = mid - 1;
+                }
+            }
+            return floor;
+        }
+    }
+
+    /**
+     * Return the smallest version of any revision in the Block or
+     * {@link Long#MIN_VALUE} if it is not known.
+     *
+     * @return the min version
+     */
+    public long getMinVersion() {
+        return known && maxVersion >= minVersion ? minVersion : Long.MIN_VALUE;
+    }
+
+    /**
+     * Return {@code true} if the stats record the min/max key for each
+     * locator.
+     *
+     * @return {@code true} if the stats are fenced
+     */
+    public boolean isFenced() {
+        return fenced;
+    }
+
+    /**
+     * Return {@code true} if the Block might contain a revision for
+     * {@code locator} that has a key between {@code min} and {@code max}
+     * (inclusive). If the stats aren't {@link #isFenced() fenced}, this
+     * always returns {@code true}.
+     *
+     * @param locator
+     * @param min
+     * @param max
+     * @return {@code true} if the fences intersect the range
+     */
+    public boolean mightContain(L locator, K min, K max) {
+        if(!known || !fenced) {
+            return true;
+        }
+        else if(minLocator == null || locator.compareTo(minLocator) < 0
+                || locator.compareTo(maxLocator) > 0) {
+            return false;
+        }
+        else {
+            Fence<K> fence = fences.get(locator);
+            return fence != null && fence.min.compareTo(max) <= 0
+                    && fence.max.compareTo(min) >= 0;
+        }
+    }
+
+    /**
+     * Return {@code true} if the Block might contain a revision that has a
+     * version that is less than or equal to {@code timestamp}.
+     *
+     * @param timestamp
+     * @return {@code true} if the fences intersect the timestamp
+     */
+    public boolean mightContainVersionAtOrBefore(long timestamp) {
+        return getMinVersion() <= timestamp;
+    }
+
+    /**
+     * Update the stats to account for {@code revision}. The revisions must be
+     * recorded in the order that they are stored in the Block (e.g. sorted by
+     * locator and then key) so that the checkpoints are in order.
+     *
+     * @param revision
+     */
+    public void record(Revision<L, K, ?> revision) {
+        Preconditions.checkState(known, "Cannot record revisions in "
+                + "stats that were loaded from disk");
+        minVersion = Math.min(minVersion, revision.getVersion());
+        maxVersion = Math.max(maxVersion, revision.getVersion());
+        if(!fenced) {
+            return;
+        }
+        L locator = revision.getLocator();
+        K key = revision.getKey();
+        if(minLocator == null || locator.compareTo(minLocator) < 0) {
+            minLocator = locator;
+        }
+        if(maxLocator == null || locator.compareTo(maxLocator) > 0) {
+            maxLocator = locator;
+        }
+        Fence<K> fence = fences.get(locator);
+        if(fence == null) {
+            fences.put(locator, new Fence<K>(key, key));
+        }
+        else if(key.compareTo(fence.min) < 0) {
+            fence.min = key;
+        }
+        else if(key.compareTo(fence.max) > 0) {
+            fence.max = key;
+            if(++fence.count % CHECKPOINT_INTERVAL == 0) {
+                fence.checkpoint(key);
+            }
+        }
+    }
+
+    /**
+     * Write the stats to {@code file}. Nothing is written if no revisions were
+     * recorded. If the stats aren't {@link #isFenced() fenced}, only the
+     * versions are written.
+     *
+     * @param file
+     */
+    public void sync(String file) {
+        if(known && maxVersion >= minVersion) {
+            ByteBuffer locatorClass = ByteBuffers.fromString(fenced ? minLocator
+                    .getClass().getName() : "");
+            ByteBuffer keyClass = ByteBuffers.fromString(fenced ? fences
+                    .values().iterator().next().min.getClass().getName() : "");
+            int size = 8 + 8 + 4 + 4 + locatorClass.remaining() + 4
+                    + keyClass.remaining();
+            for (Map.Entry<L, Fence<K>> entry : fences.entrySet()) {
+                Fence<K> fence = entry.getValue();
+                size += 4 + entry.getKey().size() + 4 + fence.min.size() + 4
+                        + fence.max.size() + 4;
+                if(fence.checkpoints != null) {
+                    for (K checkpoint : fence.checkpoints) {
+                        size += 4 + checkpoint.size();
+                    }
+                }
+            }
+            ByteBuffer bytes = ByteBuffer.allocate(size);
+            bytes.putLong(minVersion);
+            bytes.putLong(maxVersion);
+            bytes.putInt(fences.size());
+            bytes.putInt(locatorClass.remaining());
+            bytes.put(locatorClass);
+            bytes.putInt(keyClass.remaining());
+            bytes.put(keyClass);
+            for (Map.Entry<L, Fence<K>> entry : fences.entrySet()) {
+                Fence<K> fence = entry.getValue();
+                put(entry.getKey(), bytes);
+                put(fence.min, bytes);
+                put(fence.max, bytes);
+                if(fence.checkpoints != null) {
+                    bytes.putInt(fence.checkpoints.size());
+                    for (K checkpoint : fence.checkpoints) {
+                        put(checkpoint, bytes);
+                    }
+                }
+                else {
+                    bytes.putInt(0);
+                }
+            }
+            bytes.flip();
+            FileSystem.writeBytes(bytes, file);
+        }
+    }
+
+    /**
+     * Populate the stats from the {@code bytes} that were written in
+     * {@link #sync(String)}. If the stats aren't {@link #isFenced() fenced},
+     * only the versions are read and any fences in the {@code bytes} are
+     * ignored.
+     *
+     * @param bytes
+     */
+    private void load(ByteBuffer bytes) {
+        minVersion = bytes.getLong();
+        maxVersion = bytes.getLong();
+        known = true;
+        if(!fenced) {
+            return;
+        }
+        int count = bytes.getInt();
+        String locatorClass = ByteBuffers.getString(ByteBuffers.get(bytes,
+                bytes.getInt()));
+        String keyClass = ByteBuffers.getString(ByteBuffers.get(bytes,
+                bytes.getInt()));
+        for (int i = 0; i < count; ++i) {
+            L locator = Byteables.readStatic(
+                    ByteBuffers.get(bytes, bytes.getInt()), locatorClass);
+            K min = Byteables.readStatic(ByteBuffers.get(bytes, bytes.getInt()),
+                    keyClass);
+            K max = Byteables.readStatic(ByteBuffers.get(bytes, bytes.getInt()),
+                    keyClass);
+            Fence<K> fence = new Fence<K>(min, max);
+            int checkpoints = bytes.getInt();
+            for (int j = 0; j < checkpoints; ++j) {
+                fence.checkpoint(Byteables.<K> readStatic(
+                        ByteBuffers.get(bytes, bytes.getInt()), keyClass));
+            }
+            fences.put(locator, fence);
+            if(minLocator == null || locator.compareTo(minLocator) < 0) {
+                minLocator = locator;
+            }
+            if(maxLocator == null || locator.compareTo(maxLocator) > 0) {
+                maxLocator = locator;
+            }
+        }
+    }
+
+    /**
+     * Put the size of {@code byteable} followed by its bytes into
+     * {@code bytes}.
+     *
+     * @param byteable
+     * @param bytes
+     */
+    private static void put(Byteable byteable, ByteBuffer bytes) {
+        bytes.putInt(byteable.size());
+        byteable.copyTo(bytes);
+    }
+
+    /**
+     * The min and max key and the checkpoints for a locator.
+     *
+     * @author Jeff Nelson
+     */
+    private static final class Fence<K> {
+
+        private K min;
+        private K max;
+
+        /**
+         * The sorted checkpoint keys, which are only allocated once there is
+         * one.
+         */
+        @Nullable
+        private List<K> checkpoints = null;
+
+        /**
+         * The number of distinct keys after the {@link #min} that have been
+         * recorded.
+         */
+        private int count = 0;
+
+        /**
+         * Construct a new instance.
+         *
+         * @param min
+         * @param max
+         */
+        Fence(K min, K max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * Add {@code key}, which is larger than all the other checkpoints, to
+         * the {@link #checkpoints}.
+         *
+         * @param key
+         */
+        void checkpoint(K key) {
+            if(checkpoints == null) {
+                checkpoints = Lists.newArrayList();
+            }
+            checkpoints.add(key);
+        }
+    }
+
+}
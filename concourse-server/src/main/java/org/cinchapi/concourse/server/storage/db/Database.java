@@ -19,11 +19,26 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.annotation.Nullable;
@@ -33,6 +48,7 @@ import javax.annotation.concurrent.ThreadSafe;
 import org.cinchapi.concourse.annotate.Restricted;
 import org.cinchapi.concourse.server.GlobalState;
 import org.cinchapi.concourse.server.concurrent.ConcourseExecutors;
+import org.cinchapi.concourse.server.io.Byteable;
 import org.cinchapi.concourse.server.io.Composite;
 import org.cinchapi.concourse.server.io.FileSystem;
 import org.cinchapi.concourse.server.jmx.ManagedOperation;
@@ -45,26 +61,35 @@ import org.cinchapi.concourse.server.storage.BaseStore;
 import org.cinchapi.concourse.server.storage.Functions;
 import org.cinchapi.concourse.server.storage.PermanentStore;
 import org.cinchapi.concourse.server.storage.temp.Buffer;
+import org.cinchapi.concourse.server.storage.temp.Limbo;
+import org.cinchapi.concourse.server.storage.temp.Queue;
 import org.cinchapi.concourse.server.storage.temp.Write;
 import org.cinchapi.concourse.thrift.Operator;
 import org.cinchapi.concourse.thrift.TObject;
+import org.cinchapi.concourse.thrift.Type;
 import org.cinchapi.concourse.time.Time;
 import org.cinchapi.concourse.util.Comparators;
 import org.cinchapi.concourse.util.Logger;
 import org.cinchapi.concourse.util.NaturalSorter;
 import org.cinchapi.concourse.util.TLists;
-import org.cinchapi.concourse.util.TStrings;
 import org.cinchapi.concourse.util.Transformers;
 import org.cinchapi.concourse.util.ReadOnlyIterator;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import static org.cinchapi.concourse.server.GlobalState.*;
 
@@ -157,6 +182,49 @@ public final class Database extends BaseStore implements PermanentStore {
                 .build();
     }
 
+    /**
+     * Return the record that is cached in {@code cache} for {@code composite}
+     * or use the {@code loader} to build and cache it. If other threads miss
+     * the same {@code composite} while the record is being built, they wait
+     * for and share the result instead of building it themselves. The outcome
+     * of the lookup is tallied in {@code counters}.
+     * 
+     * @param cache
+     * @param counters
+     * @param composite
+     * @param loader
+     * @return the record
+     */
+    private static <T> T getCachedRecord(Cache<Composite, T> cache,
+            CacheCounters counters, Composite composite,
+            final Callable<T> loader) {
+        T record = cache.getIfPresent(composite);
+        if(record != null) {
+            counters.hits.incrementAndGet();
+            return record;
+        }
+        else {
+            final AtomicBoolean loaded = new AtomicBoolean(false);
+            try {
+                record = cache.get(composite, new Callable<T>() {
+
+                    @Override
+                    public T call() throws Exception {
+                        loaded.set(true);
+                        return loader.call();
+                    }
+
+                });
+            }
+            catch (ExecutionException | UncheckedExecutionException e) {
+                throw Throwables.propagate(e.getCause());
+            }
+            (loaded.get() ? counters.misses : counters.coalesced)
+                    .incrementAndGet();
+            return record;
+        }
+    }
+
     /**
      * Return the Block identified by {@code id} if it exists in {@code list},
      * otherwise {@code null}.
@@ -178,8 +246,95 @@ public final class Database extends BaseStore implements PermanentStore {
         return null;
     }
 
+    /**
+     * Replace the blocks in {@code list} that are identified by {@code ids}
+     * with the {@code merged} one, in the position of the first replaced
+     * block.
+     * 
+     * @param list
+     * @param ids
+     * @param merged
+     */
+    private static <T extends Block<?, ?, ?>> void swap(List<T> list,
+            List<String> ids, @Nullable T merged) {
+        int position = -1;
+        ListIterator<T> it = list.listIterator();
+        while (it.hasNext()) {
+            if(ids.contains(it.next().getId())) {
+                position = position == -1 ? it.previousIndex() : position;
+                it.remove();
+            }
+        }
+        if(merged != null) {
+            list.add(position, merged);
+        }
+    }
+
     private static final String threadNamePrefix = "database-write-thread";
 
+    /**
+     * The name format for the thread that runs background compaction.
+     */
+    private static final String compactionThreadNameFormat = "database-compaction-thread-%d";
+
+    /**
+     * The number of seconds between each background compaction pass.
+     */
+    private static final int COMPACTION_FREQUENCY_IN_SECONDS = 60;
+
+    /**
+     * The name of the file that records which blocks are replaced by an
+     * in-flight compaction. The file is written after all the merged blocks are
+     * staged and deleted once they are swapped into place, so its presence on
+     * startup means that the swap must be completed before loading any blocks.
+     */
+    private static final String COMPACTION_MANIFEST = "compaction.manifest";
+
+    /**
+     * The name of the sub directory (within each block directory) where merged
+     * blocks are staged before they are swapped into place.
+     */
+    private static final String COMPACTION_STAGING_DIRECTORY = "compaction";
+
+    /**
+     * The name of the file that records the id of the newest search block that
+     * is complete and synced to disk when search indexing is asynchronous. On
+     * startup, the search blocks for any newer primary blocks are rebuilt from
+     * the primary blocks.
+     */
+    private static final String SEARCH_INDEX_WATERMARK = "search.watermark";
+
+    /**
+     * The maximum number of writes that the search indexer moves from the
+     * {@link #unindexed} queue to the current search block at a time. Searches
+     * wait while a batch is moved, so this should be fairly small.
+     */
+    private static final int SEARCH_INDEXER_BATCH_SIZE = 100;
+
+    /**
+     * The maximum number of writes that can wait in the {@link #unindexed}
+     * queue. Once the search indexer falls this far behind, accepting more
+     * writes blocks until it catches up so that the backlog (which is only
+     * held in memory) can't grow without bound.
+     */
+    private static final int MAX_UNINDEXED_WRITES = 100000;
+
+    /**
+     * The maximum number of milliseconds that the search indexer waits before
+     * it retries after a failure. The delay doubles after each consecutive
+     * failure, starting at {@link #SEARCH_INDEXER_MIN_BACKOFF_IN_MS}, so a
+     * persistent error doesn't spin the indexer or flood the log.
+     */
+    private static final long SEARCH_INDEXER_MAX_BACKOFF_IN_MS = 30000;
+    private static final long SEARCH_INDEXER_MIN_BACKOFF_IN_MS = 100;
+
+    /**
+     * The number of times that a search reads the {@link #unindexed} queue and
+     * the search index without blocking the search indexer before it falls
+     * back to holding the {@link #indexLock}.
+     */
+    private static final int SEARCH_OPTIMISTIC_ATTEMPTS = 3;
+
     /*
      * BLOCK DIRECTORIES
      * -----------------
@@ -238,11 +393,17 @@ public final class Database extends BaseStore implements PermanentStore {
      * Records are cached in memory to reduce the number of seeks required. When
      * writing new revisions, we check the appropriate caches for relevant
      * records and append the new revision so that the cached data doesn't grow
-     * stale.
+     * stale. Concurrent misses for the same record are coalesced so that only
+     * one caller seeks the blocks while the others wait for the result.
      */
     private final Cache<Composite, PrimaryRecord> cpc = buildCache();
     private final Cache<Composite, PrimaryRecord> cppc = buildCache();
     private final Cache<Composite, SecondaryRecord> csc = buildCache();
+    private final Cache<Composite, SecondaryRecord> cspc = buildCache();
+    private final transient CacheCounters cpcCounters = new CacheCounters();
+    private final transient CacheCounters cppcCounters = new CacheCounters();
+    private final transient CacheCounters cscCounters = new CacheCounters();
+    private final transient CacheCounters cspcCounters = new CacheCounters();
 
     /**
      * Lock used to ensure the object is ThreadSafe. This lock provides access
@@ -253,7 +414,91 @@ public final class Database extends BaseStore implements PermanentStore {
     /**
      * A flag to indicate if the Buffer is running or not.
      */
-    private transient boolean running = false;
+    private transient volatile boolean running = false;
+
+    /*
+     * COMPACTION
+     * ----------
+     * Each Buffer page turns into a new set of blocks, so over time the
+     * Database accumulates many small blocks that must each be consulted on
+     * every read. In the background, we merge adjacent immutable blocks into
+     * larger ones and swap them into the block collections under the
+     * masterLock.
+     */
+    private transient ScheduledExecutorService compactor;
+
+    /**
+     * The long-lived workers that insert accepted writes into the current
+     * primary, secondary and search blocks, respectively. Using a dedicated
+     * worker for each block type preserves the order in which writes are
+     * inserted into each block.
+     */
+    @Nullable
+    private transient volatile ExecutorService[] pipeline;
+    private final transient ReentrantLock compactionLock = new ReentrantLock();
+
+    /**
+     * Serializes calls to {@link #triggerSync(boolean)}, which only hold the
+     * masterLock while new blocks are swapped in.
+     */
+    private final transient ReentrantLock syncLock = new ReentrantLock();
+
+    /**
+     * The id of the blocks that are being synced to disk, if any. These blocks
+     * are no longer the current ones, but they are not immutable yet, so they
+     * must not be compacted.
+     */
+    @Nullable
+    private transient volatile String syncing = null;
+    private final transient AtomicLong compactionCount = new AtomicLong(0);
+    private final transient AtomicLong compactionBytesMerged = new AtomicLong(0);
+    private final transient AtomicLong compactionBytesTotal = new AtomicLong(0);
+
+    /*
+     * ASYNCHRONOUS SEARCH INDEXING
+     * ----------------------------
+     * When enabled, accepted writes are inserted into the current primary and
+     * secondary blocks right away, but STRING writes are only appended to the
+     * #unindexed queue for search. The #indexer moves them from the queue into
+     * the current search block, in order, and swaps in a new search block
+     * (syncing the old one) whenever it reaches the point where the other
+     * blocks were synced. Searches consult the queue for the writes that are
+     * not indexed yet.
+     */
+    private final transient boolean asyncSearchIndexing;
+    @Nullable
+    private transient ExecutorService indexer;
+    @GuardedBy("unindexed")
+    private final transient UnindexedWrites unindexed = new UnindexedWrites();
+    @GuardedBy("unindexed")
+    private final transient Deque<PendingSync> pendingSyncs = Lists
+            .newLinkedList();
+    @GuardedBy("unindexed")
+    private transient long enqueuedCount = 0;
+    @GuardedBy("unindexed")
+    private transient long indexedCount = 0;
+
+    /**
+     * The number of writes that the indexer has started to insert into the
+     * current search block. This is only ahead of the {@link #indexedCount}
+     * while a batch is being inserted, so a search can tell if the search
+     * index changed while it was read.
+     */
+    @GuardedBy("unindexed")
+    private transient long indexingCount = 0;
+
+    /**
+     * Held by searches that repeatedly raced with the indexer so that they
+     * don't observe a batch of writes that is both in the {@link #unindexed}
+     * queue and the current search block.
+     */
+    private final transient ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+
+    /**
+     * The id of the newest search block that is complete and synced to disk,
+     * as recorded in the {@link #SEARCH_INDEX_WATERMARK} file.
+     */
+    private transient volatile long watermark = 0;
 
     /**
      * Construct a Database that is backed by the default location which is in
@@ -273,33 +518,84 @@ public final class Database extends BaseStore implements PermanentStore {
      */
     public Database(String backingStore) {
         this.backingStore = backingStore;
+        this.asyncSearchIndexing = ENABLE_ASYNC_SEARCH_INDEXING;
     }
 
     @Override
     public void accept(Write write) {
-        // CON-83: Keeping manually verifying writes until we find one that is
-        // acceptable, after which assume all subsequent writes are acceptable.
-        if(!acceptable
-                && ((write.getType() == Action.ADD && !verify(write.getKey()
-                        .toString(), write.getValue().getTObject(), write
-                        .getRecord().longValue())) || (write.getType() == Action.REMOVE && verify(
-                        write.getKey().toString(), write.getValue()
-                                .getTObject(), write.getRecord().longValue())))) {
-            acceptable = true;
-        }
-        if(acceptable) {
+        accept(Collections.singletonList(write));
+    }
+
+    /**
+     * Accept a batch of {@code writes} and insert them into the current blocks.
+     * Each type of block is populated by its own long-lived worker, so the
+     * entire batch is inserted with a single hand-off per block type instead
+     * of one per write.
+     * 
+     * @param writes
+     */
+    public void accept(List<Write> writes) {
+        if(!acceptable) {
+            // CON-83: Keeping manually verifying writes until we find one that
+            // is acceptable, after which assume all subsequent writes are
+            // acceptable.
+            List<Write> accepted = Lists.newArrayListWithCapacity(writes
+                    .size());
+            for (Write write : writes) {
+                if(acceptable
+                        || (write.getType() == Action.ADD && !verify(write
+                                .getKey().toString(), write.getValue()
+                                .getTObject(), write.getRecord().longValue()))
+                        || (write.getType() == Action.REMOVE && verify(write
+                                .getKey().toString(), write.getValue()
+                                .getTObject(), write.getRecord().longValue()))) {
+                    acceptable = true;
+                    accepted.add(write);
+                }
+                else {
+                    Logger.warn("The Engine refused to accept {} because "
+                            + "it appears that the data was already "
+                            + "transported. This indicates that the server "
+                            + "shutdown prematurely.", write);
+                }
+            }
+            writes = accepted;
+        }
+        if(!writes.isEmpty()) {
             // NOTE: Write locking happens in each individual Block, and
             // furthermore this method is only called from the Buffer, which
             // transports data serially.
-            ConcourseExecutors.executeAndAwaitTermination(threadNamePrefix,
-                    new BlockWriter(cpb0, write), new BlockWriter(csb0, write),
-                    new BlockWriter(ctb0, write));
-        }
-        else {
-            Logger.warn("The Engine refused to accept {} because "
-                    + "it appears that the data was already transported. "
-                    + "This indicates that the server shutdown prematurely.",
-                    write);
+            Runnable[] writers;
+            if(asyncSearchIndexing) {
+                enqueueForIndexing(writes);
+                writers = new Runnable[] { new BlockWriter(cpb0, writes),
+                        new BlockWriter(csb0, writes) };
+            }
+            else {
+                writers = new Runnable[] { new BlockWriter(cpb0, writes),
+                        new BlockWriter(csb0, writes),
+                        new BlockWriter(ctb0, writes) };
+            }
+            ExecutorService[] workers = pipeline;
+            if(workers != null) {
+                List<Future<?>> futures = Lists
+                        .newArrayListWithCapacity(writers.length);
+                for (int i = 0; i < writers.length; ++i) {
+                    futures.add(workers[i].submit(writers[i]));
+                }
+                try {
+                    for (Future<?> future : futures) {
+                        future.get();
+                    }
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
+            else {
+                ConcourseExecutors.executeAndAwaitTermination(
+                        threadNamePrefix, writers);
+            }
         }
     }
 
@@ -349,10 +645,12 @@ public final class Database extends BaseStore implements PermanentStore {
     @Override
     public Map<Long, Set<TObject>> doExplore(long timestamp, String key,
             Operator operator, TObject... values) {
-        SecondaryRecord record = getSecondaryRecord(Text.wrapCached(key));
+        Value[] vals = Transformers.transformArray(values,
+                Functions.TOBJECT_TO_VALUE, Value.class);
+        SecondaryRecord record = getSecondaryRecord(Text.wrapCached(key),
+                timestamp, operator, vals);
         Map<PrimaryKey, Set<Value>> map = record.explore(timestamp, operator,
-                Transformers.transformArray(values, Functions.TOBJECT_TO_VALUE,
-                        Value.class));
+                vals);
         return Transformers.transformTreeMapSet(map,
                 Functions.PRIMARY_KEY_TO_LONG, Functions.VALUE_TO_TOBJECT,
                 Comparators.LONG_COMPARATOR);
@@ -361,10 +659,11 @@ public final class Database extends BaseStore implements PermanentStore {
     @Override
     public Map<Long, Set<TObject>> doExplore(String key, Operator operator,
             TObject... values) {
-        SecondaryRecord record = getSecondaryRecord(Text.wrapCached(key));
-        Map<PrimaryKey, Set<Value>> map = record.explore(operator,
-                Transformers.transformArray(values, Functions.TOBJECT_TO_VALUE,
-                        Value.class));
+        Value[] vals = Transformers.transformArray(values,
+                Functions.TOBJECT_TO_VALUE, Value.class);
+        SecondaryRecord record = getSecondaryRecord(Text.wrapCached(key),
+                Long.MAX_VALUE, operator, vals);
+        Map<PrimaryKey, Set<Value>> map = record.explore(operator, vals);
         return Transformers.transformTreeMapSet(map,
                 Functions.PRIMARY_KEY_TO_LONG, Functions.VALUE_TO_TOBJECT,
                 Comparators.LONG_COMPARATOR);
@@ -403,6 +702,152 @@ public final class Database extends BaseStore implements PermanentStore {
         return backingStore;
     }
 
+    /**
+     * Return the number of blocks (of each type) that are currently in scope,
+     * including the mutable one.
+     * 
+     * @return the block count
+     */
+    @ManagedOperation
+    public int getBlockCount() {
+        masterLock.readLock().lock();
+        try {
+            return cpb.size();
+        }
+        finally {
+            masterLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the number of heap bytes that are used by the bloom filters of
+     * all the blocks that are currently in scope. Filters that are memory
+     * mapped from disk are not counted.
+     * 
+     * @return the bloom filter heap usage
+     */
+    @ManagedOperation
+    public long getBloomFilterHeapUsage() {
+        masterLock.readLock().lock();
+        try {
+            long bytes = 0;
+            for (Block<?, ?, ?> block : Iterables.concat(cpb, csb, ctb)) {
+                if(!block.isFilterMapped()) {
+                    bytes += block.getFilterSize();
+                }
+            }
+            return bytes;
+        }
+        finally {
+            masterLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return a description of the size, location and estimated false positive
+     * probability of the bloom filter for each block that is currently in
+     * scope.
+     * 
+     * @return the bloom filter stats
+     */
+    @ManagedOperation
+    public List<String> getBloomFilterStats() {
+        masterLock.readLock().lock();
+        try {
+            List<String> stats = Lists.newArrayList();
+            for (Block<?, ?, ?> block : Iterables.concat(cpb, csb, ctb)) {
+                stats.add(String.format("%s: %d bytes (%s), %.6f fpp", block,
+                        block.getFilterSize(), block.isFilterMapped() ? "mapped"
+                                : "heap", block
+                                .getFilterFalsePositiveProbability()));
+            }
+            return stats;
+        }
+        finally {
+            masterLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the number of compactions that have completed since the Database
+     * started.
+     * 
+     * @return the compaction count
+     */
+    @ManagedOperation
+    public long getCompactionCount() {
+        return compactionCount.get();
+    }
+
+    /**
+     * Return the percent of the in-flight compaction that has been completed.
+     * If no compaction is in progress, this method returns 100.
+     * 
+     * @return the compaction progress
+     */
+    @ManagedOperation
+    public double getCompactionProgress() {
+        long total = compactionBytesTotal.get();
+        return total > 0 ? (double) compactionBytesMerged.get() * 100 / total
+                : 100;
+    }
+
+    /**
+     * Return the number of hits, misses (e.g. lookups that had to seek the
+     * blocks) and coalesced misses (e.g. lookups that waited for another
+     * thread to seek the blocks) for each of the record caches since the
+     * Database started.
+     * 
+     * @return the record cache stats
+     */
+    @ManagedOperation
+    public List<String> getRecordCacheStats() {
+        List<String> stats = Lists.newArrayList();
+        stats.add(cpcCounters.describe("cpc"));
+        stats.add(cppcCounters.describe("cppc"));
+        stats.add(cscCounters.describe("csc"));
+        stats.add(cspcCounters.describe("cspc"));
+        return stats;
+    }
+
+    /**
+     * Return the average time that it has taken to index each write for every
+     * search block that has indexed writes since the Database started.
+     *
+     * @return the search indexing stats
+     */
+    @ManagedOperation
+    public List<String> getSearchIndexingStats() {
+        masterLock.readLock().lock();
+        try {
+            List<String> stats = Lists.newArrayList();
+            for (SearchBlock block : ctb) {
+                double time = block.getIndexingTimePerWrite();
+                if(time > 0) {
+                    stats.add(String.format("%s: %.3f us per write", block,
+                            time));
+                }
+            }
+            return stats;
+        }
+        finally {
+            masterLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the number of accepted writes that are waiting to be added to the
+     * search index. This is always 0 unless search indexing is asynchronous.
+     *
+     * @return the number of unindexed writes
+     */
+    @ManagedOperation
+    public long getUnindexedWriteCount() {
+        synchronized (unindexed) {
+            return enqueuedCount - indexedCount;
+        }
+    }
+
     /**
      * Return a the list of ids for all the blocks that are currently in scope.
      * 
@@ -419,9 +864,48 @@ public final class Database extends BaseStore implements PermanentStore {
 
     @Override
     public Set<Long> search(String key, String query) {
-        return Transformers.transformSet(
-                getSearchRecord(Text.wrapCached(key), Text.wrap(query)).search(
-                        Text.wrap(query)), Functions.PRIMARY_KEY_TO_LONG);
+        if(asyncSearchIndexing) {
+            // Read the search index without blocking the indexer and try
+            // again if it started to index a batch in the meantime because
+            // the writes in the batch might have been seen twice
+            for (int i = 0; i < SEARCH_OPTIMISTIC_ATTEMPTS; ++i) {
+                Set<Long> queued;
+                long position;
+                synchronized (unindexed) {
+                    while (indexingCount != indexedCount) {
+                        try {
+                            unindexed.wait();
+                        }
+                        catch (InterruptedException e) {
+                            throw Throwables.propagate(e);
+                        }
+                    }
+                    position = indexingCount;
+                    queued = unindexed.search(key, query);
+                }
+                Set<Long> indexed = searchIndex(key, query);
+                synchronized (unindexed) {
+                    if(indexingCount == position) {
+                        return Sets.symmetricDifference(queued, indexed);
+                    }
+                }
+            }
+            indexLock.readLock().lock();
+            try {
+                Set<Long> queued;
+                synchronized (unindexed) {
+                    queued = unindexed.search(key, query);
+                }
+                return Sets.symmetricDifference(queued,
+                        searchIndex(key, query));
+            }
+            finally {
+                indexLock.readLock().unlock();
+            }
+        }
+        else {
+            return searchIndex(key, query);
+        }
     }
 
     @Override
@@ -461,6 +945,7 @@ public final class Database extends BaseStore implements PermanentStore {
         if(!running) {
             running = true;
             Logger.info("Database configured to store data in {}", backingStore);
+            recoverCompaction();
             ConcourseExecutors.executeAndAwaitTerminationAndShutdown(
                     "Storage Block Loader", new BlockLoader<PrimaryBlock>(
                             PrimaryBlock.class, PRIMARY_BLOCK_DIRECTORY, cpb),
@@ -482,7 +967,26 @@ public final class Database extends BaseStore implements PermanentStore {
             // missing to assume that the server crashed. :-/
             TLists.retainIntersection(cpb, csb);
             ctb.retainAll(cpb);
+            recoverSearchIndex();
             triggerSync(false);
+            pipeline = new ExecutorService[] {
+                    newPipelineWorker(PRIMARY_BLOCK_DIRECTORY),
+                    newPipelineWorker(SECONDARY_BLOCK_DIRECTORY),
+                    newPipelineWorker(SEARCH_BLOCK_DIRECTORY) };
+            if(asyncSearchIndexing) {
+                indexer = newPipelineWorker("search-indexer");
+                indexer.execute(new SearchIndexer());
+            }
+            if(COMPACTION_MAX_BLOCK_SIZE > 0) {
+                compactor = Executors
+                        .newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                                .setDaemon(true)
+                                .setNameFormat(compactionThreadNameFormat)
+                                .build());
+                compactor.scheduleWithFixedDelay(new BlockCompactor(),
+                        COMPACTION_FREQUENCY_IN_SECONDS,
+                        COMPACTION_FREQUENCY_IN_SECONDS, TimeUnit.SECONDS);
+            }
         }
     }
 
@@ -490,6 +994,31 @@ public final class Database extends BaseStore implements PermanentStore {
     public void stop() {
         if(running) {
             running = false;
+            ExecutorService[] workers = pipeline;
+            pipeline = null;
+            if(workers != null) {
+                for (ExecutorService worker : workers) {
+                    worker.shutdown();
+                }
+            }
+            if(compactor != null) {
+                compactor.shutdown();
+                compactor = null;
+            }
+            if(indexer != null) {
+                synchronized (unindexed) {
+                    unindexed.notifyAll();
+                }
+                indexer.shutdown();
+                try {
+                    // Don't let a search block sync outlive the Database
+                    indexer.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    throw Throwables.propagate(e);
+                }
+                indexer = null;
+            }
         }
     }
 
@@ -506,6 +1035,30 @@ public final class Database extends BaseStore implements PermanentStore {
         triggerSync(true);
     }
 
+    /**
+     * Merge adjacent immutable blocks until none of the remaining blocks
+     * qualify for compaction. This happens periodically in the background, but
+     * can be forced using this method.
+     * 
+     * @return the number of blocks that were eliminated
+     */
+    @ManagedOperation
+    public int triggerCompaction() {
+        compactionLock.lock();
+        try {
+            int eliminated = 0;
+            List<String> ids;
+            while (running && (ids = findCompactableBlocks()) != null) {
+                compact(ids);
+                eliminated += ids.size() - 1;
+            }
+            return eliminated;
+        }
+        finally {
+            compactionLock.unlock();
+        }
+    }
+
     @Override
     public boolean verify(String key, TObject value, long record) {
         Text key0 = Text.wrapCached(key);
@@ -521,108 +1074,550 @@ public final class Database extends BaseStore implements PermanentStore {
     }
 
     /**
-     * Return the PrimaryRecord identifier by {@code primaryKey}.
+     * Merge the blocks identified by {@code ids}, which must be adjacent and
+     * immutable, into a single block of each type that takes the id of the
+     * last one. The merged blocks are built and synced in a staging directory
+     * and then swapped into place with an exclusive lock.
      * 
-     * @param pkey
-     * @return the PrimaryRecord
+     * @param ids
      */
-    private PrimaryRecord getPrimaryRecord(PrimaryKey pkey) {
+    private void compact(List<String> ids) {
+        List<PrimaryBlock> primary = Lists.newArrayList();
+        List<SecondaryBlock> secondary = Lists.newArrayList();
+        List<SearchBlock> search = Lists.newArrayList();
         masterLock.readLock().lock();
         try {
-            Composite composite = Composite.create(pkey);
-            PrimaryRecord record = cpc.getIfPresent(composite);
-            if(record == null) {
-                record = Record.createPrimaryRecord(pkey);
-                for (PrimaryBlock block : cpb) {
-                    block.seek(pkey, record);
+            for (String id : ids) {
+                primary.add(findBlock(cpb, id));
+                secondary.add(findBlock(csb, id));
+                SearchBlock block = findBlock(ctb, id);
+                // A search block that didn't get any STRING writes is never
+                // synced, so it stays mutable and has nothing to merge
+                if(block != null && block.size() > 0) {
+                    search.add(block);
                 }
-                cpc.put(composite, record);
             }
-            return record;
         }
         finally {
             masterLock.readLock().unlock();
         }
-    }
-
-    /**
-     * Return the partial PrimaryRecord identifier by {@code key} in
-     * {@code primaryKey}
-     * 
-     * @param pkey
-     * @param key
-     * @return the PrimaryRecord
-     */
-    private PrimaryRecord getPrimaryRecord(PrimaryKey pkey, Text key) {
-        masterLock.readLock().lock();
+        long total = 0;
+        for (Block<?, ?, ?> block : Iterables.concat(primary, secondary,
+                search)) {
+            total += block.size();
+        }
+        compactionBytesMerged.set(0);
+        compactionBytesTotal.set(total);
         try {
-            Composite composite = Composite.create(pkey, key);
-            PrimaryRecord record = cppc.getIfPresent(composite);
-            if(record == null) {
-                record = Record.createPrimaryRecordPartial(pkey, key);
-                for (PrimaryBlock block : cpb) {
-                    block.seek(pkey, key, record);
+            for (String directory : new String[] { PRIMARY_BLOCK_DIRECTORY,
+                    SECONDARY_BLOCK_DIRECTORY, SEARCH_BLOCK_DIRECTORY }) {
+                String staging = getStagingDirectory(directory);
+                if(FileSystem.hasDir(staging)) { // leftover from a failure
+                    FileSystem.deleteDirectory(staging);
                 }
-                cppc.put(composite, record);
             }
-            return record;
+            String id = ids.get(ids.size() - 1);
+            merge(Block.createPrimaryBlock(id,
+                    getStagingDirectory(PRIMARY_BLOCK_DIRECTORY)), primary);
+            merge(Block.createSecondaryBlock(id,
+                    getStagingDirectory(SECONDARY_BLOCK_DIRECTORY)),
+                    secondary);
+            if(!search.isEmpty()) {
+                merge(Block.createSearchBlock(id,
+                        getStagingDirectory(SEARCH_BLOCK_DIRECTORY)), search);
+            }
+            FileSystem.writeBytes(
+                    ByteBuffer.wrap(Joiner.on(',').join(ids)
+                            .getBytes(Charsets.UTF_8)),
+                    FileSystem.makePath(backingStore, COMPACTION_MANIFEST));
+            masterLock.writeLock().lock();
+            try {
+                completeCompaction(ids);
+                swap(cpb, ids, new PrimaryBlock(id, FileSystem.makePath(
+                        backingStore, PRIMARY_BLOCK_DIRECTORY), true)); /* authorized */
+                swap(csb, ids, new SecondaryBlock(id, FileSystem.makePath(
+                        backingStore, SECONDARY_BLOCK_DIRECTORY), true)); /* authorized */
+                swap(ctb, ids,
+                        search.isEmpty() ? null : new SearchBlock(id,
+                                FileSystem.makePath(backingStore,
+                                        SEARCH_BLOCK_DIRECTORY), true)); /* authorized */
+            }
+            finally {
+                masterLock.writeLock().unlock();
+            }
+            compactionCount.incrementAndGet();
+            Logger.info("Compacted blocks {} in {}", ids, backingStore);
         }
         finally {
-            masterLock.readLock().unlock();
+            compactionBytesTotal.set(0);
+            compactionBytesMerged.set(0);
         }
     }
 
     /**
-     * Return the SearchRecord identified by {@code key}.
+     * Move the staged blocks for the compaction of {@code ids} into place and
+     * delete the blocks that they replace. This method is idempotent so that
+     * it can be used to finish a compaction that was interrupted by a crash.
      * 
-     * @param key
-     * @param query
-     * @return the SearchRecord
+     * @param ids
      */
-    private SearchRecord getSearchRecord(Text key, Text query) {
-        // NOTE: We do not cache SearchRecords because they have the potential
-        // to be VERY large. Holding references to them in a cache would prevent
-        // them from being garbage collected resulting in more OOMs.
-        masterLock.readLock().lock();
-        try {
-            SearchRecord record = Record.createSearchRecordPartial(key, query);
-            for (SearchBlock block : ctb) {
-                // Seek each word in the query to make sure that multi word
-                // search works.
-                String[] toks = query
-                        .toString()
-                        .toLowerCase()
-                        .split(TStrings.REGEX_GROUP_OF_ONE_OR_MORE_WHITESPACE_CHARS);
-                for (String tok : toks) {
-                    block.seek(key, Text.wrap(tok), record);
+    private void completeCompaction(List<String> ids) {
+        String target = ids.get(ids.size() - 1);
+        String[] extensions = { Block.BLOCK_NAME_EXTENSION,
+                Block.FILTER_NAME_EXTENSION, Block.INDEX_NAME_EXTENSION,
+                Block.STATS_NAME_EXTENSION };
+        for (String directory : new String[] { PRIMARY_BLOCK_DIRECTORY,
+                SECONDARY_BLOCK_DIRECTORY, SEARCH_BLOCK_DIRECTORY }) {
+            String path = FileSystem.makePath(backingStore, directory);
+            String staging = getStagingDirectory(directory);
+            for (String extension : extensions) {
+                String staged = FileSystem.makePath(staging, target
+                        + extension);
+                if(FileSystem.hasFile(staged)) {
+                    FileSystem.replaceFile(
+                            FileSystem.makePath(path, target + extension),
+                            staged);
+                }
+            }
+            for (String id : ids) {
+                if(!id.equals(target)) {
+                    for (String extension : extensions) {
+                        String file = FileSystem.makePath(path, id + extension);
+                        if(FileSystem.hasFile(file)) {
+                            FileSystem.deleteFile(file);
+                        }
+                    }
                 }
             }
-            return record;
-        }
-        finally {
-            masterLock.readLock().unlock();
         }
+        FileSystem.deleteFile(FileSystem.makePath(backingStore,
+                COMPACTION_MANIFEST));
     }
 
     /**
-     * Return the SecondaryRecord identified by {@code key}.
+     * Append the STRING writes in {@code writes} to the {@link #unindexed}
+     * queue so that the {@link SearchIndexer} adds them to the search index.
+     * Writes with other types of values are never indexed, so they are
+     * skipped. If the queue already holds {@link #MAX_UNINDEXED_WRITES}, this
+     * method blocks until the indexer makes room.
      * 
-     * @param key
-     * @return the SecondaryRecord
+     * @param writes
      */
-    private SecondaryRecord getSecondaryRecord(Text key) {
-        masterLock.readLock().lock();
-        try {
-            Composite composite = Composite.create(key);
-            SecondaryRecord record = csc.getIfPresent(composite);
-            if(record == null) {
-                record = Record.createSecondaryRecord(key);
-                for (SecondaryBlock block : csb) {
-                    block.seek(key, record);
+    private void enqueueForIndexing(List<Write> writes) {
+        synchronized (unindexed) {
+            while (running && unindexed.size() >= MAX_UNINDEXED_WRITES) {
+                try {
+                    unindexed.wait();
+                }
+                catch (InterruptedException e) {
+                    throw Throwables.propagate(e);
                 }
-                csc.put(composite, record);
             }
-            return record;
+            for (Write write : writes) {
+                if(write.getValue().getType() == Type.STRING) {
+                    unindexed.insert(write, false);
+                    ++enqueuedCount;
+                }
+            }
+            unindexed.notifyAll();
+        }
+    }
+
+    /**
+     * Return the ids for the first run of adjacent immutable blocks that should
+     * be merged, or {@code null} if there are none. A run is only eligible if
+     * it contains at least two blocks and the merged result would not exceed
+     * {@link GlobalState#COMPACTION_MAX_BLOCK_SIZE}. Blocks that are already
+     * at least half of that limit are left alone so that we don't repeatedly
+     * rewrite large blocks for the sake of absorbing small ones.
+     * 
+     * @return the ids to compact or {@code null}
+     */
+    @Nullable
+    private List<String> findCompactableBlocks() {
+        masterLock.readLock().lock();
+        try {
+            long limit = COMPACTION_MAX_BLOCK_SIZE;
+            List<String> run = Lists.newArrayList();
+            long runSize = 0;
+            for (PrimaryBlock block : cpb) {
+                if(block == cpb0 || block.getId().equals(syncing)
+                        || (asyncSearchIndexing && Long.parseLong(block
+                                .getId()) > watermark)) {
+                    // Blocks whose search index is not synced yet must not
+                    // be compacted
+                    break;
+                }
+                String id = block.getId();
+                SearchBlock search = findBlock(ctb, id);
+                long size = Math.max(
+                        Math.max(block.size(), findBlock(csb, id).size()),
+                        search != null ? search.size() : 0);
+                if(size * 2 > limit || runSize + size > limit) {
+                    if(run.size() > 1) {
+                        return run;
+                    }
+                    run.clear();
+                    runSize = 0;
+                }
+                if(size * 2 <= limit) {
+                    run.add(id);
+                    runSize += size;
+                }
+            }
+            return run.size() > 1 ? run : null;
+        }
+        finally {
+            masterLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the directory where merged blocks that belong in
+     * {@code directory} are staged during compaction.
+     * 
+     * @param directory
+     * @return the staging directory
+     */
+    private String getStagingDirectory(String directory) {
+        return FileSystem.makePath(backingStore, directory,
+                COMPACTION_STAGING_DIRECTORY);
+    }
+
+    /**
+     * Merge the {@code sources} into the mutable {@code target} and sync it to
+     * disk.
+     * 
+     * @param target
+     * @param sources
+     */
+    private <L extends Byteable & Comparable<L>, K extends Byteable & Comparable<K>, V extends Byteable & Comparable<V>> void merge(
+            Block<L, K, V> target, List<? extends Block<L, K, V>> sources) {
+        for (Block<L, K, V> source : sources) {
+            target.absorb(source);
+            compactionBytesMerged.addAndGet(source.size());
+        }
+        target.sync();
+    }
+
+    /**
+     * Return a new single threaded executor that inserts writes into the
+     * blocks that are stored in {@code directory}.
+     * 
+     * @param directory
+     * @return the pipeline worker
+     */
+    private ExecutorService newPipelineWorker(String directory) {
+        return Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat(threadNamePrefix + "-" + directory + "-%d")
+                .build());
+    }
+
+    /**
+     * Finish any compaction that was interrupted by a crash and get rid of
+     * blocks that were staged for compactions that never reached the swap.
+     */
+    private void recoverCompaction() {
+        String manifest = FileSystem.makePath(backingStore,
+                COMPACTION_MANIFEST);
+        if(FileSystem.hasFile(manifest)) {
+            List<String> ids = Lists.newArrayList(Splitter.on(',').split(
+                    Charsets.UTF_8.decode(FileSystem.readBytes(manifest))));
+            completeCompaction(ids);
+            Logger.warn("Completed the compaction of blocks {} in {}, "
+                    + "which was interrupted by an unexpected server "
+                    + "shutdown", ids, backingStore);
+        }
+        for (String directory : new String[] { PRIMARY_BLOCK_DIRECTORY,
+                SECONDARY_BLOCK_DIRECTORY, SEARCH_BLOCK_DIRECTORY }) {
+            String staging = getStagingDirectory(directory);
+            if(FileSystem.hasDir(staging)) {
+                FileSystem.deleteDirectory(staging);
+            }
+        }
+    }
+
+    /**
+     * Rebuild the search blocks for the primary blocks that are newer than the
+     * {@link #SEARCH_INDEX_WATERMARK}, which were not indexed (or synced)
+     * before the server shutdown because search indexing was asynchronous.
+     * Each rebuilt search block takes the id of its primary block and the
+     * watermark is advanced after each one is synced.
+     */
+    private void recoverSearchIndex() {
+        String file = backingStore + File.separator + SEARCH_INDEX_WATERMARK;
+        if(FileSystem.hasFile(file)) {
+            watermark = Long.parseLong(Charsets.UTF_8
+                    .decode(FileSystem.readBytes(file)).toString().trim());
+            for (PrimaryBlock primary : cpb) {
+                if(Long.parseLong(primary.getId()) > watermark) {
+                    // Any existing search block for this id may be incomplete
+                    SearchBlock existing = findBlock(ctb, primary.getId());
+                    if(existing != null) {
+                        ctb.remove(existing);
+                    }
+                    SearchBlock search = Block.createSearchBlock(
+                            primary.getId(), backingStore + File.separator
+                                    + SEARCH_BLOCK_DIRECTORY);
+                    for (Revision<PrimaryKey, Text, Value> revision : primary) {
+                        if(revision != null) {
+                            search.insert(revision.getKey(),
+                                    revision.getValue(),
+                                    revision.getLocator(),
+                                    revision.getVersion(),
+                                    revision.getType());
+                        }
+                    }
+                    search.sync();
+                    ctb.add(search);
+                    writeSearchIndexWatermark(primary.getId());
+                    Logger.warn("Rebuilt the search index for block {} in {}, "
+                            + "which was not complete when the server "
+                            + "shutdown", primary.getId(), backingStore);
+                }
+            }
+            if(!asyncSearchIndexing) {
+                FileSystem.deleteFile(file);
+            }
+        }
+        else if(asyncSearchIndexing) {
+            // Every existing search block was indexed synchronously
+            writeSearchIndexWatermark(cpb.isEmpty() ? "0" : cpb.get(
+                    cpb.size() - 1).getId());
+        }
+    }
+
+    /**
+     * Return the PrimaryRecord identifier by {@code primaryKey}.
+     * 
+     * @param pkey
+     * @return the PrimaryRecord
+     */
+    private PrimaryRecord getPrimaryRecord(final PrimaryKey pkey) {
+        masterLock.readLock().lock();
+        try {
+            return getCachedRecord(cpc, cpcCounters, Composite.create(pkey),
+                    new Callable<PrimaryRecord>() {
+
+                        @Override
+                        public PrimaryRecord call() {
+                            PrimaryRecord record = Record
+                                    .createPrimaryRecord(pkey);
+                            for (PrimaryBlock block : cpb) {
+                                block.seek(pkey, record);
+                            }
+                            return record;
+                        }
+
+                    });
+        }
+        finally {
+            masterLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the partial PrimaryRecord identifier by {@code key} in
+     * {@code primaryKey}
+     * 
+     * @param pkey
+     * @param key
+     * @return the PrimaryRecord
+     */
+    private PrimaryRecord getPrimaryRecord(final PrimaryKey pkey,
+            final Text key) {
+        masterLock.readLock().lock();
+        try {
+            return getCachedRecord(cppc, cppcCounters,
+                    Composite.create(pkey, key),
+                    new Callable<PrimaryRecord>() {
+
+                        @Override
+                        public PrimaryRecord call() {
+                            PrimaryRecord record = Record
+                                    .createPrimaryRecordPartial(pkey, key);
+                            for (PrimaryBlock block : cpb) {
+                                block.seek(pkey, key, record);
+                            }
+                            return record;
+                        }
+
+                    });
+        }
+        finally {
+            masterLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the records that match {@code query} for {@code key} in the
+     * search blocks.
+     * 
+     * @param key
+     * @param query
+     * @return the matching records
+     */
+    private Set<Long> searchIndex(String key, String query) {
+        // NOTE: We do not cache SearchRecords because they have the potential
+        // to be VERY large. Holding references to them in a cache would prevent
+        // them from being garbage collected resulting in more OOMs.
+        masterLock.readLock().lock();
+        try {
+            return Transformers.transformSet(SearchExecutor.search(
+                    Text.wrapCached(key), query, ctb),
+                    Functions.PRIMARY_KEY_TO_LONG);
+        }
+        finally {
+            masterLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the SecondaryRecord identified by {@code key}.
+     * 
+     * @param key
+     * @return the SecondaryRecord
+     */
+    private SecondaryRecord getSecondaryRecord(final Text key) {
+        masterLock.readLock().lock();
+        try {
+            return getCachedRecord(csc, cscCounters, Composite.create(key),
+                    new Callable<SecondaryRecord>() {
+
+                        @Override
+                        public SecondaryRecord call() {
+                            SecondaryRecord record = Record
+                                    .createSecondaryRecord(key);
+                            for (SecondaryBlock block : csb) {
+                                block.seek(key, record);
+                            }
+                            return record;
+                        }
+
+                    });
+        }
+        finally {
+            masterLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return a SecondaryRecord for {@code key} that contains (at least) all of
+     * the values that could possibly satisfy {@code operator} in relation to
+     * {@code values} at {@code timestamp}. If the full SecondaryRecord for
+     * {@code key} is already cached, it is returned. Otherwise, only the
+     * slices of the relevant blocks that hold the matching values are read.
+     * <p>
+     * An EQUALS query reads the partial SecondaryRecord for all the values
+     * that are equal to the value (i.e. strings that only differ in case or
+     * numbers of different types), which is cached.
+     * </p>
+     * 
+     * @param key
+     * @param timestamp - the historical timestamp of the read or
+     *            {@link Long#MAX_VALUE} to read the present state
+     * @param operator
+     * @param values
+     * @return the SecondaryRecord
+     */
+    private SecondaryRecord getSecondaryRecord(Text key, long timestamp,
+            Operator operator, Value... values) {
+        // NOTE: The values must be optimized the same way that they were when
+        // they were inserted into the SecondaryBlocks so that the seeks land
+        // on the correct slices.
+        SecondaryRecord cached = csc.getIfPresent(Composite.create(key));
+        if(cached != null) {
+            return cached;
+        }
+        else if(operator == Operator.EQUALS) {
+            return getSecondaryRecord(key, Value.optimize(values[0]));
+        }
+        else if(operator == Operator.GREATER_THAN
+                || operator == Operator.GREATER_THAN_OR_EQUALS) {
+            return getSecondaryRecord(key, Value.optimize(values[0]),
+                    Value.POSITIVE_INFINITY, timestamp);
+        }
+        else if(operator == Operator.LESS_THAN
+                || operator == Operator.LESS_THAN_OR_EQUALS) {
+            return getSecondaryRecord(key, Value.NEGATIVE_INFINITY,
+                    Value.optimize(values[0]), timestamp);
+        }
+        else if(operator == Operator.BETWEEN && values.length > 1) {
+            return getSecondaryRecord(key, Value.optimize(values[0]),
+                    Value.optimize(values[1]), timestamp);
+        }
+        else {
+            return getSecondaryRecord(key);
+        }
+    }
+
+    /**
+     * Return the partial SecondaryRecord for {@code value} in {@code key},
+     * which contains all the values that are equal to {@code value}. The
+     * record is cached under the {@link SecondaryBlock#getSortKey(Value) sort
+     * key} of {@code value}, so it is shared by all of them.
+     * 
+     * @param key
+     * @param value
+     * @return the partial SecondaryRecord
+     */
+    private SecondaryRecord getSecondaryRecord(final Text key,
+            final Value value) {
+        masterLock.readLock().lock();
+        try {
+            return getCachedRecord(cspc, cspcCounters,
+                    Composite.create(key, SecondaryBlock.getSortKey(value)),
+                    new Callable<SecondaryRecord>() {
+
+                        @Override
+                        public SecondaryRecord call() {
+                            SecondaryRecord record = Record
+                                    .createSecondaryRecordPartial(key, value);
+                            for (SecondaryBlock block : csb) {
+                                block.seek(key, value, value, record);
+                            }
+                            return record;
+                        }
+
+                    });
+        }
+        finally {
+            masterLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return a SecondaryRecord for {@code key} that only contains the values
+     * between {@code min} and {@code max} (inclusive) from the blocks that
+     * might contain revisions at or before {@code timestamp}.
+     * 
+     * @param key
+     * @param min
+     * @param max
+     * @param timestamp
+     * @return the SecondaryRecord
+     */
+    private SecondaryRecord getSecondaryRecord(Text key, Value min,
+            Value max, long timestamp) {
+        // NOTE: We do not cache range records because they are not guaranteed
+        // to contain the values for a subsequent query. Instead, we rely on
+        // the fact that each block only reads the slice for the range and that
+        // blocks whose fences don't intersect the query are skipped.
+        masterLock.readLock().lock();
+        try {
+            SecondaryRecord record = Record.createSecondaryRecord(key);
+            for (SecondaryBlock block : csb) {
+                // NOTE: The blocks are in chronological order, so once we
+                // reach a block that only has revisions after the timestamp,
+                // we can stop. We don't skip individual blocks because the
+                // record must not have any gaps in its history.
+                if(!block.mightContainVersionAtOrBefore(timestamp)) {
+                    break;
+                }
+                block.seek(key, min, max, record);
+            }
+            return record;
         }
         finally {
             masterLock.readLock().unlock();
@@ -632,6 +1627,12 @@ public final class Database extends BaseStore implements PermanentStore {
     /**
      * Create new mutable blocks and sync the current blocks to disk if
      * {@code doSync} is {@code true}.
+     * <p>
+     * The masterLock is only held while the new blocks are swapped in. The
+     * previous blocks are synced afterwards, so reads continue to be served
+     * from them (in memory) while they are written to disk. This method still
+     * returns only after the previous blocks are durable.
+     * </p>
      * 
      * @param doSync - a flag that controls whether we actually perform a sync
      *            or not. Sometimes this method is called when there is no data
@@ -639,28 +1640,131 @@ public final class Database extends BaseStore implements PermanentStore {
      *            startup).
      */
     private void triggerSync(boolean doSync) {
-        masterLock.writeLock().lock();
+        syncLock.lock();
         try {
-            if(doSync) {
-                // TODO we need a transactional file system to ensure that these
-                // blocks are written atomically (all or nothing)
-                ConcourseExecutors.executeAndAwaitTermination(threadNamePrefix,
-                        new BlockSyncer(cpb0), new BlockSyncer(csb0),
-                        new BlockSyncer(ctb0));
-            }
-            String id = Long.toString(Time.now());
-            cpb.add((cpb0 = Block.createPrimaryBlock(id, backingStore
-                    + File.separator + PRIMARY_BLOCK_DIRECTORY)));
-            csb.add((csb0 = Block.createSecondaryBlock(id, backingStore
-                    + File.separator + SECONDARY_BLOCK_DIRECTORY)));
-            ctb.add((ctb0 = Block.createSearchBlock(id, backingStore
-                    + File.separator + SEARCH_BLOCK_DIRECTORY)));
+            PrimaryBlock primary;
+            SecondaryBlock secondary;
+            SearchBlock search;
+            masterLock.writeLock().lock();
+            try {
+                primary = cpb0;
+                secondary = csb0;
+                search = ctb0;
+                if(doSync && primary != null) {
+                    syncing = primary.getId();
+                }
+                String id = Long.toString(Time.now());
+                cpb.add((cpb0 = Block.createPrimaryBlock(id, backingStore
+                        + File.separator + PRIMARY_BLOCK_DIRECTORY)));
+                csb.add((csb0 = Block.createSecondaryBlock(id, backingStore
+                        + File.separator + SECONDARY_BLOCK_DIRECTORY)));
+                if(asyncSearchIndexing && search != null) {
+                    // The indexer swaps in the new search block once it has
+                    // indexed all the writes that were accepted before now
+                    synchronized (unindexed) {
+                        pendingSyncs.add(new PendingSync(enqueuedCount, id));
+                        unindexed.notifyAll();
+                    }
+                }
+                else {
+                    ctb.add((ctb0 = Block.createSearchBlock(id, backingStore
+                            + File.separator + SEARCH_BLOCK_DIRECTORY)));
+                }
+            }
+            finally {
+                masterLock.writeLock().unlock();
+            }
+            if(doSync && primary != null) {
+                try {
+                    // TODO we need a transactional file system to ensure that
+                    // these blocks are written atomically (all or nothing)
+                    if(asyncSearchIndexing) {
+                        ConcourseExecutors.executeAndAwaitTermination(
+                                threadNamePrefix, new BlockSyncer(primary),
+                                new BlockSyncer(secondary));
+                    }
+                    else {
+                        ConcourseExecutors.executeAndAwaitTermination(
+                                threadNamePrefix, new BlockSyncer(primary),
+                                new BlockSyncer(secondary), new BlockSyncer(
+                                        search));
+                    }
+                }
+                finally {
+                    syncing = null;
+                }
+            }
         }
         finally {
-            masterLock.writeLock().unlock();
+            syncLock.unlock();
         }
     }
 
+    /**
+     * Durably record that the search block identified by {@code id}, and all
+     * the ones before it, are complete and synced to disk.
+     * 
+     * @param id
+     */
+    private void writeSearchIndexWatermark(String id) {
+        String file = backingStore + File.separator + SEARCH_INDEX_WATERMARK;
+        String staged = file + ".tmp";
+        FileSystem.mkdirs(backingStore);
+        if(FileSystem.hasFile(staged)) { // leftover from a failure
+            FileSystem.deleteFile(staged);
+        }
+        FileSystem.writeBytes(ByteBuffer.wrap(id.getBytes(Charsets.UTF_8)),
+                staged);
+        FileSystem.replaceFile(file, staged);
+        watermark = Long.parseLong(id);
+    }
+
+    /**
+     * The outcomes of the lookups in one of the record caches.
+     * 
+     * @author Jeff Nelson
+     */
+    private static final class CacheCounters {
+
+        private final AtomicLong hits = new AtomicLong(0);
+        private final AtomicLong misses = new AtomicLong(0);
+        private final AtomicLong coalesced = new AtomicLong(0);
+
+        /**
+         * Return a description of the counters for the cache that is
+         * identified by {@code name}.
+         * 
+         * @param name
+         * @return the description
+         */
+        public String describe(String name) {
+            return String.format("%s: %d hits, %d misses, %d coalesced", name,
+                    hits.get(), misses.get(), coalesced.get());
+        }
+
+    }
+
+    /**
+     * A runnable that merges adjacent immutable blocks in the background.
+     * 
+     * @author Jeff Nelson
+     */
+    private final class BlockCompactor implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                triggerCompaction();
+            }
+            catch (Exception e) {
+                Logger.error("An error occured while compacting blocks in {}",
+                        backingStore);
+                Logger.error("", e);
+            }
+        }
+
+    }
+
     /**
      * A runnable that traverses the appropriate directory for a block type
      * under {@link #backingStore} and loads the block metadata into memory.
@@ -769,28 +1873,58 @@ public final class Database extends BaseStore implements PermanentStore {
     }
 
     /**
-     * A runnable that will insert a Writer into a block.
+     * A runnable that will insert a batch of Writes into a block.
      * 
      * @author Jeff Nelson
      */
     private final class BlockWriter implements Runnable {
 
         private final Block<?, ?, ?> block;
-        private final Write write;
+        private final List<Write> writes;
+
+        /**
+         * The number of {@link #writes} that have been handled so far, so that
+         * the caller can tell where the writer stopped if it fails.
+         */
+        private int count = 0;
 
         /**
          * Construct a new instance.
          * 
          * @param block
-         * @param write
+         * @param writes
          */
-        public BlockWriter(Block<?, ?, ?> block, Write write) {
+        public BlockWriter(Block<?, ?, ?> block, List<Write> writes) {
             this.block = block;
-            this.write = write;
+            this.writes = writes;
         }
 
         @Override
         public void run() {
+            for (Write write : writes) {
+                try {
+                    write(write);
+                }
+                catch (RuntimeException e) {
+                    // The exception for one write must not prevent the rest of
+                    // the batch from being written.
+                    Logger.warn("An error occurred while writing {} to {}. "
+                            + "This possibly indicates that the system "
+                            + "shutdown prematurely during a buffer "
+                            + "transport operation.", write, block);
+                    Logger.warn("", e);
+                }
+                ++count;
+            }
+        }
+
+        /**
+         * Insert {@code write} into the {@link #block} and append the resulting
+         * revision to any relevant cached records.
+         * 
+         * @param write
+         */
+        private void write(Write write) {
             Logger.debug("Writing {} to {}", write, block);
             if(block instanceof PrimaryBlock) {
                 PrimaryRevision revision = (PrimaryRevision) ((PrimaryBlock) block)
@@ -816,9 +1950,15 @@ public final class Database extends BaseStore implements PermanentStore {
                                 write.getType());
                 SecondaryRecord record = csc.getIfPresent(Composite
                         .create(write.getKey()));
+                SecondaryRecord partialRecord = cspc.getIfPresent(Composite
+                        .create(write.getKey(),
+                                SecondaryBlock.getSortKey(revision.getKey())));
                 if(record != null) {
                     record.append(revision);
                 }
+                if(partialRecord != null) {
+                    partialRecord.append(revision);
+                }
             }
             else if(block instanceof SearchBlock) {
                 ((SearchBlock) block).insert(write.getKey(), write.getValue(),
@@ -833,4 +1973,281 @@ public final class Database extends BaseStore implements PermanentStore {
             }
         }
     }
+
+    /**
+     * A request for the {@link SearchIndexer} to swap in a new search block,
+     * and sync the current one, once it has indexed the writes that were
+     * accepted before the other blocks were synced.
+     * 
+     * @author Jeff Nelson
+     */
+    private static final class PendingSync {
+
+        private final long position;
+        private final String id;
+
+        /**
+         * Construct a new instance.
+         * 
+         * @param position - the number of writes that must be indexed before
+         *            the swap
+         * @param id - the id of the new search block
+         */
+        PendingSync(long position, String id) {
+            this.position = position;
+            this.id = id;
+        }
+
+    }
+
+    /**
+     * A long-lived runnable that moves writes from the {@link #unindexed} queue
+     * into the current search block, in the order they were accepted, and
+     * performs the {@link #pendingSyncs} when it reaches them.
+     * 
+     * @author Jeff Nelson
+     */
+    private final class SearchIndexer implements Runnable {
+
+        @Override
+        public void run() {
+            int failures = 0;
+            while (running) {
+                try {
+                    List<Write> batch = null;
+                    PendingSync sync = null;
+                    synchronized (unindexed) {
+                        while (running && unindexed.size() == 0
+                                && pendingSyncs.isEmpty()) {
+                            unindexed.wait();
+                        }
+                        if(!running) {
+                            break;
+                        }
+                        PendingSync next = pendingSyncs.peek();
+                        if(next != null && next.position == indexedCount) {
+                            sync = pendingSyncs.poll();
+                        }
+                        else {
+                            long limit = next != null ? next.position
+                                    - indexedCount : Long.MAX_VALUE;
+                            batch = unindexed.peek((int) Math.min(
+                                    SEARCH_INDEXER_BATCH_SIZE,
+                                    Math.min(limit, unindexed.size())));
+                        }
+                    }
+                    if(sync != null) {
+                        swap(sync);
+                    }
+                    else {
+                        index(batch);
+                    }
+                    failures = 0;
+                }
+                catch (InterruptedException e) {
+                    break;
+                }
+                catch (Exception e) {
+                    ++failures;
+                    Logger.error("An error occured while indexing writes "
+                            + "for search in {} ({} consecutive failures)",
+                            backingStore, failures);
+                    Logger.error("", e);
+                    try {
+                        backoff(failures);
+                    }
+                    catch (InterruptedException e1) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Wait before retrying after the indexer has failed {@code failures}
+         * consecutive times. The wait ends early if the Database stops.
+         * 
+         * @param failures
+         * @throws InterruptedException
+         */
+        private void backoff(int failures) throws InterruptedException {
+            long delay = Math.min(SEARCH_INDEXER_MAX_BACKOFF_IN_MS,
+                    SEARCH_INDEXER_MIN_BACKOFF_IN_MS << Math.min(failures - 1,
+                            16));
+            long deadline = System.currentTimeMillis() + delay;
+            synchronized (unindexed) {
+                long remaining = delay;
+                while (running && remaining > 0) {
+                    unindexed.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            }
+        }
+
+        /**
+         * Insert the {@code batch} from the head of the {@link #unindexed}
+         * queue into the current search block and then remove it from the
+         * queue. If the insert fails part way through, only the writes that
+         * were handled are removed, so a retry doesn't index any of them
+         * again.
+         * 
+         * @param batch
+         */
+        private void index(List<Write> batch) {
+            BlockWriter writer = new BlockWriter(ctb0, batch);
+            indexLock.writeLock().lock();
+            synchronized (unindexed) {
+                indexingCount += batch.size();
+            }
+            try {
+                writer.run();
+            }
+            finally {
+                synchronized (unindexed) {
+                    unindexed.remove(writer.count);
+                    indexedCount += writer.count;
+                    indexingCount = indexedCount;
+                    unindexed.notifyAll();
+                }
+                indexLock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Swap in a new search block for {@code sync}, sync the current one
+         * and advance the {@link #watermark}.
+         * 
+         * @param sync
+         */
+        private void swap(PendingSync sync) {
+            SearchBlock search;
+            masterLock.writeLock().lock();
+            try {
+                search = ctb0;
+                ctb.add((ctb0 = Block.createSearchBlock(sync.id, backingStore
+                        + File.separator + SEARCH_BLOCK_DIRECTORY)));
+            }
+            finally {
+                masterLock.writeLock().unlock();
+            }
+            search.sync();
+            writeSearchIndexWatermark(search.getId());
+            Logger.debug("Completed sync of {}", search);
+        }
+    }
+
+    /**
+     * The accepted writes that have not been added to the search index, in the
+     * order they were accepted. Unlike a {@link Queue}, the writes are kept in
+     * a deque so that the indexer can cheaply consume them from the head and
+     * there is no bloom filter because this is only used for searching.
+     * Instead, the writes are also grouped by key so that a search only scans
+     * the writes for the key that is searched.
+     * 
+     * @author Jeff Nelson
+     */
+    private static final class UnindexedWrites extends Limbo {
+
+        /**
+         * All of the writes, in the order they were accepted.
+         */
+        private final Deque<Write> writes = new ArrayDeque<Write>(
+                SEARCH_INDEXER_BATCH_SIZE);
+
+        /**
+         * The writes for each key, in the order they were accepted.
+         */
+        private final Map<String, Deque<Write>> writesByKey = Maps
+                .newHashMap();
+
+        @Override
+        public boolean insert(Write write, boolean sync) {
+            writes.add(write);
+            String key = write.getKey().toString();
+            Deque<Write> keyed = writesByKey.get(key);
+            if(keyed == null) {
+                keyed = new ArrayDeque<Write>();
+                writesByKey.put(key, keyed);
+            }
+            keyed.add(write);
+            return true;
+        }
+
+        @Override
+        public Iterator<Write> iterator() {
+            return writes.iterator();
+        }
+
+        /**
+         * Return a copy of the first {@code count} writes.
+         * 
+         * @param count
+         * @return the writes
+         */
+        public List<Write> peek(int count) {
+            List<Write> peeked = Lists.newArrayListWithCapacity(count);
+            Iterator<Write> it = writes.iterator();
+            while (peeked.size() < count) {
+                peeked.add(it.next());
+            }
+            return peeked;
+        }
+
+        /**
+         * Remove the first {@code count} writes.
+         * 
+         * @param count
+         */
+        public void remove(int count) {
+            for (int i = 0; i < count; ++i) {
+                Write write = writes.poll();
+                String key = write.getKey().toString();
+                Deque<Write> keyed = writesByKey.get(key);
+                keyed.poll();
+                if(keyed.isEmpty()) {
+                    writesByKey.remove(key);
+                }
+            }
+        }
+
+        /**
+         * Return the number of writes.
+         * 
+         * @return the size
+         */
+        public int size() {
+            return writes.size();
+        }
+
+        @Override
+        public void start() {
+            // do nothing
+        }
+
+        @Override
+        public void stop() {
+            // do nothing
+        }
+
+        @Override
+        protected long getOldestWriteTimstamp() {
+            Write oldest = writes.peek();
+            return oldest != null ? oldest.getVersion() : Long.MAX_VALUE;
+        }
+
+        @Override
+        protected Iterator<Write> getSearchIterator(String key) {
+            Deque<Write> keyed = writesByKey.get(key);
+            return keyed != null ? keyed.iterator() : Collections
+                    .<Write> emptyIterator();
+        }
+
+        @Override
+        protected boolean isPossibleSearchMatch(String key, Write write,
+                Value value) {
+            return write.getKey().toString().equals(key)
+                    && value.getType() == Type.STRING;
+        }
+
+    }
 }
@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.cinchapi.concourse.server.storage.Action;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * The sequence of {@link CompactRevision revisions} for a single key in a
+ * {@link Record}.
+ * <p>
+ * The versions, actions and values are stored in parallel arrays (instead of a
+ * list of objects) so that a historical read can binary search for the last
+ * revision that occurred at or before a timestamp. Periodically, the set of
+ * values that exist after a revision is materialized into a checkpoint so that
+ * the read only needs to replay the revisions that occurred between the
+ * nearest checkpoint and the timestamp instead of the entire history.
+ * </p>
+ * <p>
+ * A new checkpoint is taken once the number of revisions since the last one
+ * reaches the larger of {@link #CHECKPOINT_INTERVAL} and the size of the last
+ * checkpoint. This keeps the total amount of memory used by the checkpoints
+ * proportional to the length of the history, even for keys that map to a large
+ * number of values.
+ * </p>
+ * <p>
+ * This class is not thread safe. The housing Record is responsible for
+ * concurrency control.
+ * </p>
+ *
+ * @author Jeff Nelson
+ */
+@NotThreadSafe
+class History<V extends Comparable<V>> implements Iterable<CompactRevision<V>> {
+
+    /**
+     * The minimum number of revisions between checkpoints.
+     */
+    protected static final int CHECKPOINT_INTERVAL = 64;
+
+    /**
+     * A cached copy of {@link Action#values()} so that the action for each
+     * revision can be stored as a single byte.
+     */
+    private static final Action[] ACTIONS = Action.values();
+
+    /**
+     * The initial capacity of the arrays.
+     */
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * The versions of the revisions, in the order that they were added.
+     */
+    private long[] versions = new long[INITIAL_CAPACITY];
+
+    /**
+     * The ordinals of the actions of the revisions.
+     */
+    private byte[] types = new byte[INITIAL_CAPACITY];
+
+    /**
+     * The values of the revisions.
+     */
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    /**
+     * The number of revisions.
+     */
+    private int size = 0;
+
+    /**
+     * A flag that indicates whether the revisions were added in nondecreasing
+     * version order. If not, the binary search and checkpoints cannot be used
+     * and historical reads fall back to replaying the entire history.
+     */
+    private boolean sorted = true;
+
+    /**
+     * The number of revisions that are covered by each checkpoint (e.g. the
+     * checkpoint at position {@code n} is the state after the first {@code n}
+     * revisions are applied). The first checkpoint always covers 0 revisions.
+     */
+    private int[] checkpointPositions = new int[] { 0 };
+
+    /**
+     * The materialized states that correspond to each position in
+     * {@link #checkpointPositions}.
+     */
+    private final List<Set<V>> checkpoints = Lists.newArrayList();
+
+    /**
+     * Construct a new instance.
+     */
+    History() { /* package-private */
+        checkpoints.add(Sets.<V> newLinkedHashSet());
+    }
+
+    /**
+     * Add a revision to the end of the history.
+     *
+     * @param value
+     * @param version
+     * @param type
+     */
+    public void add(V value, long version, Action type) {
+        if(size == versions.length) {
+            int capacity = size << 1;
+            versions = Arrays.copyOf(versions, capacity);
+            types = Arrays.copyOf(types, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        if(size > 0 && version < versions[size - 1]) {
+            sorted = false;
+        }
+        versions[size] = version;
+        types[size] = (byte) type.ordinal();
+        values[size] = value;
+        ++size;
+        if(sorted) {
+            int last = checkpoints.size() - 1;
+            int since = size - checkpointPositions[last];
+            if(since >= Math.max(CHECKPOINT_INTERVAL, checkpoints.get(last)
+                    .size())) {
+                checkpoint(replay(last, size));
+            }
+        }
+    }
+
+    /**
+     * Return the set of values that existed at {@code timestamp}.
+     *
+     * @param timestamp
+     * @return the values at {@code timestamp}
+     */
+    public Set<V> get(long timestamp) {
+        if(sorted) {
+            int end = search(timestamp);
+            int checkpoint = Arrays.binarySearch(checkpointPositions, 0,
+                    checkpoints.size(), end);
+            if(checkpoint < 0) {
+                checkpoint = -checkpoint - 2;
+            }
+            return replay(checkpoint, end);
+        }
+        else {
+            Set<V> state = Sets.newLinkedHashSet();
+            for (int i = 0; i < size; ++i) {
+                if(versions[i] <= timestamp) {
+                    apply(state, i);
+                }
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Return {@code true} if there are no revisions.
+     *
+     * @return {@code true} if the history is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Iterator<CompactRevision<V>> iterator() {
+        return new Iterator<CompactRevision<V>>() {
+
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public CompactRevision<V> next() {
+                if(index >= size) {
+                    throw new NoSuchElementException();
+                }
+                CompactRevision<V> revision = new CompactRevision<V>(
+                        (V) values[index], versions[index],
+                        ACTIONS[types[index]]);
+                ++index;
+                return revision;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+
+    /**
+     * Return the number of revisions.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Apply the revision at {@code index} to {@code state}.
+     *
+     * @param state
+     * @param index
+     */
+    @SuppressWarnings("unchecked")
+    private void apply(Set<V> state, int index) {
+        if(ACTIONS[types[index]] == Action.ADD) {
+            state.add((V) values[index]);
+        }
+        else {
+            state.remove(values[index]);
+        }
+    }
+
+    /**
+     * Record {@code state} as the checkpoint for the current {@link #size}.
+     *
+     * @param state
+     */
+    private void checkpoint(Set<V> state) {
+        int count = checkpoints.size();
+        if(count == checkpointPositions.length) {
+            checkpointPositions = Arrays.copyOf(checkpointPositions,
+                    count << 1);
+        }
+        checkpointPositions[count] = size;
+        checkpoints.add(state);
+    }
+
+    /**
+     * Return a copy of the state in {@code checkpoint} after the revisions
+     * between its position and {@code end} (exclusive) are applied.
+     *
+     * @param checkpoint
+     * @param end
+     * @return the replayed state
+     */
+    private Set<V> replay(int checkpoint, int end) {
+        Set<V> state = Sets.newLinkedHashSet(checkpoints.get(checkpoint));
+        for (int i = checkpointPositions[checkpoint]; i < end; ++i) {
+            apply(state, i);
+        }
+        return state;
+    }
+
+    /**
+     * Return the number of revisions that have a version less than or equal to
+     * {@code timestamp}.
+     *
+     * @param timestamp
+     * @return the number of revisions that occurred at or before
+     *         {@code timestamp}
+     */
+    private int search(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if(versions[mid] <= timestamp) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+}
@@ -16,7 +16,6 @@
 package org.cinchapi.concourse.server.storage.db;
 
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -88,7 +87,7 @@ final class PrimaryRecord extends BrowsableRecord<PrimaryKey, Text, Value> {
         read.lock();
         try {
             Map<Long, String> audit = Maps.newLinkedHashMap();
-            List<CompactRevision<Value>> revisions = history.get(key); /* Authorized */
+            History<Value> revisions = history.get(key); /* Authorized */
             if(revisions != null) {
                 Iterator<CompactRevision<Value>> it = revisions.iterator();
                 while (it.hasNext()) {
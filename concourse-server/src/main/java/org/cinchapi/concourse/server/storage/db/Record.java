@@ -17,9 +17,7 @@ package org.cinchapi.concourse.server.storage.db;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -38,7 +36,6 @@ import org.cinchapi.concourse.server.model.Value;
 import org.cinchapi.concourse.server.storage.Action;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -153,10 +150,13 @@ abstract class Record<L extends Byteable & Comparable<L>, K extends Byteable & C
      * This index is used to efficiently handle historical reads. Given a
      * revision (e.g key/value pair), and historical timestamp, we can count the
      * number of times that the value appears <em>beforehand</em> at determine
-     * if the mapping existed or not.
+     * if the mapping existed or not. Each {@link History} is able to jump to
+     * the nearest checkpoint before the timestamp so that historical reads
+     * don't need to replay the entire sequence of revisions. The subclass
+     * should specify the appropriate type of key sorting via the returned type
+     * for {@link #historyMapType()}.
      */
-    protected final transient HashMap<K, List<CompactRevision<V>>> history = Maps
-            .newHashMap();
+    protected final transient Map<K, History<V>> history = historyMapType();
 
     /**
      * The version of the Record's most recently appended {@link Revision}.
@@ -208,76 +208,108 @@ abstract class Record<L extends Byteable & Comparable<L>, K extends Byteable & C
      * <ul>
      * <li>a higher version than that of this Record</li>
      * <li>a locator equal to that of this Record</li>
-     * <li>a key equal to that of this Record if this Record is partial</li>
+     * <li>a key that compares equal to that of this Record if this Record is
+     * partial</li>
      * </ul>
      * 
      * @param revision
      */
     public void append(Revision<L, K, V> revision) {
+        append(revision.getLocator(), revision.getKey(), revision.getValue(),
+                revision.getVersion(), revision.getType(), revision);
+    }
+
+    /**
+     * Append the revision that {@code cursor} is positioned over to the record
+     * by updating the in-memory indices. Only the components that the record
+     * keeps are taken from the cursor, so the revision itself is never
+     * materialized. The revision must satisfy the same constraints as those
+     * for {@link #append(Revision)}.
+     * 
+     * @param cursor
+     */
+    @PackagePrivate
+    void append(RevisionCursor<L, K, V> cursor) {
+        append(cursor.getLocator(), cursor.getKey(), cursor.getValue(),
+                cursor.getVersion(), cursor.getType(), cursor);
+    }
+
+    /**
+     * Append the revision with the specified components to the record. The
+     * {@code source} is only used to describe the revision if it cannot be
+     * appended.
+     * 
+     * @param locator
+     * @param key
+     * @param value
+     * @param version
+     * @param type
+     * @param source
+     */
+    private void append(L locator, K key, V value, long version, Action type,
+            Object source) {
         write.lock();
         try {
             // NOTE: We only need to enforce the monotonic increasing constraint
             // for PrimaryRecords because Secondary and Search records will be
             // populated from Blocks that were sorted based primarily on
             // non-version factors.
-            Preconditions
-                    .checkArgument((this instanceof PrimaryRecord && revision
-                            .getVersion() >= version) || true, "Cannot "
+            Preconditions.checkArgument(
+                    (this instanceof PrimaryRecord && version >= this.version)
+                            || true, "Cannot "
                             + "append %s because its version(%s) is lower "
                             + "than the Record's current version(%s). The",
-                            revision, revision.getVersion(), version);
-            Preconditions.checkArgument(revision.getLocator().equals(locator),
+                    source, version, this.version);
+            Preconditions.checkArgument(locator.equals(this.locator),
                     "Cannot append %s because it does not belong to %s",
-                    revision, this);
+                    source, this);
             // NOTE: The check below is ignored for a partial SearchRecord
             // instance because they 'key' is the entire search query, but we
             // append Revisions for each term in the query
+            // NOTE: A partial SecondaryRecord holds all the values that are
+            // equal to its key, even if they aren't the same form
             Preconditions.checkArgument(
-                    (partial && revision.getKey().equals(key)) || !partial
+                    (partial && key.compareTo(this.key) == 0) || !partial
                             || this instanceof SearchRecord,
                     "Cannot append %s because it does not belong to %s",
-                    revision, this);
+                    source, this);
             // NOTE: The check below is ignored for a SearchRecord instance
             // because it will legitimately appear that "duplicate" data has
             // been added if similar data is added to the same key in a record
             // at different times (i.e. adding John Doe and Johnny Doe to the
             // "name")
             Preconditions.checkArgument(this instanceof SearchRecord
-                    || isOffset(revision), "Cannot append "
+                    || isOffset(key, value, type), "Cannot append "
                     + "%s because it represents an action "
                     + "involving a key, value and locator that has not "
-                    + "been offset.", revision);
+                    + "been offset.", source);
 
             // Update present index
-            Set<V> values = present.get(revision.getKey());
+            Set<V> values = present.get(key);
             if(values == null) {
                 values = Sets.<V> newLinkedHashSet();
-                present.put(revision.getKey(), values);
+                present.put(key, values);
             }
-            if(revision.getType() == Action.ADD) {
-                values.add(revision.getValue());
+            if(type == Action.ADD) {
+                values.add(value);
             }
             else {
-                values.remove(revision.getValue());
+                values.remove(value);
                 if(values.isEmpty()) {
-                    present.remove(revision.getKey());
+                    present.remove(key);
                 }
             }
 
             // Update history index
-            List<CompactRevision<V>> revisions = history.get(revision.getKey());
+            History<V> revisions = history.get(key);
             if(revisions == null) {
-                revisions = Lists.newArrayList();
-                history.put(revision.getKey(), revisions);
+                revisions = new History<V>();
+                history.put(key, revisions);
             }
-            revisions.add(revision.compact());
+            revisions.add(value, version, type);
 
             // Update metadata
-            version = Math.max(version, revision.getVersion());
-
-            // Make revision eligible for GC
-            revision = null;
-
+            this.version = Math.max(this.version, version);
         }
         finally {
             write.unlock();
@@ -410,33 +442,24 @@ abstract class Record<L extends Byteable & Comparable<L>, K extends Byteable & C
     protected Set<V> get(K key, long timestamp) {
         read.lock();
         try {
-            Set<V> values = emptyValues;
-            List<CompactRevision<V>> stored = history.get(key);
-            if(stored != null) {
-                values = Sets.newLinkedHashSet();
-                Iterator<CompactRevision<V>> it = stored.iterator();
-                while (it.hasNext()) {
-                    CompactRevision<V> revision = it.next();
-                    if(revision.getVersion() <= timestamp) {
-                        if(revision.getType() == Action.ADD) {
-                            values.add(revision.getValue());
-                        }
-                        else {
-                            values.remove(revision.getValue());
-                        }
-                    }
-                    else {
-                        break;
-                    }
-                }
-            }
-            return values;
+            History<V> stored = history.get(key);
+            return stored != null ? stored.get(timestamp) : emptyValues;
         }
         finally {
             read.unlock();
         }
     }
 
+    /**
+     * Initialize the appropriate data structure for the {@link #history}. By
+     * default, the keys are not sorted.
+     * 
+     * @return the initialized mappings
+     */
+    protected Map<K, History<V>> historyMapType() {
+        return Maps.newHashMap();
+    }
+
     /**
      * Initialize the appropriate data structure for the {@link #present}.
      * 
@@ -445,17 +468,18 @@ abstract class Record<L extends Byteable & Comparable<L>, K extends Byteable & C
     protected abstract Map<K, Set<V>> mapType();
 
     /**
-     * Return {@code true} if the action associated with {@code revision}
-     * offsets the last action for an equal revision.
+     * Return {@code true} if the action of {@code type} for {@code key} as
+     * {@code value} offsets the last action for an equal revision.
      * 
-     * @param revision
+     * @param key
+     * @param value
+     * @param type
      * @return {@code true} if the revision if offset.
      */
-    private boolean isOffset(Revision<L, K, V> revision) {
-        boolean contained = get(revision.getKey())
-                .contains(revision.getValue());
-        return ((revision.getType() == Action.ADD && !contained) || (revision
-                .getType() == Action.REMOVE && contained)) ? true : false;
+    private boolean isOffset(K key, V value, Action type) {
+        boolean contained = get(key).contains(value);
+        return ((type == Action.ADD && !contained) || (type == Action.REMOVE && contained)) ? true
+                : false;
     }
 
     /**
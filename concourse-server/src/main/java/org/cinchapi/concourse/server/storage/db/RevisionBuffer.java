@@ -0,0 +1,316 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.cinchapi.concourse.annotate.PackagePrivate;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+
+/**
+ * The backing store for the revisions in a mutable {@link Block} that appends
+ * each revision to the end of an array instead of sorting it on insert. The
+ * appended revisions are only sorted when the collection is iterated, which
+ * normally happens once, when the Block is synced. At that point, a large
+ * batch is sorted in parallel.
+ * <p>
+ * If the collection is iterated while the Block is still mutable (e.g. to seek
+ * a Record), the revisions that were appended since the last iteration are
+ * sorted and merged into a small sorted overlay. The overlay is merged into the
+ * main sorted run once it grows past a fraction of the run, so each read only
+ * pays to sort the revisions that are new. Iteration merges the overlay and the
+ * run on the fly.
+ * </p>
+ * <p>
+ * Merges always produce new arrays, so an iterator works on a snapshot and is
+ * not affected by concurrent appends.
+ * </p>
+ *
+ * @author Jeff Nelson
+ */
+@ThreadSafe
+@PackagePrivate
+final class RevisionBuffer<T> extends AbstractCollection<T> {
+
+    /**
+     * Return a new and empty RevisionBuffer that sorts its elements using
+     * {@code comparator}.
+     *
+     * @param comparator
+     * @return the RevisionBuffer
+     */
+    public static <T> RevisionBuffer<T> create(Comparator<? super T> comparator) {
+        return new RevisionBuffer<T>(comparator);
+    }
+
+    /**
+     * The initial capacity of the array of appended elements.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The overlay is merged into the sorted run once it has more elements than
+     * this number or {@link #OVERLAY_RATIO} of the run, whichever is larger.
+     */
+    private static final int MIN_OVERLAY_SIZE = 4096;
+
+    /**
+     * The overlay may grow to {@code 1 / OVERLAY_RATIO} of the size of the
+     * sorted run before they are merged.
+     */
+    private static final int OVERLAY_RATIO = 8;
+
+    /**
+     * Batches of appended elements that are at least this large are sorted in
+     * parallel. Each parallel task sorts at most this many elements on its
+     * own.
+     */
+    private static final int PARALLEL_SORT_THRESHOLD = 8192;
+
+    /**
+     * The pool that performs parallel sorts. It is shared by every
+     * RevisionBuffer because only one Block of each type is mutable at a time.
+     */
+    private static final ForkJoinPool SORTER = new ForkJoinPool();
+
+    /**
+     * An empty array that is used when there is no overlay or sorted run.
+     */
+    private static final Object[] EMPTY = new Object[0];
+
+    /**
+     * The elements that have been appended since the last iteration, in the
+     * order they were added.
+     */
+    @GuardedBy("this")
+    private Object[] appended = new Object[INITIAL_CAPACITY];
+    @GuardedBy("this")
+    private int appendedCount = 0;
+
+    /**
+     * The comparator that determines the sort order.
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * The small sorted run that holds the elements that were appended after
+     * the last merge into the {@link #sorted} run. Once published, the array is
+     * never modified.
+     */
+    @GuardedBy("this")
+    private Object[] overlay = EMPTY;
+    @GuardedBy("this")
+    private int overlayCount = 0;
+
+    /**
+     * The main sorted run. Once published, the array is never modified.
+     */
+    @GuardedBy("this")
+    private Object[] sorted = EMPTY;
+    @GuardedBy("this")
+    private int sortedCount = 0;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param comparator
+     */
+    private RevisionBuffer(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+    }
+
+    @Override
+    public synchronized boolean add(T element) {
+        if(appendedCount == appended.length) {
+            appended = Arrays.copyOf(appended, appended.length * 2);
+        }
+        appended[appendedCount] = element;
+        ++appendedCount;
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Iterator<T> iterator() {
+        Object[] sorted;
+        int sortedCount;
+        Object[] overlay;
+        int overlayCount;
+        synchronized (this) {
+            flush();
+            sorted = this.sorted;
+            sortedCount = this.sortedCount;
+            overlay = this.overlay;
+            overlayCount = this.overlayCount;
+        }
+        Iterator<T> it = (Iterator<T>) Arrays.asList(sorted)
+                .subList(0, sortedCount).iterator();
+        if(overlayCount > 0) {
+            List<Iterator<T>> runs = ImmutableList.of(it, (Iterator<T>) Arrays
+                    .asList(overlay).subList(0, overlayCount).iterator());
+            it = Iterators.mergeSorted(runs, comparator);
+        }
+        return Iterators.unmodifiableIterator(it);
+    }
+
+    @Override
+    public synchronized int size() {
+        return sortedCount + overlayCount + appendedCount;
+    }
+
+    /**
+     * Sort the {@link #appended} elements and merge them into the
+     * {@link #overlay}, which is merged into the {@link #sorted} run if it is
+     * too large. If nothing has been sorted yet, the appended elements become
+     * the sorted run without any merging.
+     */
+    @GuardedBy("this")
+    private void flush() {
+        if(appendedCount > 0) {
+            Object[] batch = appended;
+            int batchCount = appendedCount;
+            appended = new Object[INITIAL_CAPACITY];
+            appendedCount = 0;
+            sort(batch, batchCount);
+            if(sortedCount == 0 && overlayCount == 0) {
+                sorted = batch;
+                sortedCount = batchCount;
+            }
+            else {
+                overlay = merge(overlay, overlayCount, batch, batchCount);
+                overlayCount += batchCount;
+                if(overlayCount > Math.max(MIN_OVERLAY_SIZE, sortedCount
+                        / OVERLAY_RATIO)) {
+                    sorted = merge(sorted, sortedCount, overlay, overlayCount);
+                    sortedCount += overlayCount;
+                    overlay = EMPTY;
+                    overlayCount = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return a new array that contains the first {@code aCount} elements of
+     * the sorted array {@code a} merged with the first {@code bCount}
+     * elements of the sorted array {@code b}.
+     *
+     * @param a
+     * @param aCount
+     * @param b
+     * @param bCount
+     * @return the merged array
+     */
+    @SuppressWarnings("unchecked")
+    private Object[] merge(Object[] a, int aCount, Object[] b, int bCount) {
+        Object[] merged = new Object[aCount + bCount];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < aCount && j < bCount) {
+            merged[k++] = comparator.compare((T) a[i], (T) b[j]) <= 0 ? a[i++]
+                    : b[j++];
+        }
+        System.arraycopy(a, i, merged, k, aCount - i);
+        System.arraycopy(b, j, merged, k + aCount - i, bCount - j);
+        return merged;
+    }
+
+    /**
+     * Sort the first {@code count} elements of {@code array} in place, in
+     * parallel if there are enough of them.
+     *
+     * @param array
+     * @param count
+     */
+    @SuppressWarnings("unchecked")
+    private void sort(Object[] array, int count) {
+        if(count >= PARALLEL_SORT_THRESHOLD) {
+            SORTER.invoke(new ParallelSort(array, new Object[count], 0, count));
+        }
+        else {
+            Arrays.sort((T[]) array, 0, count, comparator);
+        }
+    }
+
+    /**
+     * A task that sorts a range of an array by sorting each half in parallel
+     * and merging them.
+     *
+     * @author Jeff Nelson
+     */
+    @SuppressWarnings("serial")
+    private final class ParallelSort extends RecursiveAction {
+
+        private final Object[] array;
+        private final Object[] scratch;
+        private final int from;
+        private final int to;
+
+        /**
+         * Construct a new instance.
+         *
+         * @param array
+         * @param scratch
+         * @param from
+         * @param to
+         */
+        ParallelSort(Object[] array, Object[] scratch, int from, int to) {
+            this.array = array;
+            this.scratch = scratch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected void compute() {
+            if(to - from <= PARALLEL_SORT_THRESHOLD) {
+                Arrays.sort((T[]) array, from, to, comparator);
+            }
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParallelSort(array, scratch, from, middle),
+                        new ParallelSort(array, scratch, middle, to));
+                if(comparator.compare((T) array[middle - 1], (T) array[middle]) > 0) {
+                    System.arraycopy(array, from, scratch, from, to - from);
+                    int i = from;
+                    int j = middle;
+                    int k = from;
+                    while (i < middle && j < to) {
+                        array[k++] = comparator.compare((T) scratch[i],
+                                (T) scratch[j]) <= 0 ? scratch[i++]
+                                : scratch[j++];
+                    }
+                    System.arraycopy(scratch, i, array, k, middle - i);
+                    System.arraycopy(scratch, j, array, k, to - j);
+                }
+            }
+        }
+    }
+
+}
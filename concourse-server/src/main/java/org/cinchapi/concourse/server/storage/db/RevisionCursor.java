@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.nio.ByteBuffer;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.cinchapi.concourse.annotate.PackagePrivate;
+import org.cinchapi.concourse.server.io.Byteable;
+import org.cinchapi.concourse.server.io.Byteables;
+import org.cinchapi.concourse.server.storage.Action;
+import org.cinchapi.concourse.util.ByteBuffers;
+
+/**
+ * A reusable view of one revision in a {@link Block} at a time. The cursor is
+ * {@link #reset(ByteBuffer) positioned} over the bytes of a revision and reads
+ * its type and version directly from those bytes. The locator, key and value
+ * are only deserialized when they are requested, so a seek can skip over the
+ * revisions it doesn't need and a {@link Record} can
+ * {@link Record#append(RevisionCursor) append} the ones it does without
+ * materializing a {@link Revision} for each one.
+ * <p>
+ * Since the cursor is reused, the caller must not hold on to it after
+ * repositioning it. If the block file has a {@link BlockDictionary}, the
+ * components that are in the dictionary are shared instead of deserialized.
+ * Otherwise, the bytes are in the binary format of a Revision, so the cursor
+ * only notes where each component starts and deserializes it on request.
+ * </p>
+ *
+ * @author Jeff Nelson
+ */
+@NotThreadSafe
+@PackagePrivate
+final class RevisionCursor<L extends Byteable & Comparable<L>, K extends Byteable & Comparable<K>, V extends Byteable & Comparable<V>> {
+
+    /**
+     * The bytes of the current revision, positioned at the next component to
+     * read.
+     */
+    private ByteBuffer bytes;
+
+    /**
+     * The dictionary that the revisions reference, if any.
+     */
+    @Nullable
+    private final BlockDictionary<L, K, V> dictionary;
+
+    /**
+     * The class that is used to read the revisions if there is no
+     * {@link #dictionary}.
+     */
+    private final Class<? extends Revision<L, K, V>> revisionClass;
+
+    /**
+     * The first revision that was read without a {@link #dictionary}. Its
+     * class determines the size and type of each component in the binary
+     * format of the ones that follow.
+     */
+    @Nullable
+    private Revision<L, K, V> format;
+
+    /**
+     * The position and size of each component of the current revision within
+     * the {@link #bytes} if there is no {@link #dictionary}. The value extends
+     * to the limit of the bytes.
+     */
+    private int locatorPosition;
+    private int locatorSize;
+    private int keyPosition;
+    private int keySize;
+    private int valuePosition;
+
+    /**
+     * The components of the current revision. Each one is {@code null} until
+     * it is requested.
+     */
+    private L locator;
+    private K key;
+    private V value;
+
+    /**
+     * The type of the current revision.
+     */
+    private Action type;
+
+    /**
+     * The version of the current revision.
+     */
+    private long version;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param dictionary
+     * @param revisionClass
+     */
+    RevisionCursor(@Nullable BlockDictionary<L, K, V> dictionary,
+            Class<? extends Revision<L, K, V>> revisionClass) {
+        this.dictionary = dictionary;
+        this.revisionClass = revisionClass;
+    }
+
+    /**
+     * Return the key of the current revision.
+     *
+     * @return the key
+     */
+    public K getKey() {
+        if(key == null) {
+            if(dictionary != null) {
+                getLocator();
+                key = dictionary.readKey(bytes);
+            }
+            else {
+                key = read(keyPosition, keySize, format.xKeyClass());
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Return the locator of the current revision.
+     *
+     * @return the locator
+     */
+    public L getLocator() {
+        if(locator == null) {
+            locator = dictionary != null ? dictionary.readLocator(bytes)
+                    : read(locatorPosition, locatorSize,
+                            format.xLocatorClass());
+        }
+        return locator;
+    }
+
+    /**
+     * Return the type of the current revision.
+     *
+     * @return the type
+     */
+    public Action getType() {
+        return type;
+    }
+
+    /**
+     * Return the value of the current revision.
+     *
+     * @return the value
+     */
+    public V getValue() {
+        if(value == null) {
+            if(dictionary != null) {
+                getKey();
+                value = dictionary.readValue(bytes);
+            }
+            else {
+                value = read(valuePosition, bytes.limit() - valuePosition,
+                        format.xValueClass());
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Return the version of the current revision.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Position the cursor over the revision in {@code bytes}, which are
+     * consumed as the components are read.
+     *
+     * @param bytes
+     * @return this cursor
+     */
+    public RevisionCursor<L, K, V> reset(ByteBuffer bytes) {
+        if(dictionary == null && format == null) {
+            format = Byteables.read(bytes, revisionClass);
+            return reset(format);
+        }
+        this.type = Action.values()[bytes.get()];
+        this.version = bytes.getLong();
+        this.bytes = bytes;
+        this.locator = null;
+        this.key = null;
+        this.value = null;
+        if(dictionary == null) {
+            locatorSize = format.xLocatorSize() == Revision.VARIABLE_SIZE
+                    ? bytes.getInt() : format.xLocatorSize();
+            locatorPosition = bytes.position();
+            keyPosition = locatorPosition + locatorSize;
+            if(format.xKeySize() == Revision.VARIABLE_SIZE) {
+                keySize = bytes.getInt(keyPosition);
+                keyPosition += 4;
+            }
+            else {
+                keySize = format.xKeySize();
+            }
+            valuePosition = keyPosition + keySize;
+        }
+        return this;
+    }
+
+    /**
+     * Position the cursor over {@code revision}.
+     *
+     * @param revision
+     * @return this cursor
+     */
+    public RevisionCursor<L, K, V> reset(Revision<L, K, V> revision) {
+        this.type = revision.getType();
+        this.version = revision.getVersion();
+        this.bytes = null;
+        this.locator = revision.getLocator();
+        this.key = revision.getKey();
+        this.value = revision.getValue();
+        return this;
+    }
+
+    /**
+     * Deserialize the component of class {@code clazz} that is stored in the
+     * {@code size} bytes at {@code position} of the {@link #bytes}.
+     *
+     * @param position
+     * @param size
+     * @param clazz
+     * @return the component
+     */
+    private <T> T read(int position, int size, Class<T> clazz) {
+        return Byteables.readStatic(
+                ByteBuffers.get(ByteBuffers.slice(bytes, position, size), size),
+                clazz);
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + getKey() + " AS " + getValue() + " IN "
+                + getLocator() + " AT " + version;
+    }
+
+}
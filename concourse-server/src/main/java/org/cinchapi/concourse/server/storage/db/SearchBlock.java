@@ -15,21 +15,20 @@
  */
 package org.cinchapi.concourse.server.storage.db;
 
-import static org.cinchapi.concourse.server.GlobalState.STOPWORDS;
-
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.cinchapi.concourse.annotate.DoNotInvoke;
 import org.cinchapi.concourse.annotate.PackagePrivate;
+import org.cinchapi.concourse.server.GlobalState;
 import org.cinchapi.concourse.server.model.Position;
 import org.cinchapi.concourse.server.model.PrimaryKey;
 import org.cinchapi.concourse.server.model.Text;
@@ -37,14 +36,11 @@ import org.cinchapi.concourse.server.model.Value;
 import org.cinchapi.concourse.server.storage.Action;
 import org.cinchapi.concourse.thrift.Type;
 import org.cinchapi.concourse.util.ConcurrentSkipListMultiset;
-import org.cinchapi.concourse.util.TStrings;
+import org.cinchapi.concourse.util.SearchTokenizer;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
-import com.google.common.collect.SortedMultiset;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
@@ -77,11 +73,47 @@ final class SearchBlock extends Block<Text, Text, Position> {
                     new ThreadFactoryBuilder().setDaemon(true)
                             .setNameFormat("Search Indexer" + " %d").build());
 
+    /**
+     * The number of substrings that are inserted by each indexing task. A
+     * write that produces no more than this many substrings is indexed inline,
+     * without involving the {@link #indexer}.
+     */
+    private static final int INDEXING_BATCH_SIZE = 512;
+
+    /**
+     * The {@link SearchTokenizer} that is reused by each thread that inserts
+     * into a SearchBlock.
+     */
+    private static final ThreadLocal<SearchTokenizer> tokenizer = new ThreadLocal<SearchTokenizer>() {
+
+        @Override
+        protected SearchTokenizer initialValue() {
+            return new SearchTokenizer();
+        }
+
+    };
+
+    /**
+     * The number of STRING writes that have been indexed in this Block.
+     */
+    private final AtomicLong indexedWrites = new AtomicLong(0);
+
+    /**
+     * The total number of nanoseconds that have been spent indexing the
+     * {@link #indexedWrites}.
+     */
+    private final AtomicLong indexingTime = new AtomicLong(0);
+
     @SuppressWarnings("rawtypes")
     @Override
-    protected SortedMultiset<Revision<Text, Text, Position>> createBackingStore(
+    protected Collection<Revision<Text, Text, Position>> createBackingStore(
             Comparator<Revision> comparator) {
-        return ConcurrentSkipListMultiset.create(comparator);
+        if(GlobalState.ENABLE_SORT_ON_SYNC) {
+            return super.createBackingStore(comparator);
+        }
+        else {
+            return ConcurrentSkipListMultiset.create(comparator);
+        }
     }
 
     /**
@@ -108,9 +140,26 @@ final class SearchBlock extends Block<Text, Text, Position> {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Return the average number of microseconds that it has taken to index
+     * each STRING write that was inserted into this Block.
+     * 
+     * @return the indexing time per write
+     */
+    public double getIndexingTimePerWrite() {
+        long writes = indexedWrites.get();
+        return writes > 0 ? (double) indexingTime.get() / writes / 1000 : 0;
+    }
+
     /**
      * Insert a revision for {@code key} as {@code value} in {@code record} at
      * {@code version}
+     * <p>
+     * All the substrings of every term in {@code value} are gathered up front
+     * and inserted in batches of {@link #INDEXING_BATCH_SIZE}. The first batch
+     * is inserted by the calling thread and the rest are handed to the
+     * {@link #indexer}, so a short value never waits on the pool.
+     * </p>
      * 
      * @param key
      * @param value
@@ -118,20 +167,37 @@ final class SearchBlock extends Block<Text, Text, Position> {
      * @param version
      * @param type
      */
-    public final void insert(Text key, Value value, PrimaryKey record,
-            long version, Action type) {
+    public final void insert(final Text key, Value value, PrimaryKey record,
+            final long version, final Action type) {
         Preconditions.checkState(mutable,
                 "Cannot modify a block that is not mutable");
         if(value.getType() == Type.STRING) {
-            String string = value.getObject().toString().toLowerCase(); // CON-10
-            String[] toks = string
-                    .split(TStrings.REGEX_GROUP_OF_ONE_OR_MORE_WHITESPACE_CHARS);
-            int pos = 0;
+            long start = System.nanoTime();
+            SearchTokenizer toks = tokenizer.get();
+            toks.reset(value.getObject().toString()); // CON-10
+            final List<Text> substrings = Lists.newArrayList();
+            final List<Position> positions = Lists.newArrayList();
+            while (toks.next()) {
+                process(toks, Position.wrap(record, toks.getIndex()),
+                        substrings, positions);
+            }
+            int count = substrings.size();
             List<Future<?>> futures = Lists.newArrayList();
-            for (String tok : toks) {
-                futures.addAll(process(key, tok, pos, record, version, type));
-                ++pos;
+            for (int i = INDEXING_BATCH_SIZE; i < count; i += INDEXING_BATCH_SIZE) {
+                final int from = i;
+                final int to = Math.min(i + INDEXING_BATCH_SIZE, count);
+                futures.add(indexer.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        doInsert(key, substrings, positions, from, to,
+                                version, type);
+                    }
+
+                }));
             }
+            doInsert(key, substrings, positions, 0,
+                    Math.min(INDEXING_BATCH_SIZE, count), version, type);
             for (Future<?> future : futures) { // wait for completion
                 try {
                     future.get();
@@ -140,6 +206,8 @@ final class SearchBlock extends Block<Text, Text, Position> {
                     throw Throwables.propagate(e);
                 }
             }
+            indexingTime.addAndGet(System.nanoTime() - start);
+            indexedWrites.incrementAndGet();
         }
     }
 
@@ -156,73 +224,57 @@ final class SearchBlock extends Block<Text, Text, Position> {
     }
 
     /**
-     * Call super.{@link #insert(Text, Text, Position, long)}
+     * Call super.{@link #insert(Text, Text, Position, long)} for each of the
+     * {@code substrings} between {@code from} (inclusive) and {@code to}
+     * (exclusive) and the corresponding {@code positions}.
      * 
      * @param locator
-     * @param key
-     * @param value
+     * @param substrings
+     * @param positions
+     * @param from
+     * @param to
      * @param version
      * @param type
      */
-    private final void doInsert(Text locator, Text key, Position value,
-            long version, Action type) {
-        super.insertUnsafe(locator, key, value, version, type);
+    private final void doInsert(Text locator, List<Text> substrings,
+            List<Position> positions, int from, int to, long version,
+            Action type) {
+        for (int i = from; i < to; ++i) {
+            super.insertUnsafe(locator, substrings.get(i), positions.get(i),
+                    version, type);
+        }
     }
 
     /**
-     * Calculate all possible substrings for {@code term} and submit a task to
-     * the {@link #indexer} that will store a revision for the {@code term} at
-     * {@code position} for {@code key} in {@code record} at {@code version}.
+     * Calculate all possible substrings for the current term of the
+     * {@code toks} and add each one to {@code substrings} along with the
+     * {@code position} of the term to {@code positions}.
      * 
-     * @param key
-     * @param term
+     * @param toks
      * @param position
-     * @param record
-     * @param version
-     * @param type
-     * @return {@link Future Futures} that can be used to wait for all the
-     *         submitted tasks to complete
+     * @param substrings
+     * @param positions
      */
-    private List<Future<?>> process(final Text key, final String term,
-            final int position, final PrimaryKey record, final long version,
-            final Action type) {
-        if(!STOPWORDS.contains(term)) {
-            int upperBound = (int) Math.pow(term.length(), 2);
-            List<Future<?>> futures = Lists
-                    .newArrayListWithCapacity(upperBound);
-
-            // The set of substrings that have been indexed from {@code term} at
-            // {@code position} for {@code key} in {@code record} at {@code
-            // version}. This is used to ensure that we do not add duplicate
-            // indexes (i.e. 'abrakadabra')
-            Set<String> indexed = Sets.newHashSetWithExpectedSize(upperBound);
-
-            for (int i = 0; i < term.length(); ++i) {
-                for (int j = i + 1; j < term.length() + 1; ++j) {
-                    final String substring = term.substring(i, j).trim();
-                    if(!Strings.isNullOrEmpty(substring)
-                            && !STOPWORDS.contains(substring)
-                            && !indexed.contains(substring)) {
-                        indexed.add(substring);
-                        futures.add(indexer.submit(new Runnable() {
-
-                            @Override
-                            public void run() {
-                                doInsert(key, Text.wrap(substring),
-                                        Position.wrap(record, position),
-                                        version, type);
-                            }
-
-                        }));
+    private void process(SearchTokenizer toks, Position position,
+            List<Text> substrings, List<Position> positions) {
+        if(!toks.isStopWord()) {
+            int start = toks.getStart();
+            int end = toks.getEnd();
+            for (int i = start; i < end; ++i) {
+                // A substring that starts or ends with a control char is
+                // skipped instead of being trimmed because the trimmed form is
+                // visited on its own
+                if(toks.charAt(i) > ' ') {
+                    for (int j = i + 1; j < end + 1; ++j) {
+                        // Don't add duplicate indexes (i.e. 'abrakadabra')
+                        if(toks.charAt(j - 1) > ' ' && !toks.isRepeated(i, j)
+                                && !toks.isStopWord(i, j)) {
+                            substrings.add(Text.wrap(toks.getString(i, j)));
+                            positions.add(position);
+                        }
                     }
-
                 }
             }
-            indexed = null; // make eligible for immediate GC
-            return futures;
-        }
-        else {
-            return Collections.emptyList();
         }
     }
 
@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.cinchapi.concourse.annotate.PackagePrivate;
+import org.cinchapi.concourse.server.model.PrimaryKey;
+import org.cinchapi.concourse.server.model.Text;
+import org.cinchapi.concourse.util.SearchTokenizer;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
+import com.google.common.collect.TreeMultimap;
+
+/**
+ * Executes a search query against a collection of {@link SearchBlock
+ * SearchBlocks}. Instead of seeking every term of the query into a single
+ * {@link SearchRecord} and then working out the phrase matches from all of the
+ * accumulated positions, the terms are seeked in order of their estimated
+ * posting size. The records that contain the rarest term become the
+ * candidates, and each subsequent seek only keeps the positions for the
+ * candidates that remain, so the common terms in a query never load positions
+ * for records that can't match. The relative positions of the terms are only
+ * checked for the records that contain all of them.
+ * <p>
+ * The results are the same, and in the same order, as those of
+ * {@link SearchRecord#search(Text)}.
+ * </p>
+ *
+ * @author Jeff Nelson
+ */
+@PackagePrivate
+final class SearchExecutor {
+
+    /**
+     * Return the records that match {@code query} for {@code key} in the
+     * {@code blocks}, in descending order of the number of times that the query
+     * appears in each one.
+     *
+     * @param key
+     * @param query
+     * @param blocks
+     * @return the matching records
+     */
+    public static Set<PrimaryKey> search(Text key, String query,
+            List<SearchBlock> blocks) {
+        // Parse the terms of the query along with the offset of each one from
+        // the first term. Stop words are not indexed, but they still count
+        // towards the distance between the terms around them.
+        List<Term> terms = Lists.newArrayList();
+        List<Integer> offsets = Lists.newArrayList();
+        Map<String, Term> unique = Maps.newHashMap();
+        int offset = -1;
+        SearchTokenizer toks = new SearchTokenizer();
+        toks.reset(query);
+        while (toks.next()) {
+            if(offset >= 0) {
+                ++offset;
+            }
+            if(!toks.isStopWord()) {
+                offset = Math.max(offset, 0);
+                String tok = toks.getString();
+                Term term = unique.get(tok);
+                if(term == null) {
+                    term = new Term(Text.wrap(tok));
+                    for (SearchBlock block : blocks) {
+                        term.estimate += block.estimateSeekSize(key, term.text);
+                    }
+                    unique.put(tok, term);
+                }
+                terms.add(term);
+                offsets.add(offset);
+            }
+        }
+        if(terms.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        // Intersect the records that contain each term, from the rarest to the
+        // most common, stopping as soon as there are no candidates left
+        List<Term> order = Lists.newArrayList(unique.values());
+        Collections.sort(order, Term.ESTIMATE_COMPARATOR);
+        Set<PrimaryKey> candidates = null;
+        for (Term term : order) {
+            SearchRecord record = Record.createSearchRecordPartial(key,
+                    term.text);
+            record.restrictTo(candidates);
+            for (SearchBlock block : blocks) {
+                block.seek(key, term.text, record);
+            }
+            term.positions = record.getPositions(term.text);
+            candidates = term.positions.keySet();
+            if(candidates.isEmpty()) {
+                return Collections.emptySet();
+            }
+        }
+
+        // Score each surviving record by the number of positions where the
+        // terms appear with the same offsets as they do in the query
+        Multimap<Integer, PrimaryKey> sorted = TreeMultimap.create(
+                Collections.<Integer> reverseOrder(),
+                PrimaryKey.Sorter.INSTANCE);
+        for (PrimaryKey candidate : candidates) {
+            int score = 0;
+            for (int start : terms.get(0).positions.get(candidate)) {
+                boolean matches = true;
+                for (int i = 1; i < terms.size() && matches; ++i) {
+                    matches = terms.get(i).positions.get(candidate)
+                            .contains(start + offsets.get(i));
+                }
+                if(matches) {
+                    ++score;
+                }
+            }
+            if(score > 0) {
+                sorted.put(score, candidate);
+            }
+        }
+        return Sets.newLinkedHashSet(sorted.values());
+    }
+
+    private SearchExecutor() {/* noop */}
+
+    /**
+     * A distinct term in a search query.
+     *
+     * @author Jeff Nelson
+     */
+    private static final class Term {
+
+        /**
+         * Sorts Terms in ascending order of their estimated posting size.
+         */
+        static final Comparator<Term> ESTIMATE_COMPARATOR = new Comparator<Term>() {
+
+            @Override
+            public int compare(Term o1, Term o2) {
+                return Long.compare(o1.estimate, o2.estimate);
+            }
+
+        };
+
+        /**
+         * The sum of the estimated seek sizes in each block.
+         */
+        long estimate = 0;
+
+        /**
+         * The positions of the term in each candidate record, once it has been
+         * seeked.
+         */
+        Map<PrimaryKey, Set<Integer>> positions;
+
+        /**
+         * The text of the term.
+         */
+        final Text text;
+
+        /**
+         * Construct a new instance.
+         *
+         * @param text
+         */
+        Term(Text text) {
+            this.text = text;
+        }
+
+    }
+
+}
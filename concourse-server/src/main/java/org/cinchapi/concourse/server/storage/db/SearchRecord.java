@@ -15,8 +15,6 @@
  */
 package org.cinchapi.concourse.server.storage.db;
 
-import static org.cinchapi.concourse.server.GlobalState.STOPWORDS;
-
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
@@ -30,7 +28,7 @@ import org.cinchapi.concourse.annotate.PackagePrivate;
 import org.cinchapi.concourse.server.model.Position;
 import org.cinchapi.concourse.server.model.PrimaryKey;
 import org.cinchapi.concourse.server.model.Text;
-import org.cinchapi.concourse.util.TStrings;
+import org.cinchapi.concourse.util.SearchTokenizer;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Maps;
@@ -50,6 +48,13 @@ import com.google.common.collect.TreeMultimap;
 @ThreadSafe
 final class SearchRecord extends Record<Text, Text, Position> {
 
+    /**
+     * If not {@code null}, the only records whose positions are kept when
+     * revisions are appended.
+     */
+    @Nullable
+    private volatile Set<PrimaryKey> candidates = null;
+
     /**
      * DO NOT INVOKE. Use {@link Record#createSearchRecord(Text)} or
      * {@link Record#createSearchRecordPartial(Text, Text)} instead.
@@ -63,6 +68,54 @@ final class SearchRecord extends Record<Text, Text, Position> {
         super(locator, key);
     }
 
+    @Override
+    public void append(Revision<Text, Text, Position> revision) {
+        Set<PrimaryKey> candidates = this.candidates;
+        if(candidates == null
+                || candidates.contains(revision.getValue().getPrimaryKey())) {
+            super.append(revision);
+        }
+    }
+
+    /**
+     * Return the positions of {@code term} in this SearchRecord, grouped by the
+     * record in which they appear.
+     * 
+     * @param term
+     * @return the positions of {@code term} in each record
+     */
+    public Map<PrimaryKey, Set<Integer>> getPositions(Text term) {
+        read.lock();
+        try {
+            Map<PrimaryKey, Set<Integer>> positions = Maps.newHashMap();
+            for (Position position : get(term)) {
+                Set<Integer> indexes = positions.get(position.getPrimaryKey());
+                if(indexes == null) {
+                    indexes = Sets.newHashSet();
+                    positions.put(position.getPrimaryKey(), indexes);
+                }
+                indexes.add(position.getIndex());
+            }
+            return positions;
+        }
+        finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * Only keep the positions for the records in {@code candidates} when
+     * revisions are subsequently appended to this SearchRecord, so that a
+     * seek for a common term doesn't hold onto the positions for records that
+     * can't match the rest of a query. A {@code null} value keeps all
+     * positions.
+     * 
+     * @param candidates
+     */
+    public void restrictTo(@Nullable Set<PrimaryKey> candidates) {
+        this.candidates = candidates;
+    }
+
     /**
      * Return the Set of primary keys for records that match {@code query}.
      * 
@@ -73,22 +126,20 @@ final class SearchRecord extends Record<Text, Text, Position> {
         read.lock();
         try {
             Multimap<PrimaryKey, Integer> reference = HashMultimap.create();
-            String[] toks = query
-                    .toString()
-                    .toLowerCase()
-                    .split(TStrings.REGEX_GROUP_OF_ONE_OR_MORE_WHITESPACE_CHARS);
+            SearchTokenizer toks = new SearchTokenizer();
+            toks.reset(query.toString());
             boolean initial = true;
             int offset = 0;
-            for (String tok : toks) {
+            while (toks.next()) {
                 Multimap<PrimaryKey, Integer> temp = HashMultimap.create();
-                if(STOPWORDS.contains(tok)) {
+                if(toks.isStopWord()) {
                     // When skipping a stop word, we must record an offset to
                     // correctly determine if the next term match is in the
                     // correct relative position to the previous term match
                     ++offset;
                     continue;
                 }
-                Set<Position> positions = get(Text.wrap(tok));
+                Set<Position> positions = get(Text.wrap(toks.getString()));
                 for (Position position : positions) {
                     PrimaryKey key = position.getPrimaryKey();
                     int pos = position.getIndex();
@@ -127,6 +178,16 @@ final class SearchRecord extends Record<Text, Text, Position> {
         }
     }
 
+    @Override
+    @PackagePrivate
+    void append(RevisionCursor<Text, Text, Position> cursor) {
+        Set<PrimaryKey> candidates = this.candidates;
+        if(candidates == null
+                || candidates.contains(cursor.getValue().getPrimaryKey())) {
+            super.append(cursor);
+        }
+    }
+
     @Override
     protected Map<Text, Set<Position>> mapType() {
         return Maps.newHashMap();
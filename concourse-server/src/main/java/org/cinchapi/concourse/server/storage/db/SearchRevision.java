@@ -23,6 +23,7 @@ import org.cinchapi.concourse.server.io.Byteable;
 import org.cinchapi.concourse.server.model.Position;
 import org.cinchapi.concourse.server.model.Text;
 import org.cinchapi.concourse.server.storage.Action;
+import org.cinchapi.concourse.util.ByteBuffers;
 
 /**
  * A {@link Revision} that is used in a {@link SearchBlock} and maps a key
@@ -33,6 +34,21 @@ import org.cinchapi.concourse.server.storage.Action;
 @Immutable
 public final class SearchRevision extends Revision<Text, Text, Position> {
 
+    /**
+     * Return the SearchRevision encoded in {@code bytes} so long as those bytes
+     * adhere to the format specified by the {@link #getBytes()} method. This
+     * method assumes that all the bytes in the {@code bytes} belong to the
+     * SearchRevision. In general, it is necessary to get the appropriate
+     * SearchRevision slice from the parent ByteBuffer using
+     * {@link ByteBuffers#slice(ByteBuffer, int, int)}.
+     * 
+     * @param bytes
+     * @return the SearchRevision
+     */
+    public static SearchRevision fromByteBuffer(ByteBuffer bytes) {
+        return new SearchRevision(bytes);
+    }
+
     /**
      * Construct an instance that represents an existing SearchRevision from
      * a ByteBuffer. This constructor is public so as to comply with the
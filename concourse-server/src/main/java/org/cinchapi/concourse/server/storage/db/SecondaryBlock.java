@@ -15,10 +15,13 @@
  */
 package org.cinchapi.concourse.server.storage.db;
 
+import java.nio.ByteBuffer;
+
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.cinchapi.concourse.annotate.DoNotInvoke;
 import org.cinchapi.concourse.annotate.PackagePrivate;
+import org.cinchapi.concourse.server.io.Byteable;
 import org.cinchapi.concourse.server.model.PrimaryKey;
 import org.cinchapi.concourse.server.model.Text;
 import org.cinchapi.concourse.server.model.Value;
@@ -26,6 +29,11 @@ import org.cinchapi.concourse.server.storage.Action;
 
 /**
  * A Block that stores SecondaryRevision data to be used in a SecondaryRecord.
+ * <p>
+ * Each value is indexed under its {@link Value#getSortKey() sort key}, so a
+ * seek for a value reads the revisions for all the values that are equal to
+ * it (e.g. strings that only differ in case or numbers of different types).
+ * </p>
  * 
  * @author Jeff Nelson
  */
@@ -33,6 +41,18 @@ import org.cinchapi.concourse.server.storage.Action;
 @PackagePrivate
 final class SecondaryBlock extends Block<Text, Value, PrimaryKey> {
 
+    /**
+     * Return a {@link Byteable} that holds the sort key of {@code value},
+     * which is the same for all the values that are equal to it.
+     * 
+     * @param value
+     * @return the sort key
+     */
+    @PackagePrivate
+    static Byteable getSortKey(Value value) {
+        return new SortKey(value.getSortKey());
+    }
+
     /**
      * DO NOT CALL!!
      * 
@@ -53,6 +73,11 @@ final class SecondaryBlock extends Block<Text, Value, PrimaryKey> {
                 .insert(locator, Value.optimize(key), value, version, type);
     }
 
+    @Override
+    protected Byteable getIndexKey(Value key) {
+        return getSortKey(key);
+    }
+
     @Override
     protected SecondaryRevision makeRevision(Text locator, Value key,
             PrimaryKey value, long version, Action type) {
@@ -64,4 +89,39 @@ final class SecondaryBlock extends Block<Text, Value, PrimaryKey> {
     protected Class<SecondaryRevision> xRevisionClass() {
         return SecondaryRevision.class;
     }
+
+    /**
+     * A {@link Byteable} wrapper for the sort key of a {@link Value}.
+     * 
+     * @author Jeff Nelson
+     */
+    private static final class SortKey implements Byteable {
+
+        private final byte[] key;
+
+        /**
+         * Construct a new instance.
+         * 
+         * @param key
+         */
+        SortKey(byte[] key) {
+            this.key = key;
+        }
+
+        @Override
+        public void copyTo(ByteBuffer buffer) {
+            buffer.put(key);
+        }
+
+        @Override
+        public ByteBuffer getBytes() {
+            return ByteBuffer.wrap(key).asReadOnlyBuffer();
+        }
+
+        @Override
+        public int size() {
+            return key.length;
+        }
+
+    }
 }
@@ -118,6 +118,11 @@ final class SecondaryRecord extends BrowsableRecord<Text, Value, PrimaryKey> {
         return explore(false, 0, operator, values);
     }
 
+    @Override
+    protected Map<Value, History<PrimaryKey>> historyMapType() {
+        return Maps.newTreeMap(Value.Sorter.INSTANCE);
+    }
+
     @Override
     protected Map<Value, Set<PrimaryKey>> mapType() {
         return Maps.newTreeMap(Value.Sorter.INSTANCE);
@@ -145,6 +150,11 @@ final class SecondaryRecord extends BrowsableRecord<Text, Value, PrimaryKey> {
         try {
             Map<PrimaryKey, Set<Value>> data = Maps.newHashMap();
             Value value = values[0];
+            // NOTE: Both the present and historical indexes are sorted using
+            // the Value.Sorter, so range queries can narrow the set of stored
+            // values that must be examined in either case.
+            NavigableSet<Value> stored = (NavigableSet<Value>) (historical
+                    ? history.keySet() : present.keySet());
             if(operator == Operator.EQUALS) {
                 for (PrimaryKey record : historical ? get(value, timestamp)
                         : get(value)) {
@@ -152,103 +162,54 @@ final class SecondaryRecord extends BrowsableRecord<Text, Value, PrimaryKey> {
                 }
             }
             else if(operator == Operator.NOT_EQUALS) {
-                for (Value stored : historical ? history.keySet() : present
-                        .keySet()) {
-                    if(!value.equals(stored)) {
-                        for (PrimaryKey record : historical ? get(stored,
-                                timestamp) : get(stored)) {
-                            MultimapViews.put(data, record, stored);
-                        }
+                for (Value v : stored) {
+                    if(!value.equals(v)) {
+                        put(data, v, historical, timestamp);
                     }
                 }
             }
             else if(operator == Operator.GREATER_THAN) {
-                for (Value stored : historical ? history.keySet()
-                        : ((NavigableSet<Value>) present.keySet()).tailSet(
-                                value, false)) {
-                    if(!historical || stored.compareTo(value) > 0) {
-                        for (PrimaryKey record : historical ? get(stored,
-                                timestamp) : get(stored)) {
-                            MultimapViews.put(data, record, stored);
-                        }
-                    }
+                for (Value v : stored.tailSet(value, false)) {
+                    put(data, v, historical, timestamp);
                 }
             }
             else if(operator == Operator.GREATER_THAN_OR_EQUALS) {
-                for (Value stored : historical ? history.keySet()
-                        : ((NavigableSet<Value>) present.keySet()).tailSet(
-                                value, true)) {
-                    if(!historical || stored.compareTo(value) >= 0) {
-                        for (PrimaryKey record : historical ? get(stored,
-                                timestamp) : get(stored)) {
-                            MultimapViews.put(data, record, stored);
-                        }
-                    }
+                for (Value v : stored.tailSet(value, true)) {
+                    put(data, v, historical, timestamp);
                 }
             }
             else if(operator == Operator.LESS_THAN) {
-                for (Value stored : historical ? history.keySet()
-                        : ((NavigableSet<Value>) present.keySet()).headSet(
-                                value, false)) {
-                    if(!historical || stored.compareTo(value) < 0) {
-                        for (PrimaryKey record : historical ? get(stored,
-                                timestamp) : get(stored)) {
-                            MultimapViews.put(data, record, stored);
-                        }
-                    }
+                for (Value v : stored.headSet(value, false)) {
+                    put(data, v, historical, timestamp);
                 }
             }
             else if(operator == Operator.LESS_THAN_OR_EQUALS) {
-                for (Value stored : historical ? history.keySet()
-                        : ((NavigableSet<Value>) present.keySet()).headSet(
-                                value, true)) {
-                    if(!historical || stored.compareTo(value) <= 0) {
-                        for (PrimaryKey record : historical ? get(stored,
-                                timestamp) : get(stored)) {
-                            MultimapViews.put(data, record, stored);
-                        }
-                    }
+                for (Value v : stored.headSet(value, true)) {
+                    put(data, v, historical, timestamp);
                 }
             }
             else if(operator == Operator.BETWEEN) {
                 Preconditions.checkArgument(values.length > 1);
                 Value value2 = values[1];
-                for (Value stored : historical ? history.keySet()
-                        : ((NavigableSet<Value>) present.keySet()).subSet(
-                                value, true, value2, false)) {
-                    if(!historical
-                            || (stored.compareTo(value) >= 0 && stored
-                                    .compareTo(value2) < 0)) {
-                        for (PrimaryKey record : historical ? get(stored,
-                                timestamp) : get(stored)) {
-                            MultimapViews.put(data, record, stored);
-                        }
-                    }
+                for (Value v : stored.subSet(value, true, value2, false)) {
+                    put(data, v, historical, timestamp);
                 }
             }
             else if(operator == Operator.REGEX) {
                 Pattern p = Pattern.compile(value.getObject().toString());
-                for (Value stored : historical ? history.keySet() : present
-                        .keySet()) {
-                    Matcher m = p.matcher(stored.getObject().toString());
+                for (Value v : stored) {
+                    Matcher m = p.matcher(v.getObject().toString());
                     if(m.matches()) {
-                        for (PrimaryKey record : historical ? get(stored,
-                                timestamp) : get(stored)) {
-                            MultimapViews.put(data, record, stored);
-                        }
+                        put(data, v, historical, timestamp);
                     }
                 }
             }
             else if(operator == Operator.NOT_REGEX) {
                 Pattern p = Pattern.compile(value.getObject().toString());
-                for (Value stored : historical ? history.keySet() : present
-                        .keySet()) {
-                    Matcher m = p.matcher(stored.getObject().toString());
+                for (Value v : stored) {
+                    Matcher m = p.matcher(v.getObject().toString());
                     if(!m.matches()) {
-                        for (PrimaryKey record : historical ? get(stored,
-                                timestamp) : get(stored)) {
-                            MultimapViews.put(data, record, stored);
-                        }
+                        put(data, v, historical, timestamp);
                     }
                 }
             }
@@ -262,4 +223,22 @@ final class SecondaryRecord extends BrowsableRecord<Text, Value, PrimaryKey> {
         }
     }
 
+    /**
+     * Map each PrimaryKey that is mapped from {@code value} (at
+     * {@code timestamp} if {@code historical} is {@code true}) to
+     * {@code value} in {@code data}.
+     * 
+     * @param data
+     * @param value
+     * @param historical
+     * @param timestamp
+     */
+    private void put(Map<PrimaryKey, Set<Value>> data, Value value,
+            boolean historical, long timestamp) {
+        for (PrimaryKey record : historical ? get(value, timestamp)
+                : get(value)) {
+            MultimapViews.put(data, record, value);
+        }
+    }
+
 }
@@ -24,6 +24,7 @@ import org.cinchapi.concourse.server.model.PrimaryKey;
 import org.cinchapi.concourse.server.model.Text;
 import org.cinchapi.concourse.server.model.Value;
 import org.cinchapi.concourse.server.storage.Action;
+import org.cinchapi.concourse.util.ByteBuffers;
 
 /**
  * A {@link Revision} that is used in a {@link SecondayBlock} and maps a key
@@ -34,6 +35,21 @@ import org.cinchapi.concourse.server.storage.Action;
 @Immutable
 public final class SecondaryRevision extends Revision<Text, Value, PrimaryKey> {
 
+    /**
+     * Return the SecondaryRevision encoded in {@code bytes} so long as those bytes
+     * adhere to the format specified by the {@link #getBytes()} method. This
+     * method assumes that all the bytes in the {@code bytes} belong to the
+     * SecondaryRevision. In general, it is necessary to get the appropriate
+     * SecondaryRevision slice from the parent ByteBuffer using
+     * {@link ByteBuffers#slice(ByteBuffer, int, int)}.
+     * 
+     * @param bytes
+     * @return the SecondaryRevision
+     */
+    public static SecondaryRevision fromByteBuffer(ByteBuffer bytes) {
+        return new SecondaryRevision(bytes);
+    }
+
     /**
      * Construct an instance that represents an existing SecondaryRevision
      * from a ByteBuffer. This constructor is public so as to comply with
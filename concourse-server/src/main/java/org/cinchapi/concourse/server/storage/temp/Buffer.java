@@ -20,6 +20,7 @@ import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.List;
@@ -31,6 +32,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -42,9 +44,10 @@ import org.cinchapi.concourse.server.GlobalState;
 import org.cinchapi.concourse.server.concurrent.ConcourseExecutors;
 import org.cinchapi.concourse.server.concurrent.PriorityReadWriteLock;
 import org.cinchapi.concourse.server.concurrent.Locks;
+import org.cinchapi.concourse.server.io.ByteableCodecs;
 import org.cinchapi.concourse.server.io.ByteableCollections;
-import org.cinchapi.concourse.server.io.Byteables;
 import org.cinchapi.concourse.server.io.FileSystem;
+import org.cinchapi.concourse.server.jmx.ManagedOperation;
 import org.cinchapi.concourse.server.model.PrimaryKey;
 import org.cinchapi.concourse.server.model.Text;
 import org.cinchapi.concourse.server.model.Value;
@@ -282,6 +285,38 @@ public final class Buffer extends Limbo {
 
     };
 
+    /**
+     * A runnable that flushes the current buffer page and the inventory on
+     * behalf of the {@link #groupCommitter}. Since a Page is forced whenever
+     * the Buffer moves on to a new one, only the current Page needs to be
+     * flushed to make all of the previously appended writes durable.
+     */
+    private Runnable groupSync = new Runnable() {
+
+        @Override
+        public void run() {
+            Page page;
+            structure.lock();
+            try {
+                page = currentPage;
+            }
+            finally {
+                structure.unlock();
+            }
+            page.content.force();
+            inventory.sync();
+        }
+
+    };
+
+    /**
+     * The component that coalesces the syncs requested by concurrent calls to
+     * {@link #insert(Write, boolean)} when
+     * {@link GlobalState#ENABLE_BUFFER_GROUP_COMMIT} is {@code true}.
+     */
+    @Nullable
+    private volatile GroupCommitter groupCommitter = null;
+
     /**
      * The prefix for the threads that are responsible for flushing data to
      * disk. This is normally set by the Engine using the
@@ -512,6 +547,31 @@ public final class Buffer extends Limbo {
         return transportThreadSleepTimeInMs;
     }
 
+    /**
+     * Return the average number of synced writes that are made durable by each
+     * group commit flush.
+     * 
+     * @return the average group commit batch size
+     */
+    @ManagedOperation
+    public double getGroupCommitBatchSize() {
+        GroupCommitter committer = groupCommitter;
+        return committer != null ? committer.getAverageBatchSize() : 0;
+    }
+
+    /**
+     * Return the average number of microseconds that each group commit flush
+     * takes.
+     * 
+     * @return the average group commit flush latency
+     */
+    @ManagedOperation
+    public double getGroupCommitFlushLatency() {
+        GroupCommitter committer = groupCommitter;
+        return committer != null ? committer.getAverageFlushLatencyInMicros()
+                : 0;
+    }
+
     /**
      * Return the Buffer's inventory collection.
      * 
@@ -533,24 +593,32 @@ public final class Buffer extends Limbo {
 
     @Override
     public boolean insert(Write write, boolean sync) {
-        structure.lock();
-        try {
-            boolean notify = pages.size() == 2 && currentPage.size == 0;
-            currentPage.append(write, sync);
-            if(notify) {
-                synchronized (transportable) {
-                    transportable.notify();
-                }
+        GroupCommitter committer = groupCommitter;
+        if(sync && committer != null) {
+            // Append without forcing and wait (outside of the structure lock)
+            // for the group committer to make the write durable along with any
+            // others that have been appended concurrently.
+            long ticket;
+            structure.lock();
+            try {
+                append(write, false);
+                ticket = committer.enqueue();
             }
-            return true;
-        }
-        catch (CapacityException e) {
-            addPage();
-            return insert(write, sync);
+            finally {
+                structure.unlock();
+            }
+            committer.await(ticket);
         }
-        finally {
-            structure.unlock();
+        else {
+            structure.lock();
+            try {
+                append(write, sync);
+            }
+            finally {
+                structure.unlock();
+            }
         }
+        return true;
     }
 
     /**
@@ -667,6 +735,12 @@ public final class Buffer extends Limbo {
             else {
                 currentPage = pages.get(pages.size() - 1);
             }
+            if(ENABLE_BUFFER_GROUP_COMMIT) {
+                groupCommitter = new GroupCommitter(threadNamePrefix
+                        + "-group-commit", BUFFER_GROUP_COMMIT_MAX_DELAY,
+                        groupSync);
+                groupCommitter.start();
+            }
         }
     }
 
@@ -674,6 +748,10 @@ public final class Buffer extends Limbo {
     public void stop() {
         if(running) {
             running = false;
+            if(groupCommitter != null) {
+                groupCommitter.stop();
+                groupCommitter = null;
+            }
             synchronized (transportable) {
                 transportable.notifyAll(); // notify to allow any waiting
                                            // threads to terminate
@@ -700,15 +778,31 @@ public final class Buffer extends Limbo {
             if(!page.transportLock.writeLock().isHeldByCurrentThread()
                     && page.transportLock.writeLock().tryLock()) {
                 try {
-                    for (int i = 0; i < transportRate; ++i) {
-                        if(page.hasNext()) {
-                            destination.accept(page.next());
-                            page.remove();
+                    if(destination instanceof Database) {
+                        // Hand the Database a run of writes all at once so
+                        // that it doesn't have to coordinate the insertion of
+                        // each one individually.
+                        List<Write> batch = page.next(transportRate);
+                        if(!batch.isEmpty()) {
+                            ((Database) destination).accept(batch);
+                            page.remove(batch.size());
                         }
-                        else {
+                        if(batch.size() < transportRate) {
                             ((Database) destination).triggerSync();
                             removePage();
-                            break;
+                        }
+                    }
+                    else {
+                        for (int i = 0; i < transportRate; ++i) {
+                            if(page.hasNext()) {
+                                destination.accept(page.next());
+                                page.remove();
+                            }
+                            else {
+                                ((Database) destination).triggerSync();
+                                removePage();
+                                break;
+                            }
                         }
                     }
                     timeOfLastTransport.set(Time.now());
@@ -775,6 +869,31 @@ public final class Buffer extends Limbo {
         return value.getType() == Type.STRING;
     }
 
+    /**
+     * Append {@code write} to the {@link #currentPage}, adding a new Page if
+     * necessary, and optionally perform a {@code sync}. The caller must hold
+     * the {@link #structure} lock.
+     * 
+     * @param write
+     * @param sync
+     */
+    @GuardedBy("structure")
+    private void append(Write write, boolean sync) {
+        try {
+            boolean notify = pages.size() == 2 && currentPage.size == 0;
+            currentPage.append(write, sync);
+            if(notify) {
+                synchronized (transportable) {
+                    transportable.notify();
+                }
+            }
+        }
+        catch (CapacityException e) {
+            addPage();
+            append(write, sync);
+        }
+    }
+
     /**
      * Add a new Page to the Buffer.
      */
@@ -1212,6 +1331,49 @@ public final class Buffer extends Limbo {
             }
         }
 
+        /**
+         * Returns up to {@code count} Writes, starting at index {@link #head}
+         * in {@link #writes}.
+         * <p>
+         * <strong>NOTE:</strong>
+         * <em>This method will return the same elements on multiple
+         * invocations until {@link #remove(int)} is called.</em>
+         * </p>
+         * 
+         * @param count
+         * @return the next Writes
+         */
+        public List<Write> next(int count) {
+            long stamp = Locks.stampLockReadIfCondition(accessLock,
+                    this == currentPage);
+            try {
+                return Arrays.asList(Arrays.copyOfRange(writes, head,
+                        Math.min(size, head + count)));
+            }
+            finally {
+                Locks.stampUnlockReadIfCondition(accessLock, stamp,
+                        this == currentPage);
+            }
+        }
+
+        /**
+         * Simulates the removal of the next {@code count} Writes from the Page.
+         * 
+         * @param count
+         * @see #remove()
+         */
+        public void remove(int count) {
+            long stamp = Locks.stampLockWriteIfCondition(accessLock,
+                    this == currentPage);
+            try {
+                head += count;
+            }
+            finally {
+                Locks.stampUnlockWriteIfCondition(accessLock, stamp,
+                        this == currentPage);
+            }
+        }
+
         /**
          * Simulates the removal of the head Write from the Page. This method
          * only updates the {@link #head} and {@link #pos} metadata and does not
@@ -1759,7 +1921,7 @@ public final class Buffer extends Limbo {
         @Override
         public Write next() {
             if(hasNext()) {
-                return Byteables.readStatic(it.next(), Write.class);
+                return ByteableCodecs.WRITE.decode(it.next());
             }
             else {
                 return null;
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.temp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.cinchapi.concourse.annotate.PackagePrivate;
+import org.cinchapi.concourse.util.Logger;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * A {@link GroupCommitter} coalesces the fsyncs that are requested by
+ * concurrent writers into a single flush that is performed by a dedicated
+ * thread.
+ * <p>
+ * Each writer appends its data without forcing it to disk, calls
+ * {@link #enqueue()} (while still holding whatever lock serialized the append)
+ * to get a ticket and then calls {@link #await(long)} (after releasing that
+ * lock) to block until the flusher has made its data durable. Every flush
+ * covers all of the tickets that were issued before it started, so the cost
+ * of a single fsync is amortized over all the writers that arrived while the
+ * previous one was in progress (or during the configurable batch delay).
+ * </p>
+ * 
+ * @author Jeff Nelson
+ */
+@ThreadSafe
+@PackagePrivate
+final class GroupCommitter {
+
+    /**
+     * The task that makes all of the appended data durable.
+     */
+    private final Runnable flush;
+
+    /**
+     * The maximum number of milliseconds that the flusher waits for more
+     * writers to join a batch before performing a flush.
+     */
+    private final int maxBatchDelayInMs;
+
+    /**
+     * The name of the flusher thread.
+     */
+    private final String threadName;
+
+    /**
+     * The last ticket that was issued to a writer.
+     */
+    private final AtomicLong issued = new AtomicLong(0);
+
+    /**
+     * Concurrency control for the flusher and the waiting writers.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled whenever a writer is waiting for a ticket that isn't durable.
+     */
+    private final Condition requested = lock.newCondition();
+
+    /**
+     * Signalled whenever a flush completes (successfully or not).
+     */
+    private final Condition flushed = lock.newCondition();
+
+    /**
+     * The highest ticket whose data is known to be durable.
+     */
+    @GuardedBy("lock")
+    private long durable = 0;
+
+    /**
+     * The highest ticket that was covered by a flush that failed and the error
+     * that caused the failure. Writers with a ticket in the failed batch
+     * receive the error instead of blocking forever (unless a subsequent flush
+     * succeeds before they notice).
+     */
+    @GuardedBy("lock")
+    private long failed = 0;
+    @GuardedBy("lock")
+    private Throwable failure = null;
+
+    /**
+     * A flag that indicates whether the flusher is running.
+     */
+    private volatile boolean running = false;
+
+    /**
+     * The flusher thread.
+     */
+    private Thread flusher;
+
+    /*
+     * METRICS
+     * -------
+     * We track the number of flushes, the total number of writers that were
+     * released by those flushes and the total amount of time spent flushing
+     * so that the average batch size and latency can be reported.
+     */
+    private final AtomicLong flushCount = new AtomicLong(0);
+    private final AtomicLong flushedTickets = new AtomicLong(0);
+    private final AtomicLong flushTimeInNanos = new AtomicLong(0);
+
+    /**
+     * Construct a new instance.
+     * 
+     * @param threadName
+     * @param maxBatchDelayInMs
+     * @param flush
+     */
+    GroupCommitter(String threadName, int maxBatchDelayInMs, Runnable flush) {
+        Preconditions.checkArgument(maxBatchDelayInMs >= 0);
+        this.threadName = threadName;
+        this.maxBatchDelayInMs = maxBatchDelayInMs;
+        this.flush = flush;
+    }
+
+    /**
+     * Block until the data that was appended before {@code ticket} was issued
+     * is durable. If the flusher is not running, the calling thread performs
+     * the flush itself.
+     * 
+     * @param ticket - the value returned from {@link #enqueue()}
+     */
+    public void await(long ticket) {
+        lock.lock();
+        try {
+            if(durable >= ticket) {
+                return;
+            }
+            requested.signal();
+            while (durable < ticket) {
+                if(ticket <= failed) {
+                    throw Throwables.propagate(failure);
+                }
+                else if(!running) {
+                    // The ticket may have been issued after the flusher made
+                    // its final pass, so flush inline instead of waiting for
+                    // a signal that will never come.
+                    long target = issued.get();
+                    flush.run();
+                    durable = Math.max(durable, target);
+                }
+                else {
+                    flushed.awaitUninterruptibly();
+                }
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return a ticket that covers all the data that has been appended by the
+     * calling thread. This method should be called while the caller still
+     * holds the lock that protects the append so that the tickets are issued
+     * in the same order as the data.
+     * 
+     * @return the ticket to pass to {@link #await(long)}
+     */
+    public long enqueue() {
+        return issued.incrementAndGet();
+    }
+
+    /**
+     * Return the average number of writers that were made durable by each
+     * flush.
+     * 
+     * @return the average batch size
+     */
+    public double getAverageBatchSize() {
+        long count = flushCount.get();
+        return count > 0 ? (double) flushedTickets.get() / count : 0;
+    }
+
+    /**
+     * Return the average number of microseconds that each flush takes.
+     * 
+     * @return the average flush latency
+     */
+    public double getAverageFlushLatencyInMicros() {
+        long count = flushCount.get();
+        return count > 0 ? (double) TimeUnit.NANOSECONDS
+                .toMicros(flushTimeInNanos.get()) / count : 0;
+    }
+
+    /**
+     * Return the number of flushes that have been performed.
+     * 
+     * @return the flush count
+     */
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * Start the flusher thread.
+     */
+    public void start() {
+        if(!running) {
+            running = true;
+            flusher = new Thread(new Flusher(), threadName);
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    /**
+     * Stop the flusher thread after it makes all of the outstanding tickets
+     * durable. Any ticket that is issued afterwards is flushed by the writer
+     * that waits for it.
+     */
+    public void stop() {
+        if(running) {
+            running = false;
+            lock.lock();
+            try {
+                requested.signal();
+            }
+            finally {
+                lock.unlock();
+            }
+            try {
+                flusher.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Wake up any writers whose tickets were issued after the flusher
+            // made its final pass so that they flush for themselves.
+            lock.lock();
+            try {
+                flushed.signalAll();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * The loop that is run by the flusher thread.
+     * 
+     * @author Jeff Nelson
+     */
+    private final class Flusher implements Runnable {
+
+        @Override
+        public void run() {
+            while (true) {
+                lock.lock();
+                try {
+                    // NOTE: A batch that failed is not retried until another
+                    // ticket is issued.
+                    while (running
+                            && Math.max(durable, failed) >= issued.get()) {
+                        requested.awaitUninterruptibly();
+                    }
+                    if(!running && Math.max(durable, failed) >= issued.get()) {
+                        break;
+                    }
+                }
+                finally {
+                    lock.unlock();
+                }
+                if(maxBatchDelayInMs > 0 && running) {
+                    try {
+                        Thread.sleep(maxBatchDelayInMs);
+                    }
+                    catch (InterruptedException e) {/* ignore */}
+                }
+                long target = issued.get();
+                long start = System.nanoTime();
+                Throwable error = null;
+                try {
+                    flush.run();
+                }
+                catch (Throwable t) {
+                    error = t;
+                    Logger.error("An error occurred while flushing a group "
+                            + "commit in {}", threadName);
+                    Logger.error("", t);
+                }
+                long elapsed = System.nanoTime() - start;
+                lock.lock();
+                try {
+                    if(error == null) {
+                        flushCount.incrementAndGet();
+                        flushedTickets.addAndGet(Math.max(target - durable, 0));
+                        flushTimeInNanos.addAndGet(elapsed);
+                        durable = Math.max(durable, target);
+                    }
+                    else {
+                        failed = target;
+                        failure = error;
+                    }
+                    flushed.signalAll();
+                }
+                finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+}
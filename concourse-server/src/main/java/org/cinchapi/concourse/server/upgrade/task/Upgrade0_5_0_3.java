@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.upgrade.task;
+
+import java.util.Iterator;
+
+import org.cinchapi.concourse.server.GlobalState;
+import org.cinchapi.concourse.server.io.FileSystem;
+import org.cinchapi.concourse.server.storage.db.BlockIndex;
+import org.cinchapi.concourse.server.upgrade.SmartUpgradeTask;
+import org.cinchapi.concourse.util.Environments;
+
+/**
+ * Rewrite the {@link BlockIndex} files that were stored in the legacy format
+ * so that they can be memory mapped and binary searched.
+ * 
+ * @author Jeff Nelson
+ */
+public class Upgrade0_5_0_3 extends SmartUpgradeTask {
+
+    /**
+     * The extension for block index files.
+     */
+    private static final String INDEX_NAME_EXTENSION = ".indx";
+
+    @Override
+    public String getDescription() {
+        return "Rewrite block indexes using the sorted fixed width format";
+    }
+
+    @Override
+    protected void doTask() {
+        Iterator<String> envIt = Environments.iterator(
+                GlobalState.BUFFER_DIRECTORY, GlobalState.DATABASE_DIRECTORY);
+        while (envIt.hasNext()) {
+            String env = envIt.next();
+            String dbStore = FileSystem.makePath(
+                    GlobalState.DATABASE_DIRECTORY, env);
+            if(!FileSystem.hasDir(dbStore)) {
+                continue;
+            }
+            for (String directory : FileSystem.getSubDirs(dbStore)) {
+                Iterator<String> fileIt = FileSystem.fileIterator(FileSystem
+                        .makePath(dbStore, directory));
+                while (fileIt.hasNext()) {
+                    String file = fileIt.next();
+                    if(file.endsWith(INDEX_NAME_EXTENSION)
+                            && BlockIndex.isLegacyFormat(file)) {
+                        BlockIndex.upgrade(file);
+                        logInfoMessage("Upgraded block index {}", file);
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.upgrade.task;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Iterator;
+
+import org.cinchapi.concourse.server.GlobalState;
+import org.cinchapi.concourse.server.io.ByteableCollections;
+import org.cinchapi.concourse.server.io.Byteables;
+import org.cinchapi.concourse.server.io.FileSystem;
+import org.cinchapi.concourse.server.storage.cache.BloomFilter;
+import org.cinchapi.concourse.server.storage.db.PrimaryRevision;
+import org.cinchapi.concourse.server.storage.db.Revision;
+import org.cinchapi.concourse.server.storage.db.SearchRevision;
+import org.cinchapi.concourse.server.storage.db.SecondaryRevision;
+import org.cinchapi.concourse.server.upgrade.SmartUpgradeTask;
+import org.cinchapi.concourse.util.Environments;
+
+/**
+ * Rebuild the {@link BloomFilter} files that were stored using Java
+ * serialization so that they use the blocked format that can be memory mapped.
+ * The elements of a legacy filter cannot be recovered from its bits, so each
+ * filter is rebuilt from the revisions in the corresponding block file.
+ * 
+ * @author Jeff Nelson
+ */
+public class Upgrade0_5_0_4 extends SmartUpgradeTask {
+
+    /**
+     * The extension for block files.
+     */
+    private static final String BLOCK_NAME_EXTENSION = ".blk";
+
+    /**
+     * The extension for bloom filter files.
+     */
+    private static final String FILTER_NAME_EXTENSION = ".fltr";
+
+    @Override
+    public String getDescription() {
+        return "Rebuild bloom filters using the blocked binary format";
+    }
+
+    @Override
+    protected void doTask() {
+        Iterator<String> envIt = Environments.iterator(
+                GlobalState.BUFFER_DIRECTORY, GlobalState.DATABASE_DIRECTORY);
+        while (envIt.hasNext()) {
+            String env = envIt.next();
+            String dbStore = FileSystem.makePath(
+                    GlobalState.DATABASE_DIRECTORY, env);
+            if(!FileSystem.hasDir(dbStore)) {
+                continue;
+            }
+            for (String directory : FileSystem.getSubDirs(dbStore)) {
+                Class<? extends Revision<?, ?, ?>> revisionClass = getRevisionClass(directory);
+                if(revisionClass == null) {
+                    continue;
+                }
+                Iterator<String> fileIt = FileSystem.fileIterator(FileSystem
+                        .makePath(dbStore, directory));
+                while (fileIt.hasNext()) {
+                    String file = fileIt.next();
+                    if(file.endsWith(FILTER_NAME_EXTENSION)
+                            && BloomFilter.isLegacyFormat(file)) {
+                        String block = file.replace(FILTER_NAME_EXTENSION,
+                                BLOCK_NAME_EXTENSION);
+                        if(FileSystem.hasFile(block)) {
+                            rebuild(file, block, revisionClass);
+                            logInfoMessage("Rebuilt bloom filter {}", file);
+                        }
+                        else {
+                            logWarnMessage("Cannot rebuild bloom filter {} "
+                                    + "because the block {} does not exist",
+                                    file, block);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the class of the revisions that are stored in the blocks in
+     * {@code directory} or {@code null} if the directory does not contain
+     * blocks.
+     * 
+     * @param directory
+     * @return the revision class
+     */
+    private static Class<? extends Revision<?, ?, ?>> getRevisionClass(
+            String directory) {
+        if(directory.equals("cpb")) {
+            return PrimaryRevision.class;
+        }
+        else if(directory.equals("csb")) {
+            return SecondaryRevision.class;
+        }
+        else if(directory.equals("ctb")) {
+            return SearchRevision.class;
+        }
+        else {
+            return null;
+        }
+    }
+
+    /**
+     * Replace the legacy filter in {@code file} with one that contains all the
+     * revisions in {@code block}.
+     * 
+     * @param file
+     * @param block
+     * @param revisionClass
+     */
+    private static void rebuild(String file, String block,
+            Class<? extends Revision<?, ?, ?>> revisionClass) {
+        String upgrade = file + ".upgrade";
+        if(FileSystem.hasFile(upgrade)) {
+            FileSystem.deleteFile(upgrade);
+        }
+        BloomFilter filter = BloomFilter.create(upgrade,
+                GlobalState.BUFFER_PAGE_SIZE);
+        MappedByteBuffer bytes = FileSystem.map(block, MapMode.READ_ONLY, 0,
+                FileSystem.getFileSize(block));
+        Iterator<ByteBuffer> it = ByteableCollections.iterator(bytes);
+        while (it.hasNext()) {
+            Revision<?, ?, ?> revision = Byteables
+                    .read(it.next(), revisionClass);
+            filter.put(revision.getLocator());
+            filter.put(revision.getLocator(), revision.getKey());
+            filter.put(revision.getLocator(), revision.getKey(),
+                    revision.getValue());
+        }
+        filter.sync();
+        FileSystem.unmap(bytes);
+        FileSystem.replaceFile(file, upgrade);
+    }
+
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.util;
+
+import org.cinchapi.concourse.server.GlobalState;
+
+/**
+ * A reusable utility that splits text into the lowercase terms that are used
+ * for search indexing and querying.
+ * <p>
+ * Like the {@link StringSplitter}, this utility makes a single pass over the
+ * text and returns each term as soon as it is found. But instead of creating a
+ * new string for each term, the text is lowercased into a buffer that is
+ * reused for every call to {@link #reset(String)} and the terms (and any of
+ * their substrings) are described by offsets into that buffer. So the caller
+ * only pays to create a string for the substrings that it actually keeps and
+ * can check whether any of them is one of the {@link GlobalState#STOPWORDS}
+ * without allocating anything.
+ * </p>
+ * <p>
+ * The terms are the same as those that are produced by lowercasing the text
+ * and splitting it on {@link TStrings#REGEX_GROUP_OF_ONE_OR_MORE_WHITESPACE_CHARS
+ * groups of whitespace}, except that there is never an empty term.
+ * </p>
+ * <p>
+ * <h2>Usage</h2>
+ *
+ * <pre>
+ * SearchTokenizer tokenizer = new SearchTokenizer();
+ * tokenizer.reset(&quot;Please split this string&quot;);
+ * while (tokenizer.next()) {
+ *     if(!tokenizer.isStopWord()) {
+ *         String term = tokenizer.getString();
+ *     }
+ * }
+ * </pre>
+ *
+ * </p>
+ * <p>
+ * Instances of this class are not thread safe.
+ * </p>
+ *
+ * @author Jeff Nelson
+ */
+public final class SearchTokenizer {
+
+    /**
+     * A flag that indicates whether the default locale lowercases the ASCII
+     * characters the same way as {@link Character#toLowerCase(char)} (it
+     * doesn't in Turkish, for example). If not, every string is lowercased
+     * with {@link String#toLowerCase()}.
+     */
+    private static final boolean ASCII_LOWERCASE = "I".toLowerCase().equals(
+            "i");
+
+    /**
+     * An open addressing hash table that contains each of the
+     * {@link GlobalState#STOPWORDS} in the slot that is chosen by its
+     * {@link String#hashCode() hash code}, so that a range of chars can be
+     * looked up without creating a string.
+     */
+    private static final String[] STOPWORDS;
+
+    /**
+     * The length of the longest of the {@link GlobalState#STOPWORDS}. A longer
+     * range of chars can't be a stop word, so it isn't looked up.
+     */
+    private static final int MAX_STOPWORD_LENGTH;
+    static {
+        int size = Integer.highestOneBit(Math.max(
+                GlobalState.STOPWORDS.size(), 1) * 4);
+        int max = 0;
+        STOPWORDS = new String[size];
+        for (String stopword : GlobalState.STOPWORDS) {
+            max = Math.max(max, stopword.length());
+            int slot = spread(stopword.hashCode()) & (size - 1);
+            while (STOPWORDS[slot] != null) {
+                slot = (slot + 1) & (size - 1);
+            }
+            STOPWORDS[slot] = stopword;
+        }
+        MAX_STOPWORD_LENGTH = max;
+    }
+
+    /**
+     * Return {@code true} if {@code c} is one of the characters that is
+     * matched by the \s regex character class.
+     *
+     * @param c
+     * @return {@code true} if {@code c} is whitespace
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B'
+                || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Spread the bits of {@code hash} so that the slots in the
+     * {@link #STOPWORDS} table are chosen by more than the lowest bits.
+     *
+     * @param hash
+     * @return the spread hash
+     */
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * The lowercase chars of the text that is being split. This buffer is
+     * reused and only grows if a longer text is split.
+     */
+    private char[] chars = new char[64];
+
+    /**
+     * The number of chars in the {@link #chars} buffer that belong to the text
+     * that is being split.
+     */
+    private int length = 0;
+
+    /**
+     * The current position of the tokenizer.
+     */
+    private int pos = 0;
+
+    /**
+     * The index of the current term among all the terms in the text.
+     */
+    private int index = -1;
+
+    /**
+     * The offset of the first char of the current term.
+     */
+    private int start = 0;
+
+    /**
+     * The offset after the last char of the current term.
+     */
+    private int end = 0;
+
+    /**
+     * Return the char at {@code offset} in the lowercase text.
+     *
+     * @param offset
+     * @return the char
+     */
+    public char charAt(int offset) {
+        return chars[offset];
+    }
+
+    /**
+     * Return the offset after the last char of the current term.
+     *
+     * @return the end offset
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Return the index of the current term among all the terms (including stop
+     * words) in the text.
+     *
+     * @return the index of the current term
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Return the offset of the first char of the current term.
+     *
+     * @return the start offset
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Return a string that contains the current term.
+     *
+     * @return the current term
+     */
+    public String getString() {
+        return getString(start, end);
+    }
+
+    /**
+     * Return a string that contains the chars of the lowercase text between
+     * {@code from} (inclusive) and {@code to} (exclusive).
+     *
+     * @param from
+     * @param to
+     * @return the substring
+     */
+    public String getString(int from, int to) {
+        return String.valueOf(chars, from, to - from);
+    }
+
+    /**
+     * Return {@code true} if the chars of the lowercase text between
+     * {@code from} (inclusive) and {@code to} (exclusive) also appear at an
+     * earlier offset within the current term. This can be used to visit each
+     * distinct substring of a term once without putting them all in a set.
+     *
+     * @param from
+     * @param to
+     * @return {@code true} if the substring is repeated
+     */
+    public boolean isRepeated(int from, int to) {
+        for (int k = start; k < from; ++k) {
+            boolean matches = true;
+            for (int i = 0; i < to - from && matches; ++i) {
+                matches = chars[k + i] == chars[from + i];
+            }
+            if(matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return {@code true} if the current term is a stop word.
+     *
+     * @return {@code true} if the current term is a stop word
+     */
+    public boolean isStopWord() {
+        return isStopWord(start, end);
+    }
+
+    /**
+     * Return {@code true} if the chars of the lowercase text between
+     * {@code from} (inclusive) and {@code to} (exclusive) form one of the
+     * {@link GlobalState#STOPWORDS}.
+     *
+     * @param from
+     * @param to
+     * @return {@code true} if the substring is a stop word
+     */
+    public boolean isStopWord(int from, int to) {
+        if(to - from > MAX_STOPWORD_LENGTH) {
+            return false;
+        }
+        int hash = 0;
+        for (int i = from; i < to; ++i) {
+            hash = 31 * hash + chars[i];
+        }
+        int mask = STOPWORDS.length - 1;
+        int slot = spread(hash) & mask;
+        String stopword;
+        while ((stopword = STOPWORDS[slot]) != null) {
+            if(stopword.length() == to - from) {
+                boolean matches = true;
+                for (int i = from; i < to && matches; ++i) {
+                    matches = stopword.charAt(i - from) == chars[i];
+                }
+                if(matches) {
+                    return true;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Advance to the next term in the text.
+     *
+     * @return {@code true} if there is another term, {@code false} if the end
+     *         of the text has been reached
+     */
+    public boolean next() {
+        while (pos < length && isWhitespace(chars[pos])) {
+            ++pos;
+        }
+        if(pos < length) {
+            start = pos;
+            while (pos < length && !isWhitespace(chars[pos])) {
+                ++pos;
+            }
+            end = pos;
+            ++index;
+            return true;
+        }
+        else {
+            start = length;
+            end = length;
+            return false;
+        }
+    }
+
+    /**
+     * Reset the tokenizer to split {@code text}.
+     *
+     * @param text
+     */
+    public void reset(String text) {
+        int n = text.length();
+        ensureCapacity(n);
+        boolean ascii = ASCII_LOWERCASE;
+        for (int i = 0; i < n && ascii; ++i) {
+            char c = text.charAt(i);
+            if(c >= 'A' && c <= 'Z') {
+                chars[i] = (char) (c + ('a' - 'A'));
+            }
+            else if(c < 128) {
+                chars[i] = c;
+            }
+            else {
+                ascii = false;
+            }
+        }
+        if(!ascii) {
+            // Some chars (and locales) have lowercase forms that depend on the
+            // chars around them or even have a different length, so it isn't
+            // safe to lowercase one char at a time
+            text = text.toLowerCase();
+            n = text.length();
+            ensureCapacity(n);
+            text.getChars(0, n, chars, 0);
+        }
+        length = n;
+        pos = 0;
+        index = -1;
+        start = 0;
+        end = 0;
+    }
+
+    /**
+     * Make sure that the {@link #chars} buffer can hold at least
+     * {@code capacity} chars.
+     *
+     * @param capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if(chars.length < capacity) {
+            chars = new char[Math.max(capacity, chars.length * 2)];
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.cache;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.cinchapi.concourse.ConcourseBaseTest;
+import org.cinchapi.concourse.server.io.Byteable;
+import org.cinchapi.concourse.server.io.FileSystem;
+import org.cinchapi.concourse.server.storage.cache.BloomFilter;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for {@link BloomFilter}.
+ * 
+ * @author Jeff Nelson
+ */
+public class BloomFilterTest extends ConcourseBaseTest {
+
+    private String file;
+
+    @Override
+    protected void beforeEachTest() {
+        super.beforeEachTest();
+        file = TestData.getTemporaryTestFile();
+    }
+
+    @Override
+    protected void afterEachTest() {
+        super.afterEachTest();
+        if(FileSystem.hasFile(file)) {
+            FileSystem.deleteFile(file);
+        }
+    }
+
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter filter = BloomFilter.create(1000);
+        List<Byteable[]> elements = getElements(1000);
+        for (Byteable[] element : elements) {
+            filter.put(element);
+        }
+        for (Byteable[] element : elements) {
+            Assert.assertTrue(filter.mightContain(element));
+        }
+    }
+
+    @Test
+    public void testOpenIsMappedAndHasSameContent() {
+        BloomFilter filter = BloomFilter.create(file, 1000);
+        List<Byteable[]> elements = getElements(1000);
+        for (Byteable[] element : elements) {
+            filter.put(element);
+        }
+        filter.sync();
+        Assert.assertTrue(filter.isMapped());
+        BloomFilter opened = BloomFilter.open(file);
+        Assert.assertTrue(opened.isMapped());
+        Assert.assertEquals(filter.getSizeInBytes(), opened.getSizeInBytes());
+        for (Byteable[] element : elements) {
+            Assert.assertTrue(opened.mightContain(element));
+        }
+        Assert.assertEquals(filter.getExpectedFalsePositiveProbability(),
+                opened.getExpectedFalsePositiveProbability(), 0);
+    }
+
+    @Test
+    public void testPutAfterOpenCopiesToHeap() {
+        BloomFilter filter = BloomFilter.create(file, 100);
+        Byteable[] a = getElements(1).get(0);
+        filter.put(a);
+        filter.sync();
+        BloomFilter opened = BloomFilter.open(file);
+        Byteable[] b = getElements(1).get(0);
+        opened.put(b);
+        Assert.assertFalse(opened.isMapped());
+        Assert.assertTrue(opened.mightContain(a));
+        Assert.assertTrue(opened.mightContain(b));
+        opened.sync();
+        Assert.assertTrue(BloomFilter.open(file).mightContain(b));
+    }
+
+    @Test
+    public void testFalsePositiveProbabilityIsReasonable() {
+        int count = 10000;
+        BloomFilter filter = BloomFilter.create(count);
+        Assert.assertEquals(0, filter.getExpectedFalsePositiveProbability(),
+                0);
+        for (Byteable[] element : getElements(count)) {
+            filter.put(element);
+        }
+        double expected = filter.getExpectedFalsePositiveProbability();
+        Assert.assertTrue(expected > 0 && expected < 0.06);
+        int positives = 0;
+        for (Byteable[] element : getElements(count)) {
+            if(filter.mightContain(element)) {
+                ++positives;
+            }
+        }
+        Assert.assertTrue((double) positives / count < 0.1);
+    }
+
+    @Test
+    public void testLegacyFormatIsDetected() {
+        ByteBuffer bytes = ByteBuffer.allocate(16);
+        bytes.putInt(0xACED0005).putLong(TestData.getLong()).putInt(0);
+        bytes.flip();
+        FileSystem.writeBytes(bytes, file);
+        Assert.assertTrue(BloomFilter.isLegacyFormat(file));
+        try {
+            BloomFilter.open(file);
+            Assert.fail();
+        }
+        catch (RuntimeException e) {
+            Assert.assertTrue(e.getCause() instanceof StreamCorruptedException);
+        }
+    }
+
+    @Test
+    public void testSyncedFormatIsNotLegacy() {
+        BloomFilter filter = BloomFilter.create(file, 100);
+        filter.put(getElements(1).get(0));
+        filter.sync();
+        Assert.assertFalse(BloomFilter.isLegacyFormat(file));
+    }
+
+    /**
+     * Return a list of {@code count} random elements to put into the bloom
+     * filter.
+     * 
+     * @param count
+     * @return the elements
+     */
+    private static List<Byteable[]> getElements(int count) {
+        List<Byteable[]> elements = Lists.newArrayList();
+        for (int i = 0; i < count; ++i) {
+            elements.add(new Byteable[] { TestData.getText(),
+                    TestData.getValue(), TestData.getPrimaryKey() });
+        }
+        return elements;
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.io;
+
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.cinchapi.concourse.server.storage.db.PrimaryRevision;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+
+/**
+ * Compare the number of revisions that can be decoded per second using the
+ * {@link ByteableCodecs registered codec} against reflection (which is how
+ * {@link Byteables} read every revision before the registry existed).
+ *
+ * @author Jeff Nelson
+ */
+public class ByteableCodecsBenchmark extends AbstractBenchmark {
+
+    /**
+     * The number of revisions that are decoded in each round.
+     */
+    private static final int COUNT = 10000;
+
+    private static List<ByteBuffer> revisions = Lists.newArrayList();
+    private static Constructor<PrimaryRevision> constructor;
+    private static long codecCount = 0;
+    private static long codecNanos = 0;
+    private static long reflectionCount = 0;
+    private static long reflectionNanos = 0;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        for (int i = 0; i < COUNT; ++i) {
+            revisions.add(TestData.getPrimaryRevision().getBytes());
+        }
+        constructor = PrimaryRevision.class
+                .getDeclaredConstructor(ByteBuffer.class);
+        constructor.setAccessible(true);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        System.out.println("Codec: " + (codecCount * 1000000000 / codecNanos)
+                + " revisions/sec");
+        System.out.println("Reflection: "
+                + (reflectionCount * 1000000000 / reflectionNanos)
+                + " revisions/sec");
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkCodec() {
+        long start = System.nanoTime();
+        for (ByteBuffer bytes : revisions) {
+            ByteableCodecs.PRIMARY_REVISION.decode(bytes.duplicate());
+        }
+        codecNanos += System.nanoTime() - start;
+        codecCount += revisions.size();
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkReflection() {
+        long start = System.nanoTime();
+        try {
+            for (ByteBuffer bytes : revisions) {
+                constructor.newInstance(bytes.duplicate());
+            }
+        }
+        catch (ReflectiveOperationException e) {
+            throw Throwables.propagate(e);
+        }
+        reflectionNanos += System.nanoTime() - start;
+        reflectionCount += revisions.size();
+    }
+
+}
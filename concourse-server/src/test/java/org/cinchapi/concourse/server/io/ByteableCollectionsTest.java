@@ -54,4 +54,31 @@ public class ByteableCollectionsTest extends ConcourseBaseTest {
         Assert.assertEquals(values, newValues);
     }
 
+    @Test
+    public void testEncodedIterator() {
+        List<ByteBuffer> elements = Lists.newArrayList();
+        int count = TestData.getScaleCount();
+        ByteableCollections.PrefixEncoder encoder = new ByteableCollections.PrefixEncoder();
+        ByteBuffer bytes = ByteBuffer.allocate(count * 1024);
+        Value shared = TestData.getValue();
+        for (int i = 0; i < count; ++i) {
+            Value value = i % 3 == 0 ? TestData.getValue() : shared;
+            ByteBuffer element = ByteBuffer.allocate(9 + value.size() + 4);
+            element.put((byte) (i % 2));
+            element.putLong(TestData.getLong());
+            value.copyTo(element);
+            element.putInt(i);
+            element.flip();
+            elements.add(element);
+            encoder.encode(element, bytes);
+        }
+        bytes.flip();
+        Iterator<ByteBuffer> it = ByteableCollections.encodedIterator(bytes);
+        List<ByteBuffer> decoded = Lists.newArrayList();
+        while (it.hasNext()) {
+            decoded.add(it.next());
+        }
+        Assert.assertEquals(elements, decoded);
+    }
+
 }
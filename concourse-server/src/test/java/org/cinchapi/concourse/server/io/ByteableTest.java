@@ -16,6 +16,7 @@
 package org.cinchapi.concourse.server.io;
 
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 
 import org.cinchapi.concourse.ConcourseBaseTest;
 import org.cinchapi.concourse.util.TestData;
@@ -71,4 +72,17 @@ public abstract class ByteableTest extends ConcourseBaseTest{
                 getTestClass()).equals(object));
     }
 
+    @Test
+    public void testCodecMatchesReflection() throws Exception {
+        Byteable object = getRandomTestInstance();
+        ByteableCodec<? extends Byteable> codec = ByteableCodecs
+                .get(getTestClass());
+        if(codec != null) {
+            Method factory = getTestClass().getMethod("fromByteBuffer",
+                    ByteBuffer.class);
+            Assert.assertEquals(factory.invoke(null, object.getBytes()),
+                    codec.decode(object.getBytes()));
+        }
+    }
+
 }
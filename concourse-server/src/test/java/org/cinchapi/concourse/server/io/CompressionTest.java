@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.io;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+
+import org.cinchapi.concourse.ConcourseBaseTest;
+import org.cinchapi.concourse.server.model.Value;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for the {@link Compression} util class.
+ * 
+ * @author Jeff Nelson
+ */
+public class CompressionTest extends ConcourseBaseTest {
+
+    @Test
+    public void testRoundTripEmpty() {
+        doTestRoundTrip(new byte[0]);
+    }
+
+    @Test
+    public void testRoundTripRandomBytes() {
+        byte[] bytes = new byte[TestData.getScaleCount() * 10];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) TestData.getInt();
+        }
+        doTestRoundTrip(bytes);
+    }
+
+    @Test
+    public void testRoundTripRepetitiveBytes() {
+        byte[] bytes = Strings.repeat(TestData.getString(), 1000).getBytes();
+        ByteBuffer compressed = doTestRoundTrip(bytes);
+        Assert.assertTrue(compressed.remaining() < bytes.length / 10);
+    }
+
+    @Test
+    public void testRoundTripLongRunsAndLiterals() {
+        byte[] bytes = new byte[200000];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) (i % 1000 < 500 ? 7 : TestData.getInt());
+        }
+        doTestRoundTrip(bytes);
+    }
+
+    @Test
+    public void testEndOfBlockRules() {
+        for (int length = 0; length < 64; ++length) {
+            // Repetitive input would be matched right up to the end if the
+            // encoder didn't follow the rules
+            byte[] bytes = new byte[length];
+            doTestEndOfBlockRules(doTestRoundTrip(bytes), length);
+            bytes = Strings.repeat("ab", length).substring(0, length)
+                    .getBytes();
+            doTestEndOfBlockRules(doTestRoundTrip(bytes), length);
+        }
+        byte[] bytes = Strings.repeat(TestData.getString(), 1000).getBytes();
+        doTestEndOfBlockRules(doTestRoundTrip(bytes), bytes.length);
+    }
+
+    @Test
+    public void testCompressedIterator() {
+        List<Value> values = Lists.newArrayList();
+        int count = TestData.getScaleCount();
+        ByteBuffer chunks = ByteBuffer.allocate(count * 1024);
+        for (int i = 0; i < 3; ++i) {
+            List<Value> chunk = Lists.newArrayList();
+            for (int j = 0; j < count; ++j) {
+                chunk.add(TestData.getValue());
+            }
+            values.addAll(chunk);
+            chunks.put(ByteableCollections.toCompressedChunk(ByteableCollections
+                    .toByteBuffer(chunk)));
+        }
+        chunks.flip();
+        Iterator<ByteBuffer> it = ByteableCollections
+                .compressedIterator(chunks);
+        List<Value> newValues = Lists.newArrayList();
+        while (it.hasNext()) {
+            newValues.add(Value.fromByteBuffer(it.next()));
+        }
+        Assert.assertEquals(values, newValues);
+    }
+
+    /**
+     * Assert that {@code bytes} are the same after they are compressed and
+     * decompressed.
+     * 
+     * @param bytes
+     * @return the compressed bytes
+     */
+    private static ByteBuffer doTestRoundTrip(byte[] bytes) {
+        ByteBuffer compressed = Compression.compress(ByteBuffer.wrap(bytes));
+        ByteBuffer decompressed = Compression.decompress(compressed,
+                bytes.length);
+        Assert.assertEquals(ByteBuffer.wrap(bytes), decompressed);
+        return compressed;
+    }
+
+    /**
+     * Walk the tokens in {@code compressed} and assert that the last
+     * {@code 5} of the {@code length} uncompressed bytes are literals and that
+     * no match starts within the last {@code 12} bytes, as the LZ4 block
+     * format requires.
+     * 
+     * @param compressed
+     * @param length
+     */
+    private static void doTestEndOfBlockRules(ByteBuffer compressed,
+            int length) {
+        byte[] src = new byte[compressed.remaining()];
+        compressed.duplicate().get(src);
+        int ip = 0;
+        int op = 0;
+        while (ip < src.length) {
+            int token = src[ip++] & 0xFF;
+            int literals = token >>> 4;
+            if(literals == 15) {
+                int b;
+                do {
+                    b = src[ip++] & 0xFF;
+                    literals += b;
+                }
+                while (b == 255);
+            }
+            ip += literals;
+            op += literals;
+            if(ip >= src.length) {
+                break;
+            }
+            ip += 2;
+            int matchLength = token & 15;
+            if(matchLength == 15) {
+                int b;
+                do {
+                    b = src[ip++] & 0xFF;
+                    matchLength += b;
+                }
+                while (b == 255);
+            }
+            Assert.assertTrue(op + 12 <= length);
+            op += matchLength + 4;
+            Assert.assertTrue(op + 5 <= length);
+        }
+        Assert.assertEquals(length, op);
+    }
+
+}
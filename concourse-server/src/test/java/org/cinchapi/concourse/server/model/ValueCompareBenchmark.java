@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.cinchapi.concourse.util.Numbers;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+
+/**
+ * Measure the throughput of sorting a mix of {@link Value Values}, which is
+ * what happens when a Block is synced, using the binary sort keys compared to
+ * the old approach of converting each Value to a Java object and comparing
+ * the objects.
+ *
+ * @author Jeff Nelson
+ */
+public class ValueCompareBenchmark extends AbstractBenchmark {
+
+    /**
+     * The number of values that are sorted in each round.
+     */
+    private static final int COUNT = 10000;
+
+    private static Value[] values;
+    private static Object[] objects;
+
+    @BeforeClass
+    public static void setUp() {
+        values = new Value[COUNT];
+        objects = new Object[COUNT];
+        for (int i = 0; i < COUNT; ++i) {
+            values[i] = TestData.getValue();
+            objects[i] = values[i].getObject();
+        }
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkSortKeyCompare() {
+        Arrays.sort(values.clone(), Value.Sorter.INSTANCE);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkObjectCompare() {
+        Arrays.sort(objects.clone(), new Comparator<Object>() {
+
+            @Override
+            public int compare(Object o1, Object o2) {
+                if(o1 instanceof Number && o2 instanceof Number) {
+                    return Numbers.compare((Number) o1, (Number) o2);
+                }
+                else if(o1 instanceof Number) {
+                    return -1;
+                }
+                else if(o2 instanceof Number) {
+                    return 1;
+                }
+                else {
+                    return o1.toString().compareToIgnoreCase(o2.toString());
+                }
+            }
+
+        });
+    }
+
+}
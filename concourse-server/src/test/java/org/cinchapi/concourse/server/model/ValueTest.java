@@ -18,6 +18,7 @@ package org.cinchapi.concourse.server.model;
 import java.util.List;
 import java.util.Set;
 
+import org.cinchapi.concourse.Link;
 import org.cinchapi.concourse.server.io.ByteableTest;
 import org.cinchapi.concourse.testing.Variables;
 import org.cinchapi.concourse.util.Convert;
@@ -32,6 +33,7 @@ import org.junit.runner.RunWith;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.primitives.UnsignedBytes;
 
 /**
  * Unit tests for {@link Value}
@@ -182,11 +184,101 @@ public class ValueTest extends ByteableTest {
 
     }
 
+    @Test
+    @Theory
+    public void testCompareToMatchesObjectComparison(Object q1, Object q2) {
+        Value v1 = Variables.register("v1",
+                Value.wrap(Convert.javaToThrift(q1)));
+        Value v2 = Variables.register("v2",
+                Value.wrap(Convert.javaToThrift(q2)));
+        Assert.assertEquals(Integer.signum(compareObjects(q1, q2)),
+                Integer.signum(v1.compareTo(v2)));
+        Assert.assertEquals(Integer.signum(compareObjects(q2, q1)),
+                Integer.signum(v2.compareTo(v1)));
+    }
+
+    @Test
+    public void testCompareToEdgeCases() {
+        // Each group is larger than the ones before it and all the values in
+        // a group are equal
+        Object[][] groups = { { Double.NEGATIVE_INFINITY },
+                { Long.MIN_VALUE }, { -1000 }, { -100.5f }, { -100, -100L },
+                { -10.25 }, { -10.2 }, { -1, -1.0f, -1.0 }, { -0.5 },
+                { -0.05 }, { -0.0 }, { 0, 0.0, 0.0f, 0L },
+                { Double.MIN_VALUE }, { 0.05 }, { 0.1f }, { 0.5 }, { 1 },
+                { 1.5f, 1.5 }, { 10 }, { 10.2 }, { 10.25 }, { 100 },
+                { 100.5 }, { Integer.MAX_VALUE }, { Long.MAX_VALUE },
+                { Link.to(-1) }, { Double.POSITIVE_INFINITY },
+                { Double.NaN }, { "" }, { "a", "A" }, { "A b" }, { "ab" },
+                { "B" }, { false, "FALSE" }, { "false0" }, { true },
+                { "Z" } };
+        for (int i = 0; i < groups.length; ++i) {
+            for (int j = 0; j < groups.length; ++j) {
+                for (Object q1 : groups[i]) {
+                    for (Object q2 : groups[j]) {
+                        Value v1 = Value.wrap(Convert.javaToThrift(q1));
+                        Value v2 = Value.wrap(Convert.javaToThrift(q2));
+                        Assert.assertEquals(q1 + " vs " + q2,
+                                Integer.signum(Integer.compare(i, j)),
+                                Integer.signum(v1.compareTo(v2)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCompareToMatchesSortKeys() {
+        Object[] objects = { "", "a", "A", "\u00E9t\u00E9", "\u00C9T\u00C9",
+                "\uD83D\uDE00", "\uFFFF", "\u0130", "i", "\u00DF", "SS",
+                true, false, "TRUE", 1, -1L, 1.5, 1.5f, Link.to(2), 2L,
+                Long.MIN_VALUE, Double.NaN, -0.0 };
+        List<Value> values = Lists.newArrayList();
+        for (Object object : objects) {
+            values.add(Value.wrap(Convert.javaToThrift(object)));
+        }
+        for (int i = 0; i < 100; ++i) {
+            values.add(Value.wrap(Convert.javaToThrift(TestData.getString())));
+            values.add(TestData.getValue());
+        }
+        for (Value v1 : values) {
+            for (Value v2 : values) {
+                Assert.assertEquals(v1 + " vs " + v2, Integer
+                        .signum(UnsignedBytes.lexicographicalComparator()
+                                .compare(v1.getSortKey(), v2.getSortKey())),
+                        Integer.signum(v1.compareTo(v2)));
+            }
+        }
+    }
+
     @Override
     protected Class<Value> getTestClass() {
         return Value.class;
     }
 
+    /**
+     * Compare {@code o1} and {@code o2} by converting them to Java objects,
+     * which is how Values were compared before they had sort keys.
+     * 
+     * @param o1
+     * @param o2
+     * @return the comparison
+     */
+    private static int compareObjects(Object o1, Object o2) {
+        if(o1 instanceof Number && o2 instanceof Number) {
+            return Numbers.compare((Number) o1, (Number) o2);
+        }
+        else if(o1 instanceof Number) {
+            return -1;
+        }
+        else if(o2 instanceof Number) {
+            return 1;
+        }
+        else {
+            return o1.toString().compareToIgnoreCase(o2.toString());
+        }
+    }
+
     /**
      * Return a random number of type {@code clazz}.
      * 
@@ -200,6 +200,35 @@ public class EngineTest extends BufferedStoreTest {
          Assert.assertEquals(engine.browse(), Sets.<Long>newHashSet(new Long(1), new Long(2), new Long(3), new Long(4)));
      }
 
+    @Test
+    public void testSearchCacheIsInvalidatedByStringWrites() {
+        Engine engine = (Engine) store;
+        engine.add("name", Convert.javaToThrift("foo bar"), 1);
+        Assert.assertEquals(Sets.newHashSet(1L), engine.search("name", "foo"));
+        Assert.assertTrue(engine.getSearchCacheSize() > 0);
+        engine.add("name", Convert.javaToThrift("foo baz"), 2);
+        Assert.assertEquals(Sets.newHashSet(1L, 2L),
+                engine.search("name", "foo"));
+        engine.remove("name", Convert.javaToThrift("foo bar"), 1);
+        Assert.assertEquals(Sets.newHashSet(2L), engine.search("name", "foo"));
+        engine.set("name", Convert.javaToThrift(1), 2);
+        Assert.assertTrue(engine.search("name", "foo").isEmpty());
+        engine.accept(Write.add("name", Convert.javaToThrift("foo"), 3));
+        Assert.assertEquals(Sets.newHashSet(3L), engine.search("name", "foo"));
+    }
+
+    @Test
+    public void testSearchCacheNormalizesQuery() {
+        Engine engine = (Engine) store;
+        engine.add("name", Convert.javaToThrift("foo bar"), 1);
+        Assert.assertEquals(Sets.newHashSet(1L),
+                engine.search("name", "foo bar"));
+        long size = engine.getSearchCacheSize();
+        Assert.assertEquals(Sets.newHashSet(1L),
+                engine.search("name", "FOO   Bar"));
+        Assert.assertEquals(size, engine.getSearchCacheSize());
+    }
+
     
     @Test
     public void testBufferTransportThreadWillRestartIfHung() {
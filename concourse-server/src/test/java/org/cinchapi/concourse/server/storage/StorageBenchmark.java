@@ -15,12 +15,22 @@
  */
 package org.cinchapi.concourse.server.storage;
 
+import java.io.File;
+import java.util.List;
+
+import org.cinchapi.concourse.server.io.FileSystem;
+import org.cinchapi.concourse.server.storage.db.Database;
 import org.cinchapi.concourse.server.storage.temp.Write;
+import org.cinchapi.concourse.time.Time;
+import org.cinchapi.concourse.util.Convert;
 import org.cinchapi.concourse.util.TestData;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
 import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.google.common.collect.Lists;
 
 /**
  * 
@@ -29,6 +39,85 @@ import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
  */
 public class StorageBenchmark extends AbstractBenchmark {
 
+    /**
+     * The number of writes that are transported to the {@link #database} in
+     * each round of the transport benchmarks.
+     */
+    private static final int TRANSPORT_BATCH_SIZE = 100;
+
+    /**
+     * The number of writes with long string values that are transported to
+     * the {@link #database} in each round of
+     * {@link #benchmarkDatabaseTransportLongStrings()}.
+     */
+    private static final int LONG_STRING_BATCH_SIZE = 10;
+
+    /**
+     * The number of words in each of the long string values.
+     */
+    private static final int LONG_STRING_WORD_COUNT = 50;
+
+    private static String directory;
+    private static Database database;
+    private static List<Write> writes;
+    private static List<Write> longStringWrites;
+
+    @BeforeClass
+    public static void setUp() {
+        directory = TestData.DATA_DIR + File.separator + Time.now();
+        database = new Database(directory);
+        database.start();
+        writes = Lists.newArrayListWithCapacity(TRANSPORT_BATCH_SIZE);
+        for (int i = 0; i < TRANSPORT_BATCH_SIZE; ++i) {
+            // Don't use string values so that search indexing doesn't dominate
+            // the cost of the transport.
+            writes.add(Write.add(TestData.getSimpleString(),
+                    Convert.javaToThrift(TestData.getLong()),
+                    TestData.getLong()));
+        }
+        List<String> words = Lists.newArrayList(TestData.getWordsDotTxt());
+        longStringWrites = Lists
+                .newArrayListWithCapacity(LONG_STRING_BATCH_SIZE);
+        for (int i = 0; i < LONG_STRING_BATCH_SIZE; ++i) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < LONG_STRING_WORD_COUNT; ++j) {
+                sb.append(words.get(Math.abs(TestData.getInt() % words.size())))
+                        .append(' ');
+            }
+            longStringWrites.add(Write.add(TestData.getSimpleString(),
+                    Convert.javaToThrift(sb.toString().trim()),
+                    TestData.getLong()));
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        database.stop();
+        FileSystem.deleteDirectory(directory);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkDatabaseTransportOneWriteAtATime() {
+        for (Write write : writes) {
+            database.accept(write);
+        }
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkDatabaseTransportBatch() {
+        database.accept(writes);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 10, warmupRounds = 2)
+    public void benchmarkDatabaseTransportLongStrings() {
+        for (Write write : longStringWrites) {
+            database.accept(write);
+        }
+    }
+
     @Test
     @BenchmarkOptions(benchmarkRounds = 1000, warmupRounds = 10)
     public void benchmarkWriteAdd() {
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.io.File;
+
+import org.cinchapi.concourse.server.GlobalState;
+import org.cinchapi.concourse.server.io.FileSystem;
+import org.cinchapi.concourse.server.model.PrimaryKey;
+import org.cinchapi.concourse.server.model.Text;
+import org.cinchapi.concourse.server.model.Value;
+import org.cinchapi.concourse.server.storage.Action;
+import org.cinchapi.concourse.time.Time;
+import org.cinchapi.concourse.util.Convert;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+
+/**
+ * Compare the disk footprint and seek latency of a {@link PrimaryBlock} that
+ * is stored in the compressed format to one that is stored in the
+ * uncompressed format. The size of each block file is printed during setup.
+ *
+ * @author Jeff Nelson
+ */
+public class BlockCompressionBenchmark extends AbstractBenchmark {
+
+    /**
+     * The number of records in each block.
+     */
+    private static final int RECORDS = 1000;
+
+    /**
+     * The number of keys in each record.
+     */
+    private static final int KEYS = 20;
+
+    /**
+     * The number of seeks that are performed in each round.
+     */
+    private static final int SEEKS = 100;
+
+    private static String directory;
+    private static PrimaryBlock compressed;
+    private static PrimaryBlock uncompressed;
+
+    @BeforeClass
+    public static void setUp() {
+        directory = TestData.DATA_DIR + File.separator + Time.now();
+        compressed = create(true);
+        uncompressed = create(false);
+        System.out.println("Compressed block file: "
+                + FileSystem.getFileSize(file(compressed)) + " bytes");
+        System.out.println("Uncompressed block file: "
+                + FileSystem.getFileSize(file(uncompressed)) + " bytes");
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        FileSystem.deleteDirectory(directory);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkSeekCompressed() {
+        seek(compressed);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkSeekUncompressed() {
+        seek(uncompressed);
+    }
+
+    /**
+     * Create, populate and sync a block with compression {@code enabled} and
+     * return a copy that is loaded from disk (so that seeks are not served
+     * from memory).
+     *
+     * @param enabled
+     * @return the block
+     */
+    private static PrimaryBlock create(boolean enabled) {
+        boolean original = GlobalState.ENABLE_BLOCK_COMPRESSION;
+        GlobalState.ENABLE_BLOCK_COMPRESSION = enabled;
+        try {
+            String id = Long.toString(Time.now());
+            PrimaryBlock block = Block.createPrimaryBlock(id, directory);
+            for (int i = 0; i < RECORDS; ++i) {
+                PrimaryKey locator = PrimaryKey.wrap(i);
+                for (int j = 0; j < KEYS; ++j) {
+                    block.insert(locator, Text.wrap("key" + j),
+                            Value.wrap(Convert.javaToThrift("value " + i * j)),
+                            Time.now(), Action.ADD);
+                }
+            }
+            block.sync();
+            return new PrimaryBlock(id, directory, true);
+        }
+        finally {
+            GlobalState.ENABLE_BLOCK_COMPRESSION = original;
+        }
+    }
+
+    /**
+     * Return the path to the block file for {@code block}.
+     *
+     * @param block
+     * @return the block file
+     */
+    private static String file(PrimaryBlock block) {
+        return directory + File.separator + block.getId()
+                + Block.BLOCK_NAME_EXTENSION;
+    }
+
+    /**
+     * Perform {@link #SEEKS} random locator/key seeks in {@code block}.
+     *
+     * @param block
+     */
+    private static void seek(PrimaryBlock block) {
+        for (int i = 0; i < SEEKS; ++i) {
+            PrimaryKey locator = PrimaryKey.wrap(Math.abs(TestData.getInt()
+                    % RECORDS));
+            Text key = Text.wrap("key" + Math.abs(TestData.getInt() % KEYS));
+            block.seek(locator, key,
+                    Record.createPrimaryRecordPartial(locator, key));
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.io.File;
+import java.util.List;
+
+import org.cinchapi.concourse.server.io.FileSystem;
+import org.cinchapi.concourse.server.model.PrimaryKey;
+import org.cinchapi.concourse.server.model.Text;
+import org.cinchapi.concourse.time.Time;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.google.common.collect.Lists;
+
+/**
+ * Measure the latency of {@link BlockIndex} lookups on a synced index. The
+ * pressure benchmark churns through garbage before each batch of lookups so
+ * that the collector runs constantly (run with a small heap, e.g.
+ * {@code -Xmx64m}, to make the effect more pronounced). Since the index is
+ * memory mapped, the lookups should not get slower under pressure.
+ *
+ * @author Jeff Nelson
+ */
+public class BlockIndexBenchmark extends AbstractBenchmark {
+
+    /**
+     * The number of locators in the index. Each one also has a locator/key
+     * entry.
+     */
+    private static final int COUNT = 100000;
+
+    /**
+     * The number of lookups that are performed in each round.
+     */
+    private static final int LOOKUPS = 1000;
+
+    private static String file;
+    private static BlockIndex index;
+    private static List<Object> ballast = Lists.newArrayList();
+
+    @BeforeClass
+    public static void setUp() {
+        file = TestData.DATA_DIR + File.separator + Time.now();
+        BlockIndex created = BlockIndex.create(file, COUNT * 2);
+        Text key = Text.wrap("name");
+        for (int i = 0; i < COUNT; ++i) {
+            PrimaryKey locator = PrimaryKey.wrap(i);
+            created.putStart(i, locator);
+            created.putEnd(i + 1, locator);
+            created.putStart(i, locator, key);
+            created.putEnd(i + 1, locator, key);
+        }
+        created.sync();
+        index = BlockIndex.open(file);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        FileSystem.deleteFile(file);
+        ballast = null;
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkSeek() {
+        seek();
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkSeekUnderMemoryPressure() {
+        ballast.clear();
+        for (int i = 0; i < 64; ++i) {
+            ballast.add(new byte[1024 * 1024]);
+        }
+        seek();
+    }
+
+    /**
+     * Perform {@link #LOOKUPS} random lookups in the {@link #index}.
+     */
+    private static void seek() {
+        for (int i = 0; i < LOOKUPS; ++i) {
+            PrimaryKey locator = PrimaryKey.wrap(Math.abs(TestData.getInt()
+                    % COUNT));
+            index.getStart(locator);
+            index.getEnd(locator);
+        }
+    }
+
+}
@@ -16,10 +16,13 @@
 package org.cinchapi.concourse.server.storage.db;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 
 import org.cinchapi.concourse.ConcourseBaseTest;
+import org.cinchapi.concourse.server.io.Composite;
 import org.cinchapi.concourse.server.io.FileSystem;
 import org.cinchapi.concourse.server.model.PrimaryKey;
+import org.cinchapi.concourse.server.model.Text;
 import org.cinchapi.concourse.time.Time;
 import org.cinchapi.concourse.util.TestData;
 import org.junit.Assert;
@@ -100,4 +103,89 @@ public class BlockIndexTest extends ConcourseBaseTest {
         Assert.assertEquals(count * 2, index.getEnd(key));
     }
 
+    @Test
+    public void testLookupsAfterReopen() {
+        int count = TestData.getScaleCount() * 2;
+        BlockIndex index = BlockIndex.create(file, count);
+        for (int i = 0; i < count; i++) {
+            PrimaryKey key = PrimaryKey.wrap(i);
+            Text text = Text.wrap(Integer.toString(i));
+            index.putStart(i, key);
+            index.putEnd(i * 2, key);
+            index.putStart(i * 3, key, text);
+            index.putEnd(i * 4, key, text);
+        }
+        index.sync();
+        index = BlockIndex.open(file);
+        for (int i = 0; i < count; i++) {
+            PrimaryKey key = PrimaryKey.wrap(i);
+            Text text = Text.wrap(Integer.toString(i));
+            Assert.assertEquals(i, index.getStart(key));
+            Assert.assertEquals(i * 2, index.getEnd(key));
+            Assert.assertEquals(i * 3, index.getStart(key, text));
+            Assert.assertEquals(i * 4, index.getEnd(key, text));
+        }
+        Assert.assertEquals(BlockIndex.NO_ENTRY,
+                index.getStart(PrimaryKey.wrap(count)));
+        Assert.assertEquals(BlockIndex.NO_ENTRY,
+                index.getEnd(PrimaryKey.wrap(count)));
+    }
+
+    @Test
+    public void testGetRangeBeforeAndAfterSync() {
+        int count = TestData.getScaleCount() * 2;
+        BlockIndex index = BlockIndex.create(file, count);
+        Text text = Text.wrap(TestData.getString());
+        for (int i = 0; i < count; i++) {
+            PrimaryKey key = PrimaryKey.wrap(i);
+            index.putStart(i, key, text);
+            index.putEnd(i * 2, key, text);
+        }
+        doTestGetRange(index, text, count);
+        index.sync();
+        doTestGetRange(index, text, count);
+        doTestGetRange(BlockIndex.open(file), text, count);
+    }
+
+    @Test
+    public void testUpgradeLegacyFormat() {
+        int count = TestData.getScaleCount();
+        ByteBuffer bytes = ByteBuffer.allocate(count * (4 + 8 + 8));
+        for (int i = 0; i < count; i++) {
+            Composite composite = Composite.create(PrimaryKey.wrap(i));
+            bytes.putInt(8 + composite.size());
+            bytes.putInt(i);
+            bytes.putInt(i * 2);
+            composite.copyTo(bytes);
+        }
+        bytes.flip();
+        FileSystem.writeBytes(bytes, file);
+        Assert.assertTrue(BlockIndex.isLegacyFormat(file));
+        BlockIndex.upgrade(file);
+        Assert.assertFalse(BlockIndex.isLegacyFormat(file));
+        BlockIndex index = BlockIndex.open(file);
+        for (int i = 0; i < count; i++) {
+            Assert.assertEquals(i, index.getStart(PrimaryKey.wrap(i)));
+            Assert.assertEquals(i * 2, index.getEnd(PrimaryKey.wrap(i)));
+        }
+    }
+
+    /**
+     * Check that {@code index} returns the range for each of the {@code count}
+     * entries that are recorded for {@code text} in
+     * {@link #testGetRangeBeforeAndAfterSync()}.
+     * 
+     * @param index
+     * @param text
+     * @param count
+     */
+    private static void doTestGetRange(BlockIndex index, Text text, int count) {
+        for (int i = 0; i < count; i++) {
+            Assert.assertArrayEquals(new int[] { i, i * 2 },
+                    index.getRange(PrimaryKey.wrap(i), text));
+        }
+        Assert.assertNull(index.getRange(PrimaryKey.wrap(count), text));
+        Assert.assertNull(index.getRange(PrimaryKey.wrap(0)));
+    }
+
 }
@@ -17,6 +17,7 @@ package org.cinchapi.concourse.server.storage.db;
 
 import java.io.File;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 import org.cinchapi.concourse.ConcourseBaseTest;
@@ -32,6 +33,9 @@ import org.junit.Test;
 import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
 
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 
 /**
@@ -140,6 +144,35 @@ public abstract class BlockTest<L extends Byteable & Comparable<L>, K extends By
         Assert.assertEquals(revisions, stored);
     }
 
+    @Test
+    public void testIteratorWithRepeatedComponents() {
+        List<L> locators = Lists.newArrayList();
+        List<K> keys = Lists.newArrayList();
+        List<V> values = Lists.newArrayList();
+        for (int i = 0; i < 5; ++i) {
+            locators.add(getLocator());
+            keys.add(getKey());
+            values.add(getValue());
+        }
+        int count = TestData.getScaleCount();
+        Multiset<String> revisions = HashMultiset.create();
+        for (int i = 0; i < count; ++i) {
+            // Mix components that are repeated with ones that are unique
+            L locator = locators.get(i % locators.size());
+            K key = i % 3 == 0 ? getKey() : keys.get(i % keys.size());
+            V value = i % 2 == 0 ? getValue() : values.get(i % values.size());
+            Action type = i % 4 == 0 ? Action.REMOVE : Action.ADD;
+            revisions.add(block.insert(locator, key, value, Time.now(), type)
+                    .toString());
+        }
+        block.sync();
+        Multiset<String> stored = HashMultiset.create();
+        for (Revision<L, K, V> revision : block) {
+            stored.add(revision.toString());
+        }
+        Assert.assertEquals(revisions, stored);
+    }
+
     @Test
     public final void testEquals() {
         String id = Long.toString(TestData.getLong());
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.util.List;
+
+import org.cinchapi.concourse.server.io.FileSystem;
+import org.cinchapi.concourse.server.storage.temp.Write;
+import org.cinchapi.concourse.util.Convert;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+
+/**
+ * Measure the latency of search queries with different numbers of words
+ * against a {@link Database} that holds several synced blocks of text. The
+ * words in the text are skewed so that some are very common and others are
+ * rare, and each query is a phrase that appears in the text. The database is
+ * restarted before the queries run so that every search seeks the block files
+ * on disk.
+ *
+ * @author Jeff Nelson
+ */
+public class DatabaseSearchBenchmark extends AbstractBenchmark {
+
+    /**
+     * The number of values that are written to each block.
+     */
+    private static final int VALUES_PER_BLOCK = 100;
+
+    /**
+     * The number of blocks that are synced.
+     */
+    private static final int BLOCKS = 5;
+
+    /**
+     * The number of words in each value.
+     */
+    private static final int WORDS_PER_VALUE = 8;
+
+    /**
+     * Every nth word in words.txt is used in the values.
+     */
+    private static final int VOCABULARY_STRIDE = 50;
+
+    /**
+     * The number of queries of each length that are run in each round.
+     */
+    private static final int QUERIES = 10;
+
+    private static final String KEY = "text";
+
+    private static String directory;
+    private static Database db;
+    private static List<List<String>> values = Lists.newArrayList();
+
+    @BeforeClass
+    public static void setUp() {
+        directory = TestData.getTemporaryTestDir();
+        db = new Database(directory);
+        db.start();
+        List<String> vocabulary = Lists.newArrayList();
+        int n = 0;
+        for (String word : TestData.getWordsDotTxt()) {
+            if(n++ % VOCABULARY_STRIDE == 0) {
+                vocabulary.add(word.toLowerCase());
+            }
+        }
+        long record = 0;
+        for (int i = 0; i < BLOCKS; ++i) {
+            for (int j = 0; j < VALUES_PER_BLOCK; ++j) {
+                List<String> words = Lists.newArrayList();
+                for (int k = 0; k < WORDS_PER_VALUE; ++k) {
+                    // Cube a uniform random number in [0, 1) so that the
+                    // words at the front of the vocabulary are very common
+                    double random = Math.abs(TestData.getDouble() % 1);
+                    words.add(vocabulary.get((int) (Math.pow(random, 3) * vocabulary
+                            .size())));
+                }
+                values.add(words);
+                db.accept(Write.add(KEY,
+                        Convert.javaToThrift(Joiner.on(' ').join(words)),
+                        record++));
+            }
+            db.triggerSync();
+        }
+        // Restart so that the blocks are loaded from disk instead of keeping
+        // their revisions in memory
+        db.stop();
+        db = new Database(directory);
+        db.start();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        db.stop();
+        FileSystem.deleteDirectory(directory);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 10, warmupRounds = 2)
+    public void benchmarkOneWordSearch() {
+        search(1);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 10, warmupRounds = 2)
+    public void benchmarkThreeWordSearch() {
+        search(3);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 10, warmupRounds = 2)
+    public void benchmarkSixWordSearch() {
+        search(6);
+    }
+
+    /**
+     * Search for {@link #QUERIES} phrases with {@code length} words that
+     * appear in the values that were written.
+     *
+     * @param length
+     */
+    private static void search(int length) {
+        for (int i = 0; i < QUERIES; ++i) {
+            List<String> words = values.get(Math.abs(TestData.getInt())
+                    % values.size());
+            int start = Math.abs(TestData.getInt())
+                    % (WORDS_PER_VALUE - length + 1);
+            db.search(KEY,
+                    Joiner.on(' ').join(words.subList(start, start + length)));
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.cinchapi.concourse.server.io.FileSystem;
+import org.cinchapi.concourse.server.storage.temp.Write;
+import org.cinchapi.concourse.util.Convert;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Longs;
+
+/**
+ * Measure the latency of reads from the {@link Database} while the current
+ * blocks are being synced to disk. Each round transports a page worth of
+ * writes, syncs in the background and reads continuously until the sync
+ * completes. The latency percentiles across all rounds are printed at the end
+ * since the benchmark framework only reports averages.
+ *
+ * @author Jeff Nelson
+ */
+public class DatabaseSyncBenchmark extends AbstractBenchmark {
+
+    /**
+     * The number of writes that are synced in each round.
+     */
+    private static final int COUNT = 20000;
+
+    /**
+     * The number of distinct records that are read.
+     */
+    private static final int RECORDS = 1000;
+
+    private static String directory;
+    private static Database db;
+    private static List<Long> latencies = Lists.newArrayList();
+
+    @BeforeClass
+    public static void setUp() {
+        directory = TestData.getTemporaryTestDir();
+        db = new Database(directory);
+        db.start();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        db.stop();
+        FileSystem.deleteDirectory(directory);
+        long[] sorted = Longs.toArray(latencies);
+        Arrays.sort(sorted);
+        if(sorted.length > 0) {
+            System.out.println("Read latency during sync (microseconds) for "
+                    + sorted.length + " reads: p50="
+                    + percentile(sorted, 50) + " p99="
+                    + percentile(sorted, 99) + " p99.9="
+                    + percentile(sorted, 99.9) + " max="
+                    + sorted[sorted.length - 1]);
+        }
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 10, warmupRounds = 2)
+    public void benchmarkReadDuringSync() throws InterruptedException {
+        List<Write> writes = Lists.newArrayListWithCapacity(COUNT);
+        for (int i = 0; i < COUNT; ++i) {
+            writes.add(Write.add("count", Convert.javaToThrift(TestData
+                    .getLong()), i % RECORDS));
+        }
+        db.accept(writes);
+        Thread syncer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                db.triggerSync();
+            }
+
+        });
+        syncer.start();
+        int record = 0;
+        while (syncer.isAlive()) {
+            long start = System.nanoTime();
+            db.select("count", record);
+            latencies.add((System.nanoTime() - start) / 1000);
+            record = (record + 1) % RECORDS;
+        }
+        syncer.join();
+    }
+
+    /**
+     * Return the {@code p}th percentile of the {@code sorted} values.
+     *
+     * @param sorted
+     * @param p
+     * @return the percentile
+     */
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+}
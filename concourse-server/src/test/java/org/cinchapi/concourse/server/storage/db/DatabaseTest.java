@@ -17,10 +17,18 @@ package org.cinchapi.concourse.server.storage.db;
 
 import java.io.File;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.cinchapi.concourse.server.GlobalState;
 import org.cinchapi.concourse.server.io.FileSystem;
 import org.cinchapi.concourse.server.model.PrimaryKey;
 import org.cinchapi.concourse.server.model.Text;
@@ -38,6 +46,9 @@ import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
@@ -71,6 +82,74 @@ public class DatabaseTest extends StoreTest {
         Assert.assertEquals(1, ((List<?>) cpb.get(db)).size());
     }
 
+    @Test
+    public void testCompactionMergesBlocksWithoutLosingData() {
+        Database db = (Database) store;
+        String key = TestData.getString();
+        int count = TestData.getScaleCount();
+        for (int i = 0; i < count; ++i) {
+            db.accept(Write.add(key, Convert.javaToThrift("foo bar " + i), i));
+            db.triggerSync();
+        }
+        Assert.assertEquals(count + 1, db.getBlockCount());
+        Assert.assertEquals(count - 1, db.triggerCompaction());
+        Assert.assertEquals(2, db.getBlockCount());
+        Assert.assertEquals(100, db.getCompactionProgress(), 0);
+        for (int i = 0; i < count; ++i) {
+            Assert.assertTrue(db.verify(key,
+                    Convert.javaToThrift("foo bar " + i), i));
+        }
+        Assert.assertEquals(count, db.search(key, "bar").size());
+        db.stop();
+        db = new Database(db.getBackingStore()); // simulate server restart
+        db.start();
+        Assert.assertEquals(2, db.getBlockCount());
+        Assert.assertEquals(count,
+                db.find(key, Operator.REGEX, Convert.javaToThrift("foo.*"))
+                        .size());
+    }
+
+    @Test
+    public void testCompactionMergesBlocksWithoutSearchData() {
+        Database db = (Database) store;
+        String key = TestData.getSimpleString();
+        int count = TestData.getScaleCount();
+        for (int i = 0; i < count; ++i) {
+            db.accept(Write.add(key, Convert.javaToThrift(i), i));
+            db.triggerSync();
+        }
+        Assert.assertEquals(count - 1, db.triggerCompaction());
+        Assert.assertEquals(2, db.getBlockCount());
+        for (int i = 0; i < count; ++i) {
+            Assert.assertEquals(Sets.newHashSet((long) i),
+                    db.find(key, Operator.EQUALS, Convert.javaToThrift(i)));
+        }
+    }
+
+    @Test
+    public void testAcceptBatchAppendsToCachedRecords() {
+        Database db = (Database) store;
+        String key = TestData.getString();
+        long record = TestData.getLong();
+        int count = TestData.getScaleCount();
+        db.accept(Write.add(key, Convert.javaToThrift(-1), record));
+        db.select(record);
+        db.select(key, record);
+        db.find(key, Operator.EQUALS, Convert.javaToThrift(-1));
+        List<Write> writes = Lists.newArrayList();
+        for (int i = 0; i < count; i++) {
+            writes.add(Write.add(key, Convert.javaToThrift(i), record));
+        }
+        db.accept(writes);
+        for (int i = 0; i < count; i++) {
+            TObject value = Convert.javaToThrift(i);
+            Assert.assertTrue(db.select(record).get(key).contains(value));
+            Assert.assertTrue(db.select(key, record).contains(value));
+            Assert.assertTrue(db.find(key, Operator.EQUALS, value).contains(
+                    record));
+        }
+    }
+
     @Test
     public void testDatabaseAppendsToCachedPartialPrimaryRecords() {
         Database db = (Database) store;
@@ -103,6 +182,275 @@ public class DatabaseTest extends StoreTest {
                 (long) count * increase));
     }
 
+    @Test
+    public void testFindEqualsMatchesCaseVariantStrings() {
+        Database db = (Database) store;
+        String key = TestData.getSimpleString();
+        db.accept(Write.add(key, Convert.javaToThrift("FOO"), 1));
+        db.accept(Write.add(key, Convert.javaToThrift("Bar"), 2));
+        Assert.assertEquals(Sets.newHashSet(1L),
+                db.find(key, Operator.EQUALS, Convert.javaToThrift("foo")));
+        Assert.assertEquals(Sets.newHashSet(2L),
+                db.find(key, Operator.EQUALS, Convert.javaToThrift("BAR")));
+        db.triggerSync();
+        Assert.assertEquals(Sets.newHashSet(1L),
+                db.find(key, Operator.EQUALS, Convert.javaToThrift("foo")));
+        Assert.assertEquals(Sets.newHashSet(2L),
+                db.find(key, Operator.EQUALS, Convert.javaToThrift("BAR")));
+    }
+
+    @Test
+    public void testFindEqualsMatchesNumbersOfDifferentTypes() {
+        Database db = (Database) store;
+        String key = TestData.getSimpleString();
+        db.accept(Write.add(key, Convert.javaToThrift(1.0), 1));
+        db.accept(Write.add(key, Convert.javaToThrift(5L), 2));
+        db.accept(Write.add(key, Convert.javaToThrift(7.5f), 3));
+        Assert.assertEquals(Sets.newHashSet(1L),
+                db.find(key, Operator.EQUALS, Convert.javaToThrift(1)));
+        Assert.assertEquals(Sets.newHashSet(2L),
+                db.find(key, Operator.EQUALS, Convert.javaToThrift(5)));
+        Assert.assertEquals(Sets.newHashSet(3L),
+                db.find(key, Operator.EQUALS, Convert.javaToThrift(7.5)));
+        db.triggerSync();
+        Assert.assertEquals(Sets.newHashSet(1L),
+                db.find(key, Operator.EQUALS, Convert.javaToThrift(1)));
+        Assert.assertEquals(Sets.newHashSet(2L),
+                db.find(key, Operator.EQUALS, Convert.javaToThrift(5)));
+        Assert.assertEquals(Sets.newHashSet(3L),
+                db.find(key, Operator.EQUALS, Convert.javaToThrift(7.5)));
+    }
+
+    @Test
+    public void testNegativeZeroSortsBeforeZeroInRangeFinds() {
+        // Negative zero used to be equal to every other zero when compared to
+        // a number of a different type, but it now always sorts immediately
+        // before them (the same way as Double#compare), so range finds treat
+        // it as a number that is less than 0
+        Database db = (Database) store;
+        String key = TestData.getSimpleString();
+        db.accept(Write.add(key, Convert.javaToThrift(-0.0), 1));
+        db.accept(Write.add(key, Convert.javaToThrift(0), 2));
+        db.accept(Write.add(key, Convert.javaToThrift(0.0), 3));
+        for (int i = 0; i < 2; ++i) {
+            Assert.assertEquals(Sets.newHashSet(2L, 3L),
+                    db.find(key, Operator.EQUALS, Convert.javaToThrift(0)));
+            Assert.assertEquals(Sets.newHashSet(1L),
+                    db.find(key, Operator.EQUALS, Convert.javaToThrift(-0.0)));
+            Assert.assertEquals(Sets.newHashSet(1L),
+                    db.find(key, Operator.LESS_THAN, Convert.javaToThrift(0)));
+            Assert.assertEquals(Sets.newHashSet(2L, 3L), db.find(key,
+                    Operator.GREATER_THAN, Convert.javaToThrift(-0.0)));
+            Assert.assertEquals(Sets.newHashSet(1L), db.find(key,
+                    Operator.BETWEEN, Convert.javaToThrift(-0.0),
+                    Convert.javaToThrift(0)));
+            db.triggerSync();
+        }
+    }
+
+    @Test
+    public void testReadsDuringSyncMatchResultsBeforeAndAfter()
+            throws Exception {
+        final Database db = (Database) store;
+        String key = TestData.getSimpleString();
+        String other = key + "_other";
+        int count = TestData.getScaleCount() * 100;
+        for (int i = 0; i < 2; ++i) {
+            // Give compaction some immutable blocks to merge during the sync
+            db.accept(Write.add(TestData.getSimpleString(),
+                    TestData.getTObject(), TestData.getLong()));
+            db.triggerSync();
+        }
+        List<Write> writes = Lists.newArrayList();
+        for (int i = 0; i < count; ++i) {
+            writes.add(Write.add(key, Convert.javaToThrift(i % 100), i));
+            writes.add(Write.add(other, Convert.javaToThrift("foo bar " + i),
+                    i));
+        }
+        db.accept(writes);
+        doTestReads(db, key, other, count, 0);
+        Thread syncer = new Thread() {
+
+            @Override
+            public void run() {
+                db.triggerSync();
+            }
+
+        };
+        syncer.start();
+        // Each read uses a different record or value so that it isn't
+        // answered from a cached record. Compaction must leave the block
+        // that is being synced alone.
+        int reads = 0;
+        while (syncer.isAlive()) {
+            doTestReads(db, key, other, count, ++reads);
+            if(reads == 1) {
+                db.triggerCompaction();
+            }
+        }
+        syncer.join();
+        for (int i = 0; i < 100; ++i) {
+            doTestReads(db, key, other, count, ++reads);
+        }
+    }
+
+    @Test
+    public void testConcurrentCacheMissesAreCoalesced() throws Exception {
+        final Database db = (Database) store;
+        final long record = TestData.getLong();
+        for (int i = 0; i < TestData.getScaleCount(); ++i) {
+            db.accept(Write.add(TestData.getSimpleString(),
+                    TestData.getTObject(), record));
+        }
+        db.triggerSync();
+        int threads = 8;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> readers = Lists.newArrayList();
+        for (int i = 0; i < threads; ++i) {
+            Thread reader = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        db.select(record);
+                    }
+                    catch (InterruptedException e) {
+                        throw Throwables.propagate(e);
+                    }
+                }
+
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        start.countDown();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        String stats = db.getRecordCacheStats().get(0);
+        Matcher matcher = Pattern.compile(
+                "cpc: (\\d+) hits, (\\d+) misses, (\\d+) coalesced").matcher(
+                stats);
+        Assert.assertTrue(stats, matcher.matches());
+        Assert.assertEquals(stats, 1, Integer.parseInt(matcher.group(2)));
+        Assert.assertEquals(stats, threads - 1,
+                Integer.parseInt(matcher.group(1))
+                        + Integer.parseInt(matcher.group(3)));
+    }
+
+    @Test
+    public void testAsyncSearchIndexingIncludesUnindexedWrites()
+            throws InterruptedException {
+        String directory = TestData.DATA_DIR + File.separator + Time.now();
+        Database db = startAsyncSearchIndexingDatabase(directory);
+        try {
+            String key = TestData.getSimpleString();
+            int count = TestData.getScaleCount();
+            for (int i = 0; i < count; ++i) {
+                db.accept(Write.add(key, Convert.javaToThrift("foo bar " + i),
+                        i));
+                if(i % 10 == 0) {
+                    db.triggerSync();
+                }
+                Assert.assertEquals(i + 1, db.search(key, "bar").size());
+            }
+            while (db.getUnindexedWriteCount() > 0) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(count, db.search(key, "bar").size());
+        }
+        finally {
+            db.stop();
+            FileSystem.deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testSearchDuringAsyncSearchIndexingBacklog() throws Exception {
+        String directory = TestData.DATA_DIR + File.separator + Time.now();
+        final Database db = startAsyncSearchIndexingDatabase(directory);
+        try {
+            final String key = TestData.getSimpleString();
+            final int count = TestData.getScaleCount() * 50;
+            List<Write> writes = Lists.newArrayList();
+            for (int i = 0; i < count; ++i) {
+                writes.add(Write.add(key, Convert.javaToThrift("foo bar " + i),
+                        i));
+                writes.add(Write.add(TestData.getSimpleString(),
+                        Convert.javaToThrift("foo bar " + i), i));
+            }
+            db.accept(writes);
+            final AtomicBoolean done = new AtomicBoolean(false);
+            final AtomicInteger searches = new AtomicInteger(0);
+            final AtomicBoolean succeeded = new AtomicBoolean(true);
+            List<Thread> searchers = Lists.newArrayList();
+            for (int i = 0; i < 4; ++i) {
+                Thread searcher = new Thread() {
+
+                    @Override
+                    public void run() {
+                        while (!done.get()) {
+                            if(db.search(key, "bar").size() != count) {
+                                succeeded.set(false);
+                            }
+                            searches.incrementAndGet();
+                        }
+                    }
+
+                };
+                searcher.start();
+                searchers.add(searcher);
+            }
+            long deadline = System.currentTimeMillis() + 60000;
+            while (db.getUnindexedWriteCount() > 0
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            done.set(true);
+            for (Thread searcher : searchers) {
+                searcher.join();
+            }
+            Assert.assertEquals(0, db.getUnindexedWriteCount());
+            Assert.assertTrue(searches.get() > 0);
+            Assert.assertTrue(succeeded.get());
+            Assert.assertEquals(count, db.search(key, "bar").size());
+        }
+        finally {
+            db.stop();
+            FileSystem.deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testAsyncSearchIndexingRebuildsSearchBlocksOnStartup() {
+        String directory = TestData.DATA_DIR + File.separator + Time.now();
+        Database db = startAsyncSearchIndexingDatabase(directory);
+        try {
+            String key = TestData.getSimpleString();
+            int count = TestData.getScaleCount();
+            for (int i = 0; i < count; ++i) {
+                db.accept(Write.add(key, Convert.javaToThrift("foo bar " + i),
+                        i));
+                db.triggerSync();
+            }
+            db.stop();
+            // simulate a crash before any of the search blocks were synced
+            FileSystem.deleteDirectory(directory + File.separator + "ctb");
+            FileSystem.mkdirs(directory + File.separator + "ctb");
+            String watermark = directory + File.separator + "search.watermark";
+            FileSystem.deleteFile(watermark);
+            FileSystem.writeBytes(ByteBuffer.wrap("0".getBytes()), watermark);
+            db = startAsyncSearchIndexingDatabase(directory);
+            Assert.assertEquals(0, db.getUnindexedWriteCount());
+            Assert.assertEquals(count, db.search(key, "bar").size());
+        }
+        finally {
+            db.stop();
+            FileSystem.deleteDirectory(directory);
+        }
+    }
+
     @Test
     @Ignore
     public void testOnDiskStreamingIterator() {
@@ -137,6 +485,62 @@ public class DatabaseTest extends StoreTest {
         }
     }
 
+    /**
+     * Check the results of a select and finds for the data that is written in
+     * {@link #testReadsDuringSyncMatchResultsBeforeAndAfter()}, using
+     * {@code seed} to pick the record and values that are read.
+     * 
+     * @param db
+     * @param key
+     * @param other
+     * @param count
+     * @param seed
+     */
+    private static void doTestReads(Database db, String key, String other,
+            int count, int seed) {
+        long record = (seed * 31L) % count;
+        Map<String, Set<TObject>> expected = Maps.newHashMap();
+        expected.put(key,
+                Sets.newHashSet(Convert.javaToThrift((int) (record % 100))));
+        expected.put(other,
+                Sets.newHashSet(Convert.javaToThrift("foo bar " + record)));
+        Assert.assertEquals(expected, db.select(record));
+        int value = seed % 99;
+        Set<Long> equal = Sets.newHashSet();
+        Set<Long> between = Sets.newHashSet();
+        for (long i = value; i < count; i += 100) {
+            equal.add(i);
+            between.add(i);
+            if(i + 1 < count) {
+                between.add(i + 1);
+            }
+        }
+        Assert.assertEquals(equal,
+                db.find(key, Operator.EQUALS, Convert.javaToThrift(value)));
+        Assert.assertEquals(between, db.find(key, Operator.BETWEEN,
+                Convert.javaToThrift(value), Convert.javaToThrift(value + 2)));
+    }
+
+    /**
+     * Start and return a Database in {@code directory} that indexes writes for
+     * search asynchronously.
+     * 
+     * @param directory
+     * @return the Database
+     */
+    private static Database startAsyncSearchIndexingDatabase(String directory) {
+        boolean enabled = GlobalState.ENABLE_ASYNC_SEARCH_INDEXING;
+        GlobalState.ENABLE_ASYNC_SEARCH_INDEXING = true;
+        try {
+            Database db = new Database(directory);
+            db.start();
+            return db;
+        }
+        finally {
+            GlobalState.ENABLE_ASYNC_SEARCH_INDEXING = enabled;
+        }
+    }
+
     @Override
     protected void add(String key, TObject value, long record) {
         if(!store.verify(key, value, record)) {
@@ -146,6 +550,7 @@ public class DatabaseTest extends StoreTest {
 
     @Override
     protected void cleanup(Store store) {
+        store.stop();
         FileSystem.deleteDirectory(current);
     }
 
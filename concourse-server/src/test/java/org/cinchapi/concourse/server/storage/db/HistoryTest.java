@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.cinchapi.concourse.server.storage.Action;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Unit tests for {@link History}.
+ *
+ * @author Jeff Nelson
+ */
+public class HistoryTest {
+
+    @Test
+    public void testGetBeforeFirstRevisionIsEmpty() {
+        History<Integer> history = new History<Integer>();
+        history.add(1, 10, Action.ADD);
+        Assert.assertTrue(history.get(9).isEmpty());
+    }
+
+    @Test
+    public void testGetMatchesReplayAcrossCheckpoints() {
+        History<Integer> history = new History<Integer>();
+        List<CompactRevision<Integer>> revisions = Lists.newArrayList();
+        Set<Integer> state = Sets.newHashSet();
+        int count = History.CHECKPOINT_INTERVAL * 10
+                + Math.abs(TestData.getInt() % History.CHECKPOINT_INTERVAL);
+        for (int i = 0; i < count; ++i) {
+            int value = Math.abs(TestData.getInt() % 100);
+            Action type = state.contains(value) ? Action.REMOVE : Action.ADD;
+            if(type == Action.ADD) {
+                state.add(value);
+            }
+            else {
+                state.remove(value);
+            }
+            long version = i * 2;
+            history.add(value, version, type);
+            revisions.add(new CompactRevision<Integer>(value, version, type));
+        }
+        for (long timestamp = -1; timestamp <= count * 2; ++timestamp) {
+            Assert.assertEquals(replay(revisions, timestamp),
+                    history.get(timestamp));
+        }
+    }
+
+    @Test
+    public void testGetWhenRevisionsAreNotSorted() {
+        History<Integer> history = new History<Integer>();
+        history.add(1, 10, Action.ADD);
+        history.add(2, 5, Action.ADD);
+        history.add(1, 20, Action.REMOVE);
+        Assert.assertEquals(Sets.newHashSet(2), history.get(7));
+        Assert.assertEquals(Sets.newHashSet(1, 2), history.get(15));
+        Assert.assertEquals(Sets.newHashSet(2), history.get(25));
+    }
+
+    @Test
+    public void testIteratorReturnsRevisionsInOrder() {
+        History<Integer> history = new History<Integer>();
+        int count = History.CHECKPOINT_INTERVAL * 2;
+        for (int i = 0; i < count; ++i) {
+            history.add(i, i, Action.ADD);
+        }
+        Iterator<CompactRevision<Integer>> it = history.iterator();
+        for (int i = 0; i < count; ++i) {
+            CompactRevision<Integer> revision = it.next();
+            Assert.assertEquals(i, (int) revision.getValue());
+            Assert.assertEquals(i, revision.getVersion());
+            Assert.assertEquals(Action.ADD, revision.getType());
+        }
+        Assert.assertFalse(it.hasNext());
+        Assert.assertEquals(count, history.size());
+    }
+
+    /**
+     * Return the state after replaying all the {@code revisions} that occurred
+     * at or before {@code timestamp}.
+     *
+     * @param revisions
+     * @param timestamp
+     * @return the state
+     */
+    private static Set<Integer> replay(
+            List<CompactRevision<Integer>> revisions, long timestamp) {
+        Set<Integer> state = Sets.newHashSet();
+        for (CompactRevision<Integer> revision : revisions) {
+            if(revision.getVersion() <= timestamp) {
+                if(revision.getType() == Action.ADD) {
+                    state.add(revision.getValue());
+                }
+                else {
+                    state.remove(revision.getValue());
+                }
+            }
+        }
+        return state;
+    }
+
+}
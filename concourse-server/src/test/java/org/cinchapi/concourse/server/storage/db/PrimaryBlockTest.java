@@ -15,6 +15,12 @@
  */
 package org.cinchapi.concourse.server.storage.db;
 
+import java.io.File;
+import java.util.Map;
+import java.util.Set;
+
+import org.cinchapi.concourse.server.GlobalState;
+import org.cinchapi.concourse.server.io.FileSystem;
 import org.cinchapi.concourse.server.model.PrimaryKey;
 import org.cinchapi.concourse.server.model.Text;
 import org.cinchapi.concourse.server.model.Value;
@@ -27,6 +33,10 @@ import org.cinchapi.concourse.util.TestData;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
 /**
  * 
  * 
@@ -46,6 +56,134 @@ public class PrimaryBlockTest extends BlockTest<PrimaryKey, Text, Value> {
         Assert.assertTrue(record.get(key).contains(value));
     }
 
+    @Test
+    public void testFilterIsSizedForSyncedData() {
+        PrimaryKey locator = PrimaryKey.wrap(1);
+        Text key = Text.wrap("name");
+        Value value = Value.wrap(Convert.javaToThrift("jeff"));
+        block.insert(locator, key, value, Time.now(), Action.ADD);
+        block.insert(locator, key, value, Time.now(), Action.REMOVE);
+        block.insert(locator, key, value, Time.now(), Action.ADD);
+        long before = block.getFilterSize();
+        block.sync();
+        Assert.assertTrue(block.getFilterSize() < before);
+        Assert.assertTrue(block.mightContain(locator, key, value));
+        Record<PrimaryKey, Text, Value> record = Record
+                .createPrimaryRecordPartial(locator, key);
+        block.seek(locator, key, record);
+        Assert.assertTrue(record.get(key).contains(value));
+    }
+
+    @Test
+    public void testStatsOnlyRecordVersions() {
+        Text key = Text.wrap("name");
+        int count = TestData.getScaleCount();
+        long start = Time.now();
+        for (int i = 0; i < count; ++i) {
+            block.insert(PrimaryKey.wrap(i), key,
+                    Value.wrap(Convert.javaToThrift(i)), Time.now(),
+                    Action.ADD);
+        }
+        long end = Time.now();
+        block.sync();
+        String stats = directory + File.separator + block.getId()
+                + Block.STATS_NAME_EXTENSION;
+        // min version, max version, count and two empty class names
+        Assert.assertEquals(8 + 8 + 4 + 4 + 4, FileSystem.getFileSize(stats));
+        PrimaryBlock loaded = new PrimaryBlock(block.getId(), directory, true);
+        Assert.assertFalse(loaded.mightContainVersionAtOrBefore(start - 1));
+        Assert.assertTrue(loaded.mightContainVersionAtOrBefore(end));
+    }
+
+    @Test
+    public void testSeekAcrossCompressedChunks() {
+        boolean original = GlobalState.ENABLE_BLOCK_COMPRESSION;
+        GlobalState.ENABLE_BLOCK_COMPRESSION = true;
+        try {
+            doTestSeekAfterReload();
+        }
+        finally {
+            GlobalState.ENABLE_BLOCK_COMPRESSION = original;
+        }
+    }
+
+    @Test
+    public void testSeekInUncompressedBlock() {
+        boolean original = GlobalState.ENABLE_BLOCK_COMPRESSION;
+        GlobalState.ENABLE_BLOCK_COMPRESSION = false;
+        try {
+            doTestSeekAfterReload();
+        }
+        finally {
+            GlobalState.ENABLE_BLOCK_COMPRESSION = original;
+        }
+    }
+
+    @Test
+    public void testSyncRevisionLargerThanWriteBuffer() {
+        boolean original = GlobalState.ENABLE_BLOCK_COMPRESSION;
+        GlobalState.ENABLE_BLOCK_COMPRESSION = false;
+        try {
+            PrimaryKey locator = PrimaryKey.wrap(1);
+            Text key = Text.wrap("key");
+            Value value = Value.wrap(Convert.javaToThrift(Strings.repeat(
+                    "concourse", 20000)));
+            block.insert(locator, key, value, Time.now(), Action.ADD);
+            block.insert(PrimaryKey.wrap(2), key, value, Time.now(),
+                    Action.ADD);
+            block.sync();
+            PrimaryBlock loaded = new PrimaryBlock(block.getId(), directory,
+                    true);
+            Record<PrimaryKey, Text, Value> record = Record
+                    .createPrimaryRecordPartial(locator, key);
+            loaded.seek(locator, key, record);
+            Assert.assertEquals(Sets.newHashSet(value), record.get(key));
+        }
+        finally {
+            GlobalState.ENABLE_BLOCK_COMPRESSION = original;
+        }
+    }
+
+    /**
+     * Insert enough data into the {@link #block} to span many chunks, sync it
+     * and verify that seeking for each locator and locator/key in a copy that
+     * is loaded from disk returns exactly the data that was inserted.
+     */
+    private void doTestSeekAfterReload() {
+        Map<PrimaryKey, Map<Text, Set<Value>>> expected = Maps.newHashMap();
+        for (int i = 0; i < 50; ++i) {
+            PrimaryKey locator = PrimaryKey.wrap(i);
+            Map<Text, Set<Value>> data = Maps.newHashMap();
+            for (int j = 0; j < 20; ++j) {
+                Text key = Text.wrap("key" + j);
+                Set<Value> values = Sets.newHashSet();
+                for (int k = 0; k < 5; ++k) {
+                    Value value = Value.wrap(Convert.javaToThrift("value " + i
+                            + " " + j + " " + k));
+                    block.insert(locator, key, value, Time.now(), Action.ADD);
+                    values.add(value);
+                }
+                data.put(key, values);
+            }
+            expected.put(locator, data);
+        }
+        block.sync();
+        PrimaryBlock loaded = new PrimaryBlock(block.getId(), directory, true);
+        Assert.assertEquals(block.size(), loaded.size());
+        for (PrimaryKey locator : expected.keySet()) {
+            PrimaryRecord record = Record.createPrimaryRecord(locator);
+            loaded.seek(locator, record);
+            Assert.assertEquals(expected.get(locator), record.browse());
+            for (Text key : expected.get(locator).keySet()) {
+                Record<PrimaryKey, Text, Value> partial = Record
+                        .createPrimaryRecordPartial(locator, key);
+                loaded.seek(locator, key, partial);
+                Assert.assertEquals(expected.get(locator).get(key),
+                        partial.get(key));
+            }
+        }
+    }
+
     @Override
     protected PrimaryKey getLocator() {
         return TestData.getPrimaryKey();
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.util.Collection;
+import java.util.Comparator;
+
+import org.cinchapi.concourse.server.model.PrimaryKey;
+import org.cinchapi.concourse.server.model.Text;
+import org.cinchapi.concourse.server.model.Value;
+import org.cinchapi.concourse.server.storage.Action;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.TreeMultiset;
+
+/**
+ * Measure the cost of transporting revisions into the backing store of a
+ * mutable {@link Block} and reading them back in sorted order (e.g. when the
+ * Block is synced) using a {@link RevisionBuffer} compared to a
+ * {@link TreeMultiset} that sorts on insert.
+ *
+ * @author Jeff Nelson
+ */
+public class RevisionBufferBenchmark extends AbstractBenchmark {
+
+    /**
+     * The number of revisions that are transported in each round.
+     */
+    private static final int COUNT = 100000;
+
+    private static SecondaryRevision[] revisions;
+
+    /**
+     * The same sort order that a Block uses.
+     */
+    private static final Comparator<SecondaryRevision> SORTER = new Comparator<SecondaryRevision>() {
+
+        @Override
+        public int compare(SecondaryRevision o1, SecondaryRevision o2) {
+            return ComparisonChain.start()
+                    .compare(o1.getLocator(), o2.getLocator())
+                    .compare(o1.getKey(), o2.getKey())
+                    .compare(o1.getVersion(), o2.getVersion())
+                    .compare(o1.getValue(), o2.getValue()).result();
+        }
+
+    };
+
+    @BeforeClass
+    public static void setUp() {
+        revisions = new SecondaryRevision[COUNT];
+        Text[] keys = { Text.wrap("name"), Text.wrap("age"),
+                Text.wrap("email"), Text.wrap("city") };
+        for (int i = 0; i < COUNT; ++i) {
+            revisions[i] = Revision.createSecondaryRevision(keys[i
+                    % keys.length], Value.wrap(TestData.getTObject()),
+                    PrimaryKey.wrap(i), i, i % 2 == 0 ? Action.ADD
+                            : Action.REMOVE);
+        }
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 20, warmupRounds = 5)
+    public void benchmarkRevisionBuffer() {
+        transport(RevisionBuffer.create(SORTER));
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 20, warmupRounds = 5)
+    public void benchmarkTreeMultiset() {
+        transport(TreeMultiset.create(SORTER));
+    }
+
+    /**
+     * Add all the {@link #revisions} to {@code store} and iterate through them.
+     *
+     * @param store
+     */
+    private static void transport(Collection<SecondaryRevision> store) {
+        for (SecondaryRevision revision : revisions) {
+            store.add(revision);
+        }
+        for (SecondaryRevision revision : store) {
+            revision.getVersion();
+        }
+    }
+
+}
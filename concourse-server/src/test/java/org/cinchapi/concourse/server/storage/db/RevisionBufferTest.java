@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.cinchapi.concourse.ConcourseBaseTest;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+
+/**
+ * Unit tests for {@link RevisionBuffer}.
+ *
+ * @author Jeff Nelson
+ */
+public class RevisionBufferTest extends ConcourseBaseTest {
+
+    @Test
+    public void testIteratesInSortedOrder() {
+        RevisionBuffer<Integer> buffer = RevisionBuffer.create(Ordering
+                .<Integer> natural());
+        List<Integer> expected = Lists.newArrayList();
+        for (int i = 0; i < 50000; ++i) {
+            int element = TestData.getInt() % 1000;
+            buffer.add(element);
+            expected.add(element);
+        }
+        Collections.sort(expected);
+        Assert.assertEquals(expected, Lists.newArrayList(buffer));
+    }
+
+    @Test
+    public void testIteratesInSortedOrderWhenReadsAreInterleaved() {
+        RevisionBuffer<Integer> buffer = RevisionBuffer.create(Ordering
+                .<Integer> natural());
+        List<Integer> expected = Lists.newArrayList();
+        for (int i = 0; i < 20000; ++i) {
+            int element = TestData.getInt() % 1000;
+            buffer.add(element);
+            expected.add(element);
+            if(i % 97 == 0) {
+                Collections.sort(expected);
+                Assert.assertEquals(expected, Lists.newArrayList(buffer));
+                Assert.assertEquals(expected.size(), buffer.size());
+            }
+        }
+        Collections.sort(expected);
+        Assert.assertEquals(expected, Lists.newArrayList(buffer));
+    }
+
+    @Test
+    public void testIteratorIsNotAffectedByLaterAdds() {
+        RevisionBuffer<Integer> buffer = RevisionBuffer.create(Ordering
+                .<Integer> natural());
+        buffer.add(3);
+        buffer.add(1);
+        Iterator<Integer> it = buffer.iterator();
+        buffer.add(2);
+        Assert.assertEquals(Lists.newArrayList(1, 3), Lists.newArrayList(it));
+        Assert.assertEquals(Lists.newArrayList(1, 2, 3),
+                Lists.newArrayList(buffer));
+    }
+
+    @Test
+    public void testConcurrentAdds() throws InterruptedException {
+        final RevisionBuffer<Integer> buffer = RevisionBuffer.create(Ordering
+                .<Integer> natural());
+        final int threads = 4;
+        final int count = 10000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; ++i) {
+            final int offset = i;
+            new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int j = 0; j < count; ++j) {
+                        buffer.add(j * threads + offset);
+                    }
+                    latch.countDown();
+                }
+
+            }).start();
+        }
+        latch.await();
+        List<Integer> actual = Lists.newArrayList(buffer);
+        Assert.assertEquals(threads * count, actual.size());
+        for (int i = 0; i < actual.size(); ++i) {
+            Assert.assertEquals(i, (int) actual.get(i));
+        }
+    }
+
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+
+import org.cinchapi.concourse.server.io.ByteableCollections;
+import org.cinchapi.concourse.server.io.ByteableCollections.PrefixEncoder;
+import org.cinchapi.concourse.server.model.PrimaryKey;
+import org.cinchapi.concourse.server.model.Text;
+import org.cinchapi.concourse.server.model.Value;
+import org.cinchapi.concourse.server.storage.Action;
+import org.cinchapi.concourse.time.Time;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for the {@link RevisionCursor} that read revisions in each of
+ * the formats that are used in a block file.
+ *
+ * @author Jeff Nelson
+ */
+public class RevisionCursorTest {
+
+    /**
+     * The revisions that are read in each test. Each locator and key is shared
+     * by several revisions (so they are in the {@link BlockDictionary}) and
+     * each value is unique (so it is stored as a literal).
+     */
+    private List<Revision<PrimaryKey, Text, Value>> revisions;
+
+    @Before
+    public void setUp() {
+        revisions = Lists.newArrayList();
+        int count = TestData.getScaleCount();
+        for (int i = 0; i < count; ++i) {
+            PrimaryKey locator = PrimaryKey.wrap(i / 10);
+            Text key = Text.wrap("key" + (i % 3));
+            Value value = Value.wrap(TestData.getTObject());
+            Action type = i % 4 == 3 ? Action.REMOVE : Action.ADD;
+            revisions.add(Revision.createPrimaryRevision(locator, key, value,
+                    Time.now(), type));
+        }
+    }
+
+    @Test
+    public void testReadUncompressedRevisions() {
+        ByteBuffer bytes = ByteableCollections.toByteBuffer(revisions);
+        doTestReadRevisions(ByteableCollections.iterator(bytes),
+                newCursor(null));
+    }
+
+    @Test
+    public void testReadCompressedRevisions() {
+        ByteBuffer chunk = ByteableCollections
+                .toCompressedChunk(ByteableCollections.toByteBuffer(revisions));
+        doTestReadRevisions(ByteableCollections.compressedIterator(chunk),
+                newCursor(null));
+    }
+
+    @Test
+    public void testReadUncompressedRevisionsInAnyOrder() {
+        RevisionCursor<PrimaryKey, Text, Value> cursor = newCursor(null);
+        Iterator<ByteBuffer> it = ByteableCollections
+                .iterator(ByteableCollections.toByteBuffer(revisions));
+        for (Revision<PrimaryKey, Text, Value> expected : revisions) {
+            // The components are read in place, so requesting a later one
+            // first must not depend on reading the ones before it
+            cursor.reset(it.next());
+            Assert.assertEquals(expected.getValue(), cursor.getValue());
+            Assert.assertEquals(expected.getKey(), cursor.getKey());
+            Assert.assertEquals(expected.getLocator(), cursor.getLocator());
+            Assert.assertEquals(expected.getVersion(), cursor.getVersion());
+            Assert.assertEquals(expected.getType(), cursor.getType());
+        }
+    }
+
+    @Test
+    public void testReadUncompressedSecondaryRevisions() {
+        List<Revision<Text, Value, PrimaryKey>> secondary = Lists
+                .newArrayList();
+        for (Revision<PrimaryKey, Text, Value> revision : revisions) {
+            secondary.add(Revision.createSecondaryRevision(revision.getKey(),
+                    revision.getValue(), revision.getLocator(),
+                    revision.getVersion(), revision.getType()));
+        }
+        RevisionCursor<Text, Value, PrimaryKey> cursor = new RevisionCursor<Text, Value, PrimaryKey>(
+                null, SecondaryRevision.class);
+        Iterator<ByteBuffer> it = ByteableCollections
+                .iterator(ByteableCollections.toByteBuffer(secondary));
+        for (Revision<Text, Value, PrimaryKey> expected : secondary) {
+            cursor.reset(it.next());
+            Assert.assertEquals(expected.getLocator(), cursor.getLocator());
+            Assert.assertEquals(expected.getKey(), cursor.getKey());
+            Assert.assertEquals(expected.getValue(), cursor.getValue());
+            Assert.assertEquals(expected.getVersion(), cursor.getVersion());
+            Assert.assertEquals(expected.getType(), cursor.getType());
+        }
+        Assert.assertFalse(it.hasNext());
+    }
+
+    @Test
+    public void testReadDictionaryEncodedRevisions() {
+        BlockDictionary<PrimaryKey, Text, Value> dictionary = BlockDictionary
+                .create(revisions);
+        // Load the dictionary from its bytes, the same way it is read from a
+        // block file
+        dictionary = BlockDictionary.load(dictionary.getBytes());
+        doTestReadRevisions(getEncodedRevisions(dictionary),
+                newCursor(dictionary));
+    }
+
+    @Test
+    public void testReadDictionaryEncodedRevisionsInAnyOrder() {
+        BlockDictionary<PrimaryKey, Text, Value> dictionary = BlockDictionary
+                .create(revisions);
+        RevisionCursor<PrimaryKey, Text, Value> cursor = newCursor(dictionary);
+        Iterator<ByteBuffer> it = getEncodedRevisions(dictionary);
+        for (Revision<PrimaryKey, Text, Value> expected : revisions) {
+            // Requesting a later component first must still read the ones
+            // before it from the bytes
+            cursor.reset(it.next());
+            Assert.assertEquals(expected.getValue(), cursor.getValue());
+            Assert.assertEquals(expected.getKey(), cursor.getKey());
+            Assert.assertEquals(expected.getLocator(), cursor.getLocator());
+            Assert.assertEquals(expected.getVersion(), cursor.getVersion());
+            Assert.assertEquals(expected.getType(), cursor.getType());
+        }
+    }
+
+    @Test
+    public void testCursorIsReusedAcrossRevisionsAndBytes() {
+        BlockDictionary<PrimaryKey, Text, Value> dictionary = BlockDictionary
+                .create(revisions);
+        RevisionCursor<PrimaryKey, Text, Value> cursor = newCursor(dictionary);
+        Iterator<ByteBuffer> it = getEncodedRevisions(dictionary);
+        for (int i = 0; i < revisions.size(); ++i) {
+            // Alternate between positioning the cursor over a Revision and
+            // over encoded bytes so that no component of the previous
+            // revision can leak into the next one
+            Revision<PrimaryKey, Text, Value> other = revisions.get(revisions
+                    .size() - 1 - i);
+            Assert.assertSame(cursor, cursor.reset(other));
+            assertMatches(other, cursor);
+            Assert.assertSame(cursor, cursor.reset(it.next()));
+            assertMatches(revisions.get(i), cursor);
+        }
+    }
+
+    /**
+     * Assert that {@code cursor} describes the same revision as
+     * {@code expected}, including the version and type, which are not
+     * considered by {@link Revision#equals(Object)}.
+     *
+     * @param expected
+     * @param cursor
+     */
+    private static void assertMatches(
+            Revision<PrimaryKey, Text, Value> expected,
+            RevisionCursor<PrimaryKey, Text, Value> cursor) {
+        Assert.assertEquals(expected.getLocator(), cursor.getLocator());
+        Assert.assertEquals(expected.getKey(), cursor.getKey());
+        Assert.assertEquals(expected.getValue(), cursor.getValue());
+        Assert.assertEquals(expected.getVersion(), cursor.getVersion());
+        Assert.assertEquals(expected.getType(), cursor.getType());
+        Assert.assertEquals(expected.getBytes(), Revision
+                .createPrimaryRevision(cursor.getLocator(), cursor.getKey(),
+                        cursor.getValue(), cursor.getVersion(),
+                        cursor.getType()).getBytes());
+    }
+
+    /**
+     * Read each of the revisions with {@code cursor}, which is reset for each
+     * of the bytes that are returned from {@code it}, and check that they
+     * match the {@link #revisions}.
+     *
+     * @param it
+     * @param cursor
+     */
+    private void doTestReadRevisions(Iterator<ByteBuffer> it,
+            RevisionCursor<PrimaryKey, Text, Value> cursor) {
+        for (Revision<PrimaryKey, Text, Value> expected : revisions) {
+            Assert.assertTrue(it.hasNext());
+            Assert.assertSame(cursor, cursor.reset(it.next()));
+            assertMatches(expected, cursor);
+            // The components are cached, so reading them again must not
+            // consume any more bytes
+            assertMatches(expected, cursor);
+        }
+        Assert.assertFalse(it.hasNext());
+    }
+
+    /**
+     * Return an iterator over the bytes of each of the {@link #revisions} after
+     * they are encoded by {@code dictionary}, prefix encoded and compressed in
+     * a single chunk, the same way that they are written to a block file.
+     *
+     * @param dictionary
+     * @return the iterator
+     */
+    private Iterator<ByteBuffer> getEncodedRevisions(
+            BlockDictionary<PrimaryKey, Text, Value> dictionary) {
+        PrefixEncoder encoder = new PrefixEncoder();
+        List<ByteBuffer> encoded = Lists.newArrayList();
+        int size = 0;
+        for (Revision<PrimaryKey, Text, Value> revision : revisions) {
+            ByteBuffer bytes = ByteBuffer.allocate(dictionary
+                    .getMaxEncodedSize(revision));
+            dictionary.encode(revision, bytes);
+            bytes.flip();
+            encoded.add(bytes);
+            size += PrefixEncoder.getMaxEncodedSize(bytes.remaining());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (ByteBuffer bytes : encoded) {
+            encoder.encode(bytes, buffer);
+        }
+        buffer.flip();
+        return ByteableCollections.compressedIterator(
+                ByteableCollections.toCompressedChunk(buffer), true);
+    }
+
+    /**
+     * Return a new cursor that reads revisions with {@code dictionary}. If
+     * the {@code dictionary} is {@code null}, the cursor reads each revision
+     * in full.
+     *
+     * @param dictionary
+     * @return the cursor
+     */
+    private static RevisionCursor<PrimaryKey, Text, Value> newCursor(
+            BlockDictionary<PrimaryKey, Text, Value> dictionary) {
+        return new RevisionCursor<PrimaryKey, Text, Value>(dictionary,
+                PrimaryRevision.class);
+    }
+
+}
@@ -16,7 +16,9 @@
 package org.cinchapi.concourse.server.storage.db;
 
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
 
+import org.cinchapi.concourse.server.io.ByteableCodecs;
 import org.cinchapi.concourse.server.io.Byteables;
 import org.cinchapi.concourse.server.storage.Action;
 import org.cinchapi.concourse.server.storage.db.Revision;
@@ -50,6 +52,22 @@ public class RevisionTest {
                 revision.getClass()).equals(revision));
     }
 
+    @Test
+    @Theory
+    public void testCodecMatchesReflection(Revision<?, ?, ?> revision)
+            throws Exception {
+        Constructor<?> constructor = revision.getClass()
+                .getDeclaredConstructor(ByteBuffer.class);
+        constructor.setAccessible(true);
+        Revision<?, ?, ?> expected = (Revision<?, ?, ?>) constructor
+                .newInstance(revision.getBytes());
+        Revision<?, ?, ?> actual = ByteableCodecs.get(revision.getClass())
+                .decode(revision.getBytes());
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(expected.getVersion(), actual.getVersion());
+        Assert.assertEquals(expected.getType(), actual.getType());
+    }
+
     @Test
     @Theory
     public void testEquals(Revision<?, ?, ?> revision) {
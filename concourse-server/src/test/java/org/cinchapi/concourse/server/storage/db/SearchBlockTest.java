@@ -70,6 +70,23 @@ public class SearchBlockTest extends BlockTest<Text, Text, Position> {
                 Action.ADD);
     }
 
+    @Test
+    public void testFilterIsNotOverfilledAfterSync() {
+        Text key = Variables.register("key", TestData.getText());
+        String string = "";
+        for (int i = 0; i < 100; ++i) {
+            string += TestData.getString() + " ";
+        }
+        Value value = Variables.register("value",
+                Value.wrap(Convert.javaToThrift(string)));
+        ((SearchBlock) block).insert(key, value, getRecord(), Time.now(),
+                Action.ADD);
+        block.sync();
+        double fpp = block.getFilterFalsePositiveProbability();
+        Assert.assertTrue(fpp < 2
+                * GlobalState.BLOOM_FILTER_FALSE_POSITIVE_PROBABILITY);
+    }
+
     private Value getStringValue() {
         return Value.wrap(Convert.javaToThrift(TestData.getString()));
     }
@@ -256,6 +273,13 @@ public class SearchBlockTest extends BlockTest<Text, Text, Position> {
      // Direct insert for SearchBlock is unsupported
     }
 
+    @Override
+    @Test
+    @Ignore
+    public void testIteratorWithRepeatedComponents() {
+        // Direct insert for SearchBlock is unsupported
+    }
+
     /**
      * The implementation of {@link #testMightContainLocatorKeyValue()}.
      * 
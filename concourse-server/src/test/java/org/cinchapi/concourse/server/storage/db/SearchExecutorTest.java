@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import java.io.File;
+import java.util.List;
+
+import org.cinchapi.concourse.ConcourseBaseTest;
+import org.cinchapi.concourse.server.io.FileSystem;
+import org.cinchapi.concourse.server.model.PrimaryKey;
+import org.cinchapi.concourse.server.model.Text;
+import org.cinchapi.concourse.server.model.Value;
+import org.cinchapi.concourse.server.storage.Action;
+import org.cinchapi.concourse.time.Time;
+import org.cinchapi.concourse.util.Convert;
+import org.cinchapi.concourse.util.TStrings;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for {@link SearchExecutor}.
+ *
+ * @author Jeff Nelson
+ */
+public class SearchExecutorTest extends ConcourseBaseTest {
+
+    /**
+     * A small vocabulary (including some stop words) so that the random values
+     * share plenty of terms and phrases.
+     */
+    private static final String[] WORDS = { "foo", "bar", "baz", "qux",
+            "quux", "corge", "grault", "garply", "the", "and", "a", "of" };
+
+    private List<SearchBlock> blocks;
+    private String directory;
+    private Text key;
+
+    @Before
+    public void setUp() {
+        directory = TestData.DATA_DIR + File.separator + Time.now();
+        key = Text.wrap(TestData.getSimpleString());
+        blocks = Lists.newArrayList();
+        List<Value> added = Lists.newArrayList();
+        List<PrimaryKey> records = Lists.newArrayList();
+        for (int i = 0; i < 3; ++i) {
+            SearchBlock block = Block.createSearchBlock(
+                    Long.toString(Time.now()), directory);
+            for (int j = 0; j < 100; ++j) {
+                if(!added.isEmpty() && TestData.getScaleCount() % 5 == 0) {
+                    int index = Math.abs(TestData.getInt()) % added.size();
+                    block.insert(key, added.remove(index),
+                            records.remove(index), Time.now(), Action.REMOVE);
+                }
+                else {
+                    Value value = Value.wrap(Convert
+                            .javaToThrift(getPhrase(3 + Math.abs(TestData
+                                    .getInt()) % 8)));
+                    PrimaryKey record = PrimaryKey.wrap(Math.abs(TestData
+                            .getInt()) % 50);
+                    block.insert(key, value, record, Time.now(), Action.ADD);
+                    added.add(value);
+                    records.add(record);
+                }
+            }
+            if(i < 2) {
+                block.sync();
+            }
+            blocks.add(block);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        FileSystem.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testSearchMatchesSearchRecord() {
+        for (int i = 0; i < 200; ++i) {
+            String query = getPhrase(1 + i % 6);
+            if(i % 4 == 0) {
+                // use an infix of the last term
+                query = query.substring(0, query.length() - 1);
+            }
+            Assert.assertEquals(query,
+                    Lists.newArrayList(searchRecord(query)),
+                    Lists.newArrayList(SearchExecutor.search(key, query,
+                            blocks)));
+        }
+    }
+
+    @Test
+    public void testSearchWithOnlyStopWords() {
+        Assert.assertTrue(SearchExecutor.search(key, "the and", blocks)
+                .isEmpty());
+    }
+
+    /**
+     * Return a random phrase with {@code count} words from the
+     * {@link #WORDS}.
+     *
+     * @param count
+     * @return the phrase
+     */
+    private static String getPhrase(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            sb.append(WORDS[Math.abs(TestData.getInt()) % WORDS.length]);
+            sb.append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * Return the result of searching for {@code query} by seeking every term
+     * into a single {@link SearchRecord}.
+     *
+     * @param query
+     * @return the results
+     */
+    private Iterable<PrimaryKey> searchRecord(String query) {
+        SearchRecord record = Record.createSearchRecordPartial(key,
+                Text.wrap(query));
+        for (SearchBlock block : blocks) {
+            for (String tok : query.toLowerCase().split(
+                    TStrings.REGEX_GROUP_OF_ONE_OR_MORE_WHITESPACE_CHARS)) {
+                block.seek(key, Text.wrap(tok), record);
+            }
+        }
+        return record.search(Text.wrap(query));
+    }
+
+}
@@ -15,13 +15,27 @@
  */
 package org.cinchapi.concourse.server.storage.db;
 
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+import org.cinchapi.concourse.server.GlobalState;
+import org.cinchapi.concourse.server.io.FileSystem;
 import org.cinchapi.concourse.server.model.PrimaryKey;
 import org.cinchapi.concourse.server.model.Text;
 import org.cinchapi.concourse.server.model.Value;
+import org.cinchapi.concourse.server.storage.Action;
+import org.cinchapi.concourse.server.storage.cache.BloomFilter;
 import org.cinchapi.concourse.server.storage.db.Block;
 import org.cinchapi.concourse.server.storage.db.SecondaryBlock;
+import org.cinchapi.concourse.thrift.Operator;
 import org.cinchapi.concourse.time.Time;
+import org.cinchapi.concourse.util.Convert;
 import org.cinchapi.concourse.util.TestData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
 
 /**
  * 
@@ -45,6 +59,234 @@ public class SecondaryBlockTest extends BlockTest<Text, Value, PrimaryKey> {
         return TestData.getPrimaryKey();
     }
 
+    @Test
+    public void testSeekKeyRangeInMutableBlock() {
+        Text locator = TestData.getText();
+        Set<PrimaryKey> expected = insertRange(locator);
+        doTestSeekKeyRange(block, locator, expected);
+    }
+
+    @Test
+    public void testSeekKeyRangeInImmutableBlock() {
+        Text locator = TestData.getText();
+        Set<PrimaryKey> expected = insertRange(locator);
+        block.sync();
+        SecondaryBlock loaded = new SecondaryBlock(block.getId(), directory,
+                true);
+        doTestSeekKeyRange(loaded, locator, expected);
+    }
+
+    @Test
+    public void testStatsSurviveReload() {
+        Text locator = TestData.getText();
+        long start = Time.now();
+        insertRange(locator);
+        long end = Time.now();
+        block.sync();
+        SecondaryBlock loaded = new SecondaryBlock(block.getId(), directory,
+                true);
+        Assert.assertFalse(loaded.mightContainVersionAtOrBefore(start - 1));
+        Assert.assertTrue(loaded.mightContainVersionAtOrBefore(end));
+        SecondaryRecord record = Record.createSecondaryRecord(locator);
+        loaded.seek(locator, Value.wrap(Convert.javaToThrift(10)),
+                Value.wrap(Convert.javaToThrift(20)), record);
+        Assert.assertTrue(record.isEmpty());
+    }
+
+    @Test
+    public void testMissingStatsDoNotExcludeBlock() {
+        Text locator = TestData.getText();
+        Set<PrimaryKey> expected = insertRange(locator);
+        block.sync();
+        FileSystem.deleteFile(directory + File.separator + block.getId()
+                + Block.STATS_NAME_EXTENSION);
+        SecondaryBlock loaded = new SecondaryBlock(block.getId(), directory,
+                true);
+        Assert.assertTrue(loaded.mightContainVersionAtOrBefore(0));
+        doTestSeekKeyRange(loaded, locator, expected);
+    }
+
+    @Test
+    public void testLegacyFilterIsRebuiltOnLoad() {
+        Text locator = TestData.getText();
+        Set<PrimaryKey> expected = insertRange(locator);
+        block.sync();
+        String filter = directory + File.separator + block.getId()
+                + Block.FILTER_NAME_EXTENSION;
+        ByteBuffer legacy = ByteBuffer.allocate(16);
+        legacy.putInt(0xACED0005).putLong(TestData.getLong()).putInt(0);
+        legacy.flip();
+        FileSystem.deleteFile(filter);
+        FileSystem.writeBytes(legacy, filter);
+        SecondaryBlock loaded = new SecondaryBlock(block.getId(), directory,
+                true);
+        Assert.assertFalse(BloomFilter.isLegacyFormat(filter));
+        Assert.assertTrue(loaded.isFilterMapped());
+        doTestSeekKeyRange(loaded, locator, expected);
+    }
+
+    @Test
+    public void testSeekEqualValuesOfDifferentForms() {
+        doTestSeekEqualValuesOfDifferentForms(false);
+        doTestSeekEqualValuesOfDifferentForms(true);
+    }
+
+    @Test
+    public void testSeekKeyRangeFromCheckpoint() {
+        doTestSeekKeyRangeFromCheckpoint(false);
+        doTestSeekKeyRangeFromCheckpoint(true);
+    }
+
+    /**
+     * Insert equal values of different forms that are interleaved with other
+     * values, sync the block with or without {@code compression} and assert
+     * that a seek for any of the forms finds all of them.
+     * 
+     * @param compression
+     */
+    private void doTestSeekEqualValuesOfDifferentForms(boolean compression) {
+        Text locator = TestData.getText();
+        Object[] strings = { "foo", "FOO", "Foo" };
+        Object[] numbers = { 1, 1L, 1.0, 1.0f };
+        Set<PrimaryKey> expectedStrings = Sets.newHashSet();
+        Set<PrimaryKey> expectedNumbers = Sets.newHashSet();
+        SecondaryBlock block = getMutableBlock(directory);
+        for (int i = 0; i < 20; ++i) {
+            PrimaryKey record = PrimaryKey.wrap(i);
+            block.insert(locator, Value.wrap(Convert
+                    .javaToThrift(strings[i % strings.length])), record, Time
+                    .now(), Action.ADD);
+            expectedStrings.add(record);
+            record = PrimaryKey.wrap(100 + i);
+            block.insert(locator, Value.wrap(Convert
+                    .javaToThrift(numbers[i % numbers.length])), record, Time
+                    .now(), Action.ADD);
+            expectedNumbers.add(record);
+            block.insert(locator, Value.wrap(Convert.javaToThrift("foo" + i)),
+                    PrimaryKey.wrap(200 + i), Time.now(), Action.ADD);
+            block.insert(locator, Value.wrap(Convert.javaToThrift(i + 2)),
+                    PrimaryKey.wrap(300 + i), Time.now(), Action.ADD);
+        }
+        boolean original = GlobalState.ENABLE_BLOCK_COMPRESSION;
+        GlobalState.ENABLE_BLOCK_COMPRESSION = compression;
+        try {
+            block.sync();
+        }
+        finally {
+            GlobalState.ENABLE_BLOCK_COMPRESSION = original;
+        }
+        block = new SecondaryBlock(block.getId(), directory, true);
+        for (Object string : strings) {
+            Value value = Value.wrap(Convert.javaToThrift(string));
+            SecondaryRecord record = Record.createSecondaryRecordPartial(
+                    locator, value);
+            block.seek(locator, value, value, record);
+            Assert.assertEquals(expectedStrings,
+                    record.find(Operator.EQUALS, value));
+        }
+        for (Object number : numbers) {
+            Value value = Value.wrap(Convert.javaToThrift(number));
+            SecondaryRecord record = Record.createSecondaryRecordPartial(
+                    locator, value);
+            block.seek(locator, value, value, record);
+            Assert.assertEquals(expectedNumbers,
+                    record.find(Operator.EQUALS, value));
+        }
+    }
+
+    /**
+     * Insert enough distinct keys for a locator to have several
+     * {@link BlockStats#CHECKPOINT_INTERVAL checkpoints}, sync the block with
+     * or without {@code compression} and assert that seeks for ranges that
+     * start before, at and after the checkpoints find all of the keys in the
+     * range.
+     * 
+     * @param compression
+     */
+    private void doTestSeekKeyRangeFromCheckpoint(boolean compression) {
+        Text locator = TestData.getText();
+        int count = BlockStats.CHECKPOINT_INTERVAL * 5;
+        SecondaryBlock block = getMutableBlock(directory);
+        for (int i = 0; i < count; ++i) {
+            block.insert(locator, Value.wrap(Convert.javaToThrift(i)),
+                    PrimaryKey.wrap(i), Time.now(), Action.ADD);
+        }
+        boolean original = GlobalState.ENABLE_BLOCK_COMPRESSION;
+        GlobalState.ENABLE_BLOCK_COMPRESSION = compression;
+        try {
+            block.sync();
+        }
+        finally {
+            GlobalState.ENABLE_BLOCK_COMPRESSION = original;
+        }
+        block = new SecondaryBlock(block.getId(), directory, true);
+        int[] bounds = { 0, 1, BlockStats.CHECKPOINT_INTERVAL - 1,
+                BlockStats.CHECKPOINT_INTERVAL,
+                BlockStats.CHECKPOINT_INTERVAL + 1,
+                BlockStats.CHECKPOINT_INTERVAL * 3 + 7, count - 1 };
+        for (int min : bounds) {
+            for (int max : bounds) {
+                if(min <= max) {
+                    SecondaryRecord record = Record
+                            .createSecondaryRecord(locator);
+                    block.seek(locator, Value.wrap(Convert.javaToThrift(min)),
+                            Value.wrap(Convert.javaToThrift(max)), record);
+                    Set<PrimaryKey> expected = Sets.newHashSet();
+                    for (int i = min; i <= max; ++i) {
+                        expected.add(PrimaryKey.wrap(i));
+                    }
+                    Assert.assertEquals(expected, record.find(
+                            Operator.GREATER_THAN,
+                            Value.wrap(Convert.javaToThrift(-1))));
+                }
+            }
+        }
+    }
+
+    /**
+     * Insert the integers 0 through 9 as keys for {@code locator} (along with
+     * some noise in a different locator) and return the values that were
+     * inserted for the keys between 3 and 6.
+     * 
+     * @param locator
+     * @return the expected values for a seek between 3 and 6
+     */
+    private Set<PrimaryKey> insertRange(Text locator) {
+        Set<PrimaryKey> expected = Sets.newHashSet();
+        Text other = null;
+        while (other == null || other.equals(locator)) {
+            other = TestData.getText();
+        }
+        for (int i = 0; i < 10; ++i) {
+            Value key = Value.wrap(Convert.javaToThrift(i));
+            PrimaryKey value = PrimaryKey.wrap(i);
+            block.insert(locator, key, value, Time.now(), Action.ADD);
+            block.insert(other, key, value, Time.now(), Action.ADD);
+            if(i >= 3 && i <= 6) {
+                expected.add(value);
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Seek the keys between 3 and 6 for {@code locator} in {@code block} and
+     * assert that only the {@code expected} values are found.
+     * 
+     * @param block
+     * @param locator
+     * @param expected
+     */
+    private void doTestSeekKeyRange(Block<Text, Value, PrimaryKey> block,
+            Text locator, Set<PrimaryKey> expected) {
+        SecondaryRecord record = Record.createSecondaryRecord(locator);
+        block.seek(locator, Value.wrap(Convert.javaToThrift(3)),
+                Value.wrap(Convert.javaToThrift(6)), record);
+        Assert.assertEquals(4, record.browse().size());
+        Assert.assertEquals(expected, record.find(Operator.GREATER_THAN,
+                Value.wrap(Convert.javaToThrift(-1))));
+    }
+
     @Override
     protected SecondaryBlock getMutableBlock(String directory) {
         return Block.createSecondaryBlock(Long.toString(Time.now()), directory);
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.db;
+
+import org.cinchapi.concourse.server.model.PrimaryKey;
+import org.cinchapi.concourse.server.model.Text;
+import org.cinchapi.concourse.server.model.Value;
+import org.cinchapi.concourse.server.storage.Action;
+import org.cinchapi.concourse.thrift.Operator;
+import org.cinchapi.concourse.util.Convert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+
+/**
+ * Compare present and historical range finds on a {@link SecondaryRecord}
+ * that has a large number of distinct values.
+ *
+ * @author Jeff Nelson
+ */
+public class SecondaryRecordBenchmark extends AbstractBenchmark {
+
+    /**
+     * The number of distinct values in the record.
+     */
+    private static final int COUNT = 100000;
+
+    private static SecondaryRecord record;
+    private static Value top;
+    private static Value bottom;
+    private static Value middle;
+    private static Value aboveMiddle;
+
+    @BeforeClass
+    public static void setUp() {
+        Text key = Text.wrap("count");
+        record = Record.createSecondaryRecord(key);
+        for (int i = 0; i < COUNT; ++i) {
+            record.append(Revision.createSecondaryRevision(key,
+                    Value.wrap(Convert.javaToThrift(i)), PrimaryKey.wrap(i),
+                    i + 1, Action.ADD));
+        }
+        top = Value.wrap(Convert.javaToThrift(COUNT - 100));
+        bottom = Value.wrap(Convert.javaToThrift(100));
+        middle = Value.wrap(Convert.javaToThrift(COUNT / 2));
+        aboveMiddle = Value.wrap(Convert.javaToThrift(COUNT / 2 + 100));
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkPresentGreaterThan() {
+        record.find(Operator.GREATER_THAN, top);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkHistoricalGreaterThan() {
+        record.find(COUNT, Operator.GREATER_THAN, top);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkPresentLessThan() {
+        record.find(Operator.LESS_THAN, bottom);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkHistoricalLessThan() {
+        record.find(COUNT, Operator.LESS_THAN, bottom);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkPresentBetween() {
+        record.find(Operator.BETWEEN, middle, aboveMiddle);
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 100, warmupRounds = 10)
+    public void benchmarkHistoricalBetween() {
+        record.find(COUNT, Operator.BETWEEN, middle, aboveMiddle);
+    }
+
+}
@@ -100,4 +100,39 @@ public class SecondaryRecordTest extends
 
         }
     }
+
+    @Test
+    public void testHistoricalRangeFindOnlyReturnsRelevantData() {
+        Text locator = TestData.getText();
+        record = getRecord(locator);
+        for (int i = 0; i < 100; i++) {
+            record.append(getRevision(locator,
+                    Value.wrap(Convert.javaToThrift(i)), PrimaryKey.wrap(i)));
+        }
+        long timestamp = Time.now();
+        for (int i = 0; i < 100; i++) {
+            record.append(getRevision(locator,
+                    Value.wrap(Convert.javaToThrift(i)), PrimaryKey.wrap(i)));
+        }
+        SecondaryRecord secondary = (SecondaryRecord) record;
+        Set<PrimaryKey> gt = secondary.find(timestamp, Operator.GREATER_THAN,
+                Value.wrap(Convert.javaToThrift(50)));
+        Set<PrimaryKey> lte = secondary.find(timestamp,
+                Operator.LESS_THAN_OR_EQUALS,
+                Value.wrap(Convert.javaToThrift(50)));
+        Set<PrimaryKey> between = secondary.find(timestamp, Operator.BETWEEN,
+                Value.wrap(Convert.javaToThrift(10)),
+                Value.wrap(Convert.javaToThrift(20)));
+        Assert.assertEquals(49, gt.size());
+        Assert.assertEquals(51, lte.size());
+        Assert.assertEquals(10, between.size());
+        for (int i = 0; i < 100; i++) {
+            PrimaryKey pk = PrimaryKey.wrap(i);
+            Assert.assertEquals(i > 50, gt.contains(pk));
+            Assert.assertEquals(i <= 50, lte.contains(pk));
+            Assert.assertEquals(i >= 10 && i < 20, between.contains(pk));
+        }
+        Assert.assertTrue(secondary.find(Operator.GREATER_THAN,
+                Value.wrap(Convert.javaToThrift(50))).isEmpty());
+    }
 }
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.cinchapi.concourse.server.GlobalState;
 import org.cinchapi.concourse.server.io.FileSystem;
 import org.cinchapi.concourse.server.storage.PermanentStore;
 import org.cinchapi.concourse.server.storage.Store;
@@ -75,6 +76,26 @@ public class BufferTest extends LimboTest {
         FileSystem.deleteDirectory(current);
     }
 
+    /**
+     * Return a started Buffer in the {@link #current} directory that uses
+     * group commit for synced inserts.
+     * 
+     * @return the Buffer
+     */
+    private Buffer getGroupCommitBuffer() {
+        store.stop();
+        Buffer buffer = new Buffer(current);
+        boolean original = GlobalState.ENABLE_BUFFER_GROUP_COMMIT;
+        GlobalState.ENABLE_BUFFER_GROUP_COMMIT = true;
+        try {
+            buffer.start();
+        }
+        finally {
+            GlobalState.ENABLE_BUFFER_GROUP_COMMIT = original;
+        }
+        return buffer;
+    }
+
     @Test
     public void testBufferCanAddPageWhileServicingRead()
             throws InterruptedException {
@@ -155,6 +176,72 @@ public class BufferTest extends LimboTest {
         Assert.assertFalse(it0.hasNext());
     }
 
+    @Test
+    public void testConcurrentSyncedInsertsAreGroupCommitted()
+            throws InterruptedException {
+        final Buffer buffer = getGroupCommitBuffer();
+        final String key = TestData.getString();
+        int count = TestData.getScaleCount();
+        List<Thread> threads = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; ++i) {
+            final int record = i;
+            threads.add(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    buffer.insert(Write.add(key, Convert.javaToThrift(record),
+                            record), true);
+                }
+
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < count; ++i) {
+            Assert.assertTrue(buffer.verify(key, Convert.javaToThrift(i), i));
+        }
+        Assert.assertTrue(buffer.getGroupCommitBatchSize() >= 1);
+        buffer.stop();
+    }
+
+    @Test(timeout = 30000)
+    public void testStopWhileGroupCommittingInserts()
+            throws InterruptedException {
+        final Buffer buffer = getGroupCommitBuffer();
+        final String key = TestData.getString();
+        final AtomicBoolean done = new AtomicBoolean(false);
+        int count = TestData.getScaleCount();
+        List<Thread> threads = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; ++i) {
+            final int record = i;
+            threads.add(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    int value = 0;
+                    while (!done.get()) {
+                        buffer.insert(Write.add(key,
+                                Convert.javaToThrift(value++), record), true);
+                    }
+                }
+
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        Thread.sleep(10);
+        buffer.stop();
+        done.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
     @Test
     public void testWaitUntilTransportable() throws InterruptedException {
         final AtomicLong later = new AtomicLong(0);
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.server.storage.temp;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.cinchapi.concourse.ConcourseBaseTest;
+import org.cinchapi.concourse.util.TestData;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for {@link GroupCommitter}.
+ * 
+ * @author Jeff Nelson
+ */
+public class GroupCommitterTest extends ConcourseBaseTest {
+
+    @Test
+    public void testWritersAreReleasedAfterFlush() throws InterruptedException {
+        final AtomicLong appended = new AtomicLong(0);
+        final AtomicLong flushedThrough = new AtomicLong(0);
+        final GroupCommitter committer = new GroupCommitter("test", 5,
+                new Runnable() {
+
+                    @Override
+                    public void run() {
+                        flushedThrough.set(appended.get());
+                    }
+
+                });
+        committer.start();
+        int count = TestData.getScaleCount();
+        final AtomicInteger violations = new AtomicInteger(0);
+        List<Thread> threads = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; ++i) {
+            threads.add(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    long ticket;
+                    long position;
+                    synchronized (appended) {
+                        position = appended.incrementAndGet();
+                        ticket = committer.enqueue();
+                    }
+                    committer.await(ticket);
+                    if(flushedThrough.get() < position) {
+                        violations.incrementAndGet();
+                    }
+                }
+
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        committer.stop();
+        Assert.assertEquals(0, violations.get());
+        Assert.assertTrue(committer.getFlushCount() <= count);
+        Assert.assertEquals((double) count / committer.getFlushCount(),
+                committer.getAverageBatchSize(), 0.001);
+    }
+
+    @Test(timeout = 30000)
+    public void testTicketsIssuedDuringStopAreFlushed()
+            throws InterruptedException {
+        final AtomicLong appended = new AtomicLong(0);
+        final AtomicLong flushedThrough = new AtomicLong(0);
+        final GroupCommitter committer = new GroupCommitter("test", 0,
+                new Runnable() {
+
+                    @Override
+                    public void run() {
+                        flushedThrough.set(appended.get());
+                    }
+
+                });
+        committer.start();
+        int count = TestData.getScaleCount();
+        final AtomicInteger violations = new AtomicInteger(0);
+        List<Thread> threads = Lists.newArrayListWithCapacity(count);
+        for (int i = 0; i < count; ++i) {
+            threads.add(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    for (int j = 0; j < 100; ++j) {
+                        long ticket;
+                        long position;
+                        synchronized (appended) {
+                            position = appended.incrementAndGet();
+                            ticket = committer.enqueue();
+                        }
+                        committer.await(ticket);
+                        if(flushedThrough.get() < position) {
+                            violations.incrementAndGet();
+                        }
+                    }
+                }
+
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        committer.stop();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(0, violations.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFlushFailureIsPropagatedToWriters() {
+        GroupCommitter committer = new GroupCommitter("test", 0,
+                new Runnable() {
+
+                    @Override
+                    public void run() {
+                        throw new IllegalStateException();
+                    }
+
+                });
+        committer.start();
+        try {
+            committer.await(committer.enqueue());
+        }
+        finally {
+            committer.stop();
+        }
+    }
+
+}
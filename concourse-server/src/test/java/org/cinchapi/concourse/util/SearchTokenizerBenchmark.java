@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.util;
+
+import java.util.List;
+import java.util.Set;
+
+import org.cinchapi.concourse.server.GlobalState;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.carrotsearch.junitbenchmarks.AbstractBenchmark;
+import com.carrotsearch.junitbenchmarks.BenchmarkOptions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Compare the {@link SearchTokenizer} to lowercasing and splitting with a
+ * regex when finding the substrings that are indexed for search. The text is
+ * made up of short "title" values and long "description" values that contain
+ * capitalized words and stop words, like the text columns that are typically
+ * searched. The other words are taken from words.txt and have the length of
+ * typical English words.
+ *
+ * @author Jeff Nelson
+ */
+public class SearchTokenizerBenchmark extends AbstractBenchmark {
+
+    /**
+     * The number of title and description values that are tokenized in each
+     * round.
+     */
+    private static final int VALUES = 2000;
+
+    private static List<String> values = Lists.newArrayList();
+
+    @BeforeClass
+    public static void setUp() {
+        List<String> words = Lists.newArrayList();
+        for (String line : TestData.getWordsDotTxt()) {
+            for (String word : line.split(" ")) {
+                if(word.length() >= 2 && word.length() <= 14) {
+                    words.add(word);
+                }
+            }
+        }
+        List<String> stopwords = Lists.newArrayList(GlobalState.STOPWORDS);
+        for (int i = 0; i < VALUES; ++i) {
+            int count = i % 2 == 0 ? 6 : 60;
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < count; ++j) {
+                if(j % 3 == 1) {
+                    sb.append(stopwords.get(Math.abs(TestData.getInt())
+                            % stopwords.size()));
+                }
+                else {
+                    String word = words.get(Math.abs(TestData.getInt())
+                            % words.size());
+                    sb.append(j % 5 == 0 ? Character.toUpperCase(word
+                            .charAt(0)) + word.substring(1) : word);
+                }
+                sb.append(' ');
+            }
+            values.add(sb.toString().trim());
+        }
+        Assert.assertEquals(countWithRegex(), countWithTokenizer());
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 10, warmupRounds = 3)
+    public void benchmarkRegexSplit() {
+        countWithRegex();
+    }
+
+    @Test
+    @BenchmarkOptions(benchmarkRounds = 10, warmupRounds = 3)
+    public void benchmarkSearchTokenizer() {
+        countWithTokenizer();
+    }
+
+    /**
+     * Find the distinct substrings of each term in the {@link #values} by
+     * lowercasing and splitting each value with a regex.
+     *
+     * @return the number of substrings
+     */
+    private static int countWithRegex() {
+        int count = 0;
+        for (String value : values) {
+            for (String term : value.toLowerCase().split(
+                    TStrings.REGEX_GROUP_OF_ONE_OR_MORE_WHITESPACE_CHARS)) {
+                if(!GlobalState.STOPWORDS.contains(term)) {
+                    Set<String> indexed = Sets.newHashSet();
+                    for (int i = 0; i < term.length(); ++i) {
+                        for (int j = i + 1; j < term.length() + 1; ++j) {
+                            String substring = term.substring(i, j).trim();
+                            if(!Strings.isNullOrEmpty(substring)
+                                    && !GlobalState.STOPWORDS
+                                            .contains(substring)
+                                    && indexed.add(substring)) {
+                                ++count;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find the distinct substrings of each term in the {@link #values} with a
+     * {@link SearchTokenizer}.
+     *
+     * @return the number of substrings
+     */
+    private static int countWithTokenizer() {
+        int count = 0;
+        SearchTokenizer tokenizer = new SearchTokenizer();
+        for (String value : values) {
+            tokenizer.reset(value);
+            while (tokenizer.next()) {
+                if(!tokenizer.isStopWord()) {
+                    for (int i = tokenizer.getStart(); i < tokenizer.getEnd(); ++i) {
+                        for (int j = i + 1; j < tokenizer.getEnd() + 1; ++j) {
+                            if(!tokenizer.isRepeated(i, j)
+                                    && !tokenizer.isStopWord(i, j)) {
+                                tokenizer.getString(i, j);
+                                ++count;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2013-2015 Cinchapi, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.cinchapi.concourse.util;
+
+import java.util.List;
+
+import org.cinchapi.concourse.ConcourseBaseTest;
+import org.cinchapi.concourse.server.GlobalState;
+import org.cinchapi.concourse.testing.Variables;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Unit tests for the {@link SearchTokenizer} class.
+ *
+ * @author Jeff Nelson
+ */
+public class SearchTokenizerTest extends ConcourseBaseTest {
+
+    @Test
+    public void testSearchTokenizerMatchesSplit() {
+        SearchTokenizer tokenizer = new SearchTokenizer();
+        for (int i = 0; i < 10; ++i) {
+            String string = Variables.register("string", getText());
+            List<String> expected = Lists.newArrayList();
+            for (String tok : string.toLowerCase().split(
+                    TStrings.REGEX_GROUP_OF_ONE_OR_MORE_WHITESPACE_CHARS)) {
+                if(!tok.isEmpty()) {
+                    expected.add(tok);
+                }
+            }
+            List<String> actual = Lists.newArrayList();
+            tokenizer.reset(string);
+            while (tokenizer.next()) {
+                Assert.assertEquals(actual.size(), tokenizer.getIndex());
+                actual.add(tokenizer.getString());
+            }
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testSearchTokenizerLowercasesNonAsciiText() {
+        SearchTokenizer tokenizer = new SearchTokenizer();
+        tokenizer.reset("\u00C0B\u00C7\td\u00C9f");
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals("\u00E0b\u00E7", tokenizer.getString());
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals("d\u00E9f", tokenizer.getString());
+        Assert.assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void testSearchTokenizerIsStopWord() {
+        SearchTokenizer tokenizer = new SearchTokenizer();
+        for (String stopword : GlobalState.STOPWORDS) {
+            tokenizer.reset(" " + stopword.toUpperCase() + " ");
+            Assert.assertTrue(tokenizer.next());
+            Assert.assertTrue(stopword, tokenizer.isStopWord());
+        }
+        for (int i = 0; i < 100; ++i) {
+            String word = TestData.getSimpleString().toLowerCase();
+            tokenizer.reset(word);
+            Assert.assertTrue(tokenizer.next());
+            Assert.assertEquals(word, GlobalState.STOPWORDS.contains(word),
+                    tokenizer.isStopWord());
+            for (int j = 1; j < word.length(); ++j) {
+                Assert.assertEquals(GlobalState.STOPWORDS.contains(word
+                        .substring(0, j)), tokenizer.isStopWord(0, j));
+            }
+        }
+    }
+
+    @Test
+    public void testSearchTokenizerIsRepeated() {
+        SearchTokenizer tokenizer = new SearchTokenizer();
+        for (int i = 0; i < 10; ++i) {
+            String word = TestData.getSimpleString().toLowerCase();
+            tokenizer.reset("foo " + word);
+            tokenizer.next();
+            Assert.assertTrue(tokenizer.next());
+            int start = tokenizer.getStart();
+            for (int from = start; from < tokenizer.getEnd(); ++from) {
+                for (int to = from + 1; to <= tokenizer.getEnd(); ++to) {
+                    String substring = word.substring(from - start, to
+                            - start);
+                    Assert.assertEquals(substring,
+                            word.indexOf(substring) < from - start,
+                            tokenizer.isRepeated(from, to));
+                }
+            }
+        }
+    }
+
+    /**
+     * Return a random text that has words and stop words in mixed case that
+     * are separated by different groups of whitespace.
+     *
+     * @return the text
+     */
+    private static String getText() {
+        String[] separators = { " ", "  ", "\t", "\n", " \r\n ", "\f" };
+        List<String> stopwords = Lists.newArrayList(GlobalState.STOPWORDS);
+        StringBuilder sb = new StringBuilder();
+        int count = TestData.getScaleCount();
+        for (int i = 0; i < count; ++i) {
+            sb.append(separators[Math.abs(TestData.getInt())
+                    % separators.length]);
+            if(TestData.getInt() % 3 == 0) {
+                sb.append(stopwords.get(Math.abs(TestData.getInt())
+                        % stopwords.size()));
+            }
+            else {
+                sb.append(TestData.getString());
+            }
+        }
+        return sb.toString();
+    }
+
+}